@@ -4,8 +4,11 @@ import java.lang.instrument.Instrumentation;
 import java.nio.file.Path;
 
 public class AnalysisAgent {
+    private static final String DEFAULT_OUT_PATH = "/home/student/codelinter_events.txt";
+
     public static void premain(String args, Instrumentation instrumentation) {
-        EventRecorder.setOutPath(Path.of("/home/student/codelinter_events.txt"));
+        // the path of the events can be passed as the argument of the agent, when the tests do not run in a container
+        EventRecorder.setOutPath(Path.of(args == null || args.isEmpty() ? DEFAULT_OUT_PATH : args));
         instrumentation.addTransformer(new ClassTransformer());
     }
 }
@@ -15,6 +15,11 @@ public class ClassTransformer implements ClassFileTransformer {
             return buffer;
         }
 
+        // Don't modify ASM, which is used by the agent and by the executor to rewrite the classes of the student
+        if (className.startsWith("org/objectweb/asm/")) {
+            return buffer;
+        }
+
         // Don't modify classes of the Autograder Framework (excluding tests in check_tests)
         if (className.startsWith("de/firemage/autograder") && !className.contains("check_tests")) {
             return buffer;
@@ -0,0 +1,88 @@
+package de.firemage.autograder.agent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A fixed number of events that are recorded by a single thread as primitives.
+ * <p>
+ * Only the owning thread appends events. Each event is published by a release store of the size, so that the thread
+ * that writes the events can read them while the owner keeps appending without any locks.
+ */
+final class EventBuffer {
+    static final int CAPACITY = 1024;
+    private static final int INTS_PER_EVENT = 4;
+    private static final VarHandle SIZE;
+
+    static {
+        try {
+            SIZE = MethodHandles.lookup().findVarHandle(EventBuffer.class, "size", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Thread owner;
+    private final byte[] kinds = new byte[CAPACITY];
+    private final int[] ints = new int[CAPACITY * INTS_PER_EVENT];
+    private final long[] values = new long[CAPACITY];
+    @SuppressWarnings("unused") // accessed by SIZE
+    private int size = 0;
+    // only accessed by the reader
+    private int taken = 0;
+
+    EventBuffer(Thread owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Appends an event. May only be called by the owning thread.
+     *
+     * @return false if the buffer is full
+     */
+    boolean add(byte kind, int method, int a, int b, int c, long value) {
+        int index = (int) SIZE.get(this);
+        if (index == CAPACITY) {
+            return false;
+        }
+
+        this.kinds[index] = kind;
+        int offset = index * INTS_PER_EVENT;
+        this.ints[offset] = method;
+        this.ints[offset + 1] = a;
+        this.ints[offset + 2] = b;
+        this.ints[offset + 3] = c;
+        this.values[index] = value;
+        SIZE.setRelease(this, index + 1);
+        return true;
+    }
+
+    /**
+     * Passes the events that have been appended since the last call to the reader.
+     * Calls must not overlap.
+     */
+    void take(Reader reader) {
+        int size = (int) SIZE.getAcquire(this);
+        for (int index = this.taken; index < size; index++) {
+            int offset = index * INTS_PER_EVENT;
+            reader.read(this.kinds[index], this.ints[offset], this.ints[offset + 1], this.ints[offset + 2],
+                this.ints[offset + 3], this.values[index]);
+        }
+        this.taken = size;
+    }
+
+    /**
+     * Whether no events will be appended anymore and all events have been taken.
+     */
+    boolean isExhausted() {
+        // checked before the size, so that no event of a terminated owner is missed
+        boolean terminated = !this.owner.isAlive();
+        int size = (int) SIZE.getAcquire(this);
+        return this.taken == size && (size == CAPACITY || terminated);
+    }
+
+    @FunctionalInterface
+    interface Reader {
+        void read(byte kind, int method, int a, int b, int c, long value);
+    }
+}
@@ -8,23 +8,65 @@ import de.firemage.autograder.event.PrimitiveReturnEvent;
 import de.firemage.autograder.event.PutFieldEvent;
 import de.firemage.autograder.event.ReferenceReturnEvent;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
-
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Records the events of the instrumented code.
+ * <p>
+ * Every thread records its events into its own {@link EventBuffer}, which only contains the ids of {@link Symbols}
+ * and primitive values. Full buffers are replaced without locks, the events are only turned into {@link Event}s when
+ * they are written. The events of each thread are in order, but the events of different threads are not interleaved
+ * by time.
+ * <p>
+ * The events are only written when they are taken, so at most {@link #MAX_BUFFERS} buffers are kept until then.
+ * When a thread fills its buffer and no new one may be created, its events are dropped and counted instead.
+ */
 public class EventRecorder {
-    private static final List<Event> events = new ArrayList<>();
+    private static final byte ENTER = 0;
+    private static final byte EXIT_THROW = 1;
+    private static final byte REFERENCE_RETURN = 2;
+    private static final byte PRIMITIVE_RETURN = 3;
+    private static final byte PUT_FIELD = 4;
+    private static final byte GET_FIELD = 5;
+
+    private static final int NULL = Symbols.intern("null");
+    private static final ClassValue<Integer> TYPES = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return Symbols.intern(type.getName().replace(".", "/"));
+        }
+    };
+
+    // about 25 MiB, the heap of the tests is small
+    static final int MAX_BUFFERS = 1024;
+
+    private static final Queue<EventBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger bufferCount = new AtomicInteger();
+    private static final AtomicLong droppedEvents = new AtomicLong();
+    private static final ThreadLocal<EventBuffer> currentBuffer = ThreadLocal.withInitial(EventRecorder::newBuffer);
+    private static final Object readLock = new Object();
     private static Path outPath;
 
     static {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            int count = 0;
             try {
-                Event.write(events, outPath);
+                count = takeEvents(outPath);
             } catch (IOException e) {
                 e.printStackTrace();
             }
-            System.out.println("AGENT: Writing " + events.size() + " events to " + outPath.toAbsolutePath());
+            System.out.println("AGENT: Writing " + count + " events to " + outPath.toAbsolutePath());
         }));
     }
 
@@ -32,119 +74,180 @@ public class EventRecorder {
         EventRecorder.outPath = outPath;
     }
 
-    public static void recordReferenceReturn(String clazz, String methodName, String methodDesc, Object returnedValue) {
-        if (returnedValue == null) {
-            events.add(new ReferenceReturnEvent(clazz, methodName, methodDesc, null));
-        } else {
-            events.add(new ReferenceReturnEvent(clazz, methodName, methodDesc,
-                returnedValue.getClass().getName().replace(".", "/")));
-        }
-    }
-
-    public static void recordPutField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      Object value) {
-        String targetType = target != null ? target.getClass().getName().replace(".", "/") : "null";
-        String valueType = value != null ? value.getClass().getName().replace(".", "/") : "null";
-        events.add(new PutFieldEvent(clazz, methodName, methodDesc, targetType, field, valueType));
-    }
+    /**
+     * Writes the events that have been recorded so far to the given file and forgets them. This separates the events
+     * of multiple tests that run in the same JVM.
+     * <p>
+     * If events have been dropped since the last call, their number is printed.
+     *
+     * @param path the file for the events or null if they are dropped
+     * @return the number of events
+     * @throws IOException if the events could not be written
+     */
+    public static int takeEvents(Path path) throws IOException {
+        synchronized (readLock) {
+            long dropped = droppedEvents.getAndSet(0);
+            if (dropped > 0) {
+                System.out.println("AGENT: Dropped " + dropped + " events, because more than "
+                    + MAX_BUFFERS * EventBuffer.CAPACITY + " events were recorded");
+            }
 
-    public static void recordPutField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      boolean value) {
-        EventRecorder.recordPutField(clazz, methodName, methodDesc, target, field, Boolean.valueOf(value));
-    }
+            if (path == null) {
+                return readEvents(event -> {
+                });
+            }
 
-    public static void recordPutField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      char value) {
-        EventRecorder.recordPutField(clazz, methodName, methodDesc, target, field, Character.valueOf(value));
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                return readEvents(event -> {
+                    try {
+                        writer.write(event.format());
+                        writer.newLine();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
     }
 
-    public static void recordPutField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      byte value) {
-        EventRecorder.recordPutField(clazz, methodName, methodDesc, target, field, Byte.valueOf(value));
-    }
+    private static int readEvents(Consumer<Event> consumer) {
+        int[] count = {0};
+        for (Iterator<EventBuffer> iterator = buffers.iterator(); iterator.hasNext(); ) {
+            EventBuffer buffer = iterator.next();
+            buffer.take((kind, method, a, b, c, value) -> {
+                consumer.accept(toEvent(kind, method, a, b, c, value));
+                count[0]++;
+            });
+            if (buffer.isExhausted()) {
+                iterator.remove();
+                bufferCount.decrementAndGet();
+            }
+        }
+        return count[0];
+    }
+
+    private static Event toEvent(byte kind, int method, int a, int b, int c, long value) {
+        Symbols.MethodSite site = Symbols.method(method);
+        return switch (kind) {
+            case ENTER -> new MethodEnterEvent(site.clazz(), site.name(), site.descriptor());
+            case EXIT_THROW -> new MethodExitThrowEvent(site.clazz(), site.name(), site.descriptor(), Symbols.name(a));
+            case REFERENCE_RETURN ->
+                new ReferenceReturnEvent(site.clazz(), site.name(), site.descriptor(), a == NULL ? null : Symbols.name(a));
+            case PRIMITIVE_RETURN ->
+                new PrimitiveReturnEvent(site.clazz(), site.name(), site.descriptor(), toPrimitive((char) a, value));
+            case PUT_FIELD -> new PutFieldEvent(site.clazz(), site.name(), site.descriptor(), Symbols.name(a),
+                Symbols.name(b), Symbols.name(c));
+            case GET_FIELD -> new GetFieldEvent(site.clazz(), site.name(), site.descriptor(), Symbols.name(a),
+                Symbols.name(b), Symbols.name(c));
+            default -> throw new IllegalStateException("Unknown event kind " + kind);
+        };
+    }
+
+    private static Object toPrimitive(char descriptor, long value) {
+        return switch (descriptor) {
+            case 'Z' -> value != 0;
+            case 'C' -> (char) value;
+            case 'B' -> (byte) value;
+            case 'S' -> (short) value;
+            case 'I' -> (int) value;
+            case 'J' -> value;
+            case 'F' -> Float.intBitsToFloat((int) value);
+            case 'D' -> Double.longBitsToDouble(value);
+            default -> throw new IllegalStateException("Unknown primitive type " + descriptor);
+        };
+    }
+
+    private static EventBuffer newBuffer() {
+        EventBuffer buffer = new EventBuffer(Thread.currentThread());
+        bufferCount.incrementAndGet();
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    private static void record(byte kind, int method, int a, int b, int c, long value) {
+        EventBuffer buffer = currentBuffer.get();
+        if (!buffer.add(kind, method, a, b, c, value)) {
+            // the limit is not exact, because other threads might create a buffer at the same time
+            if (bufferCount.get() >= MAX_BUFFERS) {
+                droppedEvents.incrementAndGet();
+                return;
+            }
 
-    public static void recordPutField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      short value) {
-        EventRecorder.recordPutField(clazz, methodName, methodDesc, target, field, Short.valueOf(value));
+            buffer = newBuffer();
+            currentBuffer.set(buffer);
+            buffer.add(kind, method, a, b, c, value);
+        }
     }
 
-    public static void recordPutField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      int value) {
-        EventRecorder.recordPutField(clazz, methodName, methodDesc, target, field, Integer.valueOf(value));
+    private static int typeOf(Object value) {
+        return value == null ? NULL : TYPES.get(value.getClass());
     }
 
-    public static void recordPutField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      long value) {
-        EventRecorder.recordPutField(clazz, methodName, methodDesc, target, field, Long.valueOf(value));
+    public static void recordMethodEnter(int method) {
+        record(ENTER, method, 0, 0, 0, 0);
     }
 
-    public static void recordPutField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      float value) {
-        EventRecorder.recordPutField(clazz, methodName, methodDesc, target, field, Float.valueOf(value));
+    public static void recordExitThrow(int method, Throwable throwable) {
+        record(EXIT_THROW, method, typeOf(throwable), 0, 0, 0);
     }
 
-    public static void recordPutField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      double value) {
-        EventRecorder.recordPutField(clazz, methodName, methodDesc, target, field, Double.valueOf(value));
+    public static void recordReferenceReturn(int method, Object returnedValue) {
+        record(REFERENCE_RETURN, method, typeOf(returnedValue), 0, 0, 0);
     }
 
-    public static void recordGetField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      Object value) {
-        String targetType = target != null ? target.getClass().getName().replace(".", "/") : "null";
-        String valueType = value != null ? value.getClass().getName().replace(".", "/") : "null";
-        events.add(new GetFieldEvent(clazz, methodName, methodDesc, targetType, field, valueType));
+    public static void recordPrimitiveReturn(int method, boolean value) {
+        record(PRIMITIVE_RETURN, method, 'Z', 0, 0, value ? 1 : 0);
     }
 
-    public static void recordGetField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      boolean value) {
-        EventRecorder.recordGetField(clazz, methodName, methodDesc, target, field, Boolean.valueOf(value));
+    public static void recordPrimitiveReturn(int method, char value) {
+        record(PRIMITIVE_RETURN, method, 'C', 0, 0, value);
     }
 
-    public static void recordGetField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      char value) {
-        EventRecorder.recordGetField(clazz, methodName, methodDesc, target, field, Character.valueOf(value));
+    public static void recordPrimitiveReturn(int method, byte value) {
+        record(PRIMITIVE_RETURN, method, 'B', 0, 0, value);
     }
 
-    public static void recordGetField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      byte value) {
-        EventRecorder.recordGetField(clazz, methodName, methodDesc, target, field, Byte.valueOf(value));
+    public static void recordPrimitiveReturn(int method, short value) {
+        record(PRIMITIVE_RETURN, method, 'S', 0, 0, value);
     }
 
-    public static void recordGetField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      short value) {
-        EventRecorder.recordGetField(clazz, methodName, methodDesc, target, field, Short.valueOf(value));
+    public static void recordPrimitiveReturn(int method, int value) {
+        record(PRIMITIVE_RETURN, method, 'I', 0, 0, value);
     }
 
-    public static void recordGetField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      int value) {
-        EventRecorder.recordGetField(clazz, methodName, methodDesc, target, field, Integer.valueOf(value));
+    public static void recordPrimitiveReturn(int method, long value) {
+        record(PRIMITIVE_RETURN, method, 'J', 0, 0, value);
     }
 
-    public static void recordGetField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      long value) {
-        EventRecorder.recordGetField(clazz, methodName, methodDesc, target, field, Long.valueOf(value));
+    public static void recordPrimitiveReturn(int method, float value) {
+        record(PRIMITIVE_RETURN, method, 'F', 0, 0, Float.floatToRawIntBits(value));
     }
 
-    public static void recordGetField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      float value) {
-        EventRecorder.recordGetField(clazz, methodName, methodDesc, target, field, Float.valueOf(value));
+    public static void recordPrimitiveReturn(int method, double value) {
+        record(PRIMITIVE_RETURN, method, 'D', 0, 0, Double.doubleToRawLongBits(value));
     }
 
-    public static void recordGetField(String clazz, String methodName, String methodDesc, Object target, String field,
-                                      double value) {
-        EventRecorder.recordGetField(clazz, methodName, methodDesc, target, field, Double.valueOf(value));
+    public static void recordPutField(int method, Object target, int field, Object value) {
+        record(PUT_FIELD, method, typeOf(target), field, typeOf(value), 0);
     }
 
-    public static void recordExitThrow(String clazz, String methodName, String methodDesc, Throwable throwable) {
-        String exceptionType = throwable.getClass().getName().replace(".", "/");
-        events.add(new MethodExitThrowEvent(clazz, methodName, methodDesc, exceptionType));
+    /**
+     * Records the write of a primitive field, whose value type is the id of the name of the wrapper class.
+     */
+    public static void recordPrimitivePutField(int method, Object target, int field, int valueType) {
+        record(PUT_FIELD, method, typeOf(target), field, valueType, 0);
     }
 
-    public static void recordPrimitiveReturn(String clazz, String methodName, String methodDesc, Object value) {
-        events.add(new PrimitiveReturnEvent(clazz, methodName, methodDesc, value));
+    public static void recordGetField(int method, Object target, int field, Object value) {
+        record(GET_FIELD, method, typeOf(target), field, typeOf(value), 0);
     }
 
-    public static void recordMethodEnter(String clazz, String methodName, String methodDesc) {
-        events.add(new MethodEnterEvent(clazz, methodName, methodDesc));
+    /**
+     * Records the read of a primitive field, whose value type is the id of the name of the wrapper class.
+     */
+    public static void recordPrimitiveGetField(int method, Object target, int field, int valueType) {
+        record(GET_FIELD, method, typeOf(target), field, valueType, 0);
     }
 }
@@ -9,8 +9,11 @@ import org.objectweb.asm.commons.Method;
 
 public class MethodInstrumentationVisitor extends AdviceAdapter {
     private static final Type RECORDER = Type.getType("Lde/firemage/autograder/agent/EventRecorder;");
+    private static final String FIELD_EVENT_DESCRIPTOR = "(ILjava/lang/Object;ILjava/lang/Object;)V";
+    private static final String PRIMITIVE_FIELD_EVENT_DESCRIPTOR = "(ILjava/lang/Object;II)V";
     private final String className;
     private final Label startFinally;
+    private int methodId = -1;
     private boolean initialized = false; // Required because the compiler produces a putfield instruction before
         // calling the super constructor for storing the reference to the outer class in implicit constructors
         // of anonymous inner classes if they are defined in a non-static method
@@ -25,13 +28,10 @@ public class MethodInstrumentationVisitor extends AdviceAdapter {
     @Override
     protected void onMethodEnter() {
         this.initialized = true;
+        this.methodId = Symbols.registerMethod(this.className, this.getName(), this.methodDesc);
         visitLabel(this.startFinally);
-        visitLdcInsn(this.className);
-        visitLdcInsn(this.getName());
-        visitLdcInsn(this.methodDesc);
-        invokeStatic(RECORDER,
-            new Method("recordMethodEnter",
-                "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;)V"));
+        push(this.methodId);
+        invokeStatic(RECORDER, new Method("recordMethodEnter", "(I)V"));
     }
 
     @Override
@@ -44,13 +44,9 @@ public class MethodInstrumentationVisitor extends AdviceAdapter {
             dup();
             int returnValue = newLocal(this.getReturnType());
             storeLocal(returnValue);
-            visitLdcInsn(this.className);
-            visitLdcInsn(this.getName());
-            visitLdcInsn(this.methodDesc);
+            push(this.methodId);
             loadLocal(returnValue);
-            invokeStatic(RECORDER,
-                new Method("recordReferenceReturn",
-                    "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/Object;)V"));
+            invokeStatic(RECORDER, new Method("recordReferenceReturn", "(ILjava/lang/Object;)V"));
         } else if (opcode != Opcodes.ATHROW && opcode != Opcodes.RETURN) {
             if (opcode == Opcodes.DRETURN || opcode == Opcodes.LRETURN) {
                 dup2();
@@ -59,14 +55,11 @@ public class MethodInstrumentationVisitor extends AdviceAdapter {
             }
             int returnValue = newLocal(this.getReturnType());
             storeLocal(returnValue);
-            visitLdcInsn(this.className);
-            visitLdcInsn(this.getName());
-            visitLdcInsn(this.methodDesc);
+            push(this.methodId);
             loadLocal(returnValue);
-            box(this.getReturnType());
+            // the value is passed as a primitive, so that it is not boxed
             invokeStatic(RECORDER,
-                new Method("recordPrimitiveReturn",
-                    "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/Object;)V"));
+                new Method("recordPrimitiveReturn", "(I" + this.getReturnType().getDescriptor() + ")V"));
         }
     }
 
@@ -76,35 +69,40 @@ public class MethodInstrumentationVisitor extends AdviceAdapter {
             return;
         }
 
+        Type fieldType = Type.getType(descriptor);
+        boolean isReference = fieldType.getSort() == Type.OBJECT || fieldType.getSort() == Type.ARRAY;
         if (opcode == Opcodes.PUTFIELD) {
-            int value = newLocal(Type.getType(descriptor));
+            int value = newLocal(fieldType);
             storeLocal(value);
             int target = newLocal(Type.getObjectType(owner));
             storeLocal(target);
-            visitLdcInsn(this.className);
-            visitLdcInsn(this.getName());
-            visitLdcInsn(this.methodDesc);
+            push(this.methodId);
             loadLocal(target);
-            visitLdcInsn(name);
-            loadLocal(value);
-            invokeStatic(RECORDER,
-                new Method("recordPutField",
-                    "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/Object;Ljava/lang/String;" + generifyDescriptor(descriptor) + ")V"));
+            push(Symbols.intern(name));
+            if (isReference) {
+                loadLocal(value);
+                invokeStatic(RECORDER, new Method("recordPutField", FIELD_EVENT_DESCRIPTOR));
+            } else {
+                // the type of a primitive value is known without reading it
+                push(Symbols.intern(wrapperName(fieldType)));
+                invokeStatic(RECORDER, new Method("recordPrimitivePutField", PRIMITIVE_FIELD_EVENT_DESCRIPTOR));
+            }
             loadLocal(target);
             loadLocal(value);
         } else if (opcode == Opcodes.GETFIELD) {
             int target = newLocal(Type.getObjectType(owner));
             storeLocal(target);
-            visitLdcInsn(this.className);
-            visitLdcInsn(this.getName());
-            visitLdcInsn(this.methodDesc);
+            push(this.methodId);
             loadLocal(target);
-            visitLdcInsn(name);
-            loadLocal(target);
-            getField(Type.getObjectType(owner), name, Type.getType(descriptor));
-            invokeStatic(RECORDER,
-                new Method("recordGetField",
-                    "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/Object;Ljava/lang/String;" + generifyDescriptor(descriptor) + ")V"));
+            push(Symbols.intern(name));
+            if (isReference) {
+                loadLocal(target);
+                getField(Type.getObjectType(owner), name, fieldType);
+                invokeStatic(RECORDER, new Method("recordGetField", FIELD_EVENT_DESCRIPTOR));
+            } else {
+                push(Symbols.intern(wrapperName(fieldType)));
+                invokeStatic(RECORDER, new Method("recordPrimitiveGetField", PRIMITIVE_FIELD_EVENT_DESCRIPTOR));
+            }
             loadLocal(target);
         }
         super.visitFieldInsn(opcode, owner, name, descriptor);
@@ -122,20 +120,24 @@ public class MethodInstrumentationVisitor extends AdviceAdapter {
         dup();
         int exception = newLocal(Type.getObjectType("Ljava/lang/Throwable;"));
         storeLocal(exception);
-        visitLdcInsn(this.className);
-        visitLdcInsn(this.getName());
-        visitLdcInsn(this.methodDesc);
+        push(this.methodId);
         loadLocal(exception);
-        invokeStatic(RECORDER, new Method("recordExitThrow", "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/Throwable;)V"));
+        invokeStatic(RECORDER, new Method("recordExitThrow", "(ILjava/lang/Throwable;)V"));
         throwException();
         super.visitMaxs(maxStack, maxLocals);
     }
 
-    private String generifyDescriptor(String descriptor) {
-        if (descriptor.startsWith("L") || descriptor.startsWith("[")) {
-            return "Ljava/lang/Object;";
-        } else {
-            return descriptor;
-        }
+    private static String wrapperName(Type primitive) {
+        return switch (primitive.getSort()) {
+            case Type.BOOLEAN -> "java/lang/Boolean";
+            case Type.CHAR -> "java/lang/Character";
+            case Type.BYTE -> "java/lang/Byte";
+            case Type.SHORT -> "java/lang/Short";
+            case Type.INT -> "java/lang/Integer";
+            case Type.LONG -> "java/lang/Long";
+            case Type.FLOAT -> "java/lang/Float";
+            case Type.DOUBLE -> "java/lang/Double";
+            default -> throw new IllegalArgumentException("Not a primitive type: " + primitive);
+        };
     }
 }
@@ -0,0 +1,62 @@
+package de.firemage.autograder.agent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns ids to the names that appear in events, so that the recorded events only consist of numbers.
+ * <p>
+ * The ids of methods and fields are assigned when a class is instrumented and are embedded into its bytecode.
+ * The names are only looked up again when the events are written.
+ */
+final class Symbols {
+    private static final Map<String, Integer> NAME_IDS = new ConcurrentHashMap<>();
+    private static final List<String> NAMES = new ArrayList<>();
+    private static final Map<MethodSite, Integer> METHOD_IDS = new HashMap<>();
+    private static final List<MethodSite> METHODS = new ArrayList<>();
+
+    record MethodSite(String clazz, String name, String descriptor) {
+    }
+
+    private Symbols() {
+    }
+
+    static int intern(String name) {
+        Integer id = NAME_IDS.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (NAMES) {
+            return NAME_IDS.computeIfAbsent(name, key -> {
+                NAMES.add(key);
+                return NAMES.size() - 1;
+            });
+        }
+    }
+
+    static String name(int id) {
+        synchronized (NAMES) {
+            return NAMES.get(id);
+        }
+    }
+
+    static int registerMethod(String clazz, String name, String descriptor) {
+        // the classes of the student are loaded again for every test
+        synchronized (METHODS) {
+            return METHOD_IDS.computeIfAbsent(new MethodSite(clazz, name, descriptor), key -> {
+                METHODS.add(key);
+                return METHODS.size() - 1;
+            });
+        }
+    }
+
+    static MethodSite method(int id) {
+        synchronized (METHODS) {
+            return METHODS.get(id);
+        }
+    }
+}
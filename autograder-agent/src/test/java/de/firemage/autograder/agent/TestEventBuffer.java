@@ -0,0 +1,61 @@
+package de.firemage.autograder.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestEventBuffer {
+    private static List<Long> take(EventBuffer buffer) {
+        List<Long> values = new ArrayList<>();
+        buffer.take((kind, method, a, b, c, value) -> values.add(value));
+        return values;
+    }
+
+    @Test
+    void testTakeOnlyReturnsNewEvents() {
+        EventBuffer buffer = new EventBuffer(Thread.currentThread());
+        buffer.add((byte) 0, 0, 0, 0, 0, 1);
+        buffer.add((byte) 0, 0, 0, 0, 0, 2);
+        assertEquals(List.of(1L, 2L), take(buffer));
+
+        buffer.add((byte) 0, 0, 0, 0, 0, 3);
+        assertEquals(List.of(3L), take(buffer));
+        assertEquals(List.of(), take(buffer));
+
+        // the owner is still alive and might append more events
+        assertFalse(buffer.isExhausted());
+    }
+
+    @Test
+    void testFullBufferIsExhaustedOnceTaken() {
+        EventBuffer buffer = new EventBuffer(Thread.currentThread());
+        for (int i = 0; i < EventBuffer.CAPACITY; i++) {
+            assertTrue(buffer.add((byte) 0, 0, 0, 0, 0, i));
+        }
+        assertFalse(buffer.add((byte) 0, 0, 0, 0, 0, -1));
+        assertFalse(buffer.isExhausted());
+
+        List<Long> values = take(buffer);
+        assertEquals(EventBuffer.CAPACITY, values.size());
+        assertEquals(EventBuffer.CAPACITY - 1L, values.get(values.size() - 1));
+        assertTrue(buffer.isExhausted());
+    }
+
+    @Test
+    void testBufferOfTerminatedOwnerIsExhaustedOnceTaken() throws InterruptedException {
+        Thread owner = new Thread(() -> {});
+        EventBuffer buffer = new EventBuffer(owner);
+        buffer.add((byte) 0, 0, 0, 0, 0, 1);
+        owner.start();
+        owner.join();
+
+        assertFalse(buffer.isExhausted());
+        assertEquals(List.of(1L), take(buffer));
+        assertTrue(buffer.isExhausted());
+    }
+}
@@ -0,0 +1,154 @@
+package de.firemage.autograder.agent;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestEventRecorder {
+    private static final Pattern DROPPED_EVENTS = Pattern.compile("AGENT: Dropped (\\d+) events");
+
+    @BeforeAll
+    static void setOutPath() throws IOException {
+        // the events that are left when the JVM exits are written to this file
+        Path outPath = Files.createTempFile("events", ".txt");
+        outPath.toFile().deleteOnExit();
+        EventRecorder.setOutPath(outPath);
+    }
+
+    @BeforeEach
+    void dropPreviousEvents() throws IOException {
+        EventRecorder.takeEvents(null);
+    }
+
+    private static int registerMethod(String clazz) {
+        return Symbols.registerMethod(clazz, "next", "()I");
+    }
+
+    private static void record(int method, int from, int to) {
+        for (int i = from; i < to; i++) {
+            EventRecorder.recordPrimitiveReturn(method, i);
+        }
+    }
+
+    private static List<String> takeEvents(Path path) throws IOException {
+        int count = EventRecorder.takeEvents(path);
+        List<String> events = Files.readAllLines(path);
+        assertEquals(count, events.size());
+        return events;
+    }
+
+    private static List<Integer> valuesOf(List<String> events, String clazz) {
+        String prefix = "PrimRet:%s:next:()I:".formatted(clazz);
+        return events.stream()
+            .filter(event -> event.startsWith(prefix))
+            .map(event -> Integer.parseInt(event.substring(prefix.length())))
+            .toList();
+    }
+
+    private static List<Integer> range(int from, int to) {
+        return IntStream.range(from, to).boxed().toList();
+    }
+
+    @Test
+    void testEventsOfEachThreadAreInOrder(@TempDir Path folder) throws IOException, InterruptedException {
+        int eventsPerThread = 3 * EventBuffer.CAPACITY + 17;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int method = registerMethod("Thread" + i);
+            threads.add(new Thread(() -> record(method, 0, eventsPerThread)));
+        }
+        threads.forEach(Thread::start);
+
+        // the events are taken while the threads are still recording
+        List<String> events = new ArrayList<>();
+        int takes = 0;
+        while (threads.stream().anyMatch(Thread::isAlive)) {
+            events.addAll(takeEvents(folder.resolve("events%d.txt".formatted(takes++))));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        events.addAll(takeEvents(folder.resolve("events%d.txt".formatted(takes))));
+
+        for (int i = 0; i < threads.size(); i++) {
+            assertEquals(range(0, eventsPerThread), valuesOf(events, "Thread" + i), "Thread" + i);
+        }
+    }
+
+    @Test
+    void testNoEventsAreLostWhenABufferIsFull(@TempDir Path folder) throws IOException {
+        int method = registerMethod("Full");
+        int count = 2 * EventBuffer.CAPACITY + 1;
+        record(method, 0, count);
+
+        assertEquals(range(0, count), valuesOf(takeEvents(folder.resolve("events.txt")), "Full"));
+    }
+
+    @Test
+    void testTakeEventsSeparatesTests(@TempDir Path folder) throws IOException {
+        int method = registerMethod("Separated");
+
+        record(method, 0, 10);
+        List<String> first = takeEvents(folder.resolve("first.txt"));
+
+        record(method, 100, 105);
+        List<String> second = takeEvents(folder.resolve("second.txt"));
+
+        assertEquals(range(0, 10), valuesOf(first, "Separated"));
+        assertEquals(range(100, 105), valuesOf(second, "Separated"));
+        assertEquals(List.of(), takeEvents(folder.resolve("third.txt")));
+    }
+
+    private static String takeEventsAndCaptureOutput(int[] count) throws IOException {
+        PrintStream out = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        try {
+            count[0] = EventRecorder.takeEvents(null);
+        } finally {
+            System.setOut(out);
+        }
+
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testDroppedEventsAreCounted() throws IOException, InterruptedException {
+        int method = registerMethod("Dropped");
+        int recorded = (EventRecorder.MAX_BUFFERS + 1) * EventBuffer.CAPACITY;
+        Thread thread = new Thread(() -> record(method, 0, recorded));
+        thread.start();
+        thread.join();
+
+        int[] written = new int[1];
+        Matcher matcher = DROPPED_EVENTS.matcher(takeEventsAndCaptureOutput(written));
+        assertTrue(matcher.find());
+        long dropped = Long.parseLong(matcher.group(1));
+        assertTrue(dropped >= EventBuffer.CAPACITY, "only %d events were dropped".formatted(dropped));
+        assertEquals(recorded, written[0] + dropped);
+
+        // the buffers have been released when their events were taken
+        Thread next = new Thread(() -> record(method, 0, 1));
+        next.start();
+        next.join();
+        assertFalse(takeEventsAndCaptureOutput(written).contains("Dropped"));
+        assertEquals(1, written[0]);
+    }
+}
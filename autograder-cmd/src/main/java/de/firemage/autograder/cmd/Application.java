@@ -2,7 +2,6 @@ package de.firemage.autograder.cmd;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import de.firemage.autograder.cmd.output.Annotation;
 import de.firemage.autograder.core.CodePosition;
 import de.firemage.autograder.core.Linter;
@@ -12,6 +11,10 @@ import de.firemage.autograder.core.Problem;
 import de.firemage.autograder.core.ProblemType;
 import de.firemage.autograder.core.compiler.CompilationFailureException;
 import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.dynamic.ConsoleRunner;
+import de.firemage.autograder.core.dynamic.DockerConsoleRunner;
+import de.firemage.autograder.core.dynamic.TestContainerSettings;
+import de.firemage.autograder.core.errorprone.ErrorProneLinter;
 import de.firemage.autograder.core.errorprone.TempLocation;
 import de.firemage.autograder.core.file.UploadedFile;
 import de.firemage.autograder.span.Formatter;
@@ -28,7 +31,6 @@ import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
 import picocli.CommandLine.Spec;
 
-import java.io.File;
 import java.io.FileDescriptor;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -37,25 +39,25 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 @Command(mixinStandardHelpOptions = true, version = "codelinter-cmd 1.0",
-        description = "Static code analysis for student java code")
+        description = "Static code analysis for student java code. Use 'batch' or 'serve' as the first argument to grade many submissions at once.")
 public class Application implements Callable<Integer> {
-    private static final int IO_EXIT_CODE = 3;
-    private static final int COMPILATION_EXIT_CODE = 4;
-    private static final int MISC_EXIT_CODE = 10;
+    static final int IO_EXIT_CODE = 3;
+    static final int COMPILATION_EXIT_CODE = 4;
+    static final int MISC_EXIT_CODE = 10;
 
     private static final int CAPTION_LENGTH = 20;
+    private static final String BATCH_COMMAND = "batch";
+    private static final String SERVER_COMMAND = "serve";
 
     @Parameters(index = "0", description = "The check configuration.")
     private String checkConfig;
@@ -91,15 +93,25 @@ public class Application implements Callable<Integer> {
     @Option(names = { "--max-problems" }, description = "The maximum number of problems to report per check", defaultValue = "10")
     private int maxProblemsPerCheck;
 
+    @Option(names = { "--local-tests" }, description = "Run the tests in a sandbox on this machine instead of in Docker containers")
+    private boolean localTests;
+
+    @Option(names = { "--test-containers" }, description = "The number of containers per submission in which tests run at the same time, 0 for one per processor", defaultValue = "0")
+    private int testContainers;
+
+    @Option(names = { "--test-memory" }, description = "The memory limit of each test container in MiB", defaultValue = "" + TestContainerSettings.DEFAULT_MEMORY_MIB)
+    private long testMemory;
+
+    @Option(names = { "--test-pids" }, description = "The maximum number of processes and threads in each test container", defaultValue = "" + TestContainerSettings.DEFAULT_PIDS_LIMIT)
+    private long testPids;
+
     @Spec
     private CommandSpec spec;
 
     private final TempLocation tempLocation;
-    private final Set<String> exludedClasses;
 
     public Application(TempLocation tempLocation) {
         this.tempLocation = tempLocation;
-        this.exludedClasses = new HashSet<>();
     }
 
     private static Charset getConsoleCharset() {
@@ -116,12 +128,42 @@ public class Application implements Callable<Integer> {
     public static int runApplication(String... args) {
         // to automatically delete the temp location on exit
         try (TempLocation tempLocation = TempLocation.of(".autograder-tmp")) {
+            // picocli would require the parameters of the application for a subcommand as well,
+            // so the other modes are selected here
+            Object command = switch (args.length > 0 ? args[0] : "") {
+                case BATCH_COMMAND -> new BatchApplication(tempLocation);
+                case SERVER_COMMAND -> new ServerApplication(tempLocation);
+                default -> null;
+            };
+
+            if (command != null) {
+                return new CommandLine(command).execute(Arrays.copyOfRange(args, 1, args.length));
+            }
+
             return new CommandLine(new Application(tempLocation)).execute(args);
         } catch (IOException exception) {
             throw new IllegalArgumentException("Could not create temp location", exception);
         }
     }
 
+    /**
+     * Finds the source folder of the student in the workspace root of the grading tool.
+     *
+     * @param workspace the workspace root
+     * @return the folder with the sources of the student
+     * @throws IOException if the workspace could not be listed
+     */
+    static Path findArtemisSources(Path workspace) throws IOException {
+        try (Stream<Path> files = Files.list(workspace)) {
+            return files
+                    .filter(child -> !child.endsWith(".metadata"))
+                    .findAny()
+                    .orElseThrow(() -> new IllegalStateException("No student code found"))
+                    .resolve("assignment")
+                    .resolve("src");
+        }
+    }
+
     private static Highlight highlightFromCodePosition(CodePosition codePosition, String label) {
         return new Highlight(
             new Span(
@@ -193,33 +235,6 @@ public class Application implements Callable<Integer> {
         CmdUtil.endSection();
     }
 
-    private List<ProblemType> getChecks() throws IOException {
-        List<String> checks;
-        if (passConfig) {
-            checks = List.of(new ObjectMapper(new YAMLFactory()).readValue(checkConfig, String[].class));
-        } else {
-            checks = List.of(new ObjectMapper(new YAMLFactory()).readValue(new File(checkConfig), String[].class));
-        }
-
-        List<ProblemType> result = new ArrayList<>();
-
-        // HACK: EXCLUDE is used to ignore some classes, blame the config format for the hacky solution
-        for (String check : checks) {
-            if (check.startsWith("EXCLUDE")) {
-                this.exludedClasses.addAll(List.of(check.substring("EXCLUDE".length() + 1).split(" ")));
-                continue;
-            }
-
-            try {
-                result.add(ProblemType.valueOf(check));
-            } catch (IllegalArgumentException e) {
-                throw new IllegalArgumentException("Unknown check '%s'".formatted(check), e);
-            }
-        }
-
-        return result;
-    }
-
     @Override
     public Integer call() {
         if (!JavaVersion.isValidJavaVersion(javaVersion)) {
@@ -227,13 +242,8 @@ public class Application implements Callable<Integer> {
         }
 
         if (this.artemisFolders) {
-            try (Stream<Path> files = Files.list(this.file)) {
-                this.file = files
-                        .filter(child -> !child.endsWith(".metadata"))
-                        .findAny()
-                        .orElseThrow(() -> new IllegalStateException("No student code found"))
-                        .resolve("assignment")
-                        .resolve("src");
+            try {
+                this.file = findArtemisSources(this.file);
             } catch (IOException e) {
                 e.printStackTrace();
                 return IO_EXIT_CODE;
@@ -250,20 +260,27 @@ public class Application implements Callable<Integer> {
             CmdUtil.println();
         }
 
-        List<ProblemType> checks;
+        CheckConfiguration config;
         try {
-            checks = this.getChecks();
+            config = CheckConfiguration.parse(this.checkConfig, this.passConfig);
         } catch (IOException e) {
             e.printStackTrace();
             return IO_EXIT_CODE;
         }
+        List<ProblemType> checks = config.problemTypes();
 
         Linter linter = Linter.builder(Locale.GERMANY)
             .threads(0)
             .tempLocation(this.tempLocation)
             .enableDynamicAnalysis(isDynamicAnalysisEnabled)
             .maxProblemsPerCheck(this.maxProblemsPerCheck)
-            .exclude(problem -> this.exludedClasses.contains(problem.getPosition().file().getName().replace(".java", "")))
+            .exclude(config::isExcluded)
+            .testRunner(this.localTests ? ConsoleRunner::new : DockerConsoleRunner::new)
+            .testContainers(new TestContainerSettings(
+                this.testContainers > 0 ? this.testContainers : TestContainerSettings.defaults().poolSize(),
+                this.testMemory * (1L << 20),
+                this.testPids
+            ))
             .build();
 
         Consumer<LinterStatus> statusConsumer = status ->
@@ -279,7 +296,9 @@ public class Application implements Callable<Integer> {
                 JavaVersion.fromString(this.javaVersion),
                 this.tempLocation,
                 statusConsumer,
-            null)) {
+                null,
+                // lets error-prone run during the compilation, if the JVM allows it
+                ErrorProneLinter.lintsFor(linter.findChecksForProblemTypes(checks)))) {
             this.execute(linter, checks, uploadedFile, statusConsumer);
         } catch (CompilationFailureException e) {
             CmdUtil.printlnErr("Compilation failed: " + e.getMessage());
@@ -290,6 +309,8 @@ public class Application implements Callable<Integer> {
         } catch (IOException e) {
             e.printStackTrace();
             return IO_EXIT_CODE;
+        } finally {
+            linter.close();
         }
 
         return 0;
@@ -307,16 +328,9 @@ public class Application implements Callable<Integer> {
     private void printProblemsAsJson(Collection<? extends Problem> problems, Linter linter) {
         try {
             ObjectMapper mapper = new ObjectMapper();
-            String jsonOutput = mapper.writeValueAsString(problems.stream().map(problem -> {
-                CodePosition position = problem.getPosition();
-                return new Annotation(
-                    problem.getProblemType(),
-                    linter.translateMessage(problem.getExplanation()),
-                    position.file().toString().replace("\\", "/"),
-                    position.startLine(),
-                    position.endLine()
-                );
-            }).toList());
+            String jsonOutput = mapper.writeValueAsString(problems.stream()
+                .map(problem -> Annotation.from(problem, linter))
+                .toList());
             System.out.println(jsonOutput);
         } catch (JsonProcessingException ex) {
             ex.printStackTrace();
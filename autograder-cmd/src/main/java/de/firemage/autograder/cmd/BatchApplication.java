@@ -0,0 +1,215 @@
+package de.firemage.autograder.cmd;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.firemage.autograder.cmd.output.SubmissionResult;
+import de.firemage.autograder.core.Linter;
+import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Grades many submissions in one JVM, so the startup costs (loading the checks, the translations, ...) are only paid
+ * once.
+ * <p>
+ * The result of each submission is written as one line of JSON as soon as it has been graded, so the lines are not
+ * in the order of the submissions.
+ */
+@Command(name = "batch", mixinStandardHelpOptions = true, version = "codelinter-cmd 1.0",
+        description = "Grade all submissions in a folder or manifest and output one line of JSON per submission")
+public class BatchApplication implements Callable<Integer> {
+    @Parameters(index = "0", description = "The check configuration.")
+    private String checkConfig;
+
+    @Parameters(index = "1", description = "A folder in which every subfolder is a submission or a manifest file which lists the paths of the submissions (one per line, relative to the manifest).")
+    private Path submissions;
+
+    @Parameters(index = "2", defaultValue = "", description = "The root folder which contains the tests to run. If not provided or empty, no tests will be run.")
+    private Path tests;
+
+    @Option(names = {"-j", "--java", "--java-version"}, defaultValue = "17", description = "Set the Java version.")
+    private String javaVersion;
+
+    @Option(names = {"-s",
+            "--static-only"}, description = "Only run static analysis, therefore disabling dynamic analysis.")
+    private boolean staticOnly;
+
+    @Option(names = {
+            "--artemis"}, description = "Assume that each submission is the workspace root of the grading tool.")
+    private boolean artemisFolders;
+
+    @Option(names = {"--source-path"}, defaultValue = ".", description = "The folder in each submission which contains the files to check.")
+    private Path sourcePath;
+
+    @Option(names = {
+            "--pass-config"}, description = "Interpret the first parameter not as the path to a config file, but as the contents of the config file")
+    private boolean passConfig;
+
+    @Option(names = { "--max-problems" }, description = "The maximum number of problems to report per check", defaultValue = "10")
+    private int maxProblemsPerCheck;
+
+    @Option(names = {"-J", "--jobs"}, description = "The maximum number of submissions that are graded at the same time. Defaults to the number of processors.")
+    private int jobs = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = {"-t", "--threads"}, defaultValue = "1", description = "The number of threads that analyze one submission.")
+    private int threads;
+
+    @Option(names = {"--result-cache"}, description = "A folder in which the problems of the submissions are stored, so that unchanged submissions are not graded again.")
+    private Path resultCache;
+
+    @Option(names = {"--model-cache"}, description = "A folder in which the parsed code of the submissions is stored, so that unchanged submissions are not parsed again when they are graded with a different configuration.")
+    private Path modelCache;
+
+    @Option(names = {"-o", "--output"}, description = "The file to which the results are written. Defaults to the standard output.")
+    private Path output;
+
+    @Spec
+    private CommandSpec spec;
+
+    private final TempLocation tempLocation;
+
+    public BatchApplication(TempLocation tempLocation) {
+        this.tempLocation = tempLocation;
+    }
+
+    private record Submission(String name, Path path) {
+    }
+
+    private List<Submission> findSubmissions() throws IOException {
+        if (Files.isDirectory(this.submissions)) {
+            try (Stream<Path> children = Files.list(this.submissions)) {
+                return children.filter(Files::isDirectory)
+                    .sorted()
+                    .map(child -> new Submission(child.getFileName().toString(), child))
+                    .toList();
+            }
+        }
+
+        // the manifest lists the paths of the submissions, empty lines and comments are ignored
+        Path manifestFolder = this.submissions.toAbsolutePath().getParent();
+        return Files.readAllLines(this.submissions, StandardCharsets.UTF_8)
+            .stream()
+            .map(String::strip)
+            .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+            .map(line -> new Submission(line, manifestFolder.resolve(line)))
+            .toList();
+    }
+
+    private SubmissionResult grade(SubmissionGrader grader, CheckConfiguration config, Submission submission) {
+        Path sources;
+        try {
+            sources = this.artemisFolders
+                ? Application.findArtemisSources(submission.path())
+                : submission.path().resolve(this.sourcePath);
+        } catch (IOException | RuntimeException e) {
+            return SubmissionResult.failed(submission.name(), SubmissionResult.Status.FAILED, e.toString());
+        }
+
+        return grader.grade(submission.name(), sources, JavaVersion.fromString(this.javaVersion), config.problemTypes());
+    }
+
+    @Override
+    public Integer call() {
+        if (!JavaVersion.isValidJavaVersion(javaVersion)) {
+            throw new ParameterException(this.spec.commandLine(), "Unknown java version '" + javaVersion + "'");
+        }
+
+        if (this.jobs < 1) {
+            throw new ParameterException(this.spec.commandLine(), "The number of jobs must be at least 1");
+        }
+
+        CheckConfiguration config;
+        List<Submission> submissionList;
+        PrintStream out;
+        try {
+            config = CheckConfiguration.parse(this.checkConfig, this.passConfig);
+            submissionList = this.findSubmissions();
+            out = this.output == null
+                ? System.out
+                : new PrintStream(Files.newOutputStream(this.output), false, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Application.IO_EXIT_CODE;
+        }
+
+        boolean isDynamicAnalysisEnabled = !this.staticOnly && !this.tests.toString().equals("");
+
+        // the linter is shared by all submissions, it creates new checks for each of them
+        Linter linter = Linter.builder(Locale.GERMANY)
+            .threads(this.threads)
+            .tempLocation(this.tempLocation)
+            .enableDynamicAnalysis(isDynamicAnalysisEnabled)
+            .maxProblemsPerCheck(this.maxProblemsPerCheck)
+            .exclude(config::isExcluded)
+            .errorProneWorkers(this.jobs)
+            .resultCache(this.resultCache)
+            .modelCache(this.modelCache)
+            .build();
+
+        SubmissionGrader grader = new SubmissionGrader(linter, this.tempLocation, this.tests);
+
+        ObjectMapper mapper = new ObjectMapper();
+        AtomicInteger graded = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(this.jobs);
+        try {
+            List<Future<SubmissionResult>> results = new ArrayList<>();
+            for (Submission submission : submissionList) {
+                results.add(executor.submit(() -> {
+                    SubmissionResult result = this.grade(grader, config, submission);
+                    String line = mapper.writeValueAsString(result);
+                    synchronized (out) {
+                        out.println(line);
+                        out.flush();
+                    }
+
+                    CmdUtil.printlnErr("[%d/%d] %s: %s".formatted(
+                        graded.incrementAndGet(),
+                        submissionList.size(),
+                        submission.name(),
+                        result.status()
+                    ));
+                    return result;
+                }));
+            }
+
+            boolean hasFailed = false;
+            for (Future<SubmissionResult> result : results) {
+                hasFailed |= result.get().status() == SubmissionResult.Status.FAILED;
+            }
+
+            return hasFailed ? Application.MISC_EXIT_CODE : 0;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return Application.MISC_EXIT_CODE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Application.MISC_EXIT_CODE;
+        } finally {
+            executor.shutdownNow();
+            linter.close();
+            if (out != System.out) {
+                out.close();
+            }
+        }
+    }
+}
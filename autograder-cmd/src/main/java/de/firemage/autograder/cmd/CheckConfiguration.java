@@ -0,0 +1,61 @@
+package de.firemage.autograder.cmd;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import de.firemage.autograder.core.Problem;
+import de.firemage.autograder.core.ProblemType;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The parsed check configuration, which is a yaml list of the problem types to report.
+ *
+ * @param problemTypes    the problem types that should be reported
+ * @param excludedClasses the simple names of the classes in which no problems should be reported
+ */
+record CheckConfiguration(List<ProblemType> problemTypes, Set<String> excludedClasses) {
+    /**
+     * Parses the check configuration.
+     *
+     * @param checkConfig the path to the config file or the contents of the config file
+     * @param isContent   whether the first parameter is the content of the config file
+     * @return the parsed configuration
+     * @throws IOException if the config file could not be read
+     */
+    static CheckConfiguration parse(String checkConfig, boolean isContent) throws IOException {
+        List<String> checks;
+        if (isContent) {
+            checks = List.of(new ObjectMapper(new YAMLFactory()).readValue(checkConfig, String[].class));
+        } else {
+            checks = List.of(new ObjectMapper(new YAMLFactory()).readValue(new File(checkConfig), String[].class));
+        }
+
+        List<ProblemType> problemTypes = new ArrayList<>();
+        Set<String> excludedClasses = new HashSet<>();
+
+        // HACK: EXCLUDE is used to ignore some classes, blame the config format for the hacky solution
+        for (String check : checks) {
+            if (check.startsWith("EXCLUDE")) {
+                excludedClasses.addAll(List.of(check.substring("EXCLUDE".length() + 1).split(" ")));
+                continue;
+            }
+
+            try {
+                problemTypes.add(ProblemType.valueOf(check));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown check '%s'".formatted(check), e);
+            }
+        }
+
+        return new CheckConfiguration(problemTypes, excludedClasses);
+    }
+
+    boolean isExcluded(Problem problem) {
+        return this.excludedClasses.contains(problem.getPosition().file().getName().replace(".java", ""));
+    }
+}
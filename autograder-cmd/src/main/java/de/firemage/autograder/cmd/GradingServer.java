@@ -0,0 +1,312 @@
+package de.firemage.autograder.cmd;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import de.firemage.autograder.cmd.output.SubmissionResult;
+import de.firemage.autograder.core.ProblemType;
+import de.firemage.autograder.core.compiler.JavaVersion;
+import org.apache.commons.io.FileUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * A local HTTP server that grades submissions with a {@link SubmissionGrader}, so that the JVM and the linter stay
+ * warm between the submissions.
+ * <p>
+ * A submission is graded with {@code POST /grade?check=<problem type>&check=...&java=<version>}, where the body is a
+ * zip archive of the source folder. The response is the {@link SubmissionResult} as JSON, which is streamed while it
+ * is written, so that a large result is not buffered in memory first.
+ * <p>
+ * At most {@code jobs} submissions are graded at the same time and at most {@code queueSize} more wait for their turn.
+ * Further requests are rejected with {@code 503 Service Unavailable} until the queue has space again, so a client that
+ * sends too many submissions notices it instead of waiting for an unbounded time.
+ * <p>
+ * Requests that exceed the {@link Limits} are rejected with {@code 413 Content Too Large}, so that a single archive
+ * can not fill the disk.
+ */
+final class GradingServer implements AutoCloseable {
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int NOT_FOUND = 404;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int CONTENT_TOO_LARGE = 413;
+    private static final int UNPROCESSABLE_CONTENT = 422;
+    private static final int INTERNAL_SERVER_ERROR = 500;
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final SubmissionGrader grader;
+    private final JavaVersion defaultJavaVersion;
+    private final Limits limits;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    // permits for the submissions that are graded or waiting to be graded
+    private final Semaphore admitted;
+    // permits for the submissions that are graded
+    private final Semaphore running;
+    private final ObjectMapper mapper;
+
+    GradingServer(
+        InetSocketAddress address,
+        SubmissionGrader grader,
+        JavaVersion defaultJavaVersion,
+        int jobs,
+        int queueSize
+    ) throws IOException {
+        this(address, grader, defaultJavaVersion, jobs, queueSize, Limits.defaults());
+    }
+
+    GradingServer(
+        InetSocketAddress address,
+        SubmissionGrader grader,
+        JavaVersion defaultJavaVersion,
+        int jobs,
+        int queueSize,
+        Limits limits
+    ) throws IOException {
+        if (jobs < 1 || queueSize < 0) {
+            throw new IllegalArgumentException("There must be at least one job and the queue size must not be negative");
+        }
+
+        this.grader = grader;
+        this.defaultJavaVersion = defaultJavaVersion;
+        this.limits = limits;
+        this.admitted = new Semaphore(jobs + queueSize);
+        this.running = new Semaphore(jobs, true);
+        this.mapper = new ObjectMapper();
+
+        this.server = HttpServer.create(address, 0);
+        // the number of threads is limited by the admitted requests, the others are rejected quickly
+        this.handlers = Executors.newCachedThreadPool();
+        this.server.setExecutor(this.handlers);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    InetSocketAddress getAddress() {
+        return this.server.getAddress();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestURI().getPath().equals("/grade")) {
+                sendText(exchange, NOT_FOUND, "Unknown path, use /grade");
+                return;
+            }
+
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendText(exchange, METHOD_NOT_ALLOWED, "Submissions must be sent with POST");
+                return;
+            }
+
+            String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+            if (contentLength != null && Long.parseLong(contentLength) > this.limits.maxRequestBytes()) {
+                sendText(exchange, CONTENT_TOO_LARGE, LimitedInputStream.message("The request", this.limits.maxRequestBytes()));
+                return;
+            }
+
+            if (!this.admitted.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendText(exchange, SERVICE_UNAVAILABLE, "Too many submissions, try again later");
+                return;
+            }
+
+            try {
+                this.handleGrade(exchange);
+            } finally {
+                this.admitted.release();
+            }
+        }
+    }
+
+    private void handleGrade(HttpExchange exchange) throws IOException {
+        List<ProblemType> problemTypes = new ArrayList<>();
+        JavaVersion javaVersion = this.defaultJavaVersion;
+        String query = exchange.getRequestURI().getRawQuery();
+        for (String parameter : query == null ? new String[0] : query.split("&")) {
+            String[] parts = parameter.split("=", 2);
+            String value = parts.length == 2 ? URLDecoder.decode(parts[1], StandardCharsets.UTF_8) : "";
+            try {
+                switch (parts[0]) {
+                    case "check" -> problemTypes.add(ProblemType.valueOf(value));
+                    case "java" -> javaVersion = JavaVersion.fromString(value);
+                    default -> throw new IllegalArgumentException("Unknown parameter '%s'".formatted(parts[0]));
+                }
+            } catch (IllegalArgumentException e) {
+                sendText(exchange, BAD_REQUEST, "Invalid parameter '%s': %s".formatted(parameter, e.getMessage()));
+                return;
+            }
+        }
+
+        if (problemTypes.isEmpty()) {
+            sendText(exchange, BAD_REQUEST, "No problem types given, add them with check=<problem type>");
+            return;
+        }
+
+        Path sources = this.grader.tempLocation().createTempDirectory("submission").toPath();
+        try {
+            // the length of a chunked request is unknown upfront, so the limit is checked while it is read as well
+            InputStream body = new LimitedInputStream(exchange.getRequestBody(), this.limits.maxRequestBytes(), "The request");
+            try (ZipInputStream archive = new ZipInputStream(body)) {
+                this.extract(archive, sources);
+            } catch (LimitExceededException e) {
+                sendText(exchange, CONTENT_TOO_LARGE, e.getMessage());
+                return;
+            } catch (IOException | IllegalArgumentException e) {
+                sendText(exchange, BAD_REQUEST, "Invalid archive: " + e.getMessage());
+                return;
+            }
+
+            SubmissionResult result;
+            this.running.acquireUninterruptibly();
+            try {
+                result = this.grader.grade("submission", sources, javaVersion, problemTypes);
+            } finally {
+                this.running.release();
+            }
+
+            int status = switch (result.status()) {
+                case OK -> OK;
+                case COMPILATION_FAILED -> UNPROCESSABLE_CONTENT;
+                case FAILED -> INTERNAL_SERVER_ERROR;
+            };
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            // the problems are only known once the whole submission has been graded, because they are sorted and
+            // merged at the end, but the JSON is written in chunks without knowing its length upfront
+            exchange.sendResponseHeaders(status, 0);
+            try (OutputStream response = exchange.getResponseBody()) {
+                this.mapper.writeValue(response, result);
+            }
+        } finally {
+            FileUtils.deleteQuietly(sources.toFile());
+        }
+    }
+
+    private void extract(ZipInputStream archive, Path target) throws IOException {
+        // the sizes in the entries are written by the client, so the extracted bytes are counted instead
+        InputStream content = new LimitedInputStream(archive, this.limits.maxUncompressedBytes(), "The extracted archive");
+        int entries = 0;
+        ZipEntry entry;
+        while ((entry = archive.getNextEntry()) != null) {
+            entries++;
+            if (entries > this.limits.maxEntries()) {
+                throw new LimitExceededException("The archive has more than %d entries".formatted(this.limits.maxEntries()));
+            }
+
+            Path path = target.resolve(entry.getName()).normalize();
+            if (!path.startsWith(target)) {
+                throw new IllegalArgumentException("The entry '%s' is outside of the archive".formatted(entry.getName()));
+            }
+
+            if (entry.isDirectory()) {
+                Files.createDirectories(path);
+            } else {
+                Files.createDirectories(path.getParent());
+                Files.copy(content, path);
+            }
+        }
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        send(exchange, status, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream response = exchange.getResponseBody()) {
+            response.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.handlers.shutdownNow();
+    }
+
+    /**
+     * The limits of a request, which protect the server from archives that are too large to be graded.
+     *
+     * @param maxRequestBytes      the maximum size of the request body, which is the compressed archive
+     * @param maxUncompressedBytes the maximum size of all files in the archive after they have been extracted
+     * @param maxEntries           the maximum number of files and folders in the archive
+     */
+    record Limits(long maxRequestBytes, long maxUncompressedBytes, int maxEntries) {
+        static final long DEFAULT_MAX_REQUEST_BYTES = 16L << 20;
+        static final long DEFAULT_MAX_UNCOMPRESSED_BYTES = 64L << 20;
+        static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+        static Limits defaults() {
+            return new Limits(DEFAULT_MAX_REQUEST_BYTES, DEFAULT_MAX_UNCOMPRESSED_BYTES, DEFAULT_MAX_ENTRIES);
+        }
+    }
+
+    private static final class LimitExceededException extends IOException {
+        private LimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Counts the bytes that are read from a stream and fails once more than the limit have been read.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private final String name;
+        private long count;
+
+        private LimitedInputStream(InputStream input, long limit, String name) {
+            super(input);
+            this.limit = limit;
+            this.name = name;
+        }
+
+        private static String message(String name, long limit) {
+            return "%s is larger than %d bytes".formatted(name, limit);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result != -1) {
+                this.count(1);
+            }
+
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int result = super.read(buffer, offset, length);
+            if (result > 0) {
+                this.count(result);
+            }
+
+            return result;
+        }
+
+        private void count(int bytes) throws LimitExceededException {
+            this.count += bytes;
+            if (this.count > this.limit) {
+                throw new LimitExceededException(message(this.name, this.limit));
+            }
+        }
+    }
+}
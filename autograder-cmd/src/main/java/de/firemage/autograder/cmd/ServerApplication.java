@@ -0,0 +1,100 @@
+package de.firemage.autograder.cmd;
+
+import de.firemage.autograder.core.Linter;
+import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs a {@link GradingServer} until the JVM is shut down.
+ */
+@Command(name = "serve", mixinStandardHelpOptions = true, version = "codelinter-cmd 1.0",
+        description = "Grade submissions that are sent to a local HTTP server")
+public class ServerApplication implements Callable<Integer> {
+    @Option(names = {"--host"}, defaultValue = "127.0.0.1", description = "The address on which the server listens.")
+    private String host;
+
+    @Option(names = {"--port"}, defaultValue = "8080", description = "The port on which the server listens, 0 picks a free port.")
+    private int port;
+
+    @Option(names = {"--tests"}, defaultValue = "", description = "The root folder which contains the tests to run. If not provided or empty, no tests will be run.")
+    private Path tests;
+
+    @Option(names = {"-j", "--java", "--java-version"}, defaultValue = "17", description = "Set the Java version, if the request does not specify one.")
+    private String javaVersion;
+
+    @Option(names = { "--max-problems" }, description = "The maximum number of problems to report per check", defaultValue = "10")
+    private int maxProblemsPerCheck;
+
+    @Option(names = {"-J", "--jobs"}, description = "The maximum number of submissions that are graded at the same time. Defaults to the number of processors.")
+    private int jobs = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = {"--queue"}, defaultValue = "64", description = "The maximum number of submissions that wait to be graded, further submissions are rejected.")
+    private int queueSize;
+
+    @Option(names = {"-t", "--threads"}, defaultValue = "1", description = "The number of threads that analyze one submission.")
+    private int threads;
+
+    @Option(names = {"--result-cache"}, description = "A folder in which the problems of the submissions are stored, so that unchanged submissions are not graded again.")
+    private Path resultCache;
+
+    @Spec
+    private CommandSpec spec;
+
+    private final TempLocation tempLocation;
+
+    public ServerApplication(TempLocation tempLocation) {
+        this.tempLocation = tempLocation;
+    }
+
+    @Override
+    public Integer call() {
+        if (!JavaVersion.isValidJavaVersion(javaVersion)) {
+            throw new ParameterException(this.spec.commandLine(), "Unknown java version '" + javaVersion + "'");
+        }
+
+        if (this.jobs < 1 || this.queueSize < 0) {
+            throw new ParameterException(this.spec.commandLine(), "The number of jobs must be at least 1 and the queue size must not be negative");
+        }
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        try (Linter linter = Linter.builder(Locale.GERMANY)
+                .threads(this.threads)
+                .tempLocation(this.tempLocation)
+                .enableDynamicAnalysis(!this.tests.toString().equals(""))
+                .maxProblemsPerCheck(this.maxProblemsPerCheck)
+                .errorProneWorkers(this.jobs)
+                .resultCache(this.resultCache)
+                .build();
+             GradingServer server = new GradingServer(
+            new InetSocketAddress(this.host, this.port),
+            new SubmissionGrader(linter, this.tempLocation, this.tests),
+            JavaVersion.fromString(this.javaVersion),
+            this.jobs,
+            this.queueSize
+        )) {
+            Runtime.getRuntime().addShutdownHook(new Thread(stopped::countDown));
+            InetSocketAddress address = server.getAddress();
+            CmdUtil.println("Listening on http://%s:%d/grade".formatted(address.getHostString(), address.getPort()));
+            stopped.await();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Application.IO_EXIT_CODE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,60 @@
+package de.firemage.autograder.cmd;
+
+import de.firemage.autograder.cmd.output.Annotation;
+import de.firemage.autograder.cmd.output.SubmissionResult;
+import de.firemage.autograder.core.Linter;
+import de.firemage.autograder.core.LinterException;
+import de.firemage.autograder.core.LinterStatus;
+import de.firemage.autograder.core.Problem;
+import de.firemage.autograder.core.ProblemType;
+import de.firemage.autograder.core.compiler.CompilationFailureException;
+import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import de.firemage.autograder.core.file.FileSourceInfo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Grades submissions with a shared {@link Linter}, which is used by the modes that grade more than one submission.
+ *
+ * @param linter       the linter, which reuses its checks for the next submissions
+ * @param tempLocation the location in which temporary files of the submissions are stored
+ * @param tests        the folder with the tests for the dynamic analysis
+ */
+record SubmissionGrader(Linter linter, TempLocation tempLocation, Path tests) {
+    private static final Consumer<LinterStatus> IGNORE_STATUS = status -> {
+    };
+
+    /**
+     * Grades the given submission. Failures are part of the result, so that they can be reported like the problems.
+     *
+     * @param name         the name of the submission in the result
+     * @param sources      the folder with the sources of the submission
+     * @param javaVersion  the java version of the submission
+     * @param problemTypes the problem types to report
+     * @return the result
+     */
+    SubmissionResult grade(String name, Path sources, JavaVersion javaVersion, List<ProblemType> problemTypes) {
+        try {
+            // the linter only compiles the submission if its problems are not cached
+            List<Problem> problems = this.linter.checkFile(
+                new FileSourceInfo(sources, javaVersion),
+                this.tests,
+                problemTypes,
+                IGNORE_STATUS
+            );
+            return SubmissionResult.graded(
+                name,
+                problems.stream().map(problem -> Annotation.from(problem, this.linter)).toList()
+            );
+        } catch (CompilationFailureException e) {
+            return SubmissionResult.failed(name, SubmissionResult.Status.COMPILATION_FAILED, e.getMessage());
+        } catch (LinterException | IOException | RuntimeException e) {
+            // one broken submission must not prevent the others from being graded
+            return SubmissionResult.failed(name, SubmissionResult.Status.FAILED, e.toString());
+        }
+    }
+}
@@ -1,6 +1,19 @@
 package de.firemage.autograder.cmd.output;
 
+import de.firemage.autograder.core.CodePosition;
+import de.firemage.autograder.core.Linter;
+import de.firemage.autograder.core.Problem;
 import de.firemage.autograder.core.ProblemType;
 
 public record Annotation(ProblemType type, String message, String file, int startLine, int endLine) {
+    public static Annotation from(Problem problem, Linter linter) {
+        CodePosition position = problem.getPosition();
+        return new Annotation(
+            problem.getProblemType(),
+            linter.translateMessage(problem.getExplanation()),
+            position.file().toString().replace("\\", "/"),
+            position.startLine(),
+            position.endLine()
+        );
+    }
 }
@@ -0,0 +1,27 @@
+package de.firemage.autograder.cmd.output;
+
+import java.util.List;
+
+/**
+ * The result of grading one submission in batch mode, which is written as one line of JSON.
+ *
+ * @param submission the name of the submission
+ * @param status     whether the submission could be graded
+ * @param problems   the problems that were found, empty if the submission could not be graded
+ * @param message    the reason why the submission could not be graded, null if it was graded
+ */
+public record SubmissionResult(String submission, Status status, List<Annotation> problems, String message) {
+    public enum Status {
+        OK,
+        COMPILATION_FAILED,
+        FAILED
+    }
+
+    public static SubmissionResult graded(String submission, List<Annotation> problems) {
+        return new SubmissionResult(submission, Status.OK, problems, null);
+    }
+
+    public static SubmissionResult failed(String submission, Status status, String message) {
+        return new SubmissionResult(submission, status, List.of(), message);
+    }
+}
@@ -0,0 +1,40 @@
+package de.firemage.autograder.cmd;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.firemage.autograder.cmd.output.SubmissionResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchTest {
+    @Test
+    void testBatch(@TempDir Path tempDir) throws IOException {
+        Path output = tempDir.resolve("results.jsonl");
+        int returnCode = Application.runApplication(
+            "batch", "../sample_config.yaml", "../test_submissions", "--source-path", "code", "-J", "2", "-s", "-o", output.toString()
+        );
+        assertEquals(0, returnCode);
+
+        // the lines are written in the order in which the submissions finish
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, SubmissionResult> results = new TreeMap<>();
+        for (String line : Files.readAllLines(output)) {
+            SubmissionResult result = mapper.readValue(line, SubmissionResult.class);
+            results.put(result.submission(), result);
+        }
+
+        assertEquals(List.of("A1", "Bank", "Test"), new ArrayList<>(results.keySet()));
+        for (SubmissionResult result : results.values()) {
+            assertEquals(SubmissionResult.Status.OK, result.status(), result.message());
+        }
+    }
+}
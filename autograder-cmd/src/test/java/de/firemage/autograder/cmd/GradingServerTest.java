@@ -0,0 +1,193 @@
+package de.firemage.autograder.cmd;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.firemage.autograder.cmd.output.SubmissionResult;
+import de.firemage.autograder.core.Linter;
+import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradingServerTest {
+    private static byte[] zip(Path folder) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (ZipOutputStream archive = new ZipOutputStream(result); Stream<Path> files = Files.walk(folder)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                archive.putNextEntry(new ZipEntry(folder.relativize(file).toString().replace('\\', '/')));
+                archive.write(Files.readAllBytes(file));
+                archive.closeEntry();
+            }
+        }
+
+        return result.toByteArray();
+    }
+
+    private static byte[] zip(Map<String, byte[]> files) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (ZipOutputStream archive = new ZipOutputStream(result)) {
+            for (var file : files.entrySet()) {
+                archive.putNextEntry(new ZipEntry(file.getKey()));
+                archive.write(file.getValue());
+                archive.closeEntry();
+            }
+        }
+
+        return result.toByteArray();
+    }
+
+    private static HttpRequest post(GradingServer server, String query, HttpRequest.BodyPublisher body) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:%d/grade%s".formatted(server.getAddress().getPort(), query)))
+            .POST(body)
+            .build();
+    }
+
+    @Test
+    void testGrade() throws IOException, InterruptedException {
+        TempLocation tempLocation = TempLocation.random();
+        Linter linter = Linter.builder(Locale.GERMANY).tempLocation(tempLocation).maxProblemsPerCheck(10).build();
+        byte[] submission = zip(Path.of("../test_submissions/A1/code"));
+
+        try (tempLocation; linter; GradingServer server = new GradingServer(
+            new InetSocketAddress("127.0.0.1", 0),
+            new SubmissionGrader(linter, tempLocation, Path.of("")),
+            JavaVersion.JAVA_17,
+            1,
+            1
+        )) {
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://127.0.0.1:%d".formatted(server.getAddress().getPort());
+
+            HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(base + "/grade?check=COMMENTED_OUT_CODE&check=UNUSED_IMPORT"))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(submission))
+                    .build(),
+                HttpResponse.BodyHandlers.ofString()
+            );
+            assertEquals(200, response.statusCode(), response.body());
+            SubmissionResult result = new ObjectMapper().readValue(response.body(), SubmissionResult.class);
+            assertEquals(SubmissionResult.Status.OK, result.status());
+
+            // the server keeps running after a request
+            HttpResponse<String> invalid = client.send(
+                HttpRequest.newBuilder(URI.create(base + "/grade?check=NOT_A_PROBLEM_TYPE"))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(submission))
+                    .build(),
+                HttpResponse.BodyHandlers.ofString()
+            );
+            assertEquals(400, invalid.statusCode());
+
+            HttpResponse<String> notFound = client.send(
+                HttpRequest.newBuilder(URI.create(base + "/unknown")).GET().build(),
+                HttpResponse.BodyHandlers.ofString()
+            );
+            assertEquals(404, notFound.statusCode());
+
+            List<String> problemTypes = result.problems().stream().map(annotation -> annotation.type().toString()).distinct().toList();
+            assertTrue(List.of("COMMENTED_OUT_CODE", "UNUSED_IMPORT").containsAll(problemTypes));
+        }
+    }
+
+    @Test
+    void testRejectsLargeArchives() throws IOException, InterruptedException {
+        TempLocation tempLocation = TempLocation.random();
+        Linter linter = Linter.builder(Locale.GERMANY).tempLocation(tempLocation).build();
+
+        try (tempLocation; linter; GradingServer server = new GradingServer(
+            new InetSocketAddress("127.0.0.1", 0),
+            new SubmissionGrader(linter, tempLocation, Path.of("")),
+            JavaVersion.JAVA_17,
+            1,
+            1,
+            new GradingServer.Limits(2048, 1024, 4)
+        )) {
+            HttpClient client = HttpClient.newHttpClient();
+
+            HttpResponse<String> largeRequest = client.send(post(server, "?check=UNUSED_IMPORT", HttpRequest.BodyPublishers.ofByteArray(new byte[4096])), HttpResponse.BodyHandlers.ofString());
+            assertEquals(413, largeRequest.statusCode(), largeRequest.body());
+
+            // zeros are compressed well, so the archive is small, but not its content
+            byte[] largeContent = zip(Map.of("Test.java", new byte[4096]));
+            assertTrue(largeContent.length < 1024);
+            HttpResponse<String> largeFile = client.send(post(server, "?check=UNUSED_IMPORT", HttpRequest.BodyPublishers.ofByteArray(largeContent)), HttpResponse.BodyHandlers.ofString());
+            assertEquals(413, largeFile.statusCode(), largeFile.body());
+
+            byte[] manyFiles = zip(Map.of("A", new byte[0], "B", new byte[0], "C", new byte[0], "D", new byte[0], "E", new byte[0]));
+            HttpResponse<String> manyEntries = client.send(post(server, "?check=UNUSED_IMPORT", HttpRequest.BodyPublishers.ofByteArray(manyFiles)), HttpResponse.BodyHandlers.ofString());
+            assertEquals(413, manyEntries.statusCode(), manyEntries.body());
+        }
+    }
+
+    @Test
+    void testRejectsSubmissionsWhenQueueIsFull() throws IOException, InterruptedException {
+        TempLocation tempLocation = TempLocation.random();
+        Linter linter = Linter.builder(Locale.GERMANY).tempLocation(tempLocation).build();
+
+        try (tempLocation; linter; GradingServer server = new GradingServer(
+            new InetSocketAddress("127.0.0.1", 0),
+            new SubmissionGrader(linter, tempLocation, Path.of("")),
+            JavaVersion.JAVA_17,
+            1,
+            0,
+            new GradingServer.Limits(2048, 1024, 4)
+        ); Socket first = new Socket("127.0.0.1", server.getAddress().getPort())) {
+            // the body of the first submission is incomplete, so it stays admitted until the rest is sent
+            byte[] submission = zip(Map.of("../Test.java", new byte[0]));
+            OutputStream firstRequest = first.getOutputStream();
+            firstRequest.write("POST /grade?check=UNUSED_IMPORT HTTP/1.1\r\nHost: 127.0.0.1\r\nContent-Length: %d\r\n\r\n"
+                .formatted(submission.length)
+                .getBytes(StandardCharsets.US_ASCII));
+            firstRequest.write(submission, 0, 1);
+            firstRequest.flush();
+
+            // requests without a problem type are rejected right after they have been admitted
+            HttpClient client = HttpClient.newHttpClient();
+            HttpResponse<String> rejected;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            do {
+                rejected = client.send(post(server, "", HttpRequest.BodyPublishers.noBody()), HttpResponse.BodyHandlers.ofString());
+            } while (rejected.statusCode() == 400 && System.nanoTime() < deadline);
+
+            assertEquals(503, rejected.statusCode(), rejected.body());
+            assertEquals("1", rejected.headers().firstValue("Retry-After").orElseThrow());
+
+            // the archive is rejected, because its entry is outside of it
+            firstRequest.write(submission, 1, submission.length - 1);
+            firstRequest.flush();
+            String statusLine = new BufferedReader(new InputStreamReader(first.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+            assertEquals("HTTP/1.1 400 Bad Request", statusLine);
+
+            // the queue has space again, once the handler of the first submission has returned after its response
+            HttpResponse<String> admitted;
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            do {
+                admitted = client.send(post(server, "", HttpRequest.BodyPublishers.noBody()), HttpResponse.BodyHandlers.ofString());
+            } while (admitted.statusCode() == 503 && System.nanoTime() < deadline);
+
+            assertEquals(400, admitted.statusCode(), admitted.body());
+        }
+    }
+}
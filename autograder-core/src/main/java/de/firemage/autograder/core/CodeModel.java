@@ -1,19 +1,32 @@
 package de.firemage.autograder.core;
 
 import de.firemage.autograder.core.file.SourceInfo;
+import de.firemage.autograder.core.integrated.ElementIndex;
 import de.firemage.autograder.core.integrated.ModelBuildException;
 import de.firemage.autograder.core.integrated.SpoonUtil;
+import de.firemage.autograder.core.integrated.UsesIndex;
 import spoon.Launcher;
+import spoon.SpoonException;
 import spoon.compiler.Environment;
 import spoon.compiler.ModelBuildingException;
+import spoon.compiler.SpoonFile;
+import spoon.compiler.SpoonFolder;
 import spoon.processing.AbstractProcessor;
 import spoon.processing.Processor;
 import spoon.reflect.CtModel;
+import spoon.reflect.code.CtComment;
+import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.declaration.CtAnnotation;
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.declaration.CtPackage;
 import spoon.reflect.declaration.CtType;
 import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtExecutableReference;
+import spoon.reflect.reference.CtFieldReference;
+import spoon.reflect.reference.CtReference;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.CtScanner;
 import spoon.reflect.visitor.DefaultImportComparator;
 import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
 import spoon.reflect.visitor.ForceImportProcessor;
@@ -27,25 +40,43 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * The model is build lazily to work better with the multithreaded core architecture.
  */
 public final class CodeModel implements AutoCloseable {
+    // building a model has a fixed overhead, so a thread should build at least this many files
+    private static final int MIN_FILES_PER_PARTITION = 8;
+
     private final SourceInfo file;
     private final Path jar;
     private final ClassLoader userClassLoader;
     private final URLClassLoader classLoader;
+    private final ModelCache modelCache;
+    private final int buildThreads;
     private Factory factory;
     private CtModel model;
     private CtPackage basePackage;
     private Optional<CtMethod<Void>> mainMethod;
+    private volatile ElementIndex elementIndex;
+    private boolean isPreparedForConcurrentAccess;
 
-    private CodeModel(SourceInfo file, Path jar, ClassLoader classLoader) {
+    private CodeModel(SourceInfo file, Path jar, ClassLoader classLoader, ModelCache modelCache, int buildThreads) {
         this.file = file;
         this.jar = jar;
+        this.modelCache = modelCache;
+        this.buildThreads = buildThreads;
 
         if (classLoader != null) {
             this.userClassLoader = classLoader;
@@ -63,7 +94,28 @@ public final class CodeModel implements AutoCloseable {
     }
 
     public static CodeModel buildFor(SourceInfo file, Path jar, ClassLoader classLoader) {
-        return new CodeModel(file, jar, classLoader);
+        return CodeModel.buildFor(file, jar, classLoader, null, 1);
+    }
+
+    /**
+     * Creates a code model, which is loaded from the given cache if it contains a snapshot for the source.
+     * Otherwise, the model is built and a snapshot is stored in the cache.
+     *
+     * @param file the source of the model
+     * @param jar the compiled source
+     * @param classLoader the class loader for the types of the source, or null if the jar should be used
+     * @param modelCache the cache for snapshots of the model, or null if the model should always be built
+     * @param buildThreads the maximum number of threads that build the model
+     * @return the code model, which is built lazily
+     */
+    public static CodeModel buildFor(
+        SourceInfo file,
+        Path jar,
+        ClassLoader classLoader,
+        ModelCache modelCache,
+        int buildThreads
+    ) {
+        return new CodeModel(file, jar, classLoader, modelCache, buildThreads);
     }
 
     public void ensureModelBuild() {
@@ -81,27 +133,88 @@ public final class CodeModel implements AutoCloseable {
     }
 
     public <E extends CtElement> void processWith(Processor<E> processor) {
+        this.getElementIndex().process(processor);
+    }
+
+    /**
+     * Returns an index of all elements in the model, so that they can be processed without traversing the model again.
+     *
+     * @return the index, which is built on the first call
+     */
+    public ElementIndex getElementIndex() {
         this.buildModelMaybe();
-        this.model.processWith(processor);
+
+        if (this.elementIndex == null) {
+            synchronized (this) {
+                if (this.elementIndex == null) {
+                    ElementIndex index = ElementIndex.of(this.model);
+                    // SpoonUtil uses this to find the uses of a declaration without scanning the whole model
+                    UsesIndex.of(index).attachTo(this.model);
+                    this.elementIndex = index;
+                }
+            }
+        }
+
+        return this.elementIndex;
+    }
+
+    /**
+     * Spoon resolves some parts of the model lazily and caches them in the factory, which is not thread-safe.
+     * For example, the declarations of types that are not part of the code (like {@code java.util.List}) are
+     * created on first access.
+     * <p>
+     * This method resolves all references upfront, so that the model can be read by multiple threads at the same time.
+     * The declarations of references that are created later, for example by a check, are created by the
+     * {@link SharedShadowFactory}, which does not create them concurrently. Printing an element does not modify
+     * the model either, see {@link ModelEnvironment}.
+     */
+    public void prepareForConcurrentAccess() {
+        ElementIndex index = this.getElementIndex();
+
+        synchronized (this) {
+            if (this.isPreparedForConcurrentAccess) {
+                return;
+            }
+
+            for (CtReference ctReference : index.getElementsOfType(CtReference.class)) {
+                try {
+                    if (ctReference instanceof CtTypeReference<?> ctTypeReference) {
+                        ctTypeReference.getTypeDeclaration();
+                    } else if (ctReference instanceof CtExecutableReference<?> ctExecutableReference) {
+                        ctExecutableReference.getExecutableDeclaration();
+                    } else if (ctReference instanceof CtFieldReference<?> ctFieldReference) {
+                        ctFieldReference.getFieldDeclaration();
+                    }
+                } catch (SpoonException e) {
+                    // the checks will run into the same problem, so it is fine to ignore it here
+                }
+            }
+
+            this.isPreparedForConcurrentAccess = true;
+        }
     }
 
-    @SuppressWarnings("unchecked")
     public CtMethod<Void> findMain() {
         this.buildModelMaybe();
 
         // NOTE: this is intentional, so that the main method is only searched once
         if (this.mainMethod == null) {
-            this.mainMethod = this.getModel()
-                .getElements(new NamedElementFilter<>(CtMethod.class, "main"))
-                .stream()
-                .filter(SpoonUtil::isMainMethod)
-                .findFirst()
-                .map(ctMethod -> (CtMethod<Void>) ctMethod);
+            this.mainMethod = Optional.ofNullable(findMain(this.getModel()));
         }
 
         return this.mainMethod.orElse(null);
     }
 
+    @SuppressWarnings("unchecked")
+    private static CtMethod<Void> findMain(CtModel model) {
+        return model.getElements(new NamedElementFilter<>(CtMethod.class, "main"))
+            .stream()
+            .filter(SpoonUtil::isMainMethod)
+            .findFirst()
+            .map(ctMethod -> (CtMethod<Void>) ctMethod)
+            .orElse(null);
+    }
+
     /**
      * Checks if the code has a main method.
      *
@@ -124,6 +237,192 @@ public final class CodeModel implements AutoCloseable {
     }
 
     @SuppressWarnings({"java:S3599", "java:S1171"}) // ignore some sonarlint warnings
+    private void configureEnvironment(Environment environment) {
+        environment.setSourceClasspath(new String[]{jar.toAbsolutePath().toString()});
+        environment.setNoClasspath(false);
+        environment.setCommentEnabled(true);
+        environment.setComplianceLevel(this.file.getVersion().getVersionNumber());
+        // The encoding might differ by file
+        environment.setEncodingProvider(
+            (spoonFile, fileBytes) -> {
+                try {
+                    return this.file.getCompilationUnit(Path.of(spoonFile.getPath())).charset();
+                } catch (Exception e) {
+                    return StandardCharsets.UTF_8;
+                }
+            }
+        );
+
+        // types should not be qualified and parentheses should be removed if possible
+        environment.setPrettyPrinterCreator(() -> new DefaultJavaPrettyPrinter(environment) {
+            {
+                // copy-pasted from StandardEnvironment#createPrettyPrinterAutoImport
+                List<Processor<CtElement>> preprocessors = List.of(
+                    // try to import as many types as possible
+                    new ForceImportProcessor(),
+                    // remove unused imports first. Do not add new imports at a time when conflicts are not resolved
+                    new ImportCleaner().setCanAddImports(false),
+                    // solve conflicts, the current imports are relevant too
+                    new ImportConflictDetector(),
+                    // compute final imports
+                    new ImportCleaner().setImportComparator(new DefaultImportComparator())
+                );
+                this.setIgnoreImplicit(false);
+                this.setPreprocessors(preprocessors);
+                this.setMinimizeRoundBrackets(true);
+            }
+        });
+
+        if (this.userClassLoader != null) {
+            environment.setInputClassLoader(this.userClassLoader);
+        } else {
+            environment.setInputClassLoader(this.classLoader);
+        }
+    }
+
+    private Launcher createLauncher() {
+        // the factory shares the types of the JDK with the models of other submissions
+        Launcher launcher = new Launcher(new SharedShadowFactory());
+        launcher.getEnvironment().setShouldCompile(false);
+        this.configureEnvironment(launcher.getEnvironment());
+        return launcher;
+    }
+
+    private static CtModel buildModel(Launcher launcher) {
+        try {
+            return launcher.buildModel();
+        } catch (ModelBuildingException e) {
+            throw new RuntimeException(new ModelBuildException("Failed to parse the code", e));
+        }
+    }
+
+    /**
+     * Splits the files of the source into groups that are built in parallel. There is only one group if the source
+     * is too small for building in parallel to pay off.
+     */
+    private List<List<SpoonFile>> partitionFiles() {
+        if (this.buildThreads <= 1 || !(this.file.getSpoonResource() instanceof SpoonFolder folder)) {
+            return List.of();
+        }
+
+        List<SpoonFile> files = folder.getAllJavaFiles();
+        // spoon merges packages and types, but not modules
+        if (files.stream().anyMatch(spoonFile -> spoonFile.getName().equals("module-info.java"))) {
+            return List.of();
+        }
+
+        int partitionCount = Math.min(this.buildThreads, files.size() / MIN_FILES_PER_PARTITION);
+        List<List<SpoonFile>> partitions = new ArrayList<>();
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < files.size() && partitionCount > 0; i++) {
+            partitions.get(i % partitionCount).add(files.get(i));
+        }
+
+        return partitions;
+    }
+
+    /**
+     * Builds a model for each partition at the same time and moves everything into the factory of the first one.
+     * <p>
+     * The types of the other partitions are resolved from the compiled jar while building, which works, because
+     * spoon only references other types by their name.
+     */
+    private Factory buildInParallel(List<List<SpoonFile>> partitions) {
+        ExecutorService executor = Executors.newFixedThreadPool(partitions.size());
+        List<Future<Factory>> futures = new ArrayList<>();
+        try {
+            for (List<SpoonFile> partition : partitions) {
+                futures.add(executor.submit(() -> {
+                    Launcher launcher = this.createLauncher();
+                    for (SpoonFile spoonFile : partition) {
+                        launcher.addInputResource(spoonFile);
+                    }
+                    buildModel(launcher);
+                    return launcher.getFactory();
+                }));
+            }
+
+            List<Factory> factories = new ArrayList<>();
+            for (Future<Factory> future : futures) {
+                factories.add(future.get());
+            }
+
+            return mergeInto(factories.get(0), factories.subList(1, factories.size()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the model", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Factory mergeInto(Factory target, List<Factory> factories) {
+        Set<CtPackage> mergedPackages = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Factory factory : factories) {
+            for (CtPackage ctPackage : factory.getModel().getAllPackages()) {
+                CtPackage targetPackage = ctPackage.isUnnamedPackage()
+                    ? target.getModel().getRootPackage()
+                    : target.Package().getOrCreate(ctPackage.getQualifiedName());
+                // a package-info.java is only part of one partition
+                if (ctPackage.getPosition().isValidPosition()) {
+                    targetPackage.setPosition(ctPackage.getPosition());
+                    for (CtAnnotation<?> ctAnnotation : ctPackage.getAnnotations()) {
+                        targetPackage.addAnnotation(ctAnnotation.clone());
+                    }
+                    for (CtComment ctComment : ctPackage.getComments()) {
+                        targetPackage.addComment(ctComment.clone());
+                    }
+                }
+
+                for (CtType<?> ctType : new ArrayList<>(ctPackage.getTypes())) {
+                    ctPackage.removeType(ctType);
+                    targetPackage.addType(ctType);
+                    mergedPackages.add(targetPackage);
+                }
+            }
+        }
+
+        // the checks report their problems in the order of the types, which should not depend on the partitions
+        for (CtPackage ctPackage : mergedPackages) {
+            List<CtType<?>> types = new ArrayList<>(ctPackage.getTypes());
+            types.sort(Comparator.comparing(ctType -> ctType.getPosition().getFile().getPath()));
+            for (CtType<?> ctType : types) {
+                ctPackage.removeType(ctType);
+                ctPackage.addType(ctType);
+            }
+        }
+
+        // the moved elements and their compilation units still reference the factory they have been created with
+        Set<CompilationUnit> compilationUnits = Collections.newSetFromMap(new IdentityHashMap<>());
+        CtScanner scanner = new CtScanner() {
+            @Override
+            public void scan(CtElement element) {
+                if (element != null) {
+                    element.setFactory(target);
+                    if (element.getPosition().isValidPosition()) {
+                        compilationUnits.add(element.getPosition().getCompilationUnit());
+                    }
+                    super.scan(element);
+                }
+            }
+        };
+        scanner.scan(target.getModel().getRootPackage());
+
+        for (CompilationUnit compilationUnit : new ArrayList<>(compilationUnits)) {
+            scanner.scan(compilationUnit);
+        }
+
+        return target;
+    }
+
     private void buildModelMaybe() {
         // First check without synchronization
         if (this.model != null) {
@@ -136,58 +435,28 @@ public final class CodeModel implements AutoCloseable {
                 return;
             }
 
-            Launcher launcher = new Launcher();
-            launcher.addInputResource(file.getSpoonResource());
-            launcher.getEnvironment().setShouldCompile(false);
-            launcher.getEnvironment().setSourceClasspath(new String[]{jar.toAbsolutePath().toString()});
-            launcher.getEnvironment().setNoClasspath(false);
-            launcher.getEnvironment().setCommentEnabled(true);
-            launcher.getEnvironment().setComplianceLevel(this.file.getVersion().getVersionNumber());
-            // The encoding might differ by file
-            launcher.getEnvironment().setEncodingProvider(
-                (spoonFile, fileBytes) -> {
-                    try {
-                        return this.file.getCompilationUnit(Path.of(spoonFile.getPath())).charset();
-                    } catch (Exception e) {
-                        return StandardCharsets.UTF_8;
-                    }
-                }
-            );
-            Environment environment = launcher.getEnvironment();
-
-            // types should not be qualified and parentheses should be removed if possible
-            environment.setPrettyPrinterCreator(() -> new DefaultJavaPrettyPrinter(environment) {
-                {
-                    // copy-pasted from StandardEnvironment#createPrettyPrinterAutoImport
-                    List<Processor<CtElement>> preprocessors = List.of(
-                        // try to import as many types as possible
-                        new ForceImportProcessor(),
-                        // remove unused imports first. Do not add new imports at a time when conflicts are not resolved
-                        new ImportCleaner().setCanAddImports(false),
-                        // solve conflicts, the current imports are relevant too
-                        new ImportConflictDetector(),
-                        // compute final imports
-                        new ImportCleaner().setImportComparator(new DefaultImportComparator())
-                    );
-                    this.setIgnoreImplicit(false);
-                    this.setPreprocessors(preprocessors);
-                    this.setMinimizeRoundBrackets(true);
+            if (this.modelCache != null) {
+                Optional<ModelCache.Snapshot> snapshot = this.modelCache.load(this.file);
+                if (snapshot.isPresent()) {
+                    this.factory = snapshot.get().factory();
+                    this.configureEnvironment(this.factory.getEnvironment());
+                    this.basePackage = snapshot.get().basePackage();
+                    this.mainMethod = snapshot.get().mainMethod();
+                    this.model = this.factory.getModel();
+                    return;
                 }
-            });
-
-            if (this.userClassLoader != null) {
-                launcher.getEnvironment().setInputClassLoader(this.userClassLoader);
-            } else {
-                launcher.getEnvironment().setInputClassLoader(this.classLoader);
             }
 
-            CtModel model;
-            try {
-                model = launcher.buildModel();
-            } catch (ModelBuildingException e) {
-                throw new RuntimeException(new ModelBuildException("Failed to parse the code", e));
+            List<List<SpoonFile>> partitions = this.partitionFiles();
+            if (partitions.size() > 1) {
+                this.factory = this.buildInParallel(partitions);
+            } else {
+                Launcher launcher = this.createLauncher();
+                launcher.addInputResource(file.getSpoonResource());
+                buildModel(launcher);
+                this.factory = launcher.getFactory();
             }
-            this.factory = launcher.getFactory();
+            CtModel model = this.factory.getModel();
 
             // Find the base package
             model.processWith(new AbstractProcessor<CtType<?>>() {
@@ -209,6 +478,12 @@ public final class CodeModel implements AutoCloseable {
                 }
             });
 
+            if (this.modelCache != null) {
+                // the snapshot has to be taken before any check had the chance to look at the model
+                this.mainMethod = Optional.ofNullable(findMain(model));
+                this.modelCache.store(this.file, this.factory, this.basePackage, this.mainMethod.orElse(null));
+            }
+
             // Only set the model at the end when everything has been initialized
             this.model = model;
         }
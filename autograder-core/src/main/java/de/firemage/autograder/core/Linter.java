@@ -1,18 +1,27 @@
 package de.firemage.autograder.core;
 
 import de.firemage.autograder.core.check.Check;
+import de.firemage.autograder.core.check.CheckScope;
 import de.firemage.autograder.core.check.ExecutableCheck;
 import de.firemage.autograder.core.check.general.CopyPasteCheck;
 import de.firemage.autograder.core.check.general.MagicString;
 import de.firemage.autograder.core.cpd.CPDLinter;
+import de.firemage.autograder.core.dynamic.ConsoleRunner;
+import de.firemage.autograder.core.dynamic.DockerConsoleRunner;
+import de.firemage.autograder.core.dynamic.TestContainerSettings;
+import de.firemage.autograder.core.dynamic.TestRunner;
 import de.firemage.autograder.core.errorprone.ErrorProneCheck;
 import de.firemage.autograder.core.errorprone.ErrorProneLinter;
 import de.firemage.autograder.core.errorprone.TempLocation;
+import de.firemage.autograder.core.file.CompilationUnit;
+import de.firemage.autograder.core.file.SourceInfo;
+import de.firemage.autograder.core.file.SourcePath;
 import de.firemage.autograder.core.file.UploadedFile;
 import de.firemage.autograder.core.integrated.IntegratedAnalysis;
 import de.firemage.autograder.core.integrated.IntegratedCheck;
 import de.firemage.autograder.core.parallel.AnalysisResult;
 import de.firemage.autograder.core.parallel.AnalysisScheduler;
+import de.firemage.autograder.core.parallel.ScheduledTask;
 import de.firemage.autograder.core.pmd.PMDCheck;
 import de.firemage.autograder.core.pmd.PMDLinter;
 import de.firemage.autograder.core.spotbugs.SpotbugsCheck;
@@ -24,22 +33,38 @@ import fluent.syntax.parser.FTLParser;
 import fluent.syntax.parser.FTLStream;
 import org.reflections.Reflections;
 import org.reflections.scanners.Scanners;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-public final class Linter {
+public final class Linter implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(Linter.class);
+    // the number of different sets of problem types whose checks are kept for later submissions
+    private static final int MAX_IDLE_CHECK_SETS = 16;
+
+    private final Locale locale;
     private final int threads;
     private final TempLocation tempLocation;
     private final FluentBundle fluentBundle;
@@ -47,6 +72,13 @@ public final class Linter {
     private final ClassLoader classLoader;
     private final int maxProblemsPerCheck;
     private final Predicate<Problem> isExcluded;
+    private final ErrorProneLinter errorProneLinter;
+    private final ResultCache resultCache;
+    private final ModelCache modelCache;
+    private final TestRunner.Factory testRunnerFactory;
+    private final TestContainerSettings testContainerSettings;
+    // the checks of earlier submissions, which are not in use by another submission right now
+    private final Map<Set<ProblemType>, Queue<List<Check>>> idleChecks = new ConcurrentHashMap<>();
 
     private Linter(
         Locale locale,
@@ -55,7 +87,12 @@ public final class Linter {
         boolean disableDynamicAnalysis,
         ClassLoader classLoader,
         int maxProblemsPerCheck,
-        Predicate<Problem> isExcluded
+        Predicate<Problem> isExcluded,
+        int errorProneWorkers,
+        ResultCache resultCache,
+        ModelCache modelCache,
+        TestRunner.Factory testRunnerFactory,
+        TestContainerSettings testContainerSettings
     ) {
         String filename = switch (locale.getLanguage()) {
             case "de" -> "/strings.de.ftl";
@@ -71,12 +108,18 @@ public final class Linter {
             throw new IllegalStateException(e);
         }
 
+        this.locale = locale;
         this.tempLocation = tempLocation;
         this.threads = threads;
         this.disableDynamicAnalysis = disableDynamicAnalysis;
         this.classLoader = classLoader;
         this.maxProblemsPerCheck = maxProblemsPerCheck;
         this.isExcluded = isExcluded;
+        this.errorProneLinter = new ErrorProneLinter(tempLocation, errorProneWorkers);
+        this.resultCache = resultCache;
+        this.modelCache = modelCache;
+        this.testRunnerFactory = testRunnerFactory;
+        this.testContainerSettings = testContainerSettings;
     }
 
     public static class Builder {
@@ -87,6 +130,11 @@ public final class Linter {
         private ClassLoader classLoader;
         private int maxProblemsPerCheck = -1;
         private Predicate<Problem> isExcluded;
+        private int errorProneWorkers = 1;
+        private Path resultCacheDirectory;
+        private Path modelCacheDirectory;
+        private TestRunner.Factory testRunnerFactory = DockerConsoleRunner::new;
+        private TestContainerSettings testContainerSettings = TestContainerSettings.defaults();
 
         private Builder(Locale locale) {
             this.locale = locale;
@@ -127,6 +175,70 @@ public final class Linter {
             return this;
         }
 
+        /**
+         * Sets how many error-prone compilations may run at the same time. Each of them runs in its own JVM, which
+         * is reused for later submissions.
+         *
+         * @param errorProneWorkers the number of JVMs for error-prone
+         * @return this builder
+         */
+        public Builder errorProneWorkers(int errorProneWorkers) {
+            this.errorProneWorkers = errorProneWorkers;
+            return this;
+        }
+
+        /**
+         * Stores the problems of every submission in the given folder and reuses them when an identical submission
+         * is checked again with the same checks, without compiling or analyzing it.
+         * <p>
+         * The folder may be shared by multiple linters and processes.
+         *
+         * @param resultCacheDirectory the folder in which the problems are stored
+         * @return this builder
+         */
+        public Builder resultCache(Path resultCacheDirectory) {
+            this.resultCacheDirectory = resultCacheDirectory;
+            return this;
+        }
+
+        /**
+         * Stores a snapshot of the code model of every submission in the given folder and loads it instead of
+         * parsing an unchanged submission again. The submission is still compiled.
+         * <p>
+         * The folder may be shared by multiple linters and processes.
+         *
+         * @param modelCacheDirectory the folder in which the snapshots are stored
+         * @return this builder
+         */
+        public Builder modelCache(Path modelCacheDirectory) {
+            this.modelCacheDirectory = modelCacheDirectory;
+            return this;
+        }
+
+        /**
+         * Sets the number of containers in which the tests of a submission are executed and their resource limits.
+         * The containers are reused for multiple tests of the same submission.
+         *
+         * @param testContainerSettings the settings of the containers
+         * @return this builder
+         */
+        public Builder testContainers(TestContainerSettings testContainerSettings) {
+            this.testContainerSettings = testContainerSettings;
+            return this;
+        }
+
+        /**
+         * Sets how the tests of the dynamic analysis are executed. By default, they run in Docker containers
+         * with the {@link DockerConsoleRunner}. The {@link ConsoleRunner} runs them in child JVMs on the host.
+         *
+         * @param testRunnerFactory creates the runner of the tests of a submission
+         * @return this builder
+         */
+        public Builder testRunner(TestRunner.Factory testRunnerFactory) {
+            this.testRunnerFactory = testRunnerFactory;
+            return this;
+        }
+
         public Linter build() {
             TempLocation tempLocation = this.tempLocation;
 
@@ -141,7 +253,12 @@ public final class Linter {
                 this.disableDynamicAnalysis,
                 this.classLoader,
                 this.maxProblemsPerCheck,
-                this.isExcluded
+                this.isExcluded,
+                this.errorProneWorkers,
+                this.resultCacheDirectory == null ? null : new ResultCache(this.resultCacheDirectory),
+                this.modelCacheDirectory == null ? null : new ModelCache(this.modelCacheDirectory),
+                this.testRunnerFactory,
+                this.testContainerSettings
             );
         }
     }
@@ -172,6 +289,86 @@ public final class Linter {
         );
     }
 
+    /**
+     * Compiles and checks the given source.
+     * <p>
+     * Unlike {@link #checkFile(UploadedFile, Path, List, Consumer)}, the source is only compiled if the problems are
+     * not in the result cache. The checks are reused by later calls with the same problem types, because some of them
+     * are expensive to create (like the language detector of the comment checks or the rules of PMD).
+     *
+     * @param source the source to check
+     * @param tests the tests of the dynamic analysis
+     * @param problemsToReport the problem types that should be reported
+     * @param statusConsumer receives the progress of the linter
+     * @return the problems found in the source
+     * @throws LinterException if the source could not be compiled or checked
+     * @throws IOException if the source could not be read
+     */
+    public List<Problem> checkFile(
+        SourceInfo source,
+        Path tests,
+        List<ProblemType> problemsToReport,
+        Consumer<LinterStatus> statusConsumer
+    ) throws LinterException, IOException {
+        Set<ProblemType> problemTypes = Set.copyOf(problemsToReport);
+        List<Check> checks = this.borrowChecks(problemTypes);
+        List<Problem> problems = this.checkSource(source, tests, problemsToReport, checks, statusConsumer);
+        // a failed run might have left a check in use, so only the checks of successful runs are reused
+        this.returnChecks(problemTypes, checks);
+        return problems;
+    }
+
+    private List<Problem> checkSource(
+        SourceInfo source,
+        Path tests,
+        List<ProblemType> problemsToReport,
+        List<Check> checks,
+        Consumer<LinterStatus> statusConsumer
+    ) throws LinterException, IOException {
+        String cacheKey = this.cacheKey(source, tests, problemsToReport, checks);
+        if (cacheKey != null) {
+            Optional<List<Problem>> problems = this.resultCache.load(cacheKey, source, checks);
+            if (problems.isPresent()) {
+                return this.reduceProblems(problems.get());
+            }
+        }
+
+        try (UploadedFile file = UploadedFile.build(
+            source,
+            this.tempLocation,
+            statusConsumer,
+            this.classLoader,
+            ErrorProneLinter.lintsFor(checks),
+            this.modelCache,
+            AnalysisScheduler.actualThreads(this.threads)
+        )) {
+            if (file == null) {
+                return new ArrayList<>();
+            }
+
+            return this.reduceProblems(this.checkFileAndCache(file, tests, problemsToReport, checks, statusConsumer, cacheKey));
+        }
+    }
+
+    private List<Check> borrowChecks(Set<ProblemType> problemTypes) {
+        Queue<List<Check>> idle = this.idleChecks.get(problemTypes);
+        List<Check> checks = idle == null ? null : idle.poll();
+        if (checks == null) {
+            return this.findChecksForProblemTypes(problemTypes);
+        }
+
+        return checks;
+    }
+
+    private void returnChecks(Set<ProblemType> problemTypes, List<Check> checks) {
+        // every request could ask for other problem types, so the number of kept sets is limited
+        if (!this.idleChecks.containsKey(problemTypes) && this.idleChecks.size() >= MAX_IDLE_CHECK_SETS) {
+            return;
+        }
+
+        this.idleChecks.computeIfAbsent(problemTypes, key -> new ConcurrentLinkedQueue<>()).add(checks);
+    }
+
     public List<Problem> checkFile(
         UploadedFile file,
         Path tests,
@@ -184,6 +381,59 @@ public final class Linter {
             return new ArrayList<>();
         }
 
+        String cacheKey = this.cacheKey(file.getSource(), tests, problemsToReport, checks);
+        if (cacheKey != null) {
+            Optional<List<Problem>> problems = this.resultCache.load(cacheKey, file.getSource(), checks);
+            if (problems.isPresent()) {
+                return this.reduceProblems(problems.get());
+            }
+        }
+
+        return this.reduceProblems(this.checkFileAndCache(file, tests, problemsToReport, checks, statusConsumer, cacheKey));
+    }
+
+    private String cacheKey(
+        SourceInfo source,
+        Path tests,
+        Collection<ProblemType> problemsToReport,
+        Iterable<? extends Check> checks
+    ) throws IOException {
+        if (this.resultCache == null) {
+            return null;
+        }
+
+        return this.resultCache.key(source, this.disableDynamicAnalysis ? null : tests, problemsToReport, checks, this.locale);
+    }
+
+    private List<Problem> checkFileAndCache(
+        UploadedFile file,
+        Path tests,
+        Collection<ProblemType> problemsToReport,
+        Iterable<? extends Check> checks,
+        Consumer<LinterStatus> statusConsumer,
+        String cacheKey
+    ) throws LinterException, IOException {
+        List<Problem> problems = this.runChecks(file, tests, problemsToReport, checks, statusConsumer);
+        if (cacheKey != null) {
+            try {
+                this.resultCache.store(cacheKey, problems, this.fluentBundle);
+            } catch (IOException exception) {
+                // the problems have been found, failing to cache them should not lose them
+                LOG.warn("Could not store the problems in the result cache", exception);
+            }
+        }
+
+        return problems;
+    }
+
+    private List<Problem> runChecks(
+        UploadedFile file,
+        Path tests,
+        Collection<ProblemType> problemsToReport,
+        Iterable<? extends Check> checks,
+        Consumer<LinterStatus> statusConsumer
+    ) throws LinterException, IOException {
+
         List<PMDCheck> pmdChecks = new ArrayList<>();
         List<SpotbugsCheck> spotbugsChecks = new ArrayList<>();
         List<CopyPasteCheck> cpdChecks = new ArrayList<>();
@@ -207,47 +457,86 @@ public final class Linter {
             }
         }
 
-        AnalysisScheduler scheduler = new AnalysisScheduler(this.threads, classLoader);
-
-        if (!pmdChecks.isEmpty()) {
-            scheduler.submitTask((s, reporter) -> {
-                statusConsumer.accept(LinterStatus.RUNNING_PMD);
-                reporter.reportProblems(new PMDLinter().lint(file, pmdChecks, this.classLoader));
-            });
-        }
-
-        if (!cpdChecks.isEmpty()) {
-            scheduler.submitTask((s, reporter) -> {
-                statusConsumer.accept(LinterStatus.RUNNING_CPD);
-                reporter.reportProblems(new CPDLinter().lint(file, cpdChecks));
-            });
+        // with a result cache, the file-local checks are only run on the files that changed since an earlier run
+        List<IntegratedCheck> fileChecks = new ArrayList<>();
+        if (this.resultCache != null) {
+            for (IntegratedCheck check : integratedChecks) {
+                if (isFileCheck(check)) {
+                    fileChecks.add(check);
+                }
+            }
+            integratedChecks.removeAll(fileChecks);
         }
 
-        if (!spotbugsChecks.isEmpty()) {
-            scheduler.submitTask((s, reporter) -> {
-                statusConsumer.accept(LinterStatus.RUNNING_SPOTBUGS);
-                reporter.reportProblems(new SpotbugsLinter().lint(file, file.getCompilationResult().jar(), spotbugsChecks));
-            });
+        List<Problem> cachedFileProblems = new ArrayList<>();
+        Map<SourcePath, String> changedFiles = new LinkedHashMap<>();
+        if (!fileChecks.isEmpty()) {
+            for (CompilationUnit compilationUnit : file.getSource().compilationUnits()) {
+                String fileKey = this.resultCache.fileKey(file.getSource(), compilationUnit, problemsToReport, fileChecks, this.locale);
+                Optional<List<Problem>> problems = this.resultCache.load(fileKey, file.getSource(), fileChecks);
+                if (problems.isPresent()) {
+                    cachedFileProblems.addAll(problems.get());
+                } else {
+                    changedFiles.put(compilationUnit.path(), fileKey);
+                }
+            }
         }
+        List<IntegratedCheck> changedFileChecks = changedFiles.isEmpty() ? List.of() : fileChecks;
+
+        // The source has been compiled when the file was uploaded. After that, the analyses form these stages:
+        //
+        //   model build -> dynamic analysis -> integrated checks that use the dynamic analysis
+        //             \__________________________> other integrated checks
+        //   PMD, CPD, SpotBugs, error-prone
+        //
+        // The tasks are submitted in the order of the longest path through the stages, so that the
+        // model is built while the other tools are running instead of after them.
+        AnalysisScheduler scheduler = new AnalysisScheduler(this.threads, classLoader);
 
         AnalysisResult result;
         try (TempLocation tempLinterLocation = this.tempLocation.createTempDirectory("linter")) {
             Path tmpLocation = tempLinterLocation.toPath();
 
-            if (!integratedChecks.isEmpty()) {
-                scheduler.submitTask((s, reporter) -> {
-                    IntegratedAnalysis analysis = new IntegratedAnalysis(file, tmpLocation);
-                    if (!this.disableDynamicAnalysis) {
-                        analysis.runDynamicAnalysis(tests, statusConsumer);
-                    }
-                    analysis.lint(integratedChecks, statusConsumer, s);
-                });
+            if (!integratedChecks.isEmpty() || !changedFileChecks.isEmpty()) {
+                IntegratedAnalysis analysis = new IntegratedAnalysis(file, tmpLocation, this.testRunnerFactory, this.testContainerSettings);
+                ScheduledTask modelBuilt = analysis.buildModel(changedFileChecks, changedFiles.keySet(), statusConsumer, scheduler);
+
+                ScheduledTask testsExecuted = null;
+                boolean needsTests = Stream.concat(integratedChecks.stream(), changedFileChecks.stream())
+                    .anyMatch(IntegratedCheck::usesDynamicAnalysis);
+                if (!this.disableDynamicAnalysis && needsTests) {
+                    // the tests need the main method, which is found in the model
+                    testsExecuted = analysis.runDynamicAnalysis(tests, statusConsumer, scheduler, modelBuilt);
+                }
+
+                analysis.lint(integratedChecks, changedFileChecks, statusConsumer, scheduler, modelBuilt, testsExecuted);
             }
 
             if (!errorProneChecks.isEmpty()) {
                 scheduler.submitTask((s, reporter) -> {
                     statusConsumer.accept(LinterStatus.RUNNING_ERROR_PRONE);
-                    reporter.reportProblems(new ErrorProneLinter().lint(file, tempLinterLocation, errorProneChecks));
+                    reporter.reportProblems(this.errorProneLinter.lint(file, errorProneChecks));
+                });
+            }
+
+            if (!spotbugsChecks.isEmpty()) {
+                scheduler.submitTask((s, reporter) -> {
+                    statusConsumer.accept(LinterStatus.RUNNING_SPOTBUGS);
+                    reporter.reportProblems(new SpotbugsLinter().lint(file, file.getCompilationResult().jar(), spotbugsChecks));
+                });
+            }
+
+            if (!pmdChecks.isEmpty()) {
+                scheduler.submitTask((s, reporter) -> {
+                    statusConsumer.accept(LinterStatus.RUNNING_PMD);
+                    reporter.reportProblems(new PMDLinter().lint(file, pmdChecks, this.classLoader));
+                });
+            }
+
+            if (!cpdChecks.isEmpty()) {
+                scheduler.submitTask((s, reporter) -> {
+                    statusConsumer.accept(LinterStatus.RUNNING_CPD);
+                    reporter.reportProblems(new CPDLinter().lint(file, cpdChecks));
                 });
             }
 
@@ -257,17 +546,95 @@ public final class Linter {
             }
         }
 
-        List<Problem> unreducedProblems = result.problems();
+        List<Problem> problems = result.problems();
+        if (!fileChecks.isEmpty()) {
+            problems = this.mergeFileProblems(problems, fileChecks, changedFiles, cachedFileProblems);
+        }
+
+        // the checks run in parallel, so the problems are reported in an arbitrary order
+        // => sort them by their check to get the same result regardless of the number of threads
+        Map<Check, Integer> checkOrder = new IdentityHashMap<>();
+        for (Check check : checks) {
+            checkOrder.putIfAbsent(check, checkOrder.size());
+        }
+
+        // the problems of file-local checks might be partially loaded from the result cache,
+        // so they are sorted by their file, with and without the cache to get the same order
+        Set<Check> fileCheckSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Check check : checks) {
+            if (isFileCheck(check)) {
+                fileCheckSet.add(check);
+            }
+        }
+
+        Comparator<Problem> comparator = Comparator.<Problem>comparingInt(problem -> checkOrder.getOrDefault(problem.getCheck(), Integer.MAX_VALUE))
+            .thenComparing(problem -> fileCheckSet.contains(problem.getCheck()) ? problem.getPosition().file().toString() : "");
+
+        List<Problem> unreducedProblems = problems.stream()
+            .sorted(comparator)
+            .toList();
         if (!problemsToReport.isEmpty()) {
-            unreducedProblems = result
-                .problems()
+            unreducedProblems = unreducedProblems
                 .stream()
                 .filter(problem -> problemsToReport.contains(problem.getProblemType()))
                 .toList();
         }
 
+        return unreducedProblems;
+    }
+
+    private static boolean isFileCheck(Check check) {
+        ExecutableCheck annotation = check.getClass().getAnnotation(ExecutableCheck.class);
+        return annotation != null && annotation.scope() == CheckScope.FILE;
+    }
+
+    /**
+     * Replaces the problems of the file-local checks in the unchanged files with the ones from the cache and stores
+     * the problems of the changed files.
+     */
+    private List<Problem> mergeFileProblems(
+        Collection<Problem> problems,
+        Collection<IntegratedCheck> fileChecks,
+        Map<SourcePath, String> changedFiles,
+        Collection<Problem> cachedFileProblems
+    ) {
+        Set<Check> fileCheckSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        fileCheckSet.addAll(fileChecks);
+
+        List<Problem> result = new ArrayList<>(cachedFileProblems);
+        Map<SourcePath, List<Problem>> problemsByFile = new LinkedHashMap<>();
+        for (SourcePath path : changedFiles.keySet()) {
+            problemsByFile.put(path, new ArrayList<>());
+        }
+
+        for (Problem problem : problems) {
+            if (!fileCheckSet.contains(problem.getCheck())) {
+                result.add(problem);
+                continue;
+            }
+
+            // a file-local check only reports problems in the files it has been run on
+            List<Problem> problemsInFile = problemsByFile.get(problem.getPosition().file());
+            if (problemsInFile != null) {
+                problemsInFile.add(problem);
+                result.add(problem);
+            }
+        }
+
+        for (Map.Entry<SourcePath, List<Problem>> entry : problemsByFile.entrySet()) {
+            try {
+                this.resultCache.store(changedFiles.get(entry.getKey()), entry.getValue(), this.fluentBundle);
+            } catch (IOException exception) {
+                LOG.warn("Could not store the problems of {} in the result cache", entry.getKey(), exception);
+            }
+        }
+
+        return result;
+    }
+
+    private List<Problem> reduceProblems(Collection<? extends Problem> problems) {
         // filter out excluded problems:
-        unreducedProblems = unreducedProblems.stream()
+        List<? extends Problem> unreducedProblems = problems.stream()
             .filter(this.isExcluded.negate())
             .toList();
 
@@ -313,6 +680,14 @@ public final class Linter {
         return result;
     }
 
+    /**
+     * Stops the JVMs that have been started to run error-prone.
+     */
+    @Override
+    public void close() {
+        this.errorProneLinter.close();
+    }
+
     public String translateMessage(Translatable message) {
         String output = message.format(this.fluentBundle);
 
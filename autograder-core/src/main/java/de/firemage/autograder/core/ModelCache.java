@@ -0,0 +1,230 @@
+package de.firemage.autograder.core;
+
+import de.firemage.autograder.core.file.SourceInfo;
+import de.firemage.autograder.core.integrated.SpoonUtil;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.support.SerializationModelStreamer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Stores snapshots of built spoon models on disk, so that an unchanged submission does not have to be parsed again
+ * when it is checked with a different configuration.
+ * <p>
+ * The snapshots are addressed by a hash of the autograder version, the java runtime, the java version and the
+ * location and content of the compilation units. The location is part of it, because the positions in the model
+ * reference the files of the submission.
+ */
+public final class ModelCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ModelCache.class);
+    private static final String FILE_EXTENSION = ".model";
+    // the model only consists of spoon and JDK classes and its factory, anything else has not been written by this class
+    private static final ObjectInputFilter MODEL_FILTER = ObjectInputFilter.Config.createFilter(
+        "spoon.**;java.**;" + SharedShadowFactory.class.getName() + ";!*"
+    );
+
+    private final Path directory;
+
+    /**
+     * Creates a cache that stores its snapshots in the given folder.
+     *
+     * @param directory the folder, which may be shared by multiple linters and processes
+     */
+    public ModelCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * A model that has been loaded from the cache.
+     *
+     * @param factory     the factory of the model, whose environment has not been configured
+     * @param basePackage the base package of the model
+     * @param mainMethod  the main method of the model
+     */
+    record Snapshot(Factory factory, CtPackage basePackage, Optional<CtMethod<Void>> mainMethod) {
+    }
+
+    private static String key(SourceInfo source) throws IOException {
+        MessageDigest digest = ResultCache.newDigest();
+        try (DataOutputStream output = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+            output.writeUTF(ResultCache.VERSION);
+            // the snapshot contains serialized objects, which might differ between java versions
+            output.writeUTF(Runtime.version().toString());
+            output.writeUTF(source.getVersion().getVersionString());
+            output.writeUTF(source.path().toAbsolutePath().toString());
+            ResultCache.writeCompilationUnits(output, source);
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Loads the snapshot of the model for the given source.
+     *
+     * @param source the source of the model
+     * @return the snapshot or an empty optional if there is no usable one
+     */
+    Optional<Snapshot> load(SourceInfo source) {
+        Path path;
+        try {
+            path = this.directory.resolve(key(source) + FILE_EXTENSION);
+        } catch (IOException exception) {
+            LOG.warn("Could not compute the key of the model snapshot", exception);
+            return Optional.empty();
+        }
+
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            // the base package and the main method are stored by name in front of the model
+            DataInputStream header = new DataInputStream(inputStream);
+            String basePackageName = header.readBoolean() ? header.readUTF() : null;
+            String mainTypeName = header.readBoolean() ? header.readUTF() : null;
+
+            Factory factory = readModel(inputStream);
+
+            CtPackage basePackage = null;
+            if (basePackageName != null) {
+                basePackage = basePackageName.isEmpty()
+                    ? factory.getModel().getRootPackage()
+                    : factory.Package().get(basePackageName);
+            }
+
+            Optional<CtMethod<Void>> mainMethod = Optional.empty();
+            if (mainTypeName != null) {
+                mainMethod = findMain(factory.Type().get(mainTypeName));
+                if (mainMethod.isEmpty()) {
+                    throw new IOException("The main method is missing in %s".formatted(mainTypeName));
+                }
+            }
+
+            return Optional.of(new Snapshot(factory, basePackage, mainMethod));
+        } catch (IOException | RuntimeException exception) {
+            // a broken snapshot is treated like a missing one, it will be overwritten
+            LOG.warn("Ignoring the unreadable model snapshot {}", path, exception);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads a model that has been written with {@link SerializationModelStreamer#save(Factory, OutputStream)}. Unlike
+     * {@link SerializationModelStreamer#load(InputStream)}, it only deserializes the classes of spoon and the JDK, so
+     * that a manipulated snapshot cannot create objects of arbitrary classes.
+     *
+     * @param inputStream the stream of the model, which might be compressed
+     * @return the factory of the model
+     * @throws IOException if the model could not be read or contains other classes
+     */
+    private static Factory readModel(InputStream inputStream) throws IOException {
+        InputStream buffered = new BufferedInputStream(inputStream);
+        InputStream decompressed;
+        try {
+            decompressed = new CompressorStreamFactory().createCompressorInputStream(buffered);
+        } catch (CompressorException exception) {
+            // the model has not been compressed
+            decompressed = buffered;
+        }
+
+        ObjectInputStream objectInputStream = new ObjectInputStream(decompressed);
+        objectInputStream.setObjectInputFilter(MODEL_FILTER);
+        Factory factory;
+        try {
+            factory = (Factory) objectInputStream.readObject();
+        } catch (ClassNotFoundException | ClassCastException exception) {
+            throw new IOException("The model snapshot is invalid", exception);
+        }
+
+        // like the SerializationModelStreamer, attach the elements to the deserialized factory
+        factory.createQuery(factory.Module().getAllModules().toArray())
+            .filterChildren((CtElement element) -> {
+                element.setFactory(factory);
+                element.getPosition().getCompilationUnit().setFactory(factory);
+                return false;
+            })
+            .list();
+        return factory;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Optional<CtMethod<Void>> findMain(CtType<?> ctType) {
+        if (ctType == null) {
+            return Optional.empty();
+        }
+
+        return ctType.getMethodsByName("main")
+            .stream()
+            .filter(SpoonUtil::isMainMethod)
+            .findFirst()
+            .map(ctMethod -> (CtMethod<Void>) ctMethod);
+    }
+
+    /**
+     * Stores a snapshot of the model for the given source, replacing an existing one. The model must not have been
+     * modified since it has been built. Failures are only logged, because the model can always be built again.
+     *
+     * @param source      the source of the model
+     * @param factory     the factory of the model
+     * @param basePackage the base package of the model, might be null
+     * @param mainMethod  the main method of the model, might be null
+     */
+    void store(SourceInfo source, Factory factory, CtPackage basePackage, CtMethod<Void> mainMethod) {
+        Path temporary = null;
+        try {
+            String key = key(source);
+
+            Files.createDirectories(this.directory);
+            // write to a temporary file first, so that concurrent readers never see a partial snapshot
+            temporary = Files.createTempFile(this.directory, key, ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(temporary)) {
+                DataOutputStream header = new DataOutputStream(outputStream);
+                header.writeBoolean(basePackage != null);
+                if (basePackage != null) {
+                    header.writeUTF(basePackage.isUnnamedPackage() ? "" : basePackage.getQualifiedName());
+                }
+
+                header.writeBoolean(mainMethod != null);
+                if (mainMethod != null) {
+                    header.writeUTF(mainMethod.getDeclaringType().getQualifiedName());
+                }
+                header.flush();
+
+                new SerializationModelStreamer().save(factory, outputStream);
+            }
+
+            Files.move(temporary, this.directory.resolve(key + FILE_EXTENSION), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException exception) {
+            LOG.warn("Could not store the model snapshot", exception);
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ignored) {
+                    // nothing else can be done
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package de.firemage.autograder.core;
+
+import spoon.processing.Processor;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.visitor.DefaultImportComparator;
+import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
+import spoon.reflect.visitor.ForceImportProcessor;
+import spoon.reflect.visitor.ImportCleaner;
+import spoon.reflect.visitor.ImportConflictDetector;
+import spoon.reflect.visitor.PrettyPrinter;
+import spoon.support.StandardEnvironment;
+
+import java.util.List;
+
+/**
+ * The environment of the code models, which makes sure that printing an element does not modify the model.
+ * <p>
+ * {@link CtElement#prettyprint()} uses the printer of {@link #createPrettyPrinterAutoImport()}. Its preprocessors
+ * change the printed element, for example whether a type reference is simply qualified. The checks run in parallel
+ * on the same model and read these properties, so this printer prints a copy of the element, like
+ * {@link CtElement#toString()} does.
+ */
+final class ModelEnvironment extends StandardEnvironment {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public PrettyPrinter createPrettyPrinterAutoImport() {
+        DefaultJavaPrettyPrinter printer = new DefaultJavaPrettyPrinter(this) {
+            @Override
+            public String prettyprint(CtElement element) {
+                // same as in DefaultJavaPrettyPrinter#printElement
+                CtElement clone = element.clone();
+                if (element.isParentInitialized()) {
+                    clone.setParent(element.getParent());
+                }
+
+                return super.prettyprint(clone);
+            }
+        };
+
+        // copy-pasted from StandardEnvironment#createPrettyPrinterAutoImport
+        List<Processor<CtElement>> preprocessors = List.of(
+            new ForceImportProcessor(),
+            new ImportCleaner().setCanAddImports(false),
+            new ImportConflictDetector(),
+            new ImportCleaner().setImportComparator(new DefaultImportComparator())
+        );
+        printer.setIgnoreImplicit(false);
+        printer.setPreprocessors(preprocessors);
+        return printer;
+    }
+}
@@ -0,0 +1,378 @@
+package de.firemage.autograder.core;
+
+import de.firemage.autograder.core.check.Check;
+import de.firemage.autograder.core.file.CompilationUnit;
+import de.firemage.autograder.core.file.SourceInfo;
+import de.firemage.autograder.core.file.SourcePath;
+import fluent.bundle.FluentBundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Stores the problems that have been found in a submission on disk, so that grading an identical submission with the
+ * same checks does not have to compile and analyze it again.
+ * <p>
+ * The entries are addressed by a hash of everything the problems depend on: the autograder version and build, the
+ * content and charset of the compilation units, the java version, the problem types, the checks and the tests of the
+ * dynamic analysis. The messages are stored translated, so the locale is part of the hash as well. The problems are stored
+ * before they are excluded or merged, because these steps depend on the configuration of the {@link Linter}.
+ * <p>
+ * The problems of file-local checks are additionally stored for every compilation unit on its own, so that a
+ * resubmission only has to run them on the files that changed.
+ */
+final class ResultCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ResultCache.class);
+    static final String VERSION = loadVersion() + "+" + hashBuild();
+    private static final String FILE_EXTENSION = ".problems";
+    // the entries only contain the list of problems, anything else has not been written by this class
+    private static final ObjectInputFilter ENTRY_FILTER = ObjectInputFilter.Config.createFilter(String.join(";",
+        ArrayList.class.getName(),
+        // the elements of the list are read into an Object[]
+        Object.class.getName(),
+        CachedProblem.class.getName(),
+        ProblemType.class.getName(),
+        Enum.class.getName(),
+        String.class.getName(),
+        "!*"
+    ));
+
+    private final Path directory;
+
+    ResultCache(Path directory) {
+        this.directory = directory;
+    }
+
+    private static String loadVersion() {
+        try (InputStream inputStream = ResultCache.class.getResourceAsStream("/autograder.properties")) {
+            Properties properties = new Properties();
+            properties.load(inputStream);
+            return properties.getProperty("version");
+        } catch (IOException | NullPointerException exception) {
+            throw new IllegalStateException("Could not read the version of the autograder", exception);
+        }
+    }
+
+    /**
+     * Hashes the classes and resources of the autograder, so that the entries of a rebuilt autograder are not used
+     * when its version has not changed. A build that cannot be hashed gets a random hash, which disables the cache.
+     *
+     * @return the hash
+     */
+    private static String hashBuild() {
+        MessageDigest digest = newDigest();
+        try (DataOutputStream output = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+            Path location = Path.of(ResultCache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (Files.isDirectory(location)) {
+                List<Path> files;
+                try (Stream<Path> walk = Files.walk(location)) {
+                    files = walk.filter(Files::isRegularFile).sorted().toList();
+                }
+
+                for (Path file : files) {
+                    String name = location.relativize(file).toString().replace(File.separatorChar, '/');
+                    if (isBuildFile(name)) {
+                        output.writeUTF(name);
+                        writeBytes(output, Files.readAllBytes(file));
+                    }
+                }
+            } else {
+                try (JarFile jar = new JarFile(location.toFile())) {
+                    List<JarEntry> entries = jar.stream()
+                        .filter(entry -> !entry.isDirectory() && isBuildFile(entry.getName()))
+                        .sorted(Comparator.comparing(JarEntry::getName))
+                        .toList();
+
+                    for (JarEntry entry : entries) {
+                        try (InputStream inputStream = jar.getInputStream(entry)) {
+                            output.writeUTF(entry.getName());
+                            writeBytes(output, inputStream.readAllBytes());
+                        }
+                    }
+                }
+            }
+        } catch (IOException | URISyntaxException | RuntimeException exception) {
+            LOG.warn("Could not hash the build of the autograder, the caches are not shared with other processes", exception);
+            return UUID.randomUUID().toString();
+        }
+
+        return HexFormat.of().formatHex(digest.digest(), 0, 8);
+    }
+
+    private static boolean isBuildFile(String name) {
+        // the checks with their dependencies, the messages and the jars of the dynamic analysis
+        return name.startsWith("de/firemage/autograder/") || name.endsWith(".ftl") || name.endsWith(".jar");
+    }
+
+    private record CachedProblem(
+        String check,
+        ProblemType problemType,
+        String message,
+        String file,
+        int startLine,
+        int endLine,
+        int startColumn,
+        int endColumn
+    ) implements Serializable {
+    }
+
+    private static final class RestoredProblem extends ProblemImpl {
+        private RestoredProblem(Check check, CodePosition position, String message, ProblemType problemType) {
+            super(check, position, bundle -> message, problemType);
+        }
+    }
+
+    /**
+     * Computes the key under which the problems of the given submission are stored.
+     *
+     * @param source       the submission
+     * @param tests        the tests of the dynamic analysis or null if it is disabled
+     * @param problemTypes the problem types that are reported
+     * @param checks       the checks that are run
+     * @param locale       the locale in which the messages are translated
+     * @return the key
+     * @throws IOException if the submission or the tests could not be read
+     */
+    String key(
+        SourceInfo source,
+        Path tests,
+        Collection<ProblemType> problemTypes,
+        Iterable<? extends Check> checks,
+        Locale locale
+    ) throws IOException {
+        MessageDigest digest = newDigest();
+        try (DataOutputStream output = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+            writeConfiguration(output, "submission", source, problemTypes, checks, locale);
+
+            writeCompilationUnits(output, source);
+
+            output.writeBoolean(tests != null);
+            if (tests != null) {
+                List<Path> testFiles;
+                try (Stream<Path> files = Files.walk(tests)) {
+                    testFiles = files.filter(Files::isRegularFile).sorted().toList();
+                }
+
+                output.writeInt(testFiles.size());
+                for (Path file : testFiles) {
+                    output.writeUTF(tests.relativize(file).toString());
+                    writeBytes(output, Files.readAllBytes(file));
+                }
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Computes the key under which the problems of file-local checks in a single compilation unit are stored.
+     * <p>
+     * Unlike {@link #key(SourceInfo, Path, Collection, Iterable, Locale)}, the other compilation units and the tests
+     * are not part of the key, so the entry can be reused when only other files of the submission changed.
+     *
+     * @param source          the submission
+     * @param compilationUnit the compilation unit in the submission
+     * @param problemTypes    the problem types that are reported
+     * @param fileChecks      the checks with {@link de.firemage.autograder.core.check.CheckScope#FILE}
+     * @param locale          the locale in which the messages are translated
+     * @return the key
+     * @throws IOException if the compilation unit could not be read
+     */
+    String fileKey(
+        SourceInfo source,
+        CompilationUnit compilationUnit,
+        Collection<ProblemType> problemTypes,
+        Iterable<? extends Check> fileChecks,
+        Locale locale
+    ) throws IOException {
+        MessageDigest digest = newDigest();
+        try (DataOutputStream output = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+            writeConfiguration(output, "file", source, problemTypes, fileChecks, locale);
+
+            output.writeUTF(compilationUnit.path().toString());
+            output.writeUTF(compilationUnit.charset().name());
+            writeBytes(output, compilationUnit.readString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not supported", exception);
+        }
+    }
+
+    private static void writeConfiguration(
+        DataOutputStream output,
+        String kind,
+        SourceInfo source,
+        Collection<ProblemType> problemTypes,
+        Iterable<? extends Check> checks,
+        Locale locale
+    ) throws IOException {
+        // the kind separates the keys of whole submissions from the ones of single files
+        output.writeUTF(kind);
+        output.writeUTF(VERSION);
+        output.writeUTF(locale.toLanguageTag());
+        output.writeUTF(source.getVersion().getVersionString());
+
+        List<String> problemTypeNames = problemTypes.stream().map(ProblemType::name).sorted().distinct().toList();
+        output.writeInt(problemTypeNames.size());
+        for (String problemType : problemTypeNames) {
+            output.writeUTF(problemType);
+        }
+
+        // the order of the checks decides the order of the problems
+        for (Check check : checks) {
+            output.writeUTF(check.getClass().getName());
+        }
+        output.writeUTF("");
+    }
+
+    static void writeCompilationUnits(DataOutputStream output, SourceInfo source) throws IOException {
+        List<CompilationUnit> compilationUnits = source.compilationUnits()
+            .stream()
+            .sorted(Comparator.comparing(CompilationUnit::path))
+            .toList();
+        output.writeInt(compilationUnits.size());
+        for (CompilationUnit compilationUnit : compilationUnits) {
+            output.writeUTF(compilationUnit.path().toString());
+            output.writeUTF(compilationUnit.charset().name());
+            writeBytes(output, compilationUnit.readString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Loads the problems that have been stored under the given key.
+     *
+     * @param key    the key of the submission
+     * @param source the submission, which is referenced by the positions of the problems
+     * @param checks the checks that reported the problems
+     * @return the problems or an empty optional if there is no usable entry for the key
+     */
+    Optional<List<Problem>> load(String key, SourceInfo source, Iterable<? extends Check> checks) {
+        Path path = this.directory.resolve(key + FILE_EXTENSION);
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+
+        Map<String, Check> checksByName = new HashMap<>();
+        for (Check check : checks) {
+            checksByName.putIfAbsent(check.getClass().getName(), check);
+        }
+
+        List<CachedProblem> cachedProblems;
+        try (ObjectInputStream input = new ObjectInputStream(Files.newInputStream(path))) {
+            input.setObjectInputFilter(ENTRY_FILTER);
+            @SuppressWarnings("unchecked")
+            List<CachedProblem> list = (List<CachedProblem>) input.readObject();
+            cachedProblems = list;
+        } catch (IOException | ClassNotFoundException | ClassCastException exception) {
+            // a broken entry is treated like a missing one, it will be overwritten
+            LOG.warn("Ignoring the unreadable cache entry {}", path, exception);
+            return Optional.empty();
+        }
+
+        List<Problem> problems = new ArrayList<>(cachedProblems.size());
+        for (CachedProblem cachedProblem : cachedProblems) {
+            Check check = checksByName.get(cachedProblem.check());
+            if (check == null) {
+                return Optional.empty();
+            }
+
+            problems.add(new RestoredProblem(
+                check,
+                new CodePosition(
+                    source,
+                    SourcePath.of(Path.of(cachedProblem.file())),
+                    cachedProblem.startLine(),
+                    cachedProblem.endLine(),
+                    cachedProblem.startColumn(),
+                    cachedProblem.endColumn()
+                ),
+                cachedProblem.message(),
+                cachedProblem.problemType()
+            ));
+        }
+
+        return Optional.of(problems);
+    }
+
+    /**
+     * Stores the problems under the given key, replacing an existing entry.
+     *
+     * @param key          the key of the submission
+     * @param problems     the problems found in the submission
+     * @param fluentBundle the bundle with which the messages are translated
+     * @throws IOException if the entry could not be written
+     */
+    void store(String key, Collection<? extends Problem> problems, FluentBundle fluentBundle) throws IOException {
+        ArrayList<CachedProblem> cachedProblems = new ArrayList<>(problems.size());
+        for (Problem problem : problems) {
+            CodePosition position = problem.getPosition();
+            cachedProblems.add(new CachedProblem(
+                problem.getCheck().getClass().getName(),
+                problem.getProblemType(),
+                problem.getExplanation().format(fluentBundle),
+                position.file().toPath().toString(),
+                position.startLine(),
+                position.endLine(),
+                position.startColumn(),
+                position.endColumn()
+            ));
+        }
+
+        Files.createDirectories(this.directory);
+        // write to a temporary file first, so that concurrent readers never see a partial entry
+        Path temporary = Files.createTempFile(this.directory, key, ".tmp");
+        try {
+            try (ObjectOutputStream output = new ObjectOutputStream(Files.newOutputStream(temporary))) {
+                output.writeObject(cachedProblems);
+            }
+
+            Files.move(temporary, this.directory.resolve(key + FILE_EXTENSION), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            Files.deleteIfExists(temporary);
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package de.firemage.autograder.core;
+
+import spoon.compiler.Environment;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.factory.FactoryImpl;
+import spoon.reflect.factory.TypeFactory;
+import spoon.reflect.visitor.CtScanner;
+import spoon.support.DefaultCoreFactory;
+import spoon.support.StandardEnvironment;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A spoon factory that obtains the declarations of JDK types (like {@code java.util.List}) from a cache that is
+ * shared by all factories of this class.
+ * <p>
+ * Spoon creates these declarations, the shadow types, through reflection the first time they are accessed, for
+ * example by {@link spoon.reflect.reference.CtTypeReference#getTypeDeclaration()}. Every factory would do this again
+ * for the same types, which is wasted time when many submissions are checked in the same JVM.
+ * <p>
+ * The checks expect that every element belongs to the factory of their model (for example to find the uses of a
+ * type through {@code getFactory().getModel()}), so the shared shadow types are not handed out directly. Each factory
+ * gets a copy, which is several times faster to create than reflecting on the type again.
+ */
+final class SharedShadowFactory extends FactoryImpl {
+    private static final long serialVersionUID = 1L;
+
+    // creates the shadow types that are copied into the other factories, it never contains any code of a submission
+    private static final Factory JDK_FACTORY = new FactoryImpl(new DefaultCoreFactory(), new StandardEnvironment());
+    private static final Map<Class<?>, CtType<?>> JDK_TYPES = new ConcurrentHashMap<>();
+
+    private transient TypeFactory typeFactory;
+    private transient Environment environment;
+
+    SharedShadowFactory() {
+        this(new ModelEnvironment());
+    }
+
+    private SharedShadowFactory(Environment environment) {
+        super(new DefaultCoreFactory(), environment);
+        this.environment = environment;
+        this.typeFactory = new SharedShadowTypeFactory(this);
+    }
+
+    @Override
+    public Environment getEnvironment() {
+        // the field is transient like in spoon, which would create a StandardEnvironment after deserialization
+        if (this.environment == null) {
+            this.environment = new ModelEnvironment();
+        }
+
+        return this.environment;
+    }
+
+    @Override
+    public TypeFactory Type() {
+        // the field is transient, so it is missing after the factory has been deserialized
+        if (this.typeFactory == null) {
+            this.typeFactory = new SharedShadowTypeFactory(this);
+        }
+
+        return this.typeFactory;
+    }
+
+    private static boolean isJdkClass(Class<?> type) {
+        if (type.isArray() || type.isPrimitive() || type.isAnonymousClass() || type.isLocalClass()) {
+            return false;
+        }
+
+        ClassLoader classLoader = type.getClassLoader();
+        return classLoader == null || classLoader == ClassLoader.getPlatformClassLoader();
+    }
+
+    private static CtType<?> getJdkType(Class<?> type) {
+        CtType<?> result = JDK_TYPES.get(type);
+        if (result != null) {
+            return result;
+        }
+
+        // spoon modifies its factory while creating a shadow type, so this must not happen concurrently
+        synchronized (JDK_FACTORY) {
+            return JDK_TYPES.computeIfAbsent(type, key -> JDK_FACTORY.Type().get(key));
+        }
+    }
+
+    private static final class SharedShadowTypeFactory extends TypeFactory {
+        private final Map<Class<?>, CtType<?>> shadowTypes = new ConcurrentHashMap<>();
+        // like in spoon, the shadow types are not part of the model, but of a separate one
+        private Factory shadowFactory;
+
+        private SharedShadowTypeFactory(SharedShadowFactory factory) {
+            super(factory);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> CtType<T> get(Class<?> type) {
+            if (!isJdkClass(type)) {
+                return this.createShadowType(type);
+            }
+
+            Class<?> declaringClass = type.getDeclaringClass();
+            if (declaringClass != null) {
+                // nested types are part of the copy of their declaring type
+                CtType<?> nestedType = this.get(declaringClass).getNestedType(type.getSimpleName());
+                return nestedType != null ? (CtType<T>) nestedType : this.createShadowType(type);
+            }
+
+            CtType<?> result = this.shadowTypes.get(type);
+            if (result == null) {
+                result = this.copyJdkType(type);
+            }
+
+            return (CtType<T>) result;
+        }
+
+        // The checks run in parallel and might access types that have not been resolved by
+        // CodeModel#prepareForConcurrentAccess, for example through references they create themselves.
+        // spoon adds the shadow types to a shared package tree, so they must not be created concurrently.
+        private synchronized <T> CtType<T> createShadowType(Class<?> type) {
+            return super.get(type);
+        }
+
+        private synchronized CtType<?> copyJdkType(Class<?> type) {
+            CtType<?> result = this.shadowTypes.get(type);
+            if (result != null) {
+                return result;
+            }
+
+            CtType<?> jdkType = getJdkType(type);
+            result = jdkType.clone();
+
+            if (this.shadowFactory == null) {
+                this.shadowFactory = new FactoryImpl(new DefaultCoreFactory(), this.factory.getEnvironment());
+            }
+            this.shadowFactory.Package().getOrCreate(jdkType.getPackage().getQualifiedName()).addType(result);
+
+            new CtScanner() {
+                @Override
+                public void scan(CtElement element) {
+                    if (element != null) {
+                        element.setFactory(SharedShadowTypeFactory.this.factory);
+                        super.scan(element);
+                    }
+                }
+            }.scan(result);
+
+            this.shadowTypes.put(type, result);
+            return result;
+        }
+    }
+}
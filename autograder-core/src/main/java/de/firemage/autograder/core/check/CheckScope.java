@@ -0,0 +1,20 @@
+package de.firemage.autograder.core.check;
+
+/**
+ * Describes which parts of a submission influence the problems reported by a check.
+ */
+public enum CheckScope {
+    /**
+     * The problems in a file only depend on the content of that file.
+     * <p>
+     * Such a check may only look at the elements it is handed through
+     * {@link de.firemage.autograder.core.integrated.StaticAnalysis#processWith(spoon.processing.Processor)} and at
+     * their children, and must only report problems in the file of these elements. This allows the linter to run it
+     * only on the files that changed since a previous run and to reuse the problems of the other files.
+     */
+    FILE,
+    /**
+     * The problems may depend on the whole submission, like the uses of a declaration in other files.
+     */
+    PROGRAM
+}
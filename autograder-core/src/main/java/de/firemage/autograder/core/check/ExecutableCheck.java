@@ -12,4 +12,11 @@ import java.lang.annotation.Target;
 public @interface ExecutableCheck {
     ProblemType[] reportedProblems();
     boolean enabled() default true;
+
+    /**
+     * Which parts of the submission the reported problems depend on. Only integrated checks may be file-local.
+     *
+     * @return the scope of the check
+     */
+    CheckScope scope() default CheckScope.PROGRAM;
 }
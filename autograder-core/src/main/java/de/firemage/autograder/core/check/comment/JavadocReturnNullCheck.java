@@ -55,4 +55,9 @@ public class JavadocReturnNullCheck extends IntegratedCheck {
             }
         });
     }
+
+    @Override
+    public boolean usesDynamicAnalysis() {
+        return true;
+    }
 }
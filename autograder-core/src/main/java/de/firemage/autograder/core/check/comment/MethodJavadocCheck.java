@@ -2,6 +2,7 @@ package de.firemage.autograder.core.check.comment;
 
 import de.firemage.autograder.core.LocalizedMessage;
 import de.firemage.autograder.core.ProblemType;
+import de.firemage.autograder.core.check.CheckScope;
 import de.firemage.autograder.core.check.ExecutableCheck;
 import de.firemage.autograder.core.dynamic.DynamicAnalysis;
 import de.firemage.autograder.core.integrated.IntegratedCheck;
@@ -21,7 +22,7 @@ import java.util.Optional;
     ProblemType.JAVADOC_MISSING_PARAMETER_TAG,
     ProblemType.JAVADOC_UNKNOWN_PARAMETER_TAG,
     ProblemType.JAVADOC_UNEXPECTED_TAG,
-})
+}, scope = CheckScope.FILE)
 public class MethodJavadocCheck extends IntegratedCheck {
     private static final List<CtJavaDocTag.TagType> VALID_TAGS = List.of(
         CtJavaDocTag.TagType.PARAM,
@@ -2,6 +2,7 @@ package de.firemage.autograder.core.check.comment;
 
 import de.firemage.autograder.core.LocalizedMessage;
 import de.firemage.autograder.core.ProblemType;
+import de.firemage.autograder.core.check.CheckScope;
 import de.firemage.autograder.core.check.ExecutableCheck;
 import de.firemage.autograder.core.dynamic.DynamicAnalysis;
 import de.firemage.autograder.core.integrated.IntegratedCheck;
@@ -11,7 +12,7 @@ import spoon.processing.AbstractProcessor;
 import spoon.reflect.code.CtComment;
 import spoon.reflect.code.CtStatement;
 
-@ExecutableCheck(reportedProblems = { ProblemType.UNNECESSARY_COMMENT })
+@ExecutableCheck(reportedProblems = { ProblemType.UNNECESSARY_COMMENT }, scope = CheckScope.FILE)
 public class UnnecessaryComment extends IntegratedCheck {
     @Override
     protected void check(StaticAnalysis staticAnalysis, DynamicAnalysis dynamicAnalysis) {
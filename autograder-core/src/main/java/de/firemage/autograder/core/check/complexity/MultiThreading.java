@@ -7,22 +7,20 @@ import de.firemage.autograder.core.check.ExecutableCheck;
 import de.firemage.autograder.core.dynamic.DynamicAnalysis;
 import de.firemage.autograder.core.integrated.IntegratedCheck;
 import de.firemage.autograder.core.integrated.StaticAnalysis;
+import spoon.processing.AbstractProcessor;
 import spoon.reflect.code.CtSynchronized;
-import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtModifiable;
 import spoon.reflect.declaration.ModifierKind;
-import spoon.reflect.visitor.CtScanner;
 import spoon.support.reflect.CtExtendedModifier;
 
 @ExecutableCheck(reportedProblems = { ProblemType.MULTI_THREADING })
 public class MultiThreading extends IntegratedCheck {
     @Override
     protected void check(StaticAnalysis staticAnalysis, DynamicAnalysis dynamicAnalysis) {
-        staticAnalysis.getModel().getRootPackage().accept(new CtScanner() {
+        staticAnalysis.processWith(new AbstractProcessor<CtSynchronized>() {
             @Override
-            public void visitCtSynchronized(CtSynchronized ctSynchronized) {
+            public void process(CtSynchronized ctSynchronized) {
                 if (ctSynchronized.isImplicit() || !ctSynchronized.getPosition().isValidPosition()) {
-                    super.visitCtSynchronized(ctSynchronized);
                     return;
                 }
 
@@ -31,27 +29,27 @@ public class MultiThreading extends IntegratedCheck {
                     new LocalizedMessage("multi-threading"),
                     ProblemType.MULTI_THREADING
                 );
-
-                super.visitCtSynchronized(ctSynchronized);
             }
+        });
 
+        staticAnalysis.processWith(new AbstractProcessor<CtModifiable>() {
             @Override
-            protected void enter(CtElement ctElement) {
-                if (!ctElement.isImplicit()
-                    && ctElement.getPosition().isValidPosition()
-                    && ctElement instanceof CtModifiable ctModifiable) {
-                    for (CtExtendedModifier modifier : ctModifiable.getExtendedModifiers()) {
-                        if (modifier.isImplicit() || !modifier.getPosition().isValidPosition()) {
-                            continue;
-                        }
+            public void process(CtModifiable ctModifiable) {
+                if (ctModifiable.isImplicit() || !ctModifiable.getPosition().isValidPosition()) {
+                    return;
+                }
+
+                for (CtExtendedModifier modifier : ctModifiable.getExtendedModifiers()) {
+                    if (modifier.isImplicit() || !modifier.getPosition().isValidPosition()) {
+                        continue;
+                    }
 
-                        if (modifier.getKind() == ModifierKind.SYNCHRONIZED) {
-                            addLocalProblem(
-                                CodePosition.fromSourcePosition(modifier.getPosition(), ctElement, getRoot()),
-                                new LocalizedMessage("multi-threading"),
-                                ProblemType.MULTI_THREADING
-                            );
-                        }
+                    if (modifier.getKind() == ModifierKind.SYNCHRONIZED) {
+                        addLocalProblem(
+                            CodePosition.fromSourcePosition(modifier.getPosition(), ctModifiable, getRoot()),
+                            new LocalizedMessage("multi-threading"),
+                            ProblemType.MULTI_THREADING
+                        );
                     }
                 }
             }
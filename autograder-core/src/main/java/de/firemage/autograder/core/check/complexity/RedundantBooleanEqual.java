@@ -2,6 +2,7 @@ package de.firemage.autograder.core.check.complexity;
 
 import de.firemage.autograder.core.LocalizedMessage;
 import de.firemage.autograder.core.ProblemType;
+import de.firemage.autograder.core.check.CheckScope;
 import de.firemage.autograder.core.check.ExecutableCheck;
 import de.firemage.autograder.core.dynamic.DynamicAnalysis;
 import de.firemage.autograder.core.integrated.IntegratedCheck;
@@ -15,7 +16,7 @@ import spoon.reflect.code.CtExpression;
 import java.util.Map;
 import java.util.Set;
 
-@ExecutableCheck(reportedProblems = { ProblemType.REDUNDANT_BOOLEAN_EQUAL })
+@ExecutableCheck(reportedProblems = { ProblemType.REDUNDANT_BOOLEAN_EQUAL }, scope = CheckScope.FILE)
 public class RedundantBooleanEqual extends IntegratedCheck {
     private static final Set<BinaryOperatorKind> OPERATORS = Set.of(
         BinaryOperatorKind.EQ,
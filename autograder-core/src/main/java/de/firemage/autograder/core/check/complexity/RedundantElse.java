@@ -2,6 +2,7 @@ package de.firemage.autograder.core.check.complexity;
 
 import de.firemage.autograder.core.LocalizedMessage;
 import de.firemage.autograder.core.ProblemType;
+import de.firemage.autograder.core.check.CheckScope;
 import de.firemage.autograder.core.check.ExecutableCheck;
 import de.firemage.autograder.core.dynamic.DynamicAnalysis;
 import de.firemage.autograder.core.integrated.IntegratedCheck;
@@ -17,7 +18,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-@ExecutableCheck(reportedProblems = { ProblemType.REDUNDANT_ELSE })
+@ExecutableCheck(reportedProblems = { ProblemType.REDUNDANT_ELSE }, scope = CheckScope.FILE)
 public class RedundantElse extends IntegratedCheck {
     private static final int MINIMUM_STATEMENTS = 5;
 
@@ -2,6 +2,7 @@ package de.firemage.autograder.core.check.complexity;
 
 import de.firemage.autograder.core.LocalizedMessage;
 import de.firemage.autograder.core.ProblemType;
+import de.firemage.autograder.core.check.CheckScope;
 import de.firemage.autograder.core.check.ExecutableCheck;
 import de.firemage.autograder.core.dynamic.DynamicAnalysis;
 import de.firemage.autograder.core.integrated.IntegratedCheck;
@@ -18,7 +19,7 @@ import spoon.reflect.code.UnaryOperatorKind;
 
 import java.util.Map;
 
-@ExecutableCheck(reportedProblems = { ProblemType.REDUNDANT_NEGATION })
+@ExecutableCheck(reportedProblems = { ProblemType.REDUNDANT_NEGATION }, scope = CheckScope.FILE)
 public class RedundantNegationCheck extends IntegratedCheck {
     private record NegationFolder() implements Fold {
         @Override
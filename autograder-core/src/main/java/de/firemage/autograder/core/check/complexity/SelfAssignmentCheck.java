@@ -121,4 +121,10 @@ public class SelfAssignmentCheck extends IntegratedCheck {
             }
         });
     }
+
+    @Override
+    public boolean modifiesModel() {
+        // adjustTarget changes the targets of the field accesses in the model
+        return true;
+    }
 }
@@ -2,6 +2,7 @@ package de.firemage.autograder.core.check.complexity;
 
 import de.firemage.autograder.core.LocalizedMessage;
 import de.firemage.autograder.core.ProblemType;
+import de.firemage.autograder.core.check.CheckScope;
 import de.firemage.autograder.core.check.ExecutableCheck;
 import de.firemage.autograder.core.dynamic.DynamicAnalysis;
 import de.firemage.autograder.core.integrated.IntegratedCheck;
@@ -18,7 +19,7 @@ import spoon.reflect.declaration.CtTypedElement;
 import java.util.List;
 import java.util.Map;
 
-@ExecutableCheck(reportedProblems = {ProblemType.USE_OPERATOR_ASSIGNMENT})
+@ExecutableCheck(reportedProblems = {ProblemType.USE_OPERATOR_ASSIGNMENT}, scope = CheckScope.FILE)
 
 public class UseOperatorAssignment extends IntegratedCheck {
     private static final List<Class<?>> NON_COMMUTATIVE_TYPES = List.of(
@@ -54,4 +54,9 @@ public class FieldShouldBeLocalCheck extends IntegratedCheck {
             }
         });
     }
+
+    @Override
+    public boolean usesDynamicAnalysis() {
+        return true;
+    }
 }
@@ -268,6 +268,8 @@ public class VariablesHaveDescriptiveNamesCheck extends IntegratedCheck {
 
     @Override
     protected void check(StaticAnalysis staticAnalysis, DynamicAnalysis dynamicAnalysis) {
+        // the linter reuses the check for later submissions
+        this.similarIdentifier.clear();
         staticAnalysis.processWith(new AbstractProcessor<CtVariable<?>>() {
             @Override
             public void process(CtVariable<?> ctVariable) {
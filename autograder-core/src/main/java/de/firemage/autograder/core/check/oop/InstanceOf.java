@@ -7,15 +7,16 @@ import de.firemage.autograder.core.dynamic.DynamicAnalysis;
 import de.firemage.autograder.core.integrated.IntegratedCheck;
 import de.firemage.autograder.core.integrated.SpoonUtil;
 import de.firemage.autograder.core.integrated.StaticAnalysis;
+import spoon.processing.AbstractProcessor;
 import spoon.reflect.code.BinaryOperatorKind;
 import spoon.reflect.code.CtBinaryOperator;
 import spoon.reflect.code.CtCatch;
 import spoon.reflect.code.CtInvocation;
 import spoon.reflect.code.CtTry;
+import spoon.reflect.code.CtTryWithResource;
 import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.reference.CtExecutableReference;
-import spoon.reflect.visitor.CtScanner;
 
 @ExecutableCheck(reportedProblems = { ProblemType.INSTANCEOF, ProblemType.INSTANCEOF_EMULATION })
 public class InstanceOf extends IntegratedCheck {
@@ -24,65 +25,63 @@ public class InstanceOf extends IntegratedCheck {
         return ctMethod != null && SpoonUtil.isOverriddenMethod(ctMethod);
     }
 
-    @Override
-    protected void check(StaticAnalysis staticAnalysis, DynamicAnalysis dynamicAnalysis) {
-        staticAnalysis.getModel().getRootPackage().accept(new CtScanner() {
-            @Override
-            public void visitCtTry(CtTry ctTry) {
-                if (ctTry.isImplicit() || !ctTry.getPosition().isValidPosition() || isInAllowedContext(ctTry)) {
-                    super.visitCtTry(ctTry);
-                    return;
-                }
-
-                for (CtCatch ctCatch : ctTry.getCatchers()) {
-                    if (ctCatch.getParameter().getType().equals(ctCatch.getFactory().Type().createReference(java.lang.ClassCastException.class))) {
-                        addLocalProblem(
-                            ctCatch,
-                            new LocalizedMessage("do-not-use-instanceof-emulation"),
-                            ProblemType.INSTANCEOF_EMULATION
-                        );
-                    }
-                }
-
-                super.visitCtTry(ctTry);
+    private void checkTry(CtTry ctTry) {
+        for (CtCatch ctCatch : ctTry.getCatchers()) {
+            if (ctCatch.getParameter().getType().equals(ctCatch.getFactory().Type().createReference(java.lang.ClassCastException.class))) {
+                addLocalProblem(
+                    ctCatch,
+                    new LocalizedMessage("do-not-use-instanceof-emulation"),
+                    ProblemType.INSTANCEOF_EMULATION
+                );
             }
+        }
+    }
 
-            @Override
-            public <T> void visitCtInvocation(CtInvocation<T> ctInvocation) {
-                if (ctInvocation.isImplicit() || !ctInvocation.getPosition().isValidPosition() || isInAllowedContext(ctInvocation)) {
-                    super.visitCtInvocation(ctInvocation);
-                    return;
-                }
-
-                CtExecutableReference<?> ctExecutableReference = ctInvocation.getExecutable();
+    private void checkInvocation(CtInvocation<?> ctInvocation) {
+        CtExecutableReference<?> ctExecutableReference = ctInvocation.getExecutable();
 
-                if (ctExecutableReference.getType().getQualifiedName().equals("java.lang.Class")
-                        && ctExecutableReference.getSimpleName().equals("getClass")) {
-                    addLocalProblem(
-                        ctInvocation,
-                        new LocalizedMessage("do-not-use-instanceof-emulation"),
-                        ProblemType.INSTANCEOF_EMULATION
-                    );
-                }
+        if (ctExecutableReference.getType().getQualifiedName().equals("java.lang.Class")
+                && ctExecutableReference.getSimpleName().equals("getClass")) {
+            addLocalProblem(
+                ctInvocation,
+                new LocalizedMessage("do-not-use-instanceof-emulation"),
+                ProblemType.INSTANCEOF_EMULATION
+            );
+        }
+    }
 
-                super.visitCtInvocation(ctInvocation);
-            }
+    private void checkBinaryOperator(CtBinaryOperator<?> ctBinaryOperator) {
+        if (ctBinaryOperator.getKind() == BinaryOperatorKind.INSTANCEOF) {
+            addLocalProblem(
+                ctBinaryOperator,
+                new LocalizedMessage("do-not-use-instanceof"),
+                ProblemType.INSTANCEOF
+            );
+        }
+    }
 
+    @Override
+    protected void check(StaticAnalysis staticAnalysis, DynamicAnalysis dynamicAnalysis) {
+        // a single processor, so that the problems are reported in the order of the code
+        staticAnalysis.processWith(new AbstractProcessor<CtElement>() {
             @Override
-            public <T> void visitCtBinaryOperator(CtBinaryOperator<T> ctBinaryOperator) {
-                if (ctBinaryOperator.isImplicit() || !ctBinaryOperator.getPosition().isValidPosition() || isInAllowedContext(ctBinaryOperator)) {
-                    super.visitCtBinaryOperator(ctBinaryOperator);
+            public void process(CtElement element) {
+                // only plain try statements are checked, not try-with-resources
+                boolean isCandidate = (element instanceof CtTry && !(element instanceof CtTryWithResource))
+                    || element instanceof CtInvocation<?>
+                    || element instanceof CtBinaryOperator<?>;
+
+                if (!isCandidate || element.isImplicit() || !element.getPosition().isValidPosition() || isInAllowedContext(element)) {
                     return;
                 }
 
-                if (ctBinaryOperator.getKind() == BinaryOperatorKind.INSTANCEOF) {
-                    addLocalProblem(
-                        ctBinaryOperator,
-                        new LocalizedMessage("do-not-use-instanceof"),
-                        ProblemType.INSTANCEOF
-                    );
+                if (element instanceof CtTry ctTry) {
+                    checkTry(ctTry);
+                } else if (element instanceof CtInvocation<?> ctInvocation) {
+                    checkInvocation(ctInvocation);
+                } else if (element instanceof CtBinaryOperator<?> ctBinaryOperator) {
+                    checkBinaryOperator(ctBinaryOperator);
                 }
-                super.visitCtBinaryOperator(ctBinaryOperator);
             }
         });
     }
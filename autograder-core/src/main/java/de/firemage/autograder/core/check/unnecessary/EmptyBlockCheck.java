@@ -7,11 +7,11 @@ import de.firemage.autograder.core.dynamic.DynamicAnalysis;
 import de.firemage.autograder.core.integrated.IntegratedCheck;
 import de.firemage.autograder.core.integrated.SpoonUtil;
 import de.firemage.autograder.core.integrated.StaticAnalysis;
+import spoon.processing.AbstractProcessor;
 import spoon.reflect.code.CtBlock;
 import spoon.reflect.code.CtCatch;
 import spoon.reflect.code.CtComment;
 import spoon.reflect.code.CtSwitch;
-import spoon.reflect.visitor.CtScanner;
 
 @ExecutableCheck(reportedProblems = {ProblemType.EMPTY_BLOCK, ProblemType.EMPTY_CATCH})
 public class EmptyBlockCheck extends IntegratedCheck {
@@ -23,11 +23,10 @@ public class EmptyBlockCheck extends IntegratedCheck {
 
     @Override
     protected void check(StaticAnalysis staticAnalysis, DynamicAnalysis dynamicAnalysis) {
-        staticAnalysis.getModel().getRootPackage().accept(new CtScanner() {
+        staticAnalysis.processWith(new AbstractProcessor<CtBlock<?>>() {
             @Override
-            public <T> void visitCtBlock(CtBlock<T> ctBlock) {
+            public void process(CtBlock<?> ctBlock) {
                 if (ctBlock.isImplicit() || !ctBlock.getPosition().isValidPosition() || !isEmptyBlock(ctBlock)) {
-                    super.visitCtBlock(ctBlock);
                     return;
                 }
 
@@ -44,12 +43,12 @@ public class EmptyBlockCheck extends IntegratedCheck {
                         ProblemType.EMPTY_BLOCK
                     );
                 }
-
-                super.visitCtBlock(ctBlock);
             }
+        });
 
+        staticAnalysis.processWith(new AbstractProcessor<CtSwitch<?>>() {
             @Override
-            public <T> void visitCtSwitch(CtSwitch<T> ctSwitch) {
+            public void process(CtSwitch<?> ctSwitch) {
                 if (ctSwitch.getCases().isEmpty()) {
                     addLocalProblem(
                         ctSwitch,
@@ -57,8 +56,6 @@ public class EmptyBlockCheck extends IntegratedCheck {
                         ProblemType.EMPTY_BLOCK
                     );
                 }
-
-                super.visitCtSwitch(ctSwitch);
             }
         });
     }
@@ -1,8 +1,23 @@
 package de.firemage.autograder.core.compiler;
 
+import de.firemage.autograder.core.errorprone.ErrorProneDiagnostic;
+import de.firemage.autograder.core.errorprone.ErrorProneLint;
+
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
 
-public record CompilationResult(Path jar, List<CompilationDiagnostic> diagnostics) {
-
+/**
+ * The result of compiling a submission.
+ *
+ * @param jar                   the jar with the compiled classes
+ * @param diagnostics           the diagnostics of the compiler
+ * @param errorProneLints       the lints of error-prone that were enabled during the compilation
+ * @param errorProneDiagnostics the diagnostics emitted by error-prone for those lints
+ */
+public record CompilationResult(Path jar, List<CompilationDiagnostic> diagnostics, Set<ErrorProneLint> errorProneLints,
+                                List<ErrorProneDiagnostic> errorProneDiagnostics) {
+    public CompilationResult(Path jar, List<CompilationDiagnostic> diagnostics) {
+        this(jar, diagnostics, Set.of(), List.of());
+    }
 }
@@ -2,95 +2,90 @@ package de.firemage.autograder.core.compiler;
 
 import de.firemage.autograder.core.file.CompilationUnit;
 import de.firemage.autograder.core.file.SourceInfo;
+import de.firemage.autograder.core.errorprone.ErrorProneDiagnostic;
+import de.firemage.autograder.core.errorprone.ErrorProneLint;
+import de.firemage.autograder.core.errorprone.ErrorPronePlugin;
 import de.firemage.autograder.core.errorprone.TempLocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.tools.Diagnostic;
 import javax.tools.DiagnosticCollector;
 import javax.tools.JavaCompiler;
-import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.ToolProvider;
-import java.io.BufferedInputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
-import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
-import java.util.regex.Pattern;
 
 public record Compiler(TempLocation tempLocation, JavaVersion javaVersion) {
+    private static final Logger LOG = LoggerFactory.getLogger(Compiler.class);
     static final Locale COMPILER_LOCALE = Locale.US;
+    // 1980-02-01T00:00:00Z, the earliest time that can be stored in a zip file in every time zone
+    private static final long JAR_ENTRY_TIME = 318211200000L;
 
     public Optional<CompilationResult> compileToJar(SourceInfo input) throws IOException, CompilationFailureException {
-        return this.compileAndIgnoreSuppressWarnings(input);
+        return this.compileToJar(input, List.of());
     }
 
-    // @SuppressWarnings will result in warnings being ignored (obviously). This is suboptimal, when
-    // one wants to lint things that the compiler emits like unchecked casts.
-    //
-    // This piece of code, tries to patch the @SuppressWarnings annotation to not ignore any warnings.
-    private Optional<CompilationResult> compileAndIgnoreSuppressWarnings(
-        SourceInfo input
-    ) throws IOException, CompilationFailureException {
-        Optional<CompilationResult> compilationResult;
-        try (TempLocation modifiedOutput = this.tempLocation.createTempDirectory(input.getName() + "_modified")) {
-            SourceInfo copiedVersion = input.copyTo(modifiedOutput.toPath());
-
-            List<CompilationUnit> compilationUnits = copiedVersion.compilationUnits();
-            // patch the files:
-            for (CompilationUnit file : compilationUnits) {
-                JavaFileObject javaFileObject = file.toJavaFileObject();
-                String content = file.readString();
-                Pattern pattern = Pattern.compile("@SuppressWarnings\\((.+?)\\)", Pattern.DOTALL);
-                String patched = pattern.matcher(content).replaceAll(matchResult -> {
-                    String group = matchResult.group(1);
-                    String result = "";
-                    int i = 0;
-                    int length = group.length();
-                    for (char c : group.toCharArray()) {
-                        if (i == 0) {
-                            result += '{';
-                        } else if (i == length - 1) {
-                            result += '}';
-                        } else if (c == '\r' || c == '\n') {
-                            result += c;
-                        } else {
-                            result += ' ';
-                        }
-
-                        i++;
-                    }
+    /**
+     * Compiles the given source code and runs error-prone with the given lints in the same compilation.
+     * <p>
+     * error-prone can only be attached to the compilation if this JVM exports the compiler internals it needs,
+     * see {@link ErrorPronePlugin#isAvailable()}. Otherwise, the lints are ignored and the result will not contain
+     * any of them.
+     * <p>
+     * The compiler sees the sources without the arguments of {@code @SuppressWarnings}, but error-prone must still
+     * be silenced by them. Therefore, error-prone is not attached if the sources contain any suppressions.
+     * If error-prone crashes, the code is compiled again without it, so that the crash is not mistaken for a
+     * compilation failure. In both cases, the {@link de.firemage.autograder.core.errorprone.ErrorProneLinter}
+     * runs error-prone on its own.
+     *
+     * @param input the source code to compile
+     * @param errorProneLints the lints of error-prone that should be emitted, might be empty
+     * @return the result or an empty optional if there is no source code
+     * @throws IOException if the jar could not be written
+     * @throws CompilationFailureException if the code does not compile
+     */
+    public Optional<CompilationResult> compileToJar(SourceInfo input, Collection<ErrorProneLint> errorProneLints)
+        throws IOException, CompilationFailureException {
+        Set<ErrorProneLint> lints = Set.copyOf(errorProneLints);
+        if (!lints.isEmpty() && (!ErrorPronePlugin.isAvailable() || hasSuppressions(input.compilationUnits()))) {
+            // the ErrorProneLinter will run error-prone in another JVM or on the original sources
+            lints = Set.of();
+        }
 
-                    return "@SuppressWarnings(%s)".formatted(result);
-                });
+        return this.compile(input, lints);
+    }
 
-                try (Writer writer = javaFileObject.openWriter()) {
-                    writer.write(patched);
-                }
+    private static boolean hasSuppressions(List<CompilationUnit> compilationUnits) throws IOException {
+        for (CompilationUnit compilationUnit : compilationUnits) {
+            String content = compilationUnit.toJavaFileObject().getCharContent(true).toString();
+            if (!UnsuppressedFileObject.removeSuppressions(content).equals(content)) {
+                return true;
             }
-
-            compilationResult = this.compile(copiedVersion);
         }
 
-        List<CompilationDiagnostic> diagnostics = compilationResult.map(CompilationResult::diagnostics).orElse(List.of());
-
-        // now compile the code again, but this time without the patched version (to prevent problems if the patching
-        // is broken with the source position)
-        return this.compile(input).map(res -> new CompilationResult(res.jar(), diagnostics));
+        return false;
     }
 
-    private Optional<CompilationResult> compile(SourceInfo input) throws IOException, CompilationFailureException {
+    private Optional<CompilationResult> compile(SourceInfo input, Set<ErrorProneLint> errorProneLints)
+        throws IOException, CompilationFailureException {
 
         List<CompilationUnit> compilationUnits = input.compilationUnits();
 
@@ -98,7 +93,7 @@ public record Compiler(TempLocation tempLocation, JavaVersion javaVersion) {
             return Optional.empty();
         }
 
-        // TODO: charset should be for each file individually, this requires changing SeparateBinaryFileManager
+        // TODO: charset should be for each file individually
         Charset charset = compilationUnits.get(0).charset();
 
         JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
@@ -107,87 +102,105 @@ public record Compiler(TempLocation tempLocation, JavaVersion javaVersion) {
 
         List<CompilationDiagnostic> diagnostics = new ArrayList<>();
 
-        Path jar;
-        try (TempLocation compilerOutput = this.tempLocation.createTempDirectory(input.getName() + "_compiled")) {
-            JavaFileManager fileManager = new SeparateBinaryFileManager(
-                compiler.getStandardFileManager(diagnosticCollector, Locale.US, charset),
-                compilerOutput.toPath().toFile(),
-                charset
-            );
+        // the class files are only kept in memory, the jar is the only file that is written
+        InMemoryClassFileManager fileManager = new InMemoryClassFileManager(
+            compiler.getStandardFileManager(diagnosticCollector, Locale.US, charset),
+            errorProneLints.isEmpty() ? null : ErrorPronePlugin.classLoader()
+        );
+
+        List<String> options = new ArrayList<>(List.of("-Xlint:all", "-Xlint:-processing", "-Xlint:-serial",
+            "--release=" + javaVersion.getVersionString()
+        ));
+        if (!errorProneLints.isEmpty()) {
+            // saves parsing and attributing the code again in the ErrorProneLinter
+            options.addAll(ErrorPronePlugin.compilerOptions(errorProneLints));
+        }
 
-            boolean isSuccessful = compiler.getTask(
+        boolean isSuccessful;
+        try {
+            isSuccessful = compiler.getTask(
                 output,
                 fileManager,
                 diagnosticCollector,
-                Arrays.asList("-Xlint:all", "-Xlint:-processing", "-Xlint:-serial",
-                    "--release=" + javaVersion.getVersionString()
-                ),
+                options,
                 null,
-                compilationUnits.stream().map(CompilationUnit::toJavaFileObject).toList()
+                // @SuppressWarnings will result in warnings being ignored (obviously). This is suboptimal, when
+                // one wants to lint things that the compiler emits like unchecked casts.
+                //
+                // Therefore, the compiler sees the sources without the arguments of @SuppressWarnings.
+                // The annotation is not part of the class files, so the jar is the same as for the original sources.
+                compilationUnits.stream()
+                    .map(compilationUnit -> new UnsuppressedFileObject(compilationUnit.toJavaFileObject()))
+                    .toList()
             ).call();
+        } catch (RuntimeException exception) {
+            if (errorProneLints.isEmpty()) {
+                throw exception;
+            }
+
+            LOG.warn("error-prone crashed while compiling {}, compiling without it", input.getName(), exception);
+            return this.compile(input, Set.of());
+        }
 
-            output.flush();
-            output.close();
+        output.flush();
+        output.close();
 
-            diagnostics.addAll(diagnosticCollector.getDiagnostics().stream()
-                .filter(diagnostic -> diagnostic.getSource() != null)
-                .map(diagnostic -> new CompilationDiagnostic(diagnostic, input))
-                .toList());
+        diagnostics.addAll(diagnosticCollector.getDiagnostics().stream()
+            .filter(diagnostic -> diagnostic.getSource() != null && !ErrorPronePlugin.isLint(diagnostic))
+            .map(diagnostic -> new CompilationDiagnostic(diagnostic, input))
+            .toList());
 
-            if (!isSuccessful) {
-                throw new CompilationFailureException(diagnostics);
-            }
+        List<ErrorProneDiagnostic> errorProneDiagnostics = diagnosticCollector.getDiagnostics().stream()
+            .filter(ErrorPronePlugin::isLint)
+            .map(diagnostic -> ErrorProneDiagnostic.from(diagnostic, input))
+            .toList();
 
-            Manifest manifest = new Manifest();
-            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
-            jar = this.tempLocation.createTempFile(input.getName() + ".jar");
-            try (JarOutputStream jarOut = new JarOutputStream(new FileOutputStream(jar.toFile()), manifest)) {
-                addToJar(compilerOutput.toPath().normalize(), compilerOutput.toPath().toFile(), jarOut);
-            }
+        if (!isSuccessful && !errorProneLints.isEmpty() && diagnosticCollector.getDiagnostics().stream()
+            .noneMatch(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR && diagnostic.getSource() != null)) {
+            // javac reports a crash of a plugin as a failed compilation without an error in the sources
+            LOG.warn("error-prone failed while compiling {}, compiling without it: {}", input.getName(), output);
+            return this.compile(input, Set.of());
         }
 
-        return Optional.of(new CompilationResult(jar, diagnostics));
-    }
+        if (!isSuccessful) {
+            throw new CompilationFailureException(diagnostics);
+        }
 
+        Path jar = this.tempLocation.createTempFile(input.getName() + ".jar");
+        writeJar(jar, fileManager.getClassFiles());
 
-    // https://stackoverflow.com/questions/1281229/how-to-use-jaroutputstream-to-create-a-jar-file/1281295#1281295
-    private static void addToJar(Path root, File source, JarOutputStream target) throws IOException {
-        String relativePath = root.relativize(source.toPath().normalize()).toString().replace("\\", "/");
-        BufferedInputStream in = null;
-        try {
-            if (source.isDirectory()) {
-                if (!relativePath.isEmpty()) {
-                    if (!relativePath.endsWith("/")) {
-                        relativePath += "/";
-                    }
-                    JarEntry entry = new JarEntry(relativePath);
-                    entry.setTime(source.lastModified());
-                    target.putNextEntry(entry);
-                    target.closeEntry();
-                }
-                for (File nestedFile : source.listFiles()) {
-                    addToJar(root, nestedFile, target);
-                }
-            } else {
-                JarEntry entry = new JarEntry(relativePath);
-                entry.setTime(source.lastModified());
-                target.putNextEntry(entry);
-                in = new BufferedInputStream(new FileInputStream(source));
-
-                byte[] buffer = new byte[1024];
-                while (true) {
-                    int count = in.read(buffer);
-                    if (count == -1) {
-                        break;
+        return Optional.of(new CompilationResult(jar, diagnostics, errorProneLints, errorProneDiagnostics));
+    }
+
+    private static void writeJar(Path jar, Map<String, byte[]> classFiles) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+
+        try (JarOutputStream jarOut = new JarOutputStream(new BufferedOutputStream(Files.newOutputStream(jar)), manifest)) {
+            Set<String> directories = new HashSet<>();
+            for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+                String path = classFile.getKey();
+
+                // add an entry for each directory before the first file in it, like the jar tool does
+                for (int i = path.indexOf('/'); i != -1; i = path.indexOf('/', i + 1)) {
+                    String directory = path.substring(0, i + 1);
+                    if (directories.add(directory)) {
+                        jarOut.putNextEntry(createEntry(directory));
+                        jarOut.closeEntry();
                     }
-                    target.write(buffer, 0, count);
                 }
-                target.closeEntry();
-            }
-        } finally {
-            if (in != null) {
-                in.close();
+
+                jarOut.putNextEntry(createEntry(path));
+                jarOut.write(classFile.getValue());
+                jarOut.closeEntry();
             }
         }
     }
+
+    private static JarEntry createEntry(String name) {
+        JarEntry entry = new JarEntry(name);
+        // a fixed time, so that the same classes always result in the same jar
+        entry.setTime(JAR_ENTRY_TIME);
+        return entry;
+    }
 }
@@ -0,0 +1,66 @@
+package de.firemage.autograder.core.compiler;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the class files generated by the compiler in memory instead of writing them to a directory.
+ */
+public class InMemoryClassFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+    private final Map<String, byte[]> classFiles;
+    private final ClassLoader pluginClassLoader;
+
+    protected InMemoryClassFileManager(StandardJavaFileManager fileManager, ClassLoader pluginClassLoader) {
+        super(fileManager);
+        this.classFiles = Collections.synchronizedMap(new TreeMap<>());
+        this.pluginClassLoader = pluginClassLoader;
+    }
+
+    @Override
+    public ClassLoader getClassLoader(Location location) {
+        if (this.pluginClassLoader != null) {
+            return this.pluginClassLoader;
+        }
+
+        return super.getClassLoader(location);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+        String path = createFileNameFromClass(className);
+        return new SimpleJavaFileObject(URI.create("mem:///" + path), kind) {
+            @Override
+            public OutputStream openOutputStream() {
+                return new ByteArrayOutputStream() {
+                    @Override
+                    public void close() {
+                        classFiles.put(path, this.toByteArray());
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Returns the generated class files.
+     *
+     * @return a map from the path of the class file in a jar (e.g. {@code de/example/Main.class}) to its content,
+     * sorted by the path
+     */
+    public Map<String, byte[]> getClassFiles() {
+        return Collections.unmodifiableMap(this.classFiles);
+    }
+
+    private static String createFileNameFromClass(String className) {
+        return className.replace(".", "/") + ".class";
+    }
+}
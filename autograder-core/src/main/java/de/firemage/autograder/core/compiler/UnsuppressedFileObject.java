@@ -0,0 +1,180 @@
+package de.firemage.autograder.core.compiler;
+
+import javax.tools.ForwardingJavaFileObject;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A source file where the arguments of all {@code @SuppressWarnings} annotations have been removed, so that the compiler
+ * reports all warnings.
+ * <p>
+ * The arguments are replaced with an empty array of the same length (whitespace and line breaks are kept), so every
+ * other token stays at the same position. Because {@code @SuppressWarnings} is not retained in the class files,
+ * the compiled classes are identical to the ones compiled from the original source.
+ */
+public class UnsuppressedFileObject extends ForwardingJavaFileObject<JavaFileObject> {
+    private static final String ANNOTATION_NAME = "SuppressWarnings";
+    private static final String QUALIFIED_ANNOTATION_NAME = "java.lang.SuppressWarnings";
+
+    public UnsuppressedFileObject(JavaFileObject fileObject) {
+        super(fileObject);
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+        CharSequence content = super.getCharContent(ignoreEncodingErrors);
+        if (content == null) {
+            return null;
+        }
+
+        return removeSuppressions(content.toString());
+    }
+
+    @Override
+    public Reader openReader(boolean ignoreEncodingErrors) throws IOException {
+        return new StringReader(this.getCharContent(ignoreEncodingErrors).toString());
+    }
+
+    static String removeSuppressions(String content) {
+        char[] result = content.toCharArray();
+
+        int i = 0;
+        while (i < result.length) {
+            int end = skipCommentOrLiteral(content, i);
+            if (end != i) {
+                i = end;
+                continue;
+            }
+
+            if (content.charAt(i) != '@') {
+                i++;
+                continue;
+            }
+
+            int nameStart = skipWhitespace(content, i + 1);
+            int nameEnd = nameStart;
+            while (nameEnd < content.length()
+                && (Character.isJavaIdentifierPart(content.charAt(nameEnd)) || content.charAt(nameEnd) == '.')) {
+                nameEnd++;
+            }
+
+            String name = content.substring(nameStart, nameEnd);
+            int open = skipWhitespace(content, nameEnd);
+            if ((name.equals(ANNOTATION_NAME) || name.equals(QUALIFIED_ANNOTATION_NAME))
+                && open < content.length() && content.charAt(open) == '(') {
+                int close = findClosingParenthesis(content, open);
+                if (close != -1 && blankArguments(result, open + 1, close)) {
+                    i = close + 1;
+                    continue;
+                }
+            }
+
+            i = nameEnd;
+        }
+
+        return new String(result);
+    }
+
+    private static boolean blankArguments(char[] result, int start, int end) {
+        // the braces must not replace line breaks, otherwise the following lines would move
+        List<Integer> positions = new ArrayList<>();
+        for (int j = start; j < end; j++) {
+            if (result[j] != '\r' && result[j] != '\n') {
+                positions.add(j);
+            }
+        }
+
+        if (positions.size() < 2) {
+            return false;
+        }
+
+        for (int position : positions) {
+            result[position] = ' ';
+        }
+
+        result[positions.get(0)] = '{';
+        result[positions.get(positions.size() - 1)] = '}';
+        return true;
+    }
+
+    private static int findClosingParenthesis(String content, int open) {
+        int depth = 0;
+        int i = open;
+        while (i < content.length()) {
+            int end = skipCommentOrLiteral(content, i);
+            if (end != i) {
+                i = end;
+                continue;
+            }
+
+            char c = content.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    return i;
+                }
+            }
+
+            i++;
+        }
+
+        return -1;
+    }
+
+    private static int skipWhitespace(String content, int start) {
+        int i = start;
+        while (i < content.length() && Character.isWhitespace(content.charAt(i))) {
+            i++;
+        }
+
+        return i;
+    }
+
+    /**
+     * Returns the index after the comment or literal that starts at the given index. If there is none, the given index
+     * is returned.
+     */
+    private static int skipCommentOrLiteral(String content, int start) {
+        if (content.startsWith("//", start)) {
+            int end = content.indexOf('\n', start);
+            return end == -1 ? content.length() : end;
+        }
+
+        if (content.startsWith("/*", start)) {
+            int end = content.indexOf("*/", start + 2);
+            return end == -1 ? content.length() : end + 2;
+        }
+
+        if (content.startsWith("\"\"\"", start)) {
+            return skipQuoted(content, start + 3, "\"\"\"");
+        }
+
+        char c = content.charAt(start);
+        if (c == '"' || c == '\'') {
+            return skipQuoted(content, start + 1, String.valueOf(c));
+        }
+
+        return start;
+    }
+
+    private static int skipQuoted(String content, int start, String delimiter) {
+        int i = start;
+        while (i < content.length()) {
+            if (content.charAt(i) == '\\') {
+                i += 2;
+            } else if (content.startsWith(delimiter, i)) {
+                return i + delimiter.length();
+            } else {
+                i++;
+            }
+        }
+
+        return content.length();
+    }
+}
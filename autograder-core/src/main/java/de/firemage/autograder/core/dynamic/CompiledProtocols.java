@@ -0,0 +1,65 @@
+package de.firemage.autograder.core.dynamic;
+
+import de.firemage.autograder.executor.Protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the compiled form of the protocol files, so that the protocols are parsed only once for all submissions that
+ * are checked against them.
+ * <p>
+ * A protocol is compiled again when its file has been modified.
+ */
+final class CompiledProtocols {
+    private static final Map<Path, CachedProtocol> CACHE = new ConcurrentHashMap<>();
+
+    private record CachedProtocol(FileTime lastModified, long size, byte[] compiled) {
+    }
+
+    private CompiledProtocols() {
+    }
+
+    /**
+     * Returns the compiled form of the protocol file, which is read by {@link Protocol#read(java.io.InputStream)}.
+     *
+     * @param protocol the protocol file
+     * @return the compiled protocol
+     * @throws IOException if the file could not be read
+     * @throws RunnerException if the protocol is invalid
+     */
+    static byte[] get(Path protocol) throws IOException, RunnerException {
+        Path key = protocol.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+
+        CachedProtocol cached = CACHE.get(key);
+        if (cached != null && cached.lastModified().equals(attributes.lastModifiedTime())
+            && cached.size() == attributes.size()) {
+            return cached.compiled();
+        }
+
+        byte[] compiled = compile(key);
+        CACHE.put(key, new CachedProtocol(attributes.lastModifiedTime(), attributes.size(), compiled));
+        return compiled;
+    }
+
+    private static byte[] compile(Path protocol) throws IOException, RunnerException {
+        Protocol parsed;
+        try {
+            parsed = Protocol.parse(Files.readString(protocol, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new RunnerException("The protocol " + protocol.getFileName() + " is invalid: " + e.getMessage(), e);
+        }
+
+        ByteArrayOutputStream compiled = new ByteArrayOutputStream();
+        parsed.write(compiled);
+        return compiled.toByteArray();
+    }
+}
@@ -1,116 +1,221 @@
 package de.firemage.autograder.core.dynamic;
 
+import de.firemage.autograder.core.LinterStatus;
 import de.firemage.autograder.core.integrated.StaticAnalysis;
-import de.firemage.autograder.event.Event;
+import de.firemage.autograder.executor.SuiteExecutor;
 import spoon.reflect.declaration.CtClass;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
+/**
+ * Runs the tests with the executor in child JVMs on the host, so that no Docker daemon is needed.
+ * Each child JVM runs a whole {@link TestSuite}, one per slot of the pool.
+ * <p>
+ * The executor is confined by the {@link ProcessSandbox} with the limits of the {@link TestContainerSettings}.
+ * How strict the confinement is depends on the tools of the host.
+ */
 public class ConsoleRunner implements TestRunner {
-    private static final int TIMEOUT_SECONDS = 10;
-    private final Path tmpDirectory;
+    private static final int TIMEOUT_SECONDS = 60;
+    private final Path executor;
     private final Path agent;
     private final Path tests;
+    private final Path tmpPath;
+    private final TestContainerSettings settings;
 
-    public ConsoleRunner(Path tmpDirectory, Path agent, Path tests) {
-        this.tmpDirectory = tmpDirectory;
+    public ConsoleRunner(Path executor, Path agent, Path tests, Path tmpPath) {
+        this(executor, agent, tests, tmpPath, TestContainerSettings.defaults());
+    }
+
+    public ConsoleRunner(Path executor, Path agent, Path tests, Path tmpPath, TestContainerSettings settings) {
+        this.executor = executor;
         this.agent = agent;
         if (!Files.isDirectory(tests)) {
             throw new IllegalArgumentException("tests must point to a folder containing the individual test cases");
         }
         this.tests = tests;
+        this.tmpPath = tmpPath;
+        this.settings = settings;
     }
 
-    public List<List<Event>> runTests(StaticAnalysis analysis, Path jar) throws IOException, InterruptedException {
-        List<Path> testCases;
-        try (Stream<Path> files = Files.list(this.tests)) {
-            testCases = files.filter(Files::isRegularFile).toList();
-        }
+    @Override
+    public List<TestRunResult> runTests(StaticAnalysis analysis, Path jar, Consumer<LinterStatus> statusConsumer)
+        throws RunnerException, InterruptedException {
         String mainClass = analysis.getCodeModel().findMain().getParent(CtClass.class).getQualifiedName().replace(".", "/");
 
-        List<List<Event>> events = new ArrayList<>();
-        for (Path testPath : testCases) {
-            events.add(executeTestCase(testPath, mainClass, jar));
-        }
-
-        return events;
+        statusConsumer.accept(LinterStatus.EXECUTING_TESTS);
+        return this.runTests(mainClass, jar);
     }
 
-    private List<Event> executeTestCase(Path testFile, String mainClass, Path jar)
-        throws IOException, InterruptedException {
-        Path outPath = this.tmpDirectory.resolve("codelinter_events.txt");
-
-        List<String> lines = Files.readAllLines(testFile);
-        Process container = startJVM(mainClass, jar, outPath);
-
-        BufferedReader containerOut = container.inputReader();
-        BufferedWriter containerIn = container.outputWriter();
+    /**
+     * Runs all tests against the given main class of the student code.
+     *
+     * @param mainClass the main class, with slashes instead of dots
+     * @param jar the jar with the student code
+     * @return the results in the order of the test files in each suite
+     * @throws RunnerException if the tests could not be executed
+     * @throws InterruptedException if the thread was interrupted while waiting for the tests
+     */
+    List<TestRunResult> runTests(String mainClass, Path jar) throws RunnerException, InterruptedException {
+        Path runDirectory;
+        List<Path> testCases;
+        try {
+            // the jars might be inside the jar of the autograder, but the child JVMs need them as files
+            runDirectory = Files.createTempDirectory(this.tmpPath, "console_runner");
+            Files.copy(this.executor, runDirectory.resolve("Executor.jar"));
+            Files.copy(this.agent, runDirectory.resolve("Agent.jar"));
+            Files.copy(jar, runDirectory.resolve("studentcode.jar"));
+            if (ProcessSandbox.changesUser()) {
+                makeAccessible(runDirectory, "rwxr-xr-x");
+                for (String file : List.of("Executor.jar", "Agent.jar", "studentcode.jar")) {
+                    makeAccessible(runDirectory.resolve(file), "rw-r--r--");
+                }
+            }
 
-        List<String> expectedOutput = new ArrayList<>();
-        for (String line : lines) {
-            if (line.startsWith("> ")) {
-                containerIn.write(line.substring(2));
-                containerIn.newLine();
-            } else {
-                expectedOutput.add(line);
+            try (Stream<Path> files = Files.walk(this.tests)) {
+                testCases =
+                    files.filter(Files::isRegularFile)
+                        .filter(f -> f.toString().endsWith(".txt") || f.toString().endsWith(".protocol")).sorted().toList();
             }
+        } catch (IOException e) {
+            throw new RunnerException(e);
         }
-        containerIn.flush();
 
-        if (!container.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
-            container.destroyForcibly();
+        List<TestSuite> suites = TestSuite.split(testCases, this.settings.poolSize());
+        ExecutorService service = Executors.newFixedThreadPool(Math.max(suites.size(), 1));
+        try {
+            List<Future<List<TestRunResult>>> futures = new ArrayList<>();
+            for (int i = 0; i < suites.size(); i++) {
+                Path suiteDirectory = runDirectory.resolve("suite" + i);
+                TestSuite suite = suites.get(i);
+                futures.add(service.submit(() -> executeTestSuite(runDirectory, suiteDirectory, suite, mainClass)));
+            }
+            List<TestRunResult> results = new ArrayList<>();
+            for (var future : futures) {
+                try {
+                    results.addAll(future.get());
+                } catch (ExecutionException e) {
+                    throw new RunnerException(e.getCause());
+                }
+            }
+
+            System.out.println(System.lineSeparator());
+            System.out.println(
+                results.stream().filter(t -> t.status() == TestRunResult.TestRunStatus.OK).count() + "/" +
+                    results.size() + " tests successful");
+
+            return results;
+        } finally {
+            service.shutdownNow();
+            deleteDirectory(runDirectory);
         }
+    }
 
-        if (container.exitValue() != 0) {
-            System.out.println(containerOut.lines().collect(Collectors.joining("\n")));
-            throw new IllegalStateException("Child JVM exited with nonzero exit code " + container.exitValue());
+    private List<TestRunResult> executeTestSuite(
+        Path runDirectory,
+        Path suiteDirectory,
+        TestSuite suite,
+        String mainClass
+    ) throws IOException, InterruptedException, RunnerException {
+        suite.writeTo(suiteDirectory);
+        if (ProcessSandbox.changesUser()) {
+            makeAccessible(suiteDirectory, "rwxr-xr-x");
+            makeAccessible(suiteDirectory.resolve(TestSuite.TESTS), "rwxr-xr-x");
+            makeAccessible(suiteDirectory.resolve(TestSuite.RESULTS), "rwxrwxrwx");
         }
+        Path outputFile = suiteDirectory.resolve("output.txt");
+
+        // all tests of the suite run in the JVM of the executor, which is instrumented by the agent,
+        // so it gets the cpu time of all of them
+        List<String> command = new ArrayList<>(ProcessSandbox.commandPrefix(this.settings, suite.size()));
+        command.addAll(List.of(
+            ProcessSandbox.javaExecutable(),
+            this.settings.heapOption(),
+            "-Dautograder.java=" + ProcessSandbox.javaExecutable(),
+            "-Dautograder.studentCode=" + runDirectory.resolve("studentcode.jar").toAbsolutePath(),
+            "-javaagent:" + runDirectory.resolve("Agent.jar").toAbsolutePath() + "="
+                + suiteDirectory.resolve(TestSuite.RESULTS).resolve("remaining.events").toAbsolutePath(),
+            "-jar",
+            runDirectory.resolve("Executor.jar").toAbsolutePath().toString(),
+            mainClass,
+            "--all",
+            suiteDirectory.resolve(TestSuite.TESTS).toAbsolutePath().toString(),
+            suiteDirectory.resolve(TestSuite.RESULTS).toAbsolutePath().toString(),
+            String.valueOf(false)
+        ));
+
+        // every run executes at least one test, the remaining tests are executed by the next run
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos((long) TIMEOUT_SECONDS * suite.size());
+        for (int run = 1; ; run++) {
+            Process process = new ProcessBuilder(command)
+                .directory(suiteDirectory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(outputFile.toFile()))
+                .start();
+            process.getOutputStream().close();
+
+            if (!process.waitFor(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+                process.waitFor();
+                throw TestSuite.failure("The tests timed out", readOutput(outputFile));
+            }
 
-        int outputLine = 0;
-        while (containerOut.ready()) {
-            String actualOutput = containerOut.readLine();
-            if (actualOutput.startsWith("AGENT: ")) {
+            if (process.exitValue() == SuiteExecutor.EXIT_CODE_INCOMPLETE && run < suite.size()) {
                 continue;
             }
-            String expected = expectedOutput.get(outputLine);
-            if (expected.startsWith("Error, ")) {
-                if (!actualOutput.startsWith("Error, ")) {
-                    throw new IllegalStateException("Expected an error output but got '" + actualOutput + "'");
-                }
-            } else if (!expected.equals(actualOutput)) {
-                throw new IllegalStateException(
-                    "Expected output '" + expected + "', got output '" + actualOutput + "'");
+            if (process.exitValue() != 0) {
+                throw TestSuite.failure("The executor failed with exit code " + process.exitValue(), readOutput(outputFile));
             }
-            outputLine++;
+            break;
         }
 
-        if (outputLine < expectedOutput.size()) {
-            throw new IllegalStateException(
-                "There are " + (expectedOutput.size() - outputLine) + "lines left in the expected output");
+        String output = readOutput(outputFile);
+
+        List<TestRunResult> results = suite.readResults(suiteDirectory.resolve(TestSuite.RESULTS), output);
+        synchronized (this) {
+            for (TestRunResult result : results) {
+                System.out.println(System.lineSeparator());
+                System.out.println(result.executorOutput());
+                if (result.events().isEmpty()) {
+                    System.err.println("No events found. Maybe the student's code timed out.");
+                    System.err.flush();
+                }
+            }
         }
 
-        List<Event> events = Event.read(outPath);
-        Files.deleteIfExists(outPath);
-        return events;
+        return results;
+    }
+
+    private static String readOutput(Path outputFile) throws IOException {
+        return new String(Files.readAllBytes(outputFile), StandardCharsets.UTF_8);
     }
 
-    private Process startJVM(String mainClass, Path jar, Path outPath) throws IOException {
-        String[] command = new String[] {
-            "java",
-            "-cp",
-            jar.toAbsolutePath().toString(),
-            "-javaagent:\"" + this.agent.toAbsolutePath() + "\"=\"" + outPath.toAbsolutePath() + "\"",
-            mainClass.replace("/", ".")
-        };
-        return Runtime.getRuntime().exec(command);
+    private static void makeAccessible(Path path, String permissions) throws IOException {
+        Files.setPosixFilePermissions(path, PosixFilePermissions.fromString(permissions));
+    }
+
+    private static void deleteDirectory(Path directory) {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        } catch (IOException e) {
+            // the directory is inside the temporary folder of the linter, which is deleted later
+        }
     }
 }
@@ -0,0 +1,208 @@
+package de.firemage.autograder.core.dynamic;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.HostConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of running containers that have the code of one submission, in which the tests are executed one after
+ * another.
+ * <p>
+ * The containers only wait for commands, and every test is started in them with an exec. They are created when they
+ * are needed and reused afterward. Before a container is reused, all processes of the student are killed and the files
+ * that they left behind are removed. A container in which a test failed unexpectedly or that could not be reset is
+ * removed and replaced by a new one.
+ */
+final class ContainerPool implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(ContainerPool.class);
+    private static final long RESET_TIMEOUT_SECONDS = 30;
+    private static final String HOME = DockerConsoleRunner.STUDENT_HOME;
+    // runs as root, whose kill -1 reaches all processes except itself and the sleep of the container (pid 1);
+    // the jars must still be the ones of the image and the pool, which are owned by root
+    private static final String RESET_SCRIPT = """
+        kill -9 -1
+        for attempt in 1 2 3 4 5 6 7 8 9 10; do
+            alive=false
+            for process in /proc/[0-9]*; do
+                if [ "${process#/proc/}" != 1 ] && [ "$(stat -c %%u "$process" 2>/dev/null)" = %1$d ] && ! grep -q '^State:.*zombie' "$process/status" 2>/dev/null; then
+                    alive=true
+                fi
+            done
+            [ "$alive" = false ] && break
+            [ "$attempt" = 10 ] && exit 1
+            sleep 0.1
+        done
+        find %2$s /tmp /var/tmp /dev/shm -mindepth 1 -maxdepth 1 ! -path %2$s/Executor.jar ! -path %2$s/Agent.jar ! -path %2$s/%3$s -exec rm -rf {} + || exit 1
+        [ "$(find %2$s -maxdepth 1 -type f -user 0 -name '*.jar' | wc -l)" = 3 ]
+        """.formatted(DockerConsoleRunner.STUDENT_UID, HOME, DockerConsoleRunner.STUDENT_CODE_JAR);
+
+    private final DockerClient dockerClient;
+    private final String image;
+    private final byte[] studentCode;
+    private final TestContainerSettings settings;
+    private final Queue<String> idleContainers;
+    private final Set<String> containers;
+    private final Semaphore availableContainers;
+
+    ContainerPool(DockerClient dockerClient, String image, byte[] studentCode, TestContainerSettings settings) {
+        this.dockerClient = dockerClient;
+        this.image = image;
+        this.studentCode = studentCode;
+        this.settings = settings;
+        this.idleContainers = new ConcurrentLinkedQueue<>();
+        this.containers = ConcurrentHashMap.newKeySet();
+        this.availableContainers = new Semaphore(settings.poolSize());
+    }
+
+    /**
+     * Takes an idle container out of the pool, waiting if all of them are in use. It must be handed back with
+     * {@link #release(String)} or {@link #discard(String)}.
+     *
+     * @return the id of the container
+     * @throws InterruptedException if the thread was interrupted while waiting for a container
+     */
+    String acquire() throws InterruptedException {
+        this.availableContainers.acquire();
+        try {
+            String containerId = this.idleContainers.poll();
+            if (containerId == null) {
+                containerId = this.startContainer();
+            }
+            return containerId;
+        } catch (RuntimeException e) {
+            this.availableContainers.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Resets a container after the tests in it have finished and puts it back into the pool. A container that could not
+     * be reset is removed instead.
+     *
+     * @param containerId the id of the container
+     * @throws InterruptedException if the thread was interrupted while the container was reset
+     */
+    void release(String containerId) throws InterruptedException {
+        boolean reset = false;
+        try {
+            reset = this.reset(containerId);
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to reset the test container " + containerId, e);
+        } finally {
+            if (!reset) {
+                this.discard(containerId);
+            }
+        }
+
+        if (reset) {
+            this.idleContainers.add(containerId);
+            this.availableContainers.release();
+        }
+    }
+
+    /**
+     * Removes a container in which a test timed out or failed in an unexpected way. A new container is created
+     * when it is needed.
+     *
+     * @param containerId the id of the container
+     */
+    void discard(String containerId) {
+        try {
+            this.removeContainer(containerId);
+        } finally {
+            this.availableContainers.release();
+        }
+    }
+
+    private String startContainer() {
+        String containerId = this.dockerClient
+            .createContainerCmd(this.image)
+            .withHostConfig(
+                new HostConfig()
+                    .withCapDrop()
+                    .withNetworkMode("none")
+                    .withPidsLimit(this.settings.pidsLimit())
+                    .withMemory(this.settings.memoryBytes())
+            )
+            // the container only waits for the tests, which are started with an exec
+            .withEntrypoint("sleep", "infinity")
+            .exec()
+            .getId();
+        this.containers.add(containerId);
+
+        try {
+            this.dockerClient.copyArchiveToContainerCmd(containerId)
+                .withTarInputStream(new ByteArrayInputStream(this.studentCode))
+                .withRemotePath(DockerConsoleRunner.STUDENT_HOME)
+                .exec();
+
+            this.dockerClient.startContainerCmd(containerId).exec();
+        } catch (RuntimeException e) {
+            this.removeContainer(containerId);
+            throw e;
+        }
+
+        return containerId;
+    }
+
+    private boolean reset(String containerId) throws InterruptedException {
+        String execId = this.dockerClient.execCreateCmd(containerId)
+            .withUser("root")
+            .withAttachStdout(true)
+            .withAttachStderr(true)
+            .withCmd("sh", "-c", RESET_SCRIPT)
+            .exec()
+            .getId();
+
+        StringBuilder output = new StringBuilder();
+        boolean completed = this.dockerClient.execStartCmd(execId)
+            .exec(new ResultCallback.Adapter<Frame>() {
+                @Override
+                public void onNext(Frame frame) {
+                    synchronized (output) {
+                        output.append(frame);
+                    }
+                }
+            })
+            .awaitCompletion(RESET_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        Long exitCode = completed ? this.dockerClient.inspectExecCmd(execId).exec().getExitCodeLong() : null;
+        if (exitCode == null || exitCode != 0) {
+            synchronized (output) {
+                LOG.warn("The test container " + containerId + " could not be reset: " + output);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private void removeContainer(String containerId) {
+        this.containers.remove(containerId);
+        this.dockerClient.removeContainerCmd(containerId)
+            .withForce(true)
+            .exec();
+    }
+
+    @Override
+    public void close() {
+        this.idleContainers.clear();
+        for (String containerId : Set.copyOf(this.containers)) {
+            try {
+                this.removeContainer(containerId);
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to remove the test container " + containerId, e);
+            }
+        }
+    }
+}
@@ -3,11 +3,8 @@ package de.firemage.autograder.core.dynamic;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.BuildImageResultCallback;
-import com.github.dockerjava.api.command.WaitContainerResultCallback;
-import com.github.dockerjava.api.exception.DockerClientException;
 import com.github.dockerjava.api.exception.NotFoundException;
 import com.github.dockerjava.api.model.Frame;
-import com.github.dockerjava.api.model.HostConfig;
 import com.github.dockerjava.core.DefaultDockerClientConfig;
 import com.github.dockerjava.core.DockerClientBuilder;
 import com.github.dockerjava.core.DockerClientConfig;
@@ -15,21 +12,26 @@ import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
 import com.github.dockerjava.transport.DockerHttpClient;
 import de.firemage.autograder.core.LinterStatus;
 import de.firemage.autograder.core.integrated.StaticAnalysis;
-import de.firemage.autograder.event.Event;
-import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import de.firemage.autograder.executor.SuiteExecutor;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import spoon.reflect.declaration.CtClass;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URISyntaxException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -40,12 +42,29 @@ import java.util.stream.Stream;
 
 public class DockerConsoleRunner implements TestRunner {
     private static final int TIMEOUT_SECONDS = 60;
+    private static final String RUNTIME_IMAGE = "autograder-runtime";
+    private static final Object RUNTIME_IMAGE_LOCK = new Object();
+    static final String STUDENT_HOME = "/home/student";
+    // the uid of the student in the Dockerfile
+    static final int STUDENT_UID = 10000;
+    static final String STUDENT_CODE_JAR = "studentcode.jar";
     private final Path executor;
     private final Path agent;
     private final Path tests;
     private final Path tmpPath;
+    private final TestContainerSettings containerSettings;
 
     public DockerConsoleRunner(Path executor, Path agent, Path tests, Path tmpPath) {
+        this(executor, agent, tests, tmpPath, TestContainerSettings.defaults());
+    }
+
+    public DockerConsoleRunner(
+        Path executor,
+        Path agent,
+        Path tests,
+        Path tmpPath,
+        TestContainerSettings containerSettings
+    ) {
         this.executor = executor;
         this.agent = agent;
         if (!Files.isDirectory(tests)) {
@@ -53,8 +72,10 @@ public class DockerConsoleRunner implements TestRunner {
         }
         this.tests = tests;
         this.tmpPath = tmpPath;
+        this.containerSettings = containerSettings;
     }
 
+    @Override
     public List<TestRunResult> runTests(StaticAnalysis analysis, Path jar, Consumer<LinterStatus> statusConsumer)
         throws RunnerException, InterruptedException {
         String mainClass = analysis.getCodeModel().findMain().getParent(CtClass.class).getQualifiedName().replace(".", "/");
@@ -68,60 +89,39 @@ public class DockerConsoleRunner implements TestRunner {
                 .build();
         DockerClient dockerClient = DockerClientBuilder.getInstance(config).withDockerHttpClient(client).build();
 
-        String imageId;
+        String image;
+        byte[] studentCode;
         List<Path> testCases;
         try {
-            // Prepare the build directory
-            Path buildDirectory = Files.createTempDirectory(this.tmpPath, "docker_build");
-            Files.copy(Path.of(this.getClass().getResource("Dockerfile").toURI()),
-                buildDirectory.resolve("Dockerfile"));
-            Files.copy(this.executor, buildDirectory.resolve("executor.jar"));
-            Files.copy(this.agent, buildDirectory.resolve("agent.jar"));
-            Files.copy(jar, buildDirectory.resolve("src.jar"));
-
-            imageId = dockerClient.buildImageCmd()
-                .withBaseDirectory(buildDirectory.toFile())
-                .withDockerfile(buildDirectory.resolve("Dockerfile").toFile())
-                .withPull(true)
-                .withBuildArg("jarfile", "src.jar")
-                .withBuildArg("executor", "executor.jar")
-                .withBuildArg("agent", "agent.jar")
-                .exec(new BuildImageResultCallback())
-                .awaitImageId();
-
-            // Clean up the build directory
-            try (Stream<Path> walk = Files.walk(buildDirectory)) {
-                walk.sorted(Comparator.reverseOrder())
-                    .map(Path::toFile)
-                    .forEach(File::delete);
-            }
+            image = this.findOrBuildRuntimeImage(dockerClient);
+            studentCode = createStudentCodeArchive(jar);
 
             try (Stream<Path> files = Files.walk(this.tests)) {
                 testCases =
                     files.filter(Files::isRegularFile)
-                        .filter(f -> f.toString().endsWith(".txt") || f.toString().endsWith(".protocol")).toList();
+                        .filter(f -> f.toString().endsWith(".txt") || f.toString().endsWith(".protocol")).sorted().toList();
             }
-        } catch (IOException | URISyntaxException e) {
+        } catch (IOException e) {
             throw new RunnerException(e);
         }
 
-
         statusConsumer.accept(LinterStatus.EXECUTING_TESTS);
-        try {
-            ExecutorService service = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-            List<Future<TestRunResult>> futures = new ArrayList<>();
-            for (Path testPath : testCases) {
-                futures.add(service.submit(() -> executeTestCase(dockerClient, imageId, testPath, mainClass)));
+        // every container executes a part of the tests in a single JVM
+        List<TestSuite> suites = TestSuite.split(testCases, this.containerSettings.poolSize());
+        ExecutorService service = Executors.newFixedThreadPool(this.containerSettings.poolSize());
+        try (ContainerPool pool = new ContainerPool(dockerClient, image, studentCode, this.containerSettings)) {
+            List<Future<List<TestRunResult>>> futures = new ArrayList<>();
+            for (TestSuite suite : suites) {
+                futures.add(service.submit(() -> executeTestSuite(dockerClient, pool, suite, mainClass)));
             }
             List<TestRunResult> results = new ArrayList<>();
             for (var future : futures) {
                 try {
-                    results.add(future.get());
+                    results.addAll(future.get());
                 } catch (ExecutionException e) {
                     throw new RunnerException(e.getCause());
                 }
             }
-            service.shutdown();
 
             System.out.println(System.lineSeparator());
             System.out.println(
@@ -130,98 +130,209 @@ public class DockerConsoleRunner implements TestRunner {
 
             return results;
         } finally {
-            dockerClient.removeImageCmd(imageId).withForce(true).exec();
+            service.shutdownNow();
         }
     }
 
-    private TestRunResult executeTestCase(DockerClient dockerClient, String imageId, Path testFile, String mainClass)
-        throws IOException, InterruptedException, DockerRunnerException {
-
-        List<String> interactionLines = Files.readAllLines(testFile);
-        String containerId = dockerClient
-            .createContainerCmd(imageId)
-            .withHostConfig(
-                new HostConfig()
-                    .withCapDrop()
-                    .withNetworkMode("none")
-                    .withPidsLimit(2000L)
-                    .withMemory(200 * (1L << 20))
-            )
-            .withCmd(mainClass, Base64.getEncoder()
-                    .encodeToString(String.join("\n", interactionLines).getBytes(StandardCharsets.UTF_8)),
-                String.valueOf(false))
-            .exec()
-            .getId();
+    /**
+     * Returns the image with the JDK, the executor and the agent. The image does not depend on the submission,
+     * so it is tagged with the hash of its contents and only built if there is no image with that tag yet.
+     *
+     * @param dockerClient the client of the docker daemon
+     * @return the tag of the image
+     * @throws IOException if the files of the image could not be read
+     */
+    private String findOrBuildRuntimeImage(DockerClient dockerClient) throws IOException {
+        byte[] dockerfile;
+        try (InputStream inputStream = DockerConsoleRunner.class.getResourceAsStream("Dockerfile")) {
+            if (inputStream == null) {
+                throw new IllegalStateException("The Dockerfile is missing");
+            }
+            dockerfile = inputStream.readAllBytes();
+        }
+        byte[] executorJar = Files.readAllBytes(this.executor);
+        byte[] agentJar = Files.readAllBytes(this.agent);
 
+        MessageDigest digest;
         try {
-            dockerClient.startContainerCmd(containerId).exec();
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        digest.update(dockerfile);
+        digest.update(executorJar);
+        digest.update(agentJar);
+        String image = RUNTIME_IMAGE + ":" + HexFormat.of().formatHex(digest.digest()).substring(0, 32);
 
-            TestRunResult.TestRunStatus status = TestRunResult.TestRunStatus.OK;
-            int exitCode;
+        // the lock prevents that submissions which are graded at the same time all build the image
+        synchronized (RUNTIME_IMAGE_LOCK) {
             try {
-                exitCode = dockerClient
-                    .waitContainerCmd(containerId)
-                    .exec(new WaitContainerResultCallback())
-                    .awaitStatusCode(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-            } catch (DockerClientException ex) {
-                throw new DockerRunnerException("The test container timed out", readLogs(dockerClient, containerId));
+                dockerClient.inspectImageCmd(image).exec();
+                return image;
+            } catch (NotFoundException e) {
+                // the image has not been built yet
             }
 
-            if (exitCode == 1) {
-                status = TestRunResult.TestRunStatus.ERROR_TEST_FAILURE;
-            } else if (exitCode == 2) {
-                throw new DockerRunnerException("The executor failed", readLogs(dockerClient, containerId));
+            Path buildDirectory = Files.createTempDirectory(this.tmpPath, "docker_build");
+            try {
+                Files.write(buildDirectory.resolve("Dockerfile"), dockerfile);
+                Files.write(buildDirectory.resolve("executor.jar"), executorJar);
+                Files.write(buildDirectory.resolve("agent.jar"), agentJar);
+
+                // the base image is only pulled if it is not present, so that offline graders work
+                dockerClient.buildImageCmd()
+                    .withBaseDirectory(buildDirectory.toFile())
+                    .withDockerfile(buildDirectory.resolve("Dockerfile").toFile())
+                    .withPull(false)
+                    .withTags(Set.of(image))
+                    .withBuildArg("executor", "executor.jar")
+                    .withBuildArg("agent", "agent.jar")
+                    .exec(new BuildImageResultCallback())
+                    .awaitImageId();
+            } finally {
+                // Clean up the build directory
+                try (Stream<Path> walk = Files.walk(buildDirectory)) {
+                    walk.sorted(Comparator.reverseOrder())
+                        .map(Path::toFile)
+                        .forEach(File::delete);
+                }
             }
+        }
+
+        return image;
+    }
+
+    /**
+     * Creates the tar archive that is copied into every container, so that the student code does not have to be
+     * part of the image.
+     *
+     * @param jar the jar with the student code
+     * @return the archive
+     * @throws IOException if the jar could not be read
+     */
+    private static byte[] createStudentCodeArchive(Path jar) throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tarStream = new TarArchiveOutputStream(archive)) {
+            byte[] content = Files.readAllBytes(jar);
+            TarArchiveEntry entry = new TarArchiveEntry(STUDENT_CODE_JAR);
+            entry.setSize(content.length);
+            entry.setMode(0644);
+            tarStream.putArchiveEntry(entry);
+            tarStream.write(content);
+            tarStream.closeArchiveEntry();
+        }
+        return archive.toByteArray();
+    }
+
+    private List<TestRunResult> executeTestSuite(
+        DockerClient dockerClient,
+        ContainerPool pool,
+        TestSuite suite,
+        String mainClass
+    ) throws IOException, InterruptedException, DockerRunnerException, RunnerException {
+        // the container has been reset after the suites that it executed before
+        String suiteName = "suite-" + UUID.randomUUID();
+        String suiteDirectory = STUDENT_HOME + "/" + suiteName;
+
+        String containerId = pool.acquire();
+        boolean reusable = false;
+        try {
+            dockerClient.copyArchiveToContainerCmd(containerId)
+                .withTarInputStream(new ByteArrayInputStream(suite.toArchive(suiteName, STUDENT_UID)))
+                .withRemotePath(STUDENT_HOME)
+                .exec();
+
+            // every run executes at least one test, the remaining tests are executed by the next run
+            StringBuilder log = new StringBuilder();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos((long) TIMEOUT_SECONDS * suite.size());
+            String logs;
+            for (int run = 1; ; run++) {
+                String execId = dockerClient.execCreateCmd(containerId)
+                    .withAttachStdout(true)
+                    .withAttachStderr(true)
+                    // the files that the student code creates are removed with the folder of the suite
+                    .withWorkingDir(suiteDirectory)
+                    .withEnv(List.of("HOME=" + suiteDirectory))
+                    .withCmd(
+                        "java",
+                        this.containerSettings.heapOption(),
+                        "-javaagent:" + STUDENT_HOME + "/Agent.jar=" + suiteDirectory + "/remaining.events",
+                        "-jar",
+                        STUDENT_HOME + "/Executor.jar",
+                        mainClass,
+                        "--all",
+                        suiteDirectory + "/" + TestSuite.TESTS,
+                        suiteDirectory + "/" + TestSuite.RESULTS,
+                        String.valueOf(false)
+                    )
+                    .exec()
+                    .getId();
+
+                boolean completed = dockerClient.execStartCmd(execId)
+                    .exec(new ResultCallback.Adapter<Frame>() {
+                        @Override
+                        public void onNext(Frame frame) {
+                            synchronized (log) {
+                                log.append(frame);
+                                log.append(System.lineSeparator());
+                            }
+                        }
+                    })
+                    .awaitCompletion(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+
+                synchronized (log) {
+                    logs = log.toString();
+                }
 
-            String logs = readLogs(dockerClient, containerId);
+                if (!completed) {
+                    throw new DockerRunnerException("The test container timed out", logs);
+                }
+
+                Long exitCode = dockerClient.inspectExecCmd(execId).exec().getExitCodeLong();
+                if (exitCode != null && exitCode == SuiteExecutor.EXIT_CODE_INCOMPLETE && run < suite.size()) {
+                    continue;
+                }
+                if (exitCode == null || exitCode != 0) {
+                    throw new DockerRunnerException("The executor failed with exit code " + exitCode, logs);
+                }
+                break;
+            }
 
-            List<Event> events;
+            List<TestRunResult> results;
+            Path resultsDirectory = Files.createTempDirectory(this.tmpPath, "docker_results");
             try {
-                InputStream tar = dockerClient
-                    .copyArchiveFromContainerCmd(containerId, "/home/student/codelinter_events.txt")
-                    .exec();
-                events = Event.read(extractSingleFileFromTar(tar));
-            } catch (NotFoundException ex) {
-                events = List.of();
+                TestSuite.extractResults(
+                    dockerClient.copyArchiveFromContainerCmd(containerId, suiteDirectory + "/" + TestSuite.RESULTS).exec(),
+                    resultsDirectory
+                );
+                results = suite.readResults(resultsDirectory, logs);
+            } finally {
+                try (Stream<Path> walk = Files.walk(resultsDirectory)) {
+                    walk.sorted(Comparator.reverseOrder())
+                        .map(Path::toFile)
+                        .forEach(File::delete);
+                }
             }
 
             synchronized (this) {
-                System.out.println(System.lineSeparator());
-                System.out.println(logs);
-                if (events.isEmpty()) {
-                    System.err.println("No events found. Maybe the student's code timed out.");
-                    System.err.flush();
+                for (TestRunResult result : results) {
+                    System.out.println(System.lineSeparator());
+                    System.out.println(result.executorOutput());
+                    if (result.events().isEmpty()) {
+                        System.err.println("No events found. Maybe the student's code timed out.");
+                        System.err.flush();
+                    }
                 }
             }
 
-            return new TestRunResult(events, status, logs);
+            reusable = true;
+            return results;
         } finally {
-            dockerClient.removeContainerCmd(containerId)
-                .withForce(true)
-                .exec();
-        }
-    }
-
-    private InputStream extractSingleFileFromTar(InputStream tar) throws IOException {
-        TarArchiveInputStream tarStream = new TarArchiveInputStream(tar);
-        if (tarStream.getNextEntry() == null) {
-            throw new IllegalArgumentException("No file found inside the tar file");
+            if (reusable) {
+                pool.release(containerId);
+            } else {
+                pool.discard(containerId);
+            }
         }
-        return tarStream;
-    }
-
-    private String readLogs(DockerClient client, String containerId) throws InterruptedException {
-        StringBuilder log = new StringBuilder();
-        client.logContainerCmd(containerId)
-            .withStdOut(true)
-            .withStdErr(true)
-            .exec(new ResultCallback.Adapter<>() {
-                @Override
-                public void onNext(Frame frame) {
-                    log.append(frame);
-                    log.append(System.lineSeparator());
-                }
-            }).awaitCompletion();
-        return log.toString();
     }
 }
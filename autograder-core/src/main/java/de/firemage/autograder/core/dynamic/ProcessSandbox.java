@@ -0,0 +1,185 @@
+package de.firemage.autograder.core.dynamic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confines processes on the host with the tools that are available there. Every tool is optional,
+ * a restriction that the host does not support is skipped.
+ * <p>
+ * These restrictions are applied on Linux:
+ * <ul>
+ *     <li>memory and pids limits in a cgroup with {@code systemd-run --scope}</li>
+ *     <li>limits of the cpu time, the file sizes and the open files with {@code prlimit}</li>
+ *     <li>no network access in a new network namespace with {@code unshare}</li>
+ *     <li>a separate uid with {@code setpriv}, if the grader runs as root</li>
+ * </ul>
+ */
+final class ProcessSandbox {
+    private static final Logger LOG = LoggerFactory.getLogger(ProcessSandbox.class);
+    // the uid of the student in the image of the DockerConsoleRunner
+    private static final int SANDBOX_UID = 10000;
+    private static final long CPU_SECONDS_PER_TEST = 60;
+    private static final long MAX_FILE_BYTES = 64 * (1L << 20);
+    private static final int MAX_OPEN_FILES = 1024;
+
+    private static Capabilities capabilities;
+
+    private record Capabilities(
+        boolean isLinux,
+        boolean isRoot,
+        boolean hasCgroups,
+        boolean hasPrlimit,
+        boolean hasNetworkNamespace,
+        boolean hasSetpriv
+    ) {}
+
+    private ProcessSandbox() {
+    }
+
+    /**
+     * Returns whether the confined process runs with another uid, so that its files must be accessible for others.
+     *
+     * @return true if the uid is changed
+     */
+    static boolean changesUser() {
+        Capabilities capabilities = capabilities();
+        return capabilities.isRoot() && capabilities.hasSetpriv();
+    }
+
+    /**
+     * Creates the command that the command of the confined process is appended to.
+     *
+     * @param settings the limits of the process
+     * @param testCount the number of tests that the process executes, each of them gets the same cpu time
+     * @return the prefix of the command, empty if the host does not support any restriction
+     */
+    static List<String> commandPrefix(TestContainerSettings settings, int testCount) {
+        Capabilities capabilities = capabilities();
+        List<String> command = new ArrayList<>();
+
+        if (capabilities.hasCgroups()) {
+            command.addAll(List.of("systemd-run", "--scope", "--quiet", "--collect"));
+            if (!capabilities.isRoot()) {
+                command.add("--user");
+            }
+            command.addAll(List.of(
+                "-p", "MemoryMax=" + settings.memoryBytes(),
+                "-p", "MemorySwapMax=0",
+                "-p", "TasksMax=" + settings.pidsLimit()
+            ));
+        }
+
+        if (capabilities.hasPrlimit()) {
+            command.addAll(List.of(
+                "prlimit",
+                "--cpu=" + CPU_SECONDS_PER_TEST * Math.max(testCount, 1),
+                "--fsize=" + MAX_FILE_BYTES,
+                "--nofile=" + MAX_OPEN_FILES
+            ));
+        }
+
+        if (capabilities.hasNetworkNamespace()) {
+            command.addAll(networkNamespaceCommand(capabilities.isRoot()));
+        }
+
+        if (changesUser()) {
+            command.addAll(List.of(
+                "setpriv",
+                "--reuid=" + SANDBOX_UID,
+                "--regid=" + SANDBOX_UID,
+                "--clear-groups"
+            ));
+        }
+
+        return command;
+    }
+
+    /**
+     * Returns the java executable of the JVM of the linter, which is used for the confined processes.
+     *
+     * @return the path of the executable
+     */
+    static String javaExecutable() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static List<String> networkNamespaceCommand(boolean isRoot) {
+        // without root, the network namespace needs a user namespace
+        return isRoot ? List.of("unshare", "--net") : List.of("unshare", "--map-root-user", "--net");
+    }
+
+    private static synchronized Capabilities capabilities() {
+        if (capabilities == null) {
+            capabilities = detectCapabilities();
+        }
+        return capabilities;
+    }
+
+    private static Capabilities detectCapabilities() {
+        if (!System.getProperty("os.name", "").startsWith("Linux")) {
+            LOG.warn("The tests are executed without a sandbox, because it is only supported on Linux");
+            return new Capabilities(false, false, false, false, false, false);
+        }
+
+        boolean isRoot;
+        try {
+            isRoot = ((Integer) Files.getAttribute(Path.of("/proc/self"), "unix:uid")).intValue() == 0;
+        } catch (IOException | UnsupportedOperationException e) {
+            isRoot = false;
+        }
+
+        List<String> cgroupCommand = new ArrayList<>(List.of("systemd-run", "--scope", "--quiet", "--collect"));
+        if (!isRoot) {
+            cgroupCommand.add("--user");
+        }
+        cgroupCommand.add("true");
+
+        List<String> networkCommand = new ArrayList<>(networkNamespaceCommand(isRoot));
+        networkCommand.add("true");
+
+        Capabilities result = new Capabilities(
+            true,
+            isRoot,
+            succeeds(cgroupCommand),
+            succeeds(List.of("prlimit", "--cpu=1", "true")),
+            succeeds(networkCommand),
+            // the JDK might be installed in a folder that the other uid cannot access
+            isRoot && succeeds(List.of(
+                "setpriv", "--reuid=" + SANDBOX_UID, "--regid=" + SANDBOX_UID, "--clear-groups", javaExecutable(), "-version"
+            ))
+        );
+
+        if (!result.hasCgroups() || !result.hasNetworkNamespace() || (isRoot && !result.hasSetpriv())) {
+            LOG.warn("The sandbox of the tests is incomplete on this host: " + result);
+        }
+
+        return result;
+    }
+
+    private static boolean succeeds(List<String> command) {
+        try {
+            Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return false;
+            }
+            return process.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package de.firemage.autograder.core.dynamic;
+
+/**
+ * The resources of the containers in which the tests of a submission are executed.
+ *
+ * @param poolSize the number of containers per submission, which is also the number of tests that run at the same time
+ * @param memoryBytes the memory limit of each container
+ * @param pidsLimit the maximum number of processes and threads in each container
+ */
+public record TestContainerSettings(int poolSize, long memoryBytes, long pidsLimit) {
+    /**
+     * The memory limit of each container in MiB, if none is configured.
+     */
+    public static final long DEFAULT_MEMORY_MIB = 200;
+    /**
+     * The maximum number of processes and threads in each container, if none is configured.
+     */
+    public static final long DEFAULT_PIDS_LIMIT = 2000;
+
+    public TestContainerSettings {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("The pool must have at least one container");
+        }
+    }
+
+    /**
+     * Returns the option for the maximum heap of the executor JVM. A quarter of the memory limit is left for the
+     * metaspace, the thread stacks and the agent, so that a student who fills the heap gets an
+     * {@link OutOfMemoryError} instead of being killed by the memory limit.
+     *
+     * @return the {@code -Xmx} option
+     */
+    public String heapOption() {
+        long heapMegabytes = Math.max(this.memoryBytes / 4 * 3 >> 20, 16);
+        return "-Xmx" + heapMegabytes + "m";
+    }
+
+    public static TestContainerSettings defaults() {
+        return new TestContainerSettings(
+            Runtime.getRuntime().availableProcessors(),
+            DEFAULT_MEMORY_MIB * (1L << 20),
+            DEFAULT_PIDS_LIMIT
+        );
+    }
+}
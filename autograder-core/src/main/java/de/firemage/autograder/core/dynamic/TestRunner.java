@@ -1,4 +1,44 @@
 package de.firemage.autograder.core.dynamic;
 
+import de.firemage.autograder.core.LinterStatus;
+import de.firemage.autograder.core.integrated.StaticAnalysis;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Executes the protocol tests of a submission with the executor and records the events of the agent.
+ */
 public interface TestRunner {
+    /**
+     * Runs every test case in the folder of the tests.
+     *
+     * @param analysis the analysis of the submission, in which the main method is searched
+     * @param jar the compiled submission
+     * @param statusConsumer receives the progress of the tests
+     * @return the results of the test cases
+     * @throws RunnerException if the tests could not be executed
+     * @throws InterruptedException if the thread was interrupted while waiting for the tests
+     */
+    List<TestRunResult> runTests(StaticAnalysis analysis, Path jar, Consumer<LinterStatus> statusConsumer)
+        throws RunnerException, InterruptedException;
+
+    /**
+     * Creates the runner for the tests of a single submission.
+     */
+    @FunctionalInterface
+    interface Factory {
+        /**
+         * Creates a runner.
+         *
+         * @param executor the jar of the executor
+         * @param agent the jar of the agent
+         * @param tests the folder with the test cases
+         * @param tmpPath a folder for temporary files
+         * @param settings the resources of the test executions
+         * @return the runner
+         */
+        TestRunner create(Path executor, Path agent, Path tests, Path tmpPath, TestContainerSettings settings);
+    }
 }
@@ -0,0 +1,176 @@
+package de.firemage.autograder.core.dynamic;
+
+import de.firemage.autograder.event.Event;
+import de.firemage.autograder.executor.SuiteExecutor;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The test cases that are executed one after another in a single JVM by the suite mode of the executor.
+ * <p>
+ * The compiled protocols are numbered in the folder {@value #TESTS}, so that the results in the folder {@value #RESULTS}
+ * can be matched to the test cases.
+ */
+final class TestSuite {
+    static final String TESTS = "tests";
+    static final String RESULTS = "results";
+
+    private final List<Path> testCases;
+    private final List<byte[]> compiledProtocols;
+
+    private TestSuite(List<Path> testCases, List<byte[]> compiledProtocols) {
+        this.testCases = testCases;
+        this.compiledProtocols = compiledProtocols;
+    }
+
+    /**
+     * Splits the test cases into at most the given number of suites of about the same size.
+     * The protocols are compiled, so that the executor does not have to parse them.
+     *
+     * @param testCases the protocol files
+     * @param count the maximum number of suites
+     * @return the suites, none of them is empty
+     * @throws RunnerException if a protocol could not be read or is invalid
+     */
+    static List<TestSuite> split(List<Path> testCases, int count) throws RunnerException {
+        List<byte[]> compiledProtocols = new ArrayList<>();
+        try {
+            for (Path testCase : testCases) {
+                compiledProtocols.add(CompiledProtocols.get(testCase));
+            }
+        } catch (IOException e) {
+            throw new RunnerException(e);
+        }
+
+        int suiteCount = Math.min(count, testCases.size());
+        List<TestSuite> suites = new ArrayList<>();
+        for (int i = 0; i < suiteCount; i++) {
+            int from = testCases.size() * i / suiteCount;
+            int to = testCases.size() * (i + 1) / suiteCount;
+            suites.add(new TestSuite(testCases.subList(from, to), compiledProtocols.subList(from, to)));
+        }
+        return suites;
+    }
+
+    int size() {
+        return this.testCases.size();
+    }
+
+    private static String name(int index) {
+        return "%04d".formatted(index);
+    }
+
+    private static String protocolName(int index) {
+        return name(index) + SuiteExecutor.COMPILED_PROTOCOL;
+    }
+
+    /**
+     * Writes the compiled protocols into the folder {@value #TESTS} in the given folder and creates the folder
+     * {@value #RESULTS} next to it.
+     *
+     * @param directory the folder of the suite
+     * @throws IOException if the files could not be written
+     */
+    void writeTo(Path directory) throws IOException {
+        Path tests = Files.createDirectories(directory.resolve(TESTS));
+        Files.createDirectories(directory.resolve(RESULTS));
+        for (int i = 0; i < this.compiledProtocols.size(); i++) {
+            Files.write(tests.resolve(protocolName(i)), this.compiledProtocols.get(i));
+        }
+    }
+
+    /**
+     * Creates a tar archive with the folder of the suite like {@link #writeTo(Path)}, whose files belong to the given
+     * user.
+     *
+     * @param root the name of the folder of the suite
+     * @param uid the owner of the files
+     * @return the archive
+     * @throws IOException if the archive could not be written
+     */
+    byte[] toArchive(String root, int uid) throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tarStream = new TarArchiveOutputStream(archive)) {
+            for (String directory : List.of(root + "/", root + "/" + TESTS + "/", root + "/" + RESULTS + "/")) {
+                TarArchiveEntry entry = new TarArchiveEntry(directory);
+                entry.setIds(uid, uid);
+                entry.setMode(TarArchiveEntry.DEFAULT_DIR_MODE);
+                tarStream.putArchiveEntry(entry);
+                tarStream.closeArchiveEntry();
+            }
+
+            for (int i = 0; i < this.compiledProtocols.size(); i++) {
+                byte[] content = this.compiledProtocols.get(i);
+                TarArchiveEntry entry = new TarArchiveEntry(root + "/" + TESTS + "/" + protocolName(i));
+                entry.setIds(uid, uid);
+                entry.setSize(content.length);
+                tarStream.putArchiveEntry(entry);
+                tarStream.write(content);
+                tarStream.closeArchiveEntry();
+            }
+        }
+        return archive.toByteArray();
+    }
+
+    /**
+     * Extracts the files of a tar archive of the folder {@value #RESULTS} into the given folder.
+     *
+     * @param tar the archive
+     * @param results the folder into which the files are extracted
+     * @throws IOException if the archive could not be read
+     */
+    static void extractResults(InputStream tar, Path results) throws IOException {
+        Files.createDirectories(results);
+        try (TarArchiveInputStream tarStream = new TarArchiveInputStream(tar)) {
+            TarArchiveEntry entry;
+            while ((entry = tarStream.getNextTarEntry()) != null) {
+                if (entry.isFile()) {
+                    Files.copy(tarStream, results.resolve(Path.of(entry.getName()).getFileName().toString()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the results of all test cases of this suite.
+     *
+     * @param results the folder {@value #RESULTS} of the suite
+     * @param executorLog the output of the executor, which is part of the exception if a result is missing
+     * @return the results in the order of the test cases
+     * @throws IOException if the results could not be read
+     * @throws RunnerException if the executor did not finish all test cases
+     */
+    List<TestRunResult> readResults(Path results, String executorLog) throws IOException, RunnerException {
+        List<TestRunResult> testRunResults = new ArrayList<>();
+        for (int i = 0; i < this.testCases.size(); i++) {
+            Path status = results.resolve(name(i) + ".status");
+            if (!Files.exists(status)) {
+                throw failure("The executor did not finish the test " + this.testCases.get(i).getFileName(), executorLog);
+            }
+
+            String log = Files.readString(results.resolve(name(i) + ".log"), StandardCharsets.UTF_8);
+            Path eventsFile = results.resolve(name(i) + ".events");
+            List<Event> events = Files.exists(eventsFile) ? Event.read(eventsFile) : List.of();
+
+            TestRunResult.TestRunStatus testRunStatus = Files.readString(status).equals("OK")
+                ? TestRunResult.TestRunStatus.OK
+                : TestRunResult.TestRunStatus.ERROR_TEST_FAILURE;
+            testRunResults.add(new TestRunResult(events, testRunStatus, log));
+        }
+        return testRunResults;
+    }
+
+    static RunnerException failure(String message, String executorLog) {
+        return new RunnerException(message + System.lineSeparator() + "=============== Executor Log ===============" + System.lineSeparator() + executorLog);
+    }
+}
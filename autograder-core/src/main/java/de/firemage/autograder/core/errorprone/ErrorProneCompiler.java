@@ -5,18 +5,22 @@ import de.firemage.autograder.core.file.SourceInfo;
 import de.firemage.autograder.core.compiler.JavaVersion;
 
 import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
 import javax.tools.ToolProvider;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.io.StringWriter;
+import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Abstracts away the compiler and ensures that error-prone is executed correctly.
@@ -24,16 +28,16 @@ import java.util.stream.Stream;
  * @param javaVersion the java version with which to compile
  * @param lints       the lints that should be emitted
  */
-record ErrorProneCompiler(JavaVersion javaVersion, TempLocation tempLocation,
-                          List<ErrorProneLint> lints) implements Serializable {
+record ErrorProneCompiler(JavaVersion javaVersion, List<ErrorProneLint> lints) implements Serializable {
     /**
      * Compiles the given source files and returns the emitted lints.
      *
      * @param input the source code to compile
+     * @param workers the workers on which error-prone is executed
      * @return the emitted lints
      * @throws IOException if the compilation failed
      */
-    List<ErrorProneDiagnostic> compile(SourceInfo input) throws IOException {
+    List<ErrorProneDiagnostic> compile(SourceInfo input, VMWorkerPool workers) throws IOException {
         // error-prone is a java compiler plugin that emits lints while compiling code
         // It requires access to internal APIs that have to be exported through these
         // flags.
@@ -46,16 +50,21 @@ record ErrorProneCompiler(JavaVersion javaVersion, TempLocation tempLocation,
         // The problem is that the JavaCompiler does not support the -J flag and instead
         // inherits the exports from the JVM it is running in. Autograder will obviously
         // not have these flags set, so instead of requiring them (would be annoying for
-        // all contributors and IDE setup), a new JVM is launched with the flags set.
-        VMLauncher vmLauncher = VMLauncher.fromDefault(this.tempLocation);
+        // all contributors and IDE setup), the compiler runs in another JVM with the flags set.
+        //
+        // Starting that JVM and loading error-prone takes a few seconds, so the JVM is kept
+        // running and reused for the next submissions.
+        //
+        // If autograder has been started with the flags (or they are in the manifest of the jar),
+        // there is no need for another JVM.
+        if (ErrorPronePlugin.isAvailable()) {
+            return this.internalCompile(input);
+        }
 
         // use explicit type, so it is serializable
         ArrayList<ErrorProneDiagnostic> diagnostics;
         try {
-            diagnostics = vmLauncher
-                .runInNewJVM(() -> new ArrayList<>(this.internalCompile(input)))
-                // wait for the compiler to finish
-                .join();
+            diagnostics = workers.run(() -> new ArrayList<>(this.internalCompile(input)));
         } catch (InterruptedException exception) {
             // not sure how to handle InterruptedException, so just do something and hope it never happens
             Thread.currentThread().interrupt();
@@ -78,31 +87,14 @@ record ErrorProneCompiler(JavaVersion javaVersion, TempLocation tempLocation,
         DiagnosticCollector<JavaFileObject> diagnosticCollector = new DiagnosticCollector<>();
         StringWriter output = new StringWriter();
 
-        boolean isSuccessful;
-        try (TempLocation tempLocation = this.tempLocation.createTempDirectory("classes")) {
-            isSuccessful = compiler.getTask(
-                output,
-                compiler.getStandardFileManager(diagnosticCollector, Locale.US, charset),
-                diagnosticCollector,
-                List.of(
-                    "-processorpath",
-                    System.getProperty("java.class.path"),
-                    "-d", // write class files to a temporary directory
-                    tempLocation.toPath().toString(),
-                    "-XDcompilePolicy=simple",
-                    Stream.concat(
-                            Stream.of(
-                                "-Xplugin:ErrorProne",
-                                "-XepDisableAllChecks"
-                            ),
-                            this.lints.stream().map("-Xep:%s:WARN"::formatted)
-                        )
-                        .collect(Collectors.joining(" "))
-                ),
-                null,
-                compilationUnits.stream().map(CompilationUnit::toJavaFileObject).toList()
-            ).call();
-        }
+        boolean isSuccessful = compiler.getTask(
+            output,
+            new PluginFileManager(compiler.getStandardFileManager(diagnosticCollector, Locale.US, charset)),
+            diagnosticCollector,
+            ErrorPronePlugin.compilerOptions(this.lints),
+            null,
+            compilationUnits.stream().map(CompilationUnit::toJavaFileObject).toList()
+        ).call();
 
         output.flush();
         output.close();
@@ -114,8 +106,33 @@ record ErrorProneCompiler(JavaVersion javaVersion, TempLocation tempLocation,
         return diagnosticCollector.getDiagnostics()
             .stream()
             // only keep error-prone diagnostics
-            .filter(diagnostic -> diagnostic.getCode().equals("compiler.warn.error.prone"))
+            .filter(ErrorPronePlugin::isLint)
             .map(diagnostic -> ErrorProneDiagnostic.from(diagnostic, input))
             .toList();
     }
+
+    /**
+     * Loads error-prone with the class loader of autograder and discards the class files.
+     */
+    private static final class PluginFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private PluginFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public ClassLoader getClassLoader(Location location) {
+            return ErrorPronePlugin.classLoader();
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            // only the diagnostics are needed
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return OutputStream.nullOutputStream();
+                }
+            };
+        }
+    }
 }
@@ -12,7 +12,7 @@ import java.util.Locale;
 public record ErrorProneDiagnostic(SourceInfo sourceInfo, SourcePath path, int line, int column, String message,
                                    ErrorProneLint lint) implements Serializable {
     public static ErrorProneDiagnostic from(Diagnostic<? extends JavaFileObject> diagnostic, SourceInfo sourceInfo) {
-        if (!diagnostic.getCode().equals("compiler.warn.error.prone")) {
+        if (!ErrorPronePlugin.isLint(diagnostic)) {
             throw new IllegalArgumentException(
                 "diagnostic is not emitted by error-prone, code '%s'".formatted(diagnostic.getCode())
             );
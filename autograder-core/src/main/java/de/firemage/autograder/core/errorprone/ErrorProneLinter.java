@@ -3,17 +3,66 @@ package de.firemage.autograder.core.errorprone;
 import de.firemage.autograder.core.Problem;
 import de.firemage.autograder.core.file.SourceInfo;
 import de.firemage.autograder.core.check.Check;
+import de.firemage.autograder.core.compiler.CompilationResult;
 import de.firemage.autograder.core.file.UploadedFile;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
-public class ErrorProneLinter {
-    public List<Problem> lint(UploadedFile file, TempLocation tempLocation, Iterable<? extends ErrorProneCheck> checks) throws IOException {
+/**
+ * Runs error-prone for the {@link ErrorProneCheck}s.
+ * <p>
+ * If error-prone can not run in this JVM, it runs in worker JVMs, which are started when they are first needed
+ * and kept running until the linter is closed, because starting them takes a few seconds.
+ */
+public class ErrorProneLinter implements AutoCloseable {
+    private final TempLocation tempLocation;
+    private final int workers;
+    private VMWorkerPool workerPool;
+
+    /**
+     * Creates a new linter.
+     *
+     * @param tempLocation the location for the temporary files of the workers
+     * @param workers the number of JVMs in which error-prone may run at the same time
+     */
+    public ErrorProneLinter(TempLocation tempLocation, int workers) {
+        this.tempLocation = tempLocation;
+        this.workers = workers;
+    }
+
+    private synchronized VMWorkerPool workerPool() {
+        if (this.workerPool == null) {
+            this.workerPool = new VMWorkerPool(VMLauncher.fromDefault(this.tempLocation), this.workers);
+        }
+
+        return this.workerPool;
+    }
+
+    /**
+     * Returns the lints of error-prone that the given checks are subscribed to.
+     *
+     * @param checks the checks, those that are not an {@link ErrorProneCheck} are ignored
+     * @return the lints
+     */
+    public static Set<ErrorProneLint> lintsFor(Iterable<? extends Check> checks) {
+        Set<ErrorProneLint> lints = new HashSet<>();
+        for (Check check : checks) {
+            if (check instanceof ErrorProneCheck errorProneCheck) {
+                lints.addAll(errorProneCheck.subscribedLints().keySet());
+            }
+        }
+
+        return lints;
+    }
+
+    public List<Problem> lint(UploadedFile file, Iterable<? extends ErrorProneCheck> checks) throws IOException {
         Map<ErrorProneLint, Function<ErrorProneDiagnostic, Message>> lintsForChecks = new HashMap<>();
         Map<ErrorProneLint, Check> checksForLints = new HashMap<>();
 
@@ -32,15 +81,21 @@ public class ErrorProneLinter {
 
         List<ErrorProneLint> lints = new ArrayList<>(lintsForChecks.keySet());
 
-        SourceInfo code = file.getSource();
+        List<ErrorProneDiagnostic> diagnostics;
+        CompilationResult compilationResult = file.getCompilationResult();
+        if (compilationResult.errorProneLints().containsAll(lints)) {
+            // error-prone already ran while the code was compiled
+            diagnostics = compilationResult.errorProneDiagnostics();
+        } else {
+            SourceInfo code = file.getSource();
 
-        ErrorProneCompiler compiler = new ErrorProneCompiler(
-            code.getVersion(),
-            tempLocation,
-            lints
-        );
+            ErrorProneCompiler compiler = new ErrorProneCompiler(
+                code.getVersion(),
+                lints
+            );
 
-        List<ErrorProneDiagnostic> diagnostics = compiler.compile(code);
+            diagnostics = compiler.compile(code, this.workerPool());
+        }
 
         Map<ErrorProneLint, List<ErrorProneDiagnostic>> diagnosticMapping = new HashMap<>();
 
@@ -70,4 +125,12 @@ public class ErrorProneLinter {
 
         return result;
     }
+
+    @Override
+    public synchronized void close() {
+        if (this.workerPool != null) {
+            this.workerPool.close();
+            this.workerPool = null;
+        }
+    }
 }
@@ -0,0 +1,76 @@
+package de.firemage.autograder.core.errorprone;
+
+import javax.tools.Diagnostic;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Everything that is needed to attach error-prone to a compilation in this JVM.
+ */
+public final class ErrorPronePlugin {
+    private static final String DIAGNOSTIC_CODE = "compiler.warn.error.prone";
+
+    // javac closes the class loader of the plugins after the compilation, so it must not be the class loader itself
+    private static final ClassLoader CLASS_LOADER = new ClassLoader(ErrorPronePlugin.class.getClassLoader()) {
+    };
+
+    private ErrorPronePlugin() {
+    }
+
+    /**
+     * Checks if the JVM that is currently running exports the internals of the compiler that error-prone needs.
+     *
+     * @return true if error-prone can run in this JVM
+     */
+    public static boolean isAvailable() {
+        Module module = ErrorPronePlugin.class.getModule();
+        return ModuleLayer.boot()
+            .findModule("jdk.compiler")
+            .map(compiler -> VMLauncher.JDK_COMPILER_EXPORTS.stream().allMatch(name -> compiler.isExported(name, module)))
+            .orElse(false);
+    }
+
+    /**
+     * Returns the compiler options that enable error-prone with only the given lints.
+     *
+     * @param lints the lints that should be emitted as warnings
+     * @return the options to pass to the compiler
+     */
+    public static List<String> compilerOptions(Collection<ErrorProneLint> lints) {
+        return List.of(
+            "-XDcompilePolicy=simple",
+            Stream.concat(
+                    Stream.of(
+                        "-Xplugin:ErrorProne",
+                        "-XepDisableAllChecks"
+                    ),
+                    lints.stream().map("-Xep:%s:WARN"::formatted)
+                )
+                .collect(Collectors.joining(" "))
+        );
+    }
+
+    /**
+     * Returns the class loader from which the compiler should load error-prone.
+     * <p>
+     * By default, javac would load the plugin with a new class loader for every compilation, so the classes of
+     * error-prone would have to be loaded (and optimized by the JIT) again each time.
+     *
+     * @return the class loader of autograder, which can be closed without affecting autograder
+     */
+    public static ClassLoader classLoader() {
+        return CLASS_LOADER;
+    }
+
+    /**
+     * Checks whether the given diagnostic has been emitted by error-prone.
+     *
+     * @param diagnostic the diagnostic of the compiler
+     * @return true if it is a lint of error-prone
+     */
+    public static boolean isLint(Diagnostic<?> diagnostic) {
+        return DIAGNOSTIC_CODE.equals(diagnostic.getCode());
+    }
+}
@@ -6,6 +6,7 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
@@ -86,13 +87,19 @@ public record TempLocation(File tempLocation) implements Serializable, Closeable
     }
 
     public Path createTempFile(String name) throws IOException {
-        // fix conflicts by adding a random number to the name (e.g. "file.txt" -> "123456789file.txt")
+        // the location itself might not have been created yet
+        Files.createDirectories(this.toPath());
+
+        // fix conflicts by adding a random number to the name (e.g. "file.txt" -> "123456789file.txt"),
+        // another thread might create the same file at the same time, so the check must be part of the creation
         Path path = this.toPath().resolve(name);
-        while (path.toFile().exists()) {
-            path = this.toPath().resolve(RANDOM.nextLong() + name);
+        while (true) {
+            try {
+                return Files.createFile(path);
+            } catch (FileAlreadyExistsException exception) {
+                path = this.toPath().resolve(RANDOM.nextLong() + name);
+            }
         }
-
-        return Files.createFile(path);
     }
 
     /**
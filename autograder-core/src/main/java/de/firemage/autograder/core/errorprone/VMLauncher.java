@@ -12,7 +12,6 @@ import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
@@ -24,7 +23,24 @@ import java.util.Optional;
  * @param tempLocation a location where the result of the code can be written to (used for inter-process communication)
  */
 public record VMLauncher(List<String> jvmArgs, TempLocation tempLocation, Optional<String> mainClassName) {
-    public static VMLauncher fromDefault(TempLocation tmpLocation) throws IOException {
+    /**
+     * The packages of the jdk.compiler module that error-prone needs access to.
+     */
+    static final List<String> JDK_COMPILER_EXPORTS = List.of(
+        "com.sun.tools.javac.api",
+        "com.sun.tools.javac.file",
+        "com.sun.tools.javac.code",
+        "com.sun.tools.javac.comp",
+        "com.sun.tools.javac.main",
+        "com.sun.tools.javac.model",
+        "com.sun.tools.javac.parser",
+        "com.sun.tools.javac.processing",
+        "com.sun.tools.javac.tree",
+        "com.sun.tools.javac.util",
+        "com.sun.source.tree"
+    );
+
+    public static VMLauncher fromDefault(TempLocation tmpLocation) {
         Optional<String> mainClassName = Optional.empty();
         {
             String potentialName = System.getProperty("sun.java.command");
@@ -38,20 +54,10 @@ public record VMLauncher(List<String> jvmArgs, TempLocation tempLocation, Option
         }
 
         return new VMLauncher(
-            Arrays.asList(
-                "--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
-                "--add-exports=jdk.compiler/com.sun.tools.javac.file=ALL-UNNAMED",
-                "--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
-                "--add-exports=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED",
-                "--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
-                "--add-exports=jdk.compiler/com.sun.tools.javac.model=ALL-UNNAMED",
-                "--add-exports=jdk.compiler/com.sun.tools.javac.parser=ALL-UNNAMED",
-                "--add-exports=jdk.compiler/com.sun.tools.javac.processing=ALL-UNNAMED",
-                "--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
-                "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED",
-                "--add-exports=jdk.compiler/com.sun.source.tree=ALL-UNNAMED"
-            ),
-            tmpLocation.createTempDirectory("vm"),
+            JDK_COMPILER_EXPORTS.stream()
+                .map("--add-exports=jdk.compiler/%s=ALL-UNNAMED"::formatted)
+                .toList(),
+            tmpLocation,
             mainClassName
         );
     }
@@ -91,22 +97,12 @@ public record VMLauncher(List<String> jvmArgs, TempLocation tempLocation, Option
     // https://stackoverflow.com/a/65129876/7766117
     // NOTE: do not weaken the type to Serializable, it will not work!
     public <T extends Serializable> VMHandle<T> runInNewJVM(SerializableSupplier<T> supplier) throws IOException {
-        ProcessHandle.Info currentProcessInfo = ProcessHandle.current().info();
-        List<String> newProcessCommandLine = new ArrayList<>();
-        newProcessCommandLine.add(currentProcessInfo.command().orElseThrow());
-
-        newProcessCommandLine.add("-classpath");
-        newProcessCommandLine.add(ManagementFactory.getRuntimeMXBean().getClassPath());
-
-
         // the result is written to a temporary file, because I could not find a way to do
         // inter-process communication (e.g. a channel to send back the result before exiting)
         Path resultFileLocation = this.tempLocation.createTempFile("result.txt");
 
-        // inject custom jvm arguments:
-        newProcessCommandLine.addAll(this.jvmArgs);
         // signal that it should launch our target class:
-        newProcessCommandLine.add(TargetMain.class.getName());
+        List<String> newProcessCommandLine = this.commandLine(TargetMain.class);
         // provide the code that it should execute:
         newProcessCommandLine.add(serialize(supplier));
         // the result will be written to the file:
@@ -115,6 +111,30 @@ public record VMLauncher(List<String> jvmArgs, TempLocation tempLocation, Option
         return new VMHandle<>(new ProcessBuilder(newProcessCommandLine), resultFileLocation);
     }
 
+    /**
+     * Starts a new JVM that runs lambdas until it is closed, see {@link VMWorker}.
+     *
+     * @return the started worker
+     * @throws IOException if the JVM could not be started
+     */
+    public VMWorker startWorker() throws IOException {
+        return new VMWorker(new ProcessBuilder(this.commandLine(VMWorker.WorkerMain.class)));
+    }
+
+    private List<String> commandLine(Class<?> mainClass) {
+        ProcessHandle.Info currentProcessInfo = ProcessHandle.current().info();
+        List<String> commandLine = new ArrayList<>();
+        commandLine.add(currentProcessInfo.command().orElseThrow());
+
+        commandLine.add("-classpath");
+        commandLine.add(ManagementFactory.getRuntimeMXBean().getClassPath());
+
+        // inject custom jvm arguments:
+        commandLine.addAll(this.jvmArgs);
+        commandLine.add(mainClass.getName());
+        return commandLine;
+    }
+
     /**
      * Represents a reference to the launched VM.
      *
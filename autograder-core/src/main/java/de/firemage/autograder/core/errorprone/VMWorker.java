@@ -0,0 +1,163 @@
+package de.firemage.autograder.core.errorprone;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A JVM that has been launched by {@link VMLauncher#startWorker()} and runs one lambda after another.
+ * <p>
+ * Unlike {@link VMLauncher#runInNewJVM(SerializableSupplier)}, the JVM is only started once, so the classes it loads
+ * and the code it compiles are reused for all lambdas. The lambdas and their results are sent through the standard
+ * input and output of the process.
+ * <p>
+ * The worker exits when its standard input is closed, which happens at the latest when this JVM exits.
+ */
+public final class VMWorker implements AutoCloseable {
+    private final Process process;
+    private final ObjectOutputStream requests;
+    private ObjectInputStream responses;
+
+    VMWorker(ProcessBuilder processBuilder) throws IOException {
+        this.process = processBuilder
+            .redirectOutput(ProcessBuilder.Redirect.PIPE)
+            .redirectInput(ProcessBuilder.Redirect.PIPE)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+
+        this.requests = new ObjectOutputStream(new BufferedOutputStream(this.process.getOutputStream()));
+        this.requests.flush();
+        // the input stream is created on the first request, because its constructor blocks until the worker
+        // has written its stream header
+        this.responses = null;
+    }
+
+    /**
+     * Runs the given lambda in the worker and waits for its result.
+     * <p>
+     * If the lambda does not finish within the timeout, the worker is killed, so it must not be used afterward.
+     *
+     * @param supplier the code to run in the worker
+     * @param timeout  how long to wait for the result
+     * @param <T>      the type of the result returned by the lambda
+     * @return the result of the lambda
+     * @throws InterruptedIOException if the lambda did not finish within the timeout
+     * @throws IOException if the communication with the worker failed, for example because it crashed
+     */
+    // NOTE: do not weaken the type to Serializable, it will not work!
+    public synchronized <T extends Serializable> T run(SerializableSupplier<T> supplier, Duration timeout) throws IOException {
+        this.requests.writeObject(supplier);
+        this.requests.flush();
+        // the same lambda might be sent again, do not let the stream replace it with a back-reference
+        this.requests.reset();
+
+        // the read below can not be interrupted, so the worker is killed instead, which ends the read
+        CompletableFuture<Boolean> finished = new CompletableFuture<>();
+        finished.completeOnTimeout(false, timeout.toMillis(), TimeUnit.MILLISECONDS)
+            .thenAccept(inTime -> {
+                if (!inTime) {
+                    this.process.destroyForcibly();
+                }
+            });
+
+        Response response;
+        try {
+            if (this.responses == null) {
+                this.responses = new ObjectInputStream(new BufferedInputStream(this.process.getInputStream()));
+            }
+
+            response = (Response) this.responses.readObject();
+        } catch (IOException exception) {
+            if (!finished.complete(true)) {
+                throw new InterruptedIOException("The worker did not finish within " + timeout);
+            }
+            if (exception instanceof EOFException) {
+                throw new IOException("The worker exited unexpectedly", exception);
+            }
+            throw exception;
+        } catch (ClassNotFoundException exception) {
+            finished.complete(true);
+            throw new IllegalStateException("Failed to deserialize the result of the worker", exception);
+        }
+
+        // if the timeout elapsed just after the result arrived, the result is still valid, only the worker is gone
+        finished.complete(true);
+
+        if (response.error() != null) {
+            throw new IllegalStateException("The worker failed: " + response.error());
+        }
+
+        @SuppressWarnings("unchecked")
+        T value = (T) response.value();
+        return value;
+    }
+
+    public boolean isAlive() {
+        return this.process.isAlive();
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.requests.close();
+        } catch (IOException ignored) {
+            // the worker is destroyed anyway
+        }
+
+        this.process.destroy();
+    }
+
+    private record Response(Serializable value, String error) implements Serializable {
+    }
+
+    static final class WorkerMain {
+        private WorkerMain() {
+        }
+
+        public static void main(String[] args) throws IOException {
+            // the standard output is used to send the results, so nothing else must be written to it
+            PrintStream output = System.out;
+            System.setOut(System.err);
+
+            ObjectOutputStream responses = new ObjectOutputStream(new BufferedOutputStream(output));
+            responses.flush();
+            ObjectInputStream requests = new ObjectInputStream(new BufferedInputStream(System.in));
+
+            while (true) {
+                SerializableSupplier<? extends Serializable> supplier;
+                try {
+                    supplier = (SerializableSupplier<? extends Serializable>) requests.readObject();
+                } catch (EOFException exception) {
+                    // the parent closed the connection
+                    return;
+                } catch (ClassNotFoundException exception) {
+                    throw new IllegalStateException("Failed to deserialize supplier", exception);
+                }
+
+                Response response;
+                try {
+                    response = new Response(supplier.get(), null);
+                } catch (Exception exception) {
+                    StringWriter stackTrace = new StringWriter();
+                    exception.printStackTrace(new PrintWriter(stackTrace));
+                    response = new Response(null, stackTrace.toString());
+                }
+
+                responses.writeObject(response);
+                responses.flush();
+                responses.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package de.firemage.autograder.core.errorprone;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A pool of {@link VMWorker}s, which are started when they are needed and reused afterward.
+ * <p>
+ * At most {@link #getSize()} lambdas run at the same time. A worker that crashed or did not finish a lambda within
+ * the timeout is replaced by a new one.
+ */
+public final class VMWorkerPool implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(VMWorkerPool.class);
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(2);
+
+    private final VMLauncher launcher;
+    private final Duration timeout;
+    private final Queue<VMWorker> idleWorkers;
+    private final Semaphore availableWorkers;
+    private final int size;
+    private volatile boolean isClosed;
+
+    public VMWorkerPool(VMLauncher launcher, int size) {
+        this(launcher, size, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Creates a new pool.
+     *
+     * @param launcher the launcher that starts the workers
+     * @param size     the maximum number of workers
+     * @param timeout  how long a lambda may run before its worker is killed
+     */
+    public VMWorkerPool(VMLauncher launcher, int size, Duration timeout) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The pool must have at least one worker");
+        }
+
+        this.launcher = launcher;
+        this.timeout = timeout;
+        this.idleWorkers = new ConcurrentLinkedQueue<>();
+        this.availableWorkers = new Semaphore(size);
+        this.size = size;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Runs the given lambda on one of the workers, waiting for a worker if all of them are busy.
+     * <p>
+     * If the worker crashes while running the lambda, it is restarted and the lambda is run once more.
+     * A lambda that exceeds the timeout is not run again, because it would most likely time out again.
+     *
+     * @param supplier the code to run
+     * @param <T>      the type of the result returned by the lambda
+     * @return the result of the lambda
+     * @throws InterruptedIOException if the lambda did not finish within the timeout
+     * @throws IOException if no worker could be started or the lambda crashed the worker twice
+     * @throws InterruptedException if the thread was interrupted while waiting for a worker
+     */
+    public <T extends Serializable> T run(SerializableSupplier<T> supplier) throws IOException, InterruptedException {
+        this.availableWorkers.acquire();
+        try {
+            try {
+                return this.runOnIdleWorker(supplier);
+            } catch (InterruptedIOException exception) {
+                throw exception;
+            } catch (IOException exception) {
+                LOG.warn("Worker crashed, restarting it", exception);
+                return this.runOnIdleWorker(supplier);
+            }
+        } finally {
+            this.availableWorkers.release();
+        }
+    }
+
+    private <T extends Serializable> T runOnIdleWorker(SerializableSupplier<T> supplier) throws IOException {
+        VMWorker worker = this.idleWorkers.poll();
+        while (worker != null && !worker.isAlive()) {
+            worker.close();
+            worker = this.idleWorkers.poll();
+        }
+
+        if (worker == null) {
+            worker = this.launcher.startWorker();
+        }
+
+        try {
+            T result = worker.run(supplier, this.timeout);
+            this.release(worker);
+            return result;
+        } catch (IOException exception) {
+            worker.close();
+            throw exception;
+        } catch (RuntimeException exception) {
+            // the lambda failed, but the worker is still fine
+            this.release(worker);
+            throw exception;
+        }
+    }
+
+    private void release(VMWorker worker) {
+        this.idleWorkers.add(worker);
+        // the pool might have been closed while the worker was busy
+        if (this.isClosed) {
+            this.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        this.isClosed = true;
+
+        VMWorker worker;
+        while ((worker = this.idleWorkers.poll()) != null) {
+            worker.close();
+        }
+    }
+}
@@ -31,7 +31,7 @@ public class FileSourceInfo implements SourceInfo, Serializable {
     private final JavaVersion version;
     private final List<CompilationUnit> compilationUnits;
 
-    FileSourceInfo(Path path, JavaVersion version) throws IOException {
+    public FileSourceInfo(Path path, JavaVersion version) throws IOException {
         if (!path.toFile().isDirectory()) {
             throw new IllegalArgumentException("The file must be a directory");
         }
@@ -2,10 +2,13 @@ package de.firemage.autograder.core.file;
 
 import de.firemage.autograder.core.CodeModel;
 import de.firemage.autograder.core.LinterStatus;
+import de.firemage.autograder.core.ModelCache;
 import de.firemage.autograder.core.compiler.CompilationFailureException;
 import de.firemage.autograder.core.compiler.CompilationResult;
 import de.firemage.autograder.core.compiler.Compiler;
 import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.errorprone.ErrorProneLint;
+import de.firemage.autograder.core.errorprone.ErrorProneLinter;
 import de.firemage.autograder.core.errorprone.TempLocation;
 import de.firemage.autograder.core.integrated.ModelBuildException;
 import org.slf4j.Logger;
@@ -13,6 +16,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -36,7 +41,24 @@ public class UploadedFile implements AutoCloseable {
         Consumer<? super LinterStatus> statusConsumer,
         ClassLoader classLoader
     ) throws IOException, ModelBuildException, CompilationFailureException {
-        return UploadedFile.build(new FileSourceInfo(file, version), tmpLocation, statusConsumer, classLoader);
+        return UploadedFile.build(file, version, tmpLocation, statusConsumer, classLoader, List.of());
+    }
+
+    /**
+     * Compiles the given file and builds the code model for it.
+     * <p>
+     * The given error-prone lints are emitted during the compilation if possible, so that the {@link ErrorProneLinter}
+     * does not have to compile the code again. They can be obtained through {@link ErrorProneLinter#lintsFor(Iterable)}.
+     */
+    public static UploadedFile build(
+        Path file,
+        JavaVersion version,
+        TempLocation tmpLocation,
+        Consumer<? super LinterStatus> statusConsumer,
+        ClassLoader classLoader,
+        Collection<ErrorProneLint> errorProneLints
+    ) throws IOException, ModelBuildException, CompilationFailureException {
+        return UploadedFile.build(new FileSourceInfo(file, version), tmpLocation, statusConsumer, classLoader, errorProneLints);
     }
 
     public static UploadedFile build(
@@ -44,15 +66,42 @@ public class UploadedFile implements AutoCloseable {
         TempLocation tmpLocation,
         Consumer<? super LinterStatus> statusConsumer,
         ClassLoader classLoader
+    ) throws IOException, CompilationFailureException {
+        return UploadedFile.build(source, tmpLocation, statusConsumer, classLoader, List.of());
+    }
+
+    public static UploadedFile build(
+        SourceInfo source,
+        TempLocation tmpLocation,
+        Consumer<? super LinterStatus> statusConsumer,
+        ClassLoader classLoader,
+        Collection<ErrorProneLint> errorProneLints
+    ) throws IOException, CompilationFailureException {
+        return UploadedFile.build(source, tmpLocation, statusConsumer, classLoader, errorProneLints, null, 1);
+    }
+
+    /**
+     * Compiles the given source like {@link #build(SourceInfo, TempLocation, Consumer, ClassLoader, Collection)}.
+     * The code model is loaded from the given cache if it has already been built for the same source, otherwise it
+     * is built with up to {@code modelBuildThreads} threads.
+     */
+    public static UploadedFile build(
+        SourceInfo source,
+        TempLocation tmpLocation,
+        Consumer<? super LinterStatus> statusConsumer,
+        ClassLoader classLoader,
+        Collection<ErrorProneLint> errorProneLints,
+        ModelCache modelCache,
+        int modelBuildThreads
     ) throws IOException, CompilationFailureException {
         Compiler compiler = new Compiler(tmpLocation, source.getVersion());
         statusConsumer.accept(LinterStatus.COMPILING);
-        Optional<CompilationResult> compilationResult = compiler.compileToJar(source);
+        Optional<CompilationResult> compilationResult = compiler.compileToJar(source, errorProneLints);
         if (compilationResult.isEmpty()) {
             return null;
         }
 
-        var model = CodeModel.buildFor(source, compilationResult.get().jar(), classLoader);
+        var model = CodeModel.buildFor(source, compilationResult.get().jar(), classLoader, modelCache, modelBuildThreads);
 
         return new UploadedFile(model, source, compilationResult.get());
     }
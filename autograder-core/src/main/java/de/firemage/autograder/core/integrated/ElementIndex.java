@@ -0,0 +1,212 @@
+package de.firemage.autograder.core.integrated;
+
+import spoon.processing.ProcessInterruption;
+import spoon.processing.Processor;
+import spoon.processing.TraversalStrategy;
+import spoon.reflect.CtModel;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtModule;
+import spoon.reflect.declaration.CtPackage;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.visitor.CtScanner;
+import spoon.support.visitor.ProcessingVisitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Walks the model exactly once and remembers every element in the order in which spoon would visit it.
+ * <p>
+ * Processors are then only handed the elements they subscribed to (through {@link Processor#getProcessedElementTypes()}),
+ * instead of each processor traversing the whole model again. This assumes that the model is not modified after the
+ * index has been built, which is already a requirement for all checks.
+ */
+public final class ElementIndex {
+    private final Factory factory;
+    private final List<CtElement> elements;
+    private final Map<Class<?>, List<CtElement>> elementsByType;
+    // the top-level types of a restricted index, null if the index contains the whole model
+    private final List<CtType<?>> types;
+
+    private ElementIndex(Factory factory, List<CtElement> elements, List<CtType<?>> types) {
+        this.factory = factory;
+        this.elements = Collections.unmodifiableList(elements);
+        this.elementsByType = new ConcurrentHashMap<>();
+        this.types = types;
+    }
+
+    /**
+     * Creates a new index for the given model by scanning it once in pre-order, like {@link CtModel#processWith(Processor)}.
+     *
+     * @param model the model to index
+     * @return the index
+     */
+    public static ElementIndex of(CtModel model) {
+        List<CtElement> elements = new ArrayList<>();
+        CtScanner scanner = new CtScanner() {
+            @Override
+            public void scan(CtElement element) {
+                if (element == null) {
+                    return;
+                }
+
+                elements.add(element);
+                super.scan(element);
+            }
+        };
+
+        for (CtModule ctModule : model.getAllModules()) {
+            scanner.scan(ctModule);
+        }
+
+        return new ElementIndex(model.getUnnamedModule().getFactory(), elements, null);
+    }
+
+    /**
+     * Creates an index that only contains the top-level types accepted by the given predicate and the elements inside
+     * of them, in the same order as in this index. Processors that are run on the new index will not see any other
+     * element of the model.
+     *
+     * @param isIncluded decides which top-level types are included
+     * @return the restricted index
+     */
+    public ElementIndex restrictTo(Predicate<? super CtType<?>> isIncluded) {
+        Map<CtElement, Boolean> isIncludedElement = new IdentityHashMap<>();
+        List<CtElement> restrictedElements = new ArrayList<>();
+        List<CtType<?>> restrictedTypes = new ArrayList<>();
+        for (CtElement element : this.elements) {
+            if (!isInIncludedType(element, isIncluded, isIncludedElement)) {
+                continue;
+            }
+
+            restrictedElements.add(element);
+            if (element instanceof CtType<?> ctType && ctType.isTopLevel()) {
+                restrictedTypes.add(ctType);
+            }
+        }
+
+        return new ElementIndex(this.factory, restrictedElements, restrictedTypes);
+    }
+
+    private static boolean isInIncludedType(
+        CtElement element,
+        Predicate<? super CtType<?>> isIncluded,
+        Map<CtElement, Boolean> isIncludedElement
+    ) {
+        Boolean result = isIncludedElement.get(element);
+        if (result != null) {
+            return result;
+        }
+
+        if (element instanceof CtType<?> ctType && ctType.isTopLevel()) {
+            result = isIncluded.test(ctType);
+        } else if (element instanceof CtPackage || element instanceof CtModule || !element.isParentInitialized()) {
+            result = false;
+        } else {
+            // the parents are visited before their children, so this does not go up far
+            result = isInIncludedType(element.getParent(), isIncluded, isIncludedElement);
+        }
+
+        isIncludedElement.put(element, result);
+        return result;
+    }
+
+    /**
+     * Returns all elements in the model that are an instance of the given type, in the order spoon would visit them.
+     *
+     * @param type the type of the elements
+     * @return an unmodifiable list of the matching elements
+     * @param <E> the type of the elements
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends CtElement> List<E> getElementsOfType(Class<E> type) {
+        return (List<E>) this.elementsByType.computeIfAbsent(type, key -> this.elements.stream()
+            .filter(key::isInstance)
+            .toList());
+    }
+
+    /**
+     * Runs the given processor on the indexed elements. This behaves like {@link CtModel#processWith(Processor)},
+     * but without traversing the model.
+     *
+     * @param processor the processor to run
+     * @param <E> the type of the processed elements
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends CtElement> void process(Processor<E> processor) {
+        processor.setFactory(this.factory);
+
+        Set<Class<? extends CtElement>> processedTypes = processor.getProcessedElementTypes();
+        // the order of post-order processing differs from the one in the index, so fall back to a normal traversal
+        if (processor.getTraversalStrategy() != TraversalStrategy.PRE_ORDER || processedTypes == null) {
+            if (this.types == null) {
+                this.factory.getModel().processWith(processor);
+            } else {
+                this.traverseTypes(processor);
+            }
+            return;
+        }
+
+        processor.init();
+        try {
+            processor.process();
+            for (CtElement element : this.findCandidates(processedTypes)) {
+                if (this.factory.getEnvironment().isProcessingStopped()) {
+                    break;
+                }
+
+                E candidate = (E) element;
+                if (processor.isToBeProcessed(candidate)) {
+                    processor.process(candidate);
+                }
+            }
+        } catch (ProcessInterruption ignored) {
+            // the processor requested to stop, spoon ignores this as well
+        }
+
+        processor.processingDone();
+    }
+
+    private <E extends CtElement> void traverseTypes(Processor<E> processor) {
+        ProcessingVisitor visitor = new ProcessingVisitor(this.factory);
+        visitor.setProcessor(processor);
+
+        processor.init();
+        try {
+            processor.process();
+            for (CtType<?> ctType : this.types) {
+                visitor.scan(ctType);
+            }
+        } catch (ProcessInterruption ignored) {
+            // the processor requested to stop, spoon ignores this as well
+        }
+
+        processor.processingDone();
+    }
+
+    private List<? extends CtElement> findCandidates(Set<Class<? extends CtElement>> processedTypes) {
+        // spoon only processes elements that are an instance of *all* processed types
+        List<Class<? extends CtElement>> types = new ArrayList<>(processedTypes);
+        if (types.isEmpty()) {
+            return this.elements;
+        }
+
+        if (types.size() == 1) {
+            return this.getElementsOfType(types.get(0));
+        }
+
+        List<CtElement> candidates = new ArrayList<>(this.getElementsOfType(types.get(0)));
+        for (Class<? extends CtElement> type : types.subList(1, types.size())) {
+            candidates.removeIf(element -> !type.isInstance(element));
+        }
+
+        return candidates;
+    }
+}
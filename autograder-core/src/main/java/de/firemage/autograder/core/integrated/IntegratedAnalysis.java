@@ -1,14 +1,21 @@
 package de.firemage.autograder.core.integrated;
 
+import de.firemage.autograder.core.CodeModel;
 import de.firemage.autograder.core.LinterStatus;
 import de.firemage.autograder.core.check.Check;
+import de.firemage.autograder.core.check.CheckScope;
 import de.firemage.autograder.core.dynamic.DockerConsoleRunner;
 import de.firemage.autograder.core.dynamic.DynamicAnalysis;
 import de.firemage.autograder.core.dynamic.RunnerException;
+import de.firemage.autograder.core.dynamic.TestContainerSettings;
 import de.firemage.autograder.core.dynamic.TestRunResult;
+import de.firemage.autograder.core.dynamic.TestRunner;
+import de.firemage.autograder.core.file.SourcePath;
 import de.firemage.autograder.core.file.UploadedFile;
 import de.firemage.autograder.core.integrated.graph.GraphAnalysis;
 import de.firemage.autograder.core.parallel.AnalysisScheduler;
+import de.firemage.autograder.core.parallel.ProblemReporter;
+import de.firemage.autograder.core.parallel.ScheduledTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spoon.reflect.CtModel;
@@ -30,27 +37,57 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 
 public class IntegratedAnalysis {
     private static final boolean ENSURE_NO_ORPHANS = false;
     private static final boolean ENSURE_NO_MODEL_CHANGES = false;
     private static final Logger logger = LoggerFactory.getLogger(IntegratedAnalysis.class);
+    private static final DynamicAnalysis NO_DYNAMIC_ANALYSIS = new DynamicAnalysis(List.of());
 
     private final UploadedFile file;
     private final Path tmpPath;
+    private final TestRunner.Factory testRunnerFactory;
+    private final TestContainerSettings containerSettings;
     private final Map<String, FileSystem> openFileSystems = new HashMap<>();
-    private final CtModel originalModel;
     private final StaticAnalysis staticAnalysis;
     private final GraphAnalysis graphAnalysis;
-    private DynamicAnalysis dynamicAnalysis;
+    private final ReadWriteLock modelLock = new ReentrantReadWriteLock();
+    private volatile DynamicAnalysis dynamicAnalysis;
+    private volatile StaticAnalysis fileAnalysis;
 
+    /**
+     * Creates the analysis of the given file. The model of the file is not built here, but by the task of
+     * {@link #buildModel(List, Set, Consumer, AnalysisScheduler)} or on first access.
+     *
+     * @param file the file to analyze
+     * @param tmpPath a folder for temporary files of the dynamic analysis
+     */
     public IntegratedAnalysis(UploadedFile file, Path tmpPath) {
+        this(file, tmpPath, DockerConsoleRunner::new, TestContainerSettings.defaults());
+    }
+
+    /**
+     * Creates the analysis of the given file, whose tests are executed by the given runner.
+     *
+     * @param file the file to analyze
+     * @param tmpPath a folder for temporary files of the dynamic analysis
+     * @param testRunnerFactory creates the runner of the tests
+     * @param containerSettings the resources of the containers in which the tests are executed
+     */
+    public IntegratedAnalysis(
+        UploadedFile file,
+        Path tmpPath,
+        TestRunner.Factory testRunnerFactory,
+        TestContainerSettings containerSettings
+    ) {
         this.file = file;
         this.tmpPath = tmpPath;
-
-        StaticAnalysis temporaryAnalysis = new StaticAnalysis(file.getModel(), file.getCompilationResult());
-        this.originalModel = temporaryAnalysis.getModel();
+        this.testRunnerFactory = testRunnerFactory;
+        this.containerSettings = containerSettings;
 
         this.staticAnalysis = new StaticAnalysis(file.getModel(), file.getCompilationResult());
         //this.graphAnalysis = new GraphAnalysis(this.staticAnalysis.getCodeModel());
@@ -59,11 +96,40 @@ public class IntegratedAnalysis {
 
     }
 
+    /**
+     * Schedules the dynamic analysis, which needs the main method of the model.
+     *
+     * @param tests the folder with the test cases
+     * @param statusConsumer receives the progress of the analysis
+     * @param scheduler the scheduler that runs the tests
+     * @param modelBuilt the task that builds the model
+     * @return the task that runs the tests
+     */
+    public ScheduledTask runDynamicAnalysis(
+        Path tests,
+        Consumer<LinterStatus> statusConsumer,
+        AnalysisScheduler scheduler,
+        ScheduledTask modelBuilt
+    ) {
+        return scheduler.submitTask((s, reporter) -> {
+            // the main method is searched in the model, which may be modified by a check that runs at the same time
+            Lock lock = this.modelLock.readLock();
+            lock.lock();
+            try {
+                this.staticAnalysis.getCodeModel().findMain();
+            } finally {
+                lock.unlock();
+            }
+
+            this.runDynamicAnalysis(tests, statusConsumer);
+        }, modelBuilt);
+    }
+
     public void runDynamicAnalysis(Path tests, Consumer<LinterStatus> statusConsumer)
         throws RunnerException, InterruptedException {
         try {
-            DockerConsoleRunner runner = new DockerConsoleRunner(toPath(this.getClass().getResource("/executor.jar")),
-                toPath(this.getClass().getResource("/agent.jar")), tests, this.tmpPath);
+            TestRunner runner = this.testRunnerFactory.create(toPath(this.getClass().getResource("/executor.jar")),
+                toPath(this.getClass().getResource("/agent.jar")), tests, this.tmpPath, this.containerSettings);
             List<TestRunResult> results =
                 runner.runTests(this.staticAnalysis, this.file.getCompilationResult().jar(), statusConsumer);
             this.dynamicAnalysis = new DynamicAnalysis(results);
@@ -111,26 +177,124 @@ public class IntegratedAnalysis {
     }
 
     public void lint(List<IntegratedCheck> checks, Consumer<LinterStatus> statusConsumer, AnalysisScheduler scheduler) {
-        statusConsumer.accept(LinterStatus.BUILDING_CODE_MODEL);
-        this.staticAnalysis.getCodeModel().ensureModelBuild();
-
-        statusConsumer.accept(LinterStatus.RUNNING_INTEGRATED_CHECKS);
-
-        scheduler.submitTask((s, reporter) -> {
-            for (IntegratedCheck check : checks) {
-                long beforeTime = System.nanoTime();
-                reporter.reportProblems(check.run(
-                    this.staticAnalysis,
-                    this.dynamicAnalysis,
-                    this.file.getSource()
-                ));
-                long afterTime = System.nanoTime();
-                logger.info("Completed check " + check.getClass().getSimpleName() + " in " + ((afterTime - beforeTime) / 1_000_000 + "ms"));
-                this.assertModelIntegrity(check);
+        this.lint(checks, List.of(), Set.of(), statusConsumer, scheduler);
+    }
+
+    /**
+     * Schedules the given checks like {@link #lint(List, Consumer, AnalysisScheduler)}, but the file checks are only
+     * handed the elements in the given files.
+     *
+     * @param checks the checks that are run on the whole model
+     * @param fileChecks the checks with the scope {@link CheckScope#FILE}
+     * @param files the files that are checked by the file checks
+     * @param statusConsumer receives the progress of the analysis
+     * @param scheduler the scheduler that runs the checks
+     */
+    public void lint(
+        List<IntegratedCheck> checks,
+        List<IntegratedCheck> fileChecks,
+        Set<SourcePath> files,
+        Consumer<LinterStatus> statusConsumer,
+        AnalysisScheduler scheduler
+    ) {
+        ScheduledTask modelBuilt = this.buildModel(fileChecks, files, statusConsumer, scheduler);
+        this.lint(checks, fileChecks, statusConsumer, scheduler, modelBuilt, null);
+    }
+
+    /**
+     * Schedules a task that builds the model and prepares it for the checks, which is the first stage of
+     * {@link #lint(List, List, Consumer, AnalysisScheduler, ScheduledTask, ScheduledTask)}.
+     *
+     * @param fileChecks the checks with the scope {@link CheckScope#FILE}
+     * @param files the files that are checked by the file checks
+     * @param statusConsumer receives the progress of the analysis
+     * @param scheduler the scheduler that runs the task
+     * @return the task that builds the model
+     */
+    public ScheduledTask buildModel(
+        List<IntegratedCheck> fileChecks,
+        Set<SourcePath> files,
+        Consumer<LinterStatus> statusConsumer,
+        AnalysisScheduler scheduler
+    ) {
+        return scheduler.submitTask((s, reporter) -> {
+            statusConsumer.accept(LinterStatus.BUILDING_CODE_MODEL);
+            CodeModel codeModel = this.staticAnalysis.getCodeModel();
+            codeModel.ensureModelBuild();
+            // walk the model once, so that the checks only have to look at the elements they are interested in
+            codeModel.getElementIndex();
+            if (!fileChecks.isEmpty()) {
+                this.fileAnalysis = this.staticAnalysis.restrictTo(this.file.getSource(), files);
+            }
+
+            if (!s.isSingleThreaded()) {
+                codeModel.prepareForConcurrentAccess();
             }
         });
     }
 
+    /**
+     * Schedules the given checks once the model has been built. The checks that use the dynamic analysis
+     * are scheduled after the tests, the other checks run while the tests are executed.
+     *
+     * @param checks the checks that are run on the whole model
+     * @param fileChecks the checks with the scope {@link CheckScope#FILE}
+     * @param statusConsumer receives the progress of the analysis
+     * @param scheduler the scheduler that runs the checks
+     * @param modelBuilt the task of {@link #buildModel(List, Set, Consumer, AnalysisScheduler)}
+     * @param testsExecuted the task of {@link #runDynamicAnalysis(Path, Consumer, AnalysisScheduler, ScheduledTask)}
+     *                      or null if no tests are executed
+     */
+    public void lint(
+        List<IntegratedCheck> checks,
+        List<IntegratedCheck> fileChecks,
+        Consumer<LinterStatus> statusConsumer,
+        AnalysisScheduler scheduler,
+        ScheduledTask modelBuilt,
+        ScheduledTask testsExecuted
+    ) {
+        ScheduledTask prepared = scheduler.submitTask(
+            (s, reporter) -> statusConsumer.accept(LinterStatus.RUNNING_INTEGRATED_CHECKS),
+            modelBuilt
+        );
+        ScheduledTask dynamicPrepared = testsExecuted == null ? prepared : testsExecuted;
+
+        // every check is its own task, so that they can run in parallel on the shared model
+        for (IntegratedCheck check : checks) {
+            scheduler.submitTask(
+                (s, reporter) -> this.runCheck(check, this.staticAnalysis, reporter),
+                check.usesDynamicAnalysis() ? dynamicPrepared : prepared
+            );
+        }
+
+        for (IntegratedCheck check : fileChecks) {
+            scheduler.submitTask(
+                (s, reporter) -> this.runCheck(check, this.fileAnalysis, reporter),
+                check.usesDynamicAnalysis() ? dynamicPrepared : prepared
+            );
+        }
+    }
+
+    private void runCheck(IntegratedCheck check, StaticAnalysis analysis, ProblemReporter reporter) {
+        // a check that modifies the model must not run while other checks are reading it
+        Lock lock = check.modifiesModel() ? this.modelLock.writeLock() : this.modelLock.readLock();
+        lock.lock();
+        try {
+            long beforeTime = System.nanoTime();
+            reporter.reportProblems(check.run(
+                analysis,
+                // the tests might still be running, when the check does not wait for them
+                check.usesDynamicAnalysis() ? this.dynamicAnalysis : NO_DYNAMIC_ANALYSIS,
+                this.file.getSource()
+            ));
+            long afterTime = System.nanoTime();
+            logger.info("Completed check " + check.getClass().getSimpleName() + " in " + ((afterTime - beforeTime) / 1_000_000 + "ms"));
+            this.assertModelIntegrity(check);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * This method checks that a check did not change the model in a way that would influence other checks.
      *
@@ -141,7 +305,7 @@ public class IntegratedAnalysis {
 
         String checkName = currentCheck.getClass().getSimpleName();
 
-        if ((ENSURE_NO_MODEL_CHANGES || SpoonUtil.isInJunitTest()) && !isModelEqualTo(originalModel, linterModel)) {
+        if ((ENSURE_NO_MODEL_CHANGES || SpoonUtil.isInJunitTest()) && !isModelUnchanged(linterModel)) {
             throw new IllegalStateException("The model was changed by the check: %s".formatted(checkName));
         }
 
@@ -157,9 +321,10 @@ public class IntegratedAnalysis {
     }
 
     private Set<CtElement> cachedOriginalElements = null;
-    private boolean isModelEqualTo(CtModel original, CtModel toCheck) {
+    private synchronized boolean isModelUnchanged(CtModel toCheck) {
+        // the elements are recorded after the first check, because the model is only built right before the checks
         if (this.cachedOriginalElements == null) {
-            this.cachedOriginalElements = new HashSet<>(original.getElements(new TypeFilter<>(CtElement.class)));
+            this.cachedOriginalElements = new HashSet<>(toCheck.getElements(new TypeFilter<>(CtElement.class)));
         }
 
         // TODO: this is very slow (~8s with a large model)
@@ -37,6 +37,26 @@ public abstract class IntegratedCheck implements Check {
 
     protected abstract void check(StaticAnalysis staticAnalysis, DynamicAnalysis dynamicAnalysis);
 
+    /**
+     * Integrated checks are executed in parallel on the same model. A check that modifies the model,
+     * even if only temporarily, must override this method, so that no other check is executed at the same time.
+     *
+     * @return true if the check modifies the model, false if it only reads it
+     */
+    public boolean modifiesModel() {
+        return false;
+    }
+
+    /**
+     * Checks that read the results of the tests must override this method. The other checks are executed while the
+     * tests are still running and are passed an empty {@link DynamicAnalysis}.
+     *
+     * @return true if the check reads the {@link DynamicAnalysis}, false if it only looks at the code
+     */
+    public boolean usesDynamicAnalysis() {
+        return false;
+    }
+
     @Override
     public LocalizedMessage getLinter() {
         return new LocalizedMessage("linter-integrated");
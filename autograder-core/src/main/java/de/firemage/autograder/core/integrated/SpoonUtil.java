@@ -1262,7 +1262,7 @@ public final class SpoonUtil {
                 // therefore we consider uses in overriding methods as well
                 if (ctVariable instanceof CtParameter<?> ctParameter
                     && ctParameter.getParent() instanceof CtMethod<?> ctMethod) {
-                    filter = ctMethod.getFactory().getModel().getElements(new OverridingMethodFilter(ctMethod))
+                    filter = findOverridingMethods(ctMethod)
                         .stream()
                         .flatMap(method -> method.getParameters().stream().filter(ctParameter::equals).findAny().stream())
                         .map(parameter -> (Filter<CtElement>) new FilterAdapter<>(new BetterVariableAccessFilter<>(parameter), CtVariableAccess.class))
@@ -1302,6 +1302,23 @@ public final class SpoonUtil {
             return this.filter.matches(element);
         }
 
+        private static List<CtMethod<?>> findOverridingMethods(CtMethod<?> ctMethod) {
+            Filter<CtMethod<?>> filter = new OverridingMethodFilter(ctMethod);
+            Optional<List<CtElement>> candidates = UsesIndex.find(ctMethod).flatMap(index -> index.getCandidates(ctMethod));
+            if (candidates.isEmpty()) {
+                return ctMethod.getFactory().getModel().getElements(filter);
+            }
+
+            List<CtMethod<?>> result = new ArrayList<>();
+            for (CtElement candidate : candidates.get()) {
+                if (candidate instanceof CtMethod<?> method && filter.matches(method)) {
+                    result.add(method);
+                }
+            }
+
+            return result;
+        }
+
         @SuppressWarnings("unchecked")
         private static Filter<CtElement> buildExecutableFilter(CtExecutable<?> ctExecutable) {
             Filter<CtElement> filter = new FilterAdapter<>(
@@ -1359,8 +1376,14 @@ public final class SpoonUtil {
     }
 
     public static boolean hasAnyUses(CtElement ctElement, Predicate<? super CtElement> predicate) {
+        Filter<CtElement> filter = new CompositeFilter<>(FilteringOperator.INTERSECTION, predicate::test, new UsesFilter(ctElement));
+        Optional<List<CtElement>> candidates = UsesIndex.find(ctElement).flatMap(index -> index.getCandidates(ctElement));
+        if (candidates.isPresent()) {
+            return candidates.get().stream().anyMatch(filter::matches);
+        }
+
         return ctElement.getFactory().getModel()
-            .filterChildren(new CompositeFilter<>(FilteringOperator.INTERSECTION, predicate::test, new UsesFilter(ctElement)))
+            .filterChildren(filter)
             .first(CtElement.class) != null;
     }
 
@@ -1371,7 +1394,17 @@ public final class SpoonUtil {
     }
 
     public static List<CtElement> findUses(CtElement ctElement) {
-        return new ArrayList<>(ctElement.getFactory().getModel().getElements(new UsesFilter(ctElement)));
+        Filter<CtElement> filter = new UsesFilter(ctElement);
+        // the index only contains the elements that might be a use, which is a lot faster than scanning the whole model
+        Optional<List<CtElement>> candidates = UsesIndex.find(ctElement).flatMap(index -> index.getCandidates(ctElement));
+        if (candidates.isPresent()) {
+            return candidates.get()
+                .stream()
+                .filter(filter::matches)
+                .collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        return new ArrayList<>(ctElement.getFactory().getModel().getElements(filter));
     }
 
     /**
@@ -2,6 +2,8 @@ package de.firemage.autograder.core.integrated;
 
 import de.firemage.autograder.core.CodeModel;
 import de.firemage.autograder.core.compiler.CompilationResult;
+import de.firemage.autograder.core.file.SourceInfo;
+import de.firemage.autograder.core.file.SourcePath;
 import spoon.processing.Processor;
 import spoon.reflect.CtModel;
 import spoon.reflect.declaration.CtElement;
@@ -10,15 +12,41 @@ import spoon.reflect.factory.Factory;
 import spoon.reflect.reference.CtPackageReference;
 import spoon.reflect.reference.CtTypeReference;
 
+import java.io.File;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class StaticAnalysis {
     private final CodeModel model;
     private final CompilationResult compilationResult;
+    // the elements that are processed, null if the whole model is processed
+    private final ElementIndex elementIndex;
 
     public StaticAnalysis(CodeModel model, CompilationResult compilationResult) {
+        this(model, compilationResult, null);
+    }
+
+    private StaticAnalysis(CodeModel model, CompilationResult compilationResult, ElementIndex elementIndex) {
         this.model = model;
         this.compilationResult = compilationResult;
+        this.elementIndex = elementIndex;
+    }
+
+    /**
+     * Creates an analysis of the same model, which only hands the elements in the given files to the processors.
+     * The model itself is not restricted.
+     *
+     * @param sourceInfo the source of the model
+     * @param files the files whose elements are processed
+     * @return the restricted analysis
+     */
+    public StaticAnalysis restrictTo(SourceInfo sourceInfo, Set<SourcePath> files) {
+        ElementIndex restrictedIndex = this.model.getElementIndex().restrictTo(ctType -> {
+            File file = ctType.getPosition().getFile();
+            return file != null && files.contains(sourceInfo.getCompilationUnit(file.toPath()).path());
+        });
+
+        return new StaticAnalysis(this.model, this.compilationResult, restrictedIndex);
     }
 
     public Factory getFactory() {
@@ -38,7 +66,11 @@ public class StaticAnalysis {
     }
 
     public <E extends CtElement> void processWith(Processor<E> processor) {
-        this.model.processWith(processor);
+        if (this.elementIndex == null) {
+            this.model.processWith(processor);
+        } else {
+            this.elementIndex.process(processor);
+        }
     }
 
     private static boolean isJavaUtilImport(CtImport ctImport) {
@@ -0,0 +1,137 @@
+package de.firemage.autograder.core.integrated;
+
+import spoon.reflect.CtModel;
+import spoon.reflect.code.CtAbstractInvocation;
+import spoon.reflect.code.CtExecutableReferenceExpression;
+import spoon.reflect.code.CtVariableAccess;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtNamedElement;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.reference.CtArrayTypeReference;
+import spoon.reflect.reference.CtReference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An index of all elements in the model that could be a use of a declaration, grouped by the name they refer to.
+ * <p>
+ * A variable access, an invocation, a method reference, an overriding method or a type reference can only be a use of
+ * a declaration with the same simple name. Therefore, finding the uses of a declaration only has to look at the few
+ * elements with that name, instead of scanning the entire model for each declaration.
+ * <p>
+ * The index is attached to the model it was built for, so that it can be found from any element of that model,
+ * see {@link #find(CtElement)}.
+ */
+public final class UsesIndex {
+    private static final String METADATA_KEY = UsesIndex.class.getName();
+
+    private final Map<String, List<CtElement>> candidatesByName;
+
+    private UsesIndex(Map<String, List<CtElement>> candidatesByName) {
+        this.candidatesByName = candidatesByName;
+    }
+
+    /**
+     * Builds the index from the elements of the given element index. The model is not traversed again.
+     *
+     * @param elementIndex the index of all elements in the model
+     * @return the uses index
+     */
+    public static UsesIndex of(ElementIndex elementIndex) {
+        Map<String, List<CtElement>> candidatesByName = new HashMap<>();
+
+        // the elements are in the order in which spoon would visit them, this order is preserved in the candidates
+        for (CtElement ctElement : elementIndex.getElementsOfType(CtElement.class)) {
+            String name = referencedName(ctElement);
+            if (name != null) {
+                candidatesByName.computeIfAbsent(name, key -> new ArrayList<>()).add(ctElement);
+            }
+        }
+
+        return new UsesIndex(candidatesByName);
+    }
+
+    /**
+     * Finds the index that has been attached to the model of the given element.
+     *
+     * @param ctElement an element of the model
+     * @return the index or an empty optional if the model does not have an index
+     */
+    public static Optional<UsesIndex> find(CtElement ctElement) {
+        Factory factory = ctElement.getFactory();
+        if (factory == null) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(factory.getModel().getUnnamedModule().getMetadata(METADATA_KEY))
+            .map(UsesIndex.class::cast);
+    }
+
+    /**
+     * Attaches this index to the given model. The index must have been built for that model.
+     *
+     * @param model the model to attach the index to
+     */
+    public void attachTo(CtModel model) {
+        model.getUnnamedModule().putMetadata(METADATA_KEY, this);
+    }
+
+    /**
+     * Returns all elements that might be a use of the given declaration, in the order in which spoon would visit them.
+     * <p>
+     * The returned elements are a superset of the actual uses, they still have to be filtered.
+     *
+     * @param declaration the declaration to find the candidates for
+     * @return the candidates, or an empty optional if the declaration does not have a name
+     */
+    public Optional<List<CtElement>> getCandidates(CtElement declaration) {
+        if (!(declaration instanceof CtNamedElement ctNamedElement) || ctNamedElement.getSimpleName() == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(this.candidatesByName.getOrDefault(ctNamedElement.getSimpleName(), List.of()));
+    }
+
+    private static String referencedName(CtElement ctElement) {
+        if (ctElement instanceof CtVariableAccess<?> ctVariableAccess) {
+            return nameOf(ctVariableAccess.getVariable());
+        }
+
+        if (ctElement instanceof CtAbstractInvocation<?> ctAbstractInvocation) {
+            return nameOf(ctAbstractInvocation.getExecutable());
+        }
+
+        if (ctElement instanceof CtExecutableReferenceExpression<?, ?> ctExecutableReferenceExpression) {
+            return nameOf(ctExecutableReferenceExpression.getExecutable());
+        }
+
+        // a method might override another method with the same name
+        if (ctElement instanceof CtMethod<?> ctMethod) {
+            return ctMethod.getSimpleName();
+        }
+
+        // an array type like Example[] uses the type Example
+        if (ctElement instanceof CtArrayTypeReference<?> ctArrayTypeReference) {
+            return nameOf(ctArrayTypeReference.getArrayType());
+        }
+
+        if (ctElement instanceof CtReference ctReference) {
+            return ctReference.getSimpleName();
+        }
+
+        return null;
+    }
+
+    private static String nameOf(CtReference ctReference) {
+        if (ctReference == null) {
+            return null;
+        }
+
+        return ctReference.getSimpleName();
+    }
+}
@@ -2,125 +2,177 @@ package de.firemage.autograder.core.parallel;
 
 import de.firemage.autograder.core.Problem;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.atomic.AtomicInteger;
-
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs {@link AnalysisTask}s on a work-stealing pool and collects the problems they report.
+ * <p>
+ * Tasks may depend on other tasks and may submit further tasks while they are running. If a task fails,
+ * all other tasks are cancelled: tasks that did not start yet are skipped and running tasks are interrupted.
+ * With a single thread, all tasks run one after another on the thread that calls {@link #collectProblems()}.
+ */
 public class AnalysisScheduler {
-    private final ClassLoader classLoader;
-    private final List<AnalysisThread> analysisThreads;
-    private final Queue<AnalysisTask> waitingTasks;
-    private volatile boolean completionAllowed;
-    private final AtomicInteger waitingAndRunningTaskCount;
+    private final ForkJoinPool pool;
+    private final Queue<Runnable> singleThreadedQueue;
+    private final Executor executor;
+    private final Queue<ScheduledTask> submittedTasks;
+    // the number of tasks that did not finish yet, plus one until collectProblems is called
+    private final AtomicInteger unfinishedCount;
+    private final CompletableFuture<Void> allTasksFinished;
+    private final AtomicReference<Throwable> failure;
+
+    /**
+     * Returns the number of threads that are used for the given setting.
+     *
+     * @param threads the configured number of threads, zero or less to pick one based on the number of processors
+     * @return the number of threads, at least one
+     */
+    public static int actualThreads(int threads) {
+        return threads > 0 ? threads : Math.max(Runtime.getRuntime().availableProcessors() - 2, 1);
+    }
 
     public AnalysisScheduler(int threads, ClassLoader classLoader) {
-        this.classLoader = classLoader;
-        this.waitingTasks = new ArrayDeque<>();
-        this.completionAllowed = false;
-        this.waitingAndRunningTaskCount = new AtomicInteger(0);
+        this.submittedTasks = new ConcurrentLinkedQueue<>();
+        this.unfinishedCount = new AtomicInteger(1);
+        this.allTasksFinished = new CompletableFuture<>();
+        this.failure = new AtomicReference<>();
 
-        this.analysisThreads = new ArrayList<>();
-        int actualThreads = threads > 0 ? threads : Math.max(Runtime.getRuntime().availableProcessors() - 2, 1);
+        int actualThreads = actualThreads(threads);
 
         if (actualThreads == 1) {
+            this.pool = null;
+            this.singleThreadedQueue = new ConcurrentLinkedQueue<>();
+            this.executor = this.singleThreadedQueue::add;
             return;
         }
 
-        for (int i = 0; i < actualThreads; i++) {
-            var thread = new AnalysisThread(this, i);
-            thread.start();
-            this.analysisThreads.add(thread);
-        }
+        this.pool = new ForkJoinPool(actualThreads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Autograder-Analysis-Thread-" + thread.getPoolIndex());
+            if (classLoader != null) {
+                thread.setContextClassLoader(classLoader);
+            }
+            return thread;
+        }, null, true);
+        this.singleThreadedQueue = null;
+        this.executor = this.pool;
     }
 
-    public void submitTask(AnalysisTask task) {
-        synchronized (this.waitingTasks) {
-            this.waitingTasks.add(task);
-            this.waitingAndRunningTaskCount.incrementAndGet();
-            this.waitingTasks.notifyAll();
-        }
+    /**
+     * Submits a task that will be executed after all the given tasks have completed successfully.
+     * <p>
+     * Tasks can be submitted from within other tasks.
+     *
+     * @param task the task to execute
+     * @param dependencies the tasks that have to complete before this task can start
+     * @return the scheduled task, which can be used as a dependency for other tasks
+     */
+    public ScheduledTask submitTask(AnalysisTask task, ScheduledTask... dependencies) {
+        ScheduledTask scheduledTask = new ScheduledTask(task);
+        this.submittedTasks.add(scheduledTask);
+        this.unfinishedCount.incrementAndGet();
+        scheduledTask.completion().whenComplete((result, throwable) -> this.finishTask());
+
+        CompletableFuture.allOf(Arrays.stream(dependencies).map(ScheduledTask::completion).toArray(CompletableFuture[]::new))
+            .whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    // a dependency failed or was cancelled
+                    scheduledTask.completion().cancel(false);
+                } else {
+                    this.executor.execute(() -> this.execute(scheduledTask));
+                }
+            });
+
+        return scheduledTask;
     }
 
-    protected Optional<AnalysisTask> getTask() throws InterruptedException {
-        synchronized (this.waitingTasks) {
-            while (this.waitingTasks.isEmpty()) {
-                this.waitingTasks.wait(300);
+    private void execute(ScheduledTask task) {
+        if (this.failure.get() != null) {
+            task.completion().cancel(false);
+            return;
+        }
 
-                if (this.completionAllowed && this.waitingAndRunningTaskCount.get() == 0) {
-                    return Optional.empty();
-                }
+        try {
+            task.run(this);
+            task.completion().complete(null);
+        } catch (Exception | Error e) {
+            this.fail(e);
+            task.completion().completeExceptionally(e);
+        }
+    }
+
+    private void fail(Throwable throwable) {
+        if (this.failure.compareAndSet(null, throwable)) {
+            for (ScheduledTask task : this.submittedTasks) {
+                task.cancel();
             }
-            return Optional.of(this.waitingTasks.poll());
         }
     }
 
-    protected boolean completeTask() {
-        return this.waitingAndRunningTaskCount.decrementAndGet() == 0 && this.completionAllowed;
+    private void finishTask() {
+        if (this.unfinishedCount.decrementAndGet() == 0) {
+            this.allTasksFinished.complete(null);
+        }
     }
 
-    protected ClassLoader getClassLoader() {
-        return this.classLoader;
+    /**
+     * Returns whether all tasks are executed one after another on the thread that collects the problems.
+     *
+     * @return true if there is no thread pool
+     */
+    public boolean isSingleThreaded() {
+        return this.pool == null;
     }
 
     /**
-     * Collects all problems from all threads. This method is blocking!
+     * Collects all problems from all tasks. This method is blocking!
      * Never add more tasks *outside already submitted tasks* after calling this method, because they may never be executed.
      */
     public AnalysisResult collectProblems() {
-        if (this.analysisThreads.isEmpty()) {
-            return executeChecksSingleThreaded();
-        } else {
-            return collectProblemsFromThreads();
-        }
-    }
+        this.finishTask();
 
-    private AnalysisResult collectProblemsFromThreads() {
-        this.completionAllowed = true;
-
-        List<Problem> allProblems = new ArrayList<>();
-        for (var thread : this.analysisThreads) {
+        if (this.pool == null) {
+            Runnable next;
+            while ((next = this.singleThreadedQueue.poll()) != null) {
+                next.run();
+            }
+        } else {
             try {
-                var result = thread.join();
-
-                if (result.failed()) {
-                    return result;
-                }
-
-                allProblems.addAll(result.problems());
+                this.allTasksFinished.get();
             } catch (InterruptedException e) {
+                this.fail(e);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                // never completed exceptionally
                 throw new IllegalStateException(e);
+            } finally {
+                this.pool.shutdown();
             }
         }
 
-        return AnalysisResult.forSuccess(allProblems);
-    }
+        Throwable thrown = this.failure.get();
+        if (thrown instanceof Error error) {
+            throw error;
+        } else if (thrown != null) {
+            return AnalysisResult.forFailure((Exception) thrown);
+        }
 
-    private AnalysisResult executeChecksSingleThreaded() {
+        // the problems are in the order in which the tasks were submitted
         List<Problem> allProblems = new ArrayList<>();
-
-        var reporter = new ProblemReporter() {
-            @Override
-            public void reportProblem(Problem problem) {
-                allProblems.add(problem);
-            }
-
-            @Override
-            public void reportProblems(Collection<Problem> problems) {
-                allProblems.addAll(problems);
-            }
-        };
-
-        while (!this.waitingTasks.isEmpty()) {
-            try {
-                var task = this.waitingTasks.poll();
-                task.run(this, reporter);
-            } catch (Exception e) {
-                return AnalysisResult.forFailure(e);
-            }
+        for (ScheduledTask task : this.submittedTasks) {
+            allProblems.addAll(task.getReportedProblems());
         }
 
         return AnalysisResult.forSuccess(allProblems);
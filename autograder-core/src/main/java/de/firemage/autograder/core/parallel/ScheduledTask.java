@@ -0,0 +1,85 @@
+package de.firemage.autograder.core.parallel;
+
+import de.firemage.autograder.core.Problem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A task that has been submitted to an {@link AnalysisScheduler}.
+ * <p>
+ * It can be passed as a dependency to {@link AnalysisScheduler#submitTask(AnalysisTask, ScheduledTask...)},
+ * so that another task only starts after this one has completed successfully.
+ */
+public final class ScheduledTask {
+    private final AnalysisTask task;
+    private final CompletableFuture<Void> completion;
+    private final List<Problem> reportedProblems;
+    private Thread runner;
+    private boolean cancelled;
+
+    ScheduledTask(AnalysisTask task) {
+        this.task = task;
+        this.completion = new CompletableFuture<>();
+        this.reportedProblems = new ArrayList<>();
+    }
+
+    /**
+     * Returns whether the task has finished, either because it completed, failed or was cancelled.
+     *
+     * @return true if the task will not run anymore
+     */
+    public boolean isDone() {
+        return this.completion.isDone();
+    }
+
+    CompletableFuture<Void> completion() {
+        return this.completion;
+    }
+
+    List<Problem> getReportedProblems() {
+        return this.reportedProblems;
+    }
+
+    void run(AnalysisScheduler scheduler) throws Exception {
+        synchronized (this) {
+            if (this.cancelled) {
+                return;
+            }
+
+            this.runner = Thread.currentThread();
+        }
+
+        try {
+            this.task.run(scheduler, new ProblemReporter() {
+                @Override
+                public void reportProblem(Problem problem) {
+                    reportedProblems.add(problem);
+                }
+
+                @Override
+                public void reportProblems(Collection<Problem> problems) {
+                    reportedProblems.addAll(problems);
+                }
+            });
+        } finally {
+            synchronized (this) {
+                this.runner = null;
+                // the thread is reused for other tasks, so a cancellation must not leak into them
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * Prevents the task from starting and interrupts it if it is already running.
+     */
+    synchronized void cancel() {
+        this.cancelled = true;
+        if (this.runner != null) {
+            this.runner.interrupt();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package de.firemage.autograder.core;
 
 import de.firemage.autograder.core.check.Check;
 import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.dynamic.ConsoleRunner;
 import de.firemage.autograder.core.errorprone.TempLocation;
 import de.firemage.autograder.core.file.UploadedFile;
 import org.junit.jupiter.api.DynamicTest;
@@ -22,7 +23,7 @@ import java.util.stream.Stream;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class CheckTest {
-    private static final boolean ENABLE_DYNAMIC = false;
+    private static final boolean ENABLE_DYNAMIC = true;
     // an empty list means that all tests should be executed
     // this is useful for debugging/executing only relevant tests
     //
@@ -111,18 +112,20 @@ public class CheckTest {
                 var check = testInput.config().check();
                 var expectedProblems = testInput.config().expectedProblems();
 
-                try (TempLocation tmpDirectory = tempLocation.createTempDirectory(testInput.config().checkPath())) {
+                try (TempLocation tmpDirectory = tempLocation.createTempDirectory(testInput.config().checkPath());
+                     var linter = Linter.builder(Locale.US)
+                         .enableDynamicAnalysis(ENABLE_DYNAMIC && testInput.isDynamic())
+                         // the tests run without docker, so that they work on every CI runner
+                         .testRunner(ConsoleRunner::new)
+                         .threads(1) // Use a single thread for performance reasons
+                         .tempLocation(tmpDirectory)
+                         .build()) {
                     var file = UploadedFile.build(
                         testInput.path().resolve("code"),
                         JavaVersion.JAVA_17,
                         tmpDirectory, status -> {
                         }, null
                     );
-                    var linter = Linter.builder(Locale.US)
-                        .enableDynamicAnalysis(ENABLE_DYNAMIC && testInput.isDynamic())
-                        .threads(1) // Use a single thread for performance reasons
-                        .tempLocation(tmpDirectory)
-                        .build();
 
                     var problems = linter.checkFile(
                         file,
@@ -0,0 +1,82 @@
+package de.firemage.autograder.core;
+
+import de.firemage.autograder.core.check.Check;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import de.firemage.autograder.core.file.UploadedFile;
+import de.firemage.autograder.core.integrated.IntegratedCheck;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Helpers for the tests that run the linter on whole submissions.
+ */
+final class LinterTestUtil {
+    private LinterTestUtil() {
+    }
+
+    /**
+     * Runs all integrated checks on the given submission.
+     *
+     * @param file the submission to check
+     * @param tempLocation the temp location of the submission
+     * @param threads the number of threads of the linter, 0 for the default
+     * @return the problems in the format of {@link #describe(Problem)}
+     */
+    static List<String> runIntegratedChecks(UploadedFile file, TempLocation tempLocation, int threads) throws LinterException, IOException {
+        try (Linter linter = Linter.builder(Locale.US)
+            .threads(threads)
+            .tempLocation(tempLocation)
+            .build()) {
+            List<Check> checks = linter.findChecksForProblemTypes(List.of(ProblemType.values()))
+                .stream()
+                .filter(IntegratedCheck.class::isInstance)
+                .toList();
+
+            return linter.checkFile(file, null, List.of(), checks, status -> {})
+                .stream()
+                .map(LinterTestUtil::describe)
+                .toList();
+        }
+    }
+
+    static String describe(Problem problem) {
+        return "%s %s %s".formatted(
+            problem.getCheck().getClass().getSimpleName(),
+            problem.getProblemType(),
+            problem.getDisplayLocation()
+        );
+    }
+
+    static List<Path> listFiles(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.toList();
+        }
+    }
+
+    static long countFiles(Path folder) throws IOException {
+        return listFiles(folder).size();
+    }
+
+    /**
+     * An object that remembers whether it has ever been deserialized, to test that untrusted files are not deserialized.
+     */
+    static final class Canary implements Serializable {
+        private static boolean deserialized;
+
+        static boolean wasDeserialized() {
+            return deserialized;
+        }
+
+        private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+            deserialized = true;
+            input.defaultReadObject();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package de.firemage.autograder.core;
+
+import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import de.firemage.autograder.core.file.SourceInfo;
+import de.firemage.autograder.core.file.StringSourceInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class TestIncrementalAnalysis {
+    // TODO_COMMENT is reported by a file-local check, UNUSED_IMPORT by one that looks at the whole program
+    private static final List<ProblemType> PROBLEM_TYPES = List.of(ProblemType.TODO_COMMENT, ProblemType.UNUSED_IMPORT);
+    private static final String FIRST = """
+        import java.util.List;
+
+        public class First {
+            // TODO: implement
+            public static void main(String[] args) {
+                Second.run();
+            }
+        }
+        """;
+    private static final String SECOND = """
+        public class Second {
+            // TODO: implement
+            public static void run() {
+            }
+        }
+        """;
+
+    // the model has the types of the packages before the ones of their parent package, which is not the order of the files
+    private static final String THIRD = """
+        package util;
+
+        public class Third {
+            // TODO: implement
+        }
+        """;
+
+    private static SourceInfo submission(String second) {
+        return StringSourceInfo.fromSourceStrings(JavaVersion.JAVA_17, Map.of("First", FIRST, "Second", second, "util.Third", THIRD));
+    }
+
+    private static List<Problem> check(Path cache, SourceInfo source) throws LinterException, IOException {
+        try (TempLocation tempLocation = TempLocation.random();
+             Linter linter = Linter.builder(Locale.US)
+                 .tempLocation(tempLocation)
+                 .resultCache(cache)
+                 .build()) {
+            return linter.checkFile(source, null, PROBLEM_TYPES, status -> {});
+        }
+    }
+
+    private static List<String> format(List<Problem> problems) {
+        return problems.stream()
+            .map(problem -> "%s %s %s".formatted(problem.getCheck().getClass().getSimpleName(), problem.getProblemType(), problem.getPosition()))
+            .toList();
+    }
+
+    @Test
+    void testOnlyChangedFilesAreAnalyzedByFileChecks(@TempDir Path cache, @TempDir Path noCache) throws LinterException, IOException {
+        List<Problem> first = check(cache, submission(SECOND));
+        assertEquals(4, first.size(), format(first).toString());
+        // one entry for the submission and one for each file
+        assertEquals(4, LinterTestUtil.countFiles(cache));
+
+        String changedSecond = SECOND.replace("public static void run", "// TODO: test\n    public static void run");
+        List<Problem> changed = check(cache, submission(changedSecond));
+        // a new entry for the submission and one for the changed file
+        assertEquals(6, LinterTestUtil.countFiles(cache));
+
+        // the problems must be the same as the ones of an analysis without any cached results, in the same order
+        assertEquals(format(check(noCache, submission(changedSecond))), format(changed));
+        assertEquals(format(check(null, submission(changedSecond))), format(changed));
+
+        for (Problem problem : changed) {
+            boolean isTodoInUnchangedFile = problem.getProblemType() == ProblemType.TODO_COMMENT
+                && !problem.getPosition().file().toString().contains("Second");
+            if (isTodoInUnchangedFile) {
+                // the unchanged files have not been analyzed by the file-local check
+                assertEquals("RestoredProblem", problem.getClass().getSimpleName());
+            } else {
+                assertNotEquals("RestoredProblem", problem.getClass().getSimpleName());
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package de.firemage.autograder.core;
+
+import de.firemage.autograder.core.check.Check;
+import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import de.firemage.autograder.core.file.SourceInfo;
+import de.firemage.autograder.core.file.StringSourceInfo;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TestLinter {
+    private static final String SOURCE = """
+        public class Test {
+            int trafficLight1;
+            int trafficLight2;
+
+            public static void main(String[] args) {
+                System.out.print("Hello\\n");
+            }
+        }
+        """;
+
+    private static List<Problem> check(Linter linter, List<ProblemType> problemTypes) throws LinterException, IOException {
+        SourceInfo source = StringSourceInfo.fromSourceString(JavaVersion.JAVA_17, "Test", SOURCE);
+        return linter.checkFile(source, null, problemTypes, status -> {});
+    }
+
+    private static List<String> describe(List<Problem> problems) {
+        return problems.stream()
+            .map(problem -> "%s %s %s".formatted(
+                problem.getCheck().getClass().getSimpleName(),
+                problem.getProblemType(),
+                problem.getDisplayLocation()
+            ))
+            .toList();
+    }
+
+    @Test
+    void testChecksAreReusedForTheNextSubmission() throws LinterException, IOException {
+        List<ProblemType> problemTypes = List.of(ProblemType.SIMILAR_IDENTIFIER, ProblemType.SYSTEM_SPECIFIC_LINE_BREAK);
+
+        try (TempLocation tempLocation = TempLocation.random();
+             Linter linter = Linter.builder(Locale.US).tempLocation(tempLocation).build()) {
+            List<Problem> first = check(linter, problemTypes);
+            assertEquals(2, first.size(), describe(first).toString());
+
+            // the checks must not remember anything from the first submission
+            List<Problem> second = check(linter, List.of(ProblemType.SYSTEM_SPECIFIC_LINE_BREAK, ProblemType.SIMILAR_IDENTIFIER));
+            assertEquals(describe(first), describe(second));
+            for (int i = 0; i < first.size(); i++) {
+                assertSame(first.get(i).getCheck(), second.get(i).getCheck());
+            }
+
+            // other problem types get their own checks
+            Check other = check(linter, List.of(ProblemType.SIMILAR_IDENTIFIER)).get(0).getCheck();
+            assertNotSame(first.get(0).getCheck(), other);
+        }
+    }
+}
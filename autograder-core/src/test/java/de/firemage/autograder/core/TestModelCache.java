@@ -0,0 +1,84 @@
+package de.firemage.autograder.core;
+
+import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import de.firemage.autograder.core.file.FileSourceInfo;
+import de.firemage.autograder.core.file.UploadedFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TestModelCache {
+    private static List<String> analyze(Path code, Path cache) throws LinterException, IOException {
+        try (TempLocation tempLocation = TempLocation.random();
+             UploadedFile file = UploadedFile.build(
+                 new FileSourceInfo(code, JavaVersion.JAVA_17),
+                 tempLocation,
+                 status -> {},
+                 null,
+                 List.of(),
+                 new ModelCache(cache),
+                 1
+             )) {
+            List<String> result = new ArrayList<>();
+            CodeModel model = file.getModel();
+            result.add("base package: " + (model.getBasePackage() == null ? null : model.getBasePackage().getQualifiedName()));
+            result.add("main: " + (model.hasMainMethod() ? model.findMain().getDeclaringType().getQualifiedName() : null));
+            result.addAll(LinterTestUtil.runIntegratedChecks(file, tempLocation, 0));
+
+            return result;
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"UseEntrySet", "ChainedIfCheck", "UseGuardClauses"})
+    void testSameProblemsWithLoadedModel(String testName, @TempDir Path cache) throws LinterException, IOException, URISyntaxException {
+        Path code = Path.of(this.getClass().getResource("check_tests/%s/code".formatted(testName)).toURI());
+
+        List<String> built = analyze(code, cache);
+        List<Path> snapshots = LinterTestUtil.listFiles(cache);
+        assertEquals(1, snapshots.size());
+        FileTime storedAt = Files.getLastModifiedTime(snapshots.get(0));
+
+        List<String> loaded = analyze(code, cache);
+        assertEquals(built, loaded);
+
+        // the model has been loaded, so no new snapshot has been written
+        assertEquals(snapshots, LinterTestUtil.listFiles(cache));
+        assertEquals(storedAt, Files.getLastModifiedTime(snapshots.get(0)));
+    }
+
+    @Test
+    void testManipulatedSnapshotIsNotDeserialized(@TempDir Path cache) throws LinterException, IOException, URISyntaxException {
+        Path code = Path.of(this.getClass().getResource("check_tests/UseEntrySet/code").toURI());
+        List<String> built = analyze(code, cache);
+
+        Path snapshot = LinterTestUtil.listFiles(cache).get(0);
+        try (DataOutputStream header = new DataOutputStream(Files.newOutputStream(snapshot))) {
+            // neither a base package nor a main method
+            header.writeBoolean(false);
+            header.writeBoolean(false);
+            ObjectOutputStream output = new ObjectOutputStream(header);
+            output.writeObject(new LinterTestUtil.Canary());
+            output.flush();
+        }
+
+        assertEquals(built, analyze(code, cache));
+        assertFalse(LinterTestUtil.Canary.wasDeserialized());
+    }
+
+}
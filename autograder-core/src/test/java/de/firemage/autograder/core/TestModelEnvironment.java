@@ -0,0 +1,68 @@
+package de.firemage.autograder.core;
+
+import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import de.firemage.autograder.core.file.StringSourceInfo;
+import de.firemage.autograder.core.file.UploadedFile;
+import org.junit.jupiter.api.Test;
+import spoon.reflect.declaration.CtField;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TestModelEnvironment {
+    private static final String SOURCE = """
+        import java.util.Map;
+
+        public class Test {
+            private final java.util.List<String> values = new java.util.ArrayList<>();
+
+            void test(Map<String, Integer> map) {
+                for (java.util.Map.Entry<String, Integer> entry : map.entrySet()) {
+                    System.out.println(entry);
+                }
+            }
+        }
+        """;
+
+    private static List<String> describeTypeReferences(CodeModel model) {
+        return model.getModel()
+            .getElements(new TypeFilter<CtTypeReference<?>>(CtTypeReference.class))
+            .stream()
+            .map(ctTypeReference -> "%s simplyQualified=%b implicit=%b".formatted(
+                ctTypeReference.getQualifiedName(),
+                ctTypeReference.isSimplyQualified(),
+                ctTypeReference.isImplicit()
+            ))
+            .toList();
+    }
+
+    @Test
+    void testPrettyPrintingDoesNotModifyTheModel() throws LinterException, IOException {
+        try (TempLocation tempLocation = TempLocation.random();
+             UploadedFile file = UploadedFile.build(
+                 StringSourceInfo.fromSourceStrings(JavaVersion.JAVA_17, Map.of("Test", SOURCE)),
+                 tempLocation,
+                 status -> {},
+                 null
+             )) {
+            CodeModel model = file.getModel();
+            List<String> before = describeTypeReferences(model);
+
+            CtField<?> field = model.getFactory().Class().get("Test").getField("values");
+            // the types are still printed as if they were imported
+            assertEquals("List<String>", field.getType().prettyprint());
+            for (CtTypeReference<?> ctTypeReference : model.getModel().getElements(new TypeFilter<CtTypeReference<?>>(CtTypeReference.class))) {
+                ctTypeReference.prettyprint();
+            }
+
+            // the checks read these properties while other checks print the elements
+            assertEquals(before, describeTypeReferences(model));
+        }
+    }
+}
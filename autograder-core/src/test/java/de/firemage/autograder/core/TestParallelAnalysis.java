@@ -0,0 +1,80 @@
+package de.firemage.autograder.core;
+
+import de.firemage.autograder.core.check.Check;
+import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import de.firemage.autograder.core.file.UploadedFile;
+import de.firemage.autograder.core.integrated.IntegratedCheck;
+import de.firemage.autograder.core.pmd.PMDCheck;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TestParallelAnalysis {
+    private static List<String> analyze(Path code, int threads) throws LinterException, IOException {
+        try (TempLocation tempLocation = TempLocation.random();
+             UploadedFile file = UploadedFile.build(code, JavaVersion.JAVA_17, tempLocation, status -> {
+             }, null)) {
+            return LinterTestUtil.runIntegratedChecks(file, tempLocation, threads);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ClosedSetOfValues", "UseEntrySet", "ChainedIfCheck", "UseGuardClauses", "EmptyBlockCheck"})
+    void testSameProblemsRegardlessOfThreads(String testName) throws LinterException, IOException, URISyntaxException {
+        Path code = Path.of(this.getClass().getResource("check_tests/%s/code".formatted(testName)).toURI());
+
+        List<String> expected = analyze(code, 1);
+        assertEquals(expected, analyze(code, 4));
+        assertEquals(expected, analyze(code, 8));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"UseEntrySet", "OldCollection", "UseEnumCollection", "MultiThreading", "SelfAssignmentCheck"})
+    void testSameProblemsWhenRepeatedInParallel(String testName) throws LinterException, IOException, URISyntaxException {
+        Path code = Path.of(this.getClass().getResource("check_tests/%s/code".formatted(testName)).toURI());
+
+        // the checks create references to types that have not been resolved before, every run builds a new model,
+        // so their declarations are created concurrently again
+        List<String> expected = analyze(code, 1);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expected, analyze(code, 16), "run " + i);
+        }
+    }
+
+    @Test
+    void testModelIsBuiltBeforeOtherTools() throws LinterException, IOException, URISyntaxException {
+        Path code = Path.of(this.getClass().getResource("check_tests/UseEntrySet/code").toURI());
+
+        try (TempLocation tempLocation = TempLocation.random();
+             UploadedFile file = UploadedFile.build(code, JavaVersion.JAVA_17, tempLocation, status -> {
+             }, null);
+             Linter linter = Linter.builder(Locale.US)
+                 .threads(1)
+                 .tempLocation(tempLocation)
+                 .build()) {
+            List<Check> checks = linter.findChecksForProblemTypes(List.of(ProblemType.values()))
+                .stream()
+                .filter(check -> check instanceof IntegratedCheck || check instanceof PMDCheck)
+                .toList();
+
+            List<LinterStatus> statuses = new ArrayList<>();
+            linter.checkFile(file, null, List.of(), checks, statuses::add);
+
+            // with a single thread, the tasks run in the order in which they have been submitted
+            assertEquals(
+                List.of(LinterStatus.BUILDING_CODE_MODEL, LinterStatus.RUNNING_PMD, LinterStatus.RUNNING_INTEGRATED_CHECKS),
+                statuses
+            );
+        }
+    }
+}
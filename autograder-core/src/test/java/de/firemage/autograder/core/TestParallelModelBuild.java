@@ -0,0 +1,106 @@
+package de.firemage.autograder.core;
+
+import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import de.firemage.autograder.core.file.FileSourceInfo;
+import de.firemage.autograder.core.file.UploadedFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TestParallelModelBuild {
+    private static final int CLASS_COUNT = 24;
+
+    private static void writeSubmission(Path folder) throws IOException {
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            // every class uses the next one, so the references cross the partitions
+            String packageName = i % 2 == 0 ? "edu.kit.first" : "edu.kit.second";
+            String nextType = (i + 1) % 2 == 0 ? "edu.kit.first" : "edu.kit.second";
+            String code = """
+                package %s;
+
+                import java.util.ArrayList;
+                import java.util.List;
+
+                public class Type%d {
+                    private final List<String> values = new ArrayList<>();
+
+                    public int count(%s.Type%d next) {
+                        // TODO: count something useful
+                        if (next == null) {
+                            return values.size();
+                        } else {
+                            return values.size() + 1;
+                        }
+                    }
+                }
+                """.formatted(packageName, i, nextType, (i + 1) % CLASS_COUNT);
+
+            Path file = folder.resolve(packageName.replace('.', '/')).resolve("Type%d.java".formatted(i));
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, code);
+        }
+
+        Files.writeString(folder.resolve("edu/kit/first/Main.java"), """
+            package edu.kit.first;
+
+            public final class Main {
+                private Main() {
+                }
+
+                public static void main(String[] args) {
+                    System.out.println(new Type0().count(new edu.kit.second.Type1()));
+                }
+            }
+            """);
+    }
+
+    private static List<String> analyze(Path code, int buildThreads) throws LinterException, IOException {
+        try (TempLocation tempLocation = TempLocation.random();
+             UploadedFile file = UploadedFile.build(
+                 new FileSourceInfo(code, JavaVersion.JAVA_17),
+                 tempLocation,
+                 status -> {},
+                 null,
+                 List.of(),
+                 null,
+                 buildThreads
+             )) {
+            List<String> result = new ArrayList<>();
+            CodeModel model = file.getModel();
+            result.add("base package: " + model.getBasePackage().getQualifiedName());
+            result.add("main: " + model.findMain().getDeclaringType().getQualifiedName());
+            for (CtType<?> type : model.getModel().getAllTypes()) {
+                result.add("type: %s %s".formatted(type.getQualifiedName(), type.getPosition().getFile().getName()));
+                // all elements must belong to the factory of the model, even if they were built by another one
+                for (CtElement element : type.getElements(null)) {
+                    assertSame(model.getFactory(), element.getFactory());
+                }
+            }
+            result.sort(null);
+
+            result.addAll(LinterTestUtil.runIntegratedChecks(file, tempLocation, 0));
+            return result;
+        }
+    }
+
+    @Test
+    void testSameModelAsSequentialBuild(@TempDir Path code) throws LinterException, IOException {
+        writeSubmission(code);
+
+        List<String> sequential = analyze(code, 1);
+        List<String> parallel = analyze(code, 4);
+
+        assertEquals(sequential, parallel);
+    }
+}
@@ -0,0 +1,114 @@
+package de.firemage.autograder.core;
+
+import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import de.firemage.autograder.core.file.SourceInfo;
+import de.firemage.autograder.core.file.StringSourceInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestResultCache {
+    private static final List<ProblemType> PROBLEM_TYPES = List.of(ProblemType.UNUSED_IMPORT, ProblemType.SYSTEM_SPECIFIC_LINE_BREAK);
+    private static final String SOURCE = """
+        import java.util.List;
+        import java.util.Map;
+
+        public class Test {
+            public static void main(String[] args) {
+                System.out.print("Hello\\n");
+                System.out.print("World\\n");
+            }
+        }
+        """;
+
+    private record Result(List<String> problems, boolean hasCompiled) {
+    }
+
+    private static Result check(Path cache, SourceInfo source, int maxProblemsPerCheck) throws LinterException, IOException {
+        try (TempLocation tempLocation = TempLocation.random();
+             Linter linter = Linter.builder(Locale.US)
+                 .tempLocation(tempLocation)
+                 .maxProblemsPerCheck(maxProblemsPerCheck)
+                 .resultCache(cache)
+                 .build()) {
+            List<LinterStatus> statuses = new ArrayList<>();
+            List<String> problems = linter.checkFile(source, null, PROBLEM_TYPES, statuses::add)
+                .stream()
+                .map(problem -> "%s %s %s %s".formatted(
+                    problem.getCheck().getClass().getSimpleName(),
+                    problem.getProblemType(),
+                    problem.getPosition(),
+                    linter.translateMessage(problem.getExplanation())
+                ))
+                .toList();
+
+            return new Result(problems, statuses.contains(LinterStatus.COMPILING));
+        }
+    }
+
+    @Test
+    void testIdenticalSubmissionIsNotAnalyzedAgain(@TempDir Path cache) throws LinterException, IOException {
+        SourceInfo source = StringSourceInfo.fromSourceString(JavaVersion.JAVA_17, "Test", SOURCE);
+
+        Result first = check(cache, source, -1);
+        assertTrue(first.hasCompiled());
+        assertEquals(4, first.problems().size(), first.problems().toString());
+        assertEquals(1, LinterTestUtil.countFiles(cache));
+
+        // a new linter with the same cache, the submission is a new object with the same content
+        Result second = check(cache, StringSourceInfo.fromSourceString(JavaVersion.JAVA_17, "Test", SOURCE), -1);
+        assertFalse(second.hasCompiled());
+        assertEquals(first.problems(), second.problems());
+
+        // the problems are merged after they have been loaded from the cache
+        Result merged = check(cache, source, 1);
+        assertFalse(merged.hasCompiled());
+        assertEquals(2, merged.problems().size(), merged.problems().toString());
+        assertEquals(1, LinterTestUtil.countFiles(cache));
+    }
+
+    @Test
+    void testChangedSubmissionIsAnalyzed(@TempDir Path cache) throws LinterException, IOException {
+        check(cache, StringSourceInfo.fromSourceString(JavaVersion.JAVA_17, "Test", SOURCE), -1);
+
+        Result changed = check(cache, StringSourceInfo.fromSourceString(JavaVersion.JAVA_17, "Test", SOURCE.replace("import java.util.Map;\n", "")), -1);
+        assertTrue(changed.hasCompiled());
+        assertEquals(3, changed.problems().size(), changed.problems().toString());
+        assertEquals(2, LinterTestUtil.countFiles(cache));
+
+        // the java version is part of the key as well
+        Result otherVersion = check(cache, StringSourceInfo.fromSourceString(JavaVersion.JAVA_16, "Test", SOURCE), -1);
+        assertTrue(otherVersion.hasCompiled());
+        assertEquals(3, LinterTestUtil.countFiles(cache));
+    }
+
+    @Test
+    void testManipulatedEntryIsNotDeserialized(@TempDir Path cache) throws LinterException, IOException {
+        SourceInfo source = StringSourceInfo.fromSourceString(JavaVersion.JAVA_17, "Test", SOURCE);
+        Result first = check(cache, source, -1);
+
+        for (Path entry : LinterTestUtil.listFiles(cache)) {
+            try (ObjectOutputStream output = new ObjectOutputStream(Files.newOutputStream(entry))) {
+                output.writeObject(new ArrayList<>(List.of(new LinterTestUtil.Canary())));
+            }
+        }
+
+        Result second = check(cache, source, -1);
+        assertFalse(LinterTestUtil.Canary.wasDeserialized());
+        assertTrue(second.hasCompiled());
+        assertEquals(first.problems(), second.problems());
+    }
+
+}
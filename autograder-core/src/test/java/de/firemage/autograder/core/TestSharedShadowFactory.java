@@ -0,0 +1,61 @@
+package de.firemage.autograder.core;
+
+import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import de.firemage.autograder.core.file.StringSourceInfo;
+import de.firemage.autograder.core.file.UploadedFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestSharedShadowFactory {
+    private static final String SOURCE = """
+        import java.util.ArrayList;
+        import java.util.List;
+
+        public class Test {
+            private final List<String> values = new ArrayList<>();
+        }
+        """;
+
+    private static UploadedFile build(TempLocation tempLocation) throws LinterException, IOException {
+        return UploadedFile.build(
+            StringSourceInfo.fromSourceStrings(JavaVersion.JAVA_17, Map.of("Test", SOURCE)),
+            tempLocation,
+            status -> {},
+            null
+        );
+    }
+
+    @Test
+    void testJdkTypesAreCopiedIntoEachModel() throws LinterException, IOException {
+        try (TempLocation tempLocation = TempLocation.random();
+             UploadedFile first = build(tempLocation);
+             UploadedFile second = build(tempLocation)) {
+            var firstField = first.getModel().getFactory().Class().get("Test").getField("values");
+            var secondField = second.getModel().getFactory().Class().get("Test").getField("values");
+            assertNotSame(firstField, secondField);
+
+            // both models get their own copy of the shared declaration of java.util.List
+            var firstList = firstField.getType().getTypeDeclaration();
+            var secondList = secondField.getType().getTypeDeclaration();
+            assertNotSame(firstList, secondList);
+            assertEquals(firstList, secondList);
+            assertTrue(firstList.isShadow());
+            assertSame(first.getModel().getFactory(), firstList.getFactory());
+            assertSame(first.getModel().getFactory(), firstList.getMethodsByName("add").get(0).getFactory());
+            assertSame(firstList, first.getModel().getFactory().Type().get(List.class));
+
+            // the shared declarations can be used like the ones of the model
+            assertTrue(firstField.getDefaultExpression().getType().isSubtypeOf(secondField.getType()));
+            assertTrue(firstField.getType().getTypeDeclaration().getMethodsByName("add").size() >= 2);
+        }
+    }
+}
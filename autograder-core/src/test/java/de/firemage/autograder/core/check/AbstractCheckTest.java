@@ -7,6 +7,7 @@ import de.firemage.autograder.core.ProblemType;
 import de.firemage.autograder.core.file.SourceInfo;
 import de.firemage.autograder.core.errorprone.TempLocation;
 import de.firemage.autograder.core.file.UploadedFile;
+import org.junit.jupiter.api.AfterEach;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -39,6 +40,11 @@ public abstract class AbstractCheckTest {
             .build();
     }
 
+    @AfterEach
+    void closeLinter() {
+        this.linter.close();
+    }
+
     protected List<Problem> check(
         SourceInfo sourceInfo,
         List<ProblemType> problemTypes
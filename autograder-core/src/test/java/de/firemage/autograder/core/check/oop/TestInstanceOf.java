@@ -0,0 +1,59 @@
+package de.firemage.autograder.core.check.oop;
+
+import de.firemage.autograder.core.LinterException;
+import de.firemage.autograder.core.Problem;
+import de.firemage.autograder.core.ProblemType;
+import de.firemage.autograder.core.check.AbstractCheckTest;
+import de.firemage.autograder.core.compiler.JavaVersion;
+import de.firemage.autograder.core.file.StringSourceInfo;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TestInstanceOf extends AbstractCheckTest {
+    private static final List<ProblemType> PROBLEM_TYPES = List.of(ProblemType.INSTANCEOF, ProblemType.INSTANCEOF_EMULATION);
+
+    @Test
+    void testProblemsAreInTheOrderOfTheCode() throws IOException, LinterException {
+        List<Problem> problems = this.check(StringSourceInfo.fromSourceString(
+            JavaVersion.JAVA_17,
+            "Test",
+            """
+                public class Test {
+                    void foo(Object value) {
+                        try {
+                            String string = (String) value;
+                        } catch (ClassCastException e) {
+                        }
+
+                        if (value.getClass() == String.class) {
+                        }
+
+                        if (value instanceof Integer) {
+                        }
+
+                        try {
+                            Integer integer = (Integer) value;
+                        } catch (ClassCastException e) {
+                        }
+                    }
+                }
+                """
+        ), PROBLEM_TYPES);
+
+        assertEquals(
+            List.of(
+                "INSTANCEOF_EMULATION Test.java:5-6",
+                "INSTANCEOF_EMULATION Test.java:8",
+                "INSTANCEOF Test.java:11",
+                "INSTANCEOF_EMULATION Test.java:16-17"
+            ),
+            problems.stream()
+                .map(problem -> "%s %s".formatted(problem.getProblemType(), problem.getDisplayLocation()))
+                .toList()
+        );
+    }
+}
@@ -0,0 +1,168 @@
+package de.firemage.autograder.core.compiler;
+
+import de.firemage.autograder.core.errorprone.ErrorProneLint;
+import de.firemage.autograder.core.errorprone.TempLocation;
+import de.firemage.autograder.core.errorprone.VMLauncher;
+import de.firemage.autograder.core.errorprone.VMWorkerPool;
+import de.firemage.autograder.core.file.SourceInfo;
+import de.firemage.autograder.core.file.StringSourceInfo;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestCompiler {
+    private static final String SOURCE = """
+        import java.util.HashMap;
+        import java.util.Map;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public class Test {
+            // @SuppressWarnings("unchecked")
+            private static final String TEXT = "@SuppressWarnings(\\"unchecked\\")";
+
+            @java.lang.SuppressWarnings(
+                "unchecked"
+            )
+            public static Map<String, String> create() {
+                return (Map<String, String>) new HashMap();
+            }
+        }
+        """;
+
+    @Test
+    void testRemoveSuppressions() {
+        // the arguments are replaced with an empty array, but comments, literals and line breaks are kept
+        String expected = SOURCE
+            .replace("{\"unchecked\", \"rawtypes\"}", "{" + " ".repeat(23) + "}")
+            .replace("(\n        \"unchecked\"\n    )", "(\n{" + " ".repeat(18) + "\n   })");
+
+        assertEquals(expected, UnsuppressedFileObject.removeSuppressions(SOURCE));
+    }
+
+    @Test
+    void testCompileReportsSuppressedWarningsAndKeepsClasses() throws IOException, CompilationFailureException {
+        try (TempLocation tempLocation = TempLocation.random()) {
+            CompilationResult result = new Compiler(tempLocation, JavaVersion.JAVA_17)
+                .compileToJar(StringSourceInfo.fromSourceString(JavaVersion.JAVA_17, "Test", SOURCE))
+                .orElseThrow();
+
+            assertTrue(result.diagnostics().stream().anyMatch(diagnostic -> diagnostic.code().equals("compiler.warn.prob.found.req")
+                && diagnostic.line() == 13));
+
+            // compile the original source with javac, the classes must not differ
+            Path sources = tempLocation.createTempDirectory("sources").toPath();
+            Path classes = tempLocation.createTempDirectory("classes").toPath();
+            Path file = Files.writeString(sources.resolve("Test.java"), SOURCE);
+            assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null,
+                "-d", classes.toString(), "--release=17", file.toString()));
+
+            try (JarFile jarFile = new JarFile(result.jar().toFile())) {
+                JarEntry entry = jarFile.getJarEntry("Test.class");
+                assertArrayEquals(Files.readAllBytes(classes.resolve("Test.class")), jarFile.getInputStream(entry).readAllBytes());
+            }
+        }
+    }
+
+    @Test
+    void testJarContainsAllClasses() throws IOException, CompilationFailureException {
+        try (TempLocation tempLocation = TempLocation.random()) {
+            CompilationResult result = new Compiler(tempLocation, JavaVersion.JAVA_17)
+                .compileToJar(StringSourceInfo.fromSourceStrings(JavaVersion.JAVA_17, Map.of(
+                    "com.example.Main", "package com.example; public class Main { class Inner {} }",
+                    "com.example.util.Helper", "package com.example.util; public class Helper {}"
+                )))
+                .orElseThrow();
+
+            try (JarFile jarFile = new JarFile(result.jar().toFile())) {
+                assertEquals(List.of(
+                    "META-INF/MANIFEST.MF",
+                    "com/",
+                    "com/example/",
+                    "com/example/Main$Inner.class",
+                    "com/example/Main.class",
+                    "com/example/util/",
+                    "com/example/util/Helper.class"
+                ), jarFile.stream().map(JarEntry::getName).toList());
+            }
+        }
+    }
+
+    @Test
+    void testCompileWithErrorProne() throws IOException, CompilationFailureException, InterruptedException {
+        SourceInfo sourceInfo = StringSourceInfo.fromSourceString(JavaVersion.JAVA_17, "Test", """
+            import java.util.ArrayList;
+            import java.util.List;
+
+            public class Test {
+                private final List<String> list = new ArrayList<>() {{
+                    add("a");
+                }};
+            }
+            """);
+
+        try (TempLocation tempLocation = TempLocation.random();
+             VMWorkerPool pool = new VMWorkerPool(VMLauncher.fromDefault(tempLocation), 1)) {
+            // this JVM does not export the compiler internals, so error-prone can not be attached to the compilation
+            CompilationResult result = new Compiler(tempLocation, JavaVersion.JAVA_17)
+                .compileToJar(sourceInfo, List.of(ErrorProneLint.fromString("DoubleBraceInitialization")))
+                .orElseThrow();
+            assertEquals(Set.of(), result.errorProneLints());
+
+            // but the worker does
+            ArrayList<String> lints = pool.run(() -> {
+                CompilationResult workerResult = new Compiler(tempLocation, JavaVersion.JAVA_17)
+                    .compileToJar(sourceInfo, List.of(ErrorProneLint.fromString("DoubleBraceInitialization")))
+                    .orElseThrow();
+
+                ArrayList<String> emittedLints = new ArrayList<>();
+                workerResult.errorProneDiagnostics().forEach(diagnostic -> emittedLints.add("%s:%d".formatted(diagnostic.lint(), diagnostic.line())));
+                // the lints of error-prone are not part of the compiler diagnostics
+                workerResult.diagnostics().forEach(diagnostic -> emittedLints.add(diagnostic.code()));
+                return emittedLints;
+            });
+
+            assertEquals(List.of("DoubleBraceInitialization:5"), lints);
+        }
+    }
+
+    @Test
+    void testErrorProneIsNotAttachedToSuppressedSources() throws IOException, InterruptedException {
+        SourceInfo sourceInfo = StringSourceInfo.fromSourceString(JavaVersion.JAVA_17, "Test", """
+            import java.util.ArrayList;
+            import java.util.List;
+
+            public class Test {
+                @SuppressWarnings("DoubleBraceInitialization")
+                private final List<String> list = new ArrayList<>() {{
+                    add("a");
+                }};
+            }
+            """);
+
+        try (TempLocation tempLocation = TempLocation.random();
+             VMWorkerPool pool = new VMWorkerPool(VMLauncher.fromDefault(tempLocation), 1)) {
+            // the compiler does not see the suppression, so error-prone would report the lint
+            boolean isAttached = pool.run(() -> !new Compiler(tempLocation, JavaVersion.JAVA_17)
+                .compileToJar(sourceInfo, List.of(ErrorProneLint.fromString("DoubleBraceInitialization")))
+                .orElseThrow()
+                .errorProneLints()
+                .isEmpty());
+
+            assertFalse(isAttached);
+        }
+    }
+}
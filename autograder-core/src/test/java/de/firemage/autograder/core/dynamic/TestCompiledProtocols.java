@@ -0,0 +1,45 @@
+package de.firemage.autograder.core.dynamic;
+
+import de.firemage.autograder.executor.Protocol;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TestCompiledProtocols {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testCachesUntilModified() throws IOException, RunnerException {
+        Path file = Files.writeString(this.directory.resolve("test.protocol"), "name: First\r\n--\r\n>a\r\na\r\n");
+
+        byte[] compiled = CompiledProtocols.get(file);
+        assertSame(compiled, CompiledProtocols.get(file));
+        assertEquals("First", Protocol.read(new ByteArrayInputStream(compiled)).getName());
+
+        Files.writeString(file, "name: Second\n--\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(10)));
+
+        byte[] recompiled = CompiledProtocols.get(file);
+        assertNotSame(compiled, recompiled);
+        assertEquals("Second", Protocol.read(new ByteArrayInputStream(recompiled)).getName());
+    }
+
+    @Test
+    void testInvalidProtocol() throws IOException {
+        Path file = Files.writeString(this.directory.resolve("invalid.protocol"), "name: Invalid\n");
+
+        assertThrows(RunnerException.class, () -> CompiledProtocols.get(file));
+    }
+}
@@ -0,0 +1,96 @@
+package de.firemage.autograder.core.dynamic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestConsoleRunner {
+    private static final String STUDENT_CODE = """
+        package example;
+
+        import java.util.Scanner;
+
+        public class Main {
+            public static void main(String[] args) {
+                Scanner scanner = new Scanner(System.in);
+                while (scanner.hasNextLine()) {
+                    String line = scanner.nextLine();
+                    if (line.equals("hang")) {
+                        System.out.println("hanging");
+                        // ignores the interrupt of the executor
+                        while (true) {
+                        }
+                    } else if (line.equals("quit")) {
+                        System.exit(0);
+                    }
+                    System.out.println(line);
+                }
+            }
+        }
+        """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testHangingTestsDoNotAffectLaterTests() throws IOException, RunnerException, InterruptedException, URISyntaxException {
+        Path tests = Files.createDirectory(this.directory.resolve("tests"));
+        // the test only gives up on the second line, when the student code is surely in the loop
+        String hanging = "output-timeout: 2000\n--\n>hang\nhanging\nnever\n";
+        Files.writeString(tests.resolve("0_hang.protocol"), hanging);
+        Files.writeString(tests.resolve("1_hang.protocol"), hanging);
+        Files.writeString(tests.resolve("2_normal.protocol"), "--\n>a\na\n>quit\n");
+
+        TestContainerSettings defaults = TestContainerSettings.defaults();
+        ConsoleRunner runner = new ConsoleRunner(
+            resource("/executor.jar"),
+            resource("/agent.jar"),
+            tests,
+            this.directory,
+            new TestContainerSettings(1, defaults.memoryBytes(), defaults.pidsLimit())
+        );
+
+        List<TestRunResult> results = runner.runTests("example/Main", this.compileStudentCode());
+
+        assertEquals(3, results.size());
+        for (TestRunResult result : results.subList(0, 2)) {
+            assertEquals(TestRunResult.TestRunStatus.ERROR_TEST_FAILURE, result.status());
+            assertTrue(result.executorOutput().contains("The threads of the test did not stop"));
+        }
+        assertEquals(TestRunResult.TestRunStatus.OK, results.get(2).status(), results.get(2).executorOutput());
+    }
+
+    private Path compileStudentCode() throws IOException {
+        Path source = this.directory.resolve("src").resolve("example").resolve("Main.java");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, STUDENT_CODE);
+
+        Path classes = Files.createDirectory(this.directory.resolve("classes"));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertEquals(0, compiler.run(null, null, null, "-d", classes.toString(), source.toString()));
+
+        Path jar = this.directory.resolve("student.jar");
+        try (JarOutputStream jarStream = new JarOutputStream(Files.newOutputStream(jar))) {
+            jarStream.putNextEntry(new JarEntry("example/Main.class"));
+            Files.copy(classes.resolve("example").resolve("Main.class"), jarStream);
+            jarStream.closeEntry();
+        }
+        return jar;
+    }
+
+    private static Path resource(String name) throws URISyntaxException {
+        return Path.of(TestConsoleRunner.class.getResource(name).toURI());
+    }
+}
@@ -0,0 +1,22 @@
+package de.firemage.autograder.core.dynamic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TestProcessSandbox {
+    @Test
+    void testCpuTimeGrowsWithTheNumberOfTests() {
+        TestContainerSettings settings = TestContainerSettings.defaults();
+        assumeTrue(ProcessSandbox.commandPrefix(settings, 1).contains("prlimit"), "prlimit is not available");
+
+        // the executor runs all tests of a suite in one JVM, so they must not share the cpu time of a single test
+        List<String> single = ProcessSandbox.commandPrefix(settings, 1);
+        List<String> suite = ProcessSandbox.commandPrefix(settings, 5);
+        assertTrue(single.contains("--cpu=60"), single.toString());
+        assertTrue(suite.contains("--cpu=300"), suite.toString());
+    }
+}
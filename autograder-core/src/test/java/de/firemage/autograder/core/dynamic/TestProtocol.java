@@ -0,0 +1,265 @@
+package de.firemage.autograder.core.dynamic;
+
+import de.firemage.autograder.executor.ConsoleExecutor;
+import de.firemage.autograder.executor.Protocol;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestProtocol {
+    @Test
+    void testParseHeaderAndInstructions() {
+        Protocol protocol = Protocol.parse("""
+            name: Test
+            comment: a comment
+            args: a b
+            output-timeout: 100
+            exit-timeout: 200
+            --
+            ### ignored
+            >input
+            output
+            !*!
+            !U!first
+            !U!!R!sec.nd
+            """);
+
+        assertEquals("Test", protocol.getName());
+        assertEquals("a comment", protocol.getComment());
+        assertEquals(List.of("a", "b"), protocol.getArgs());
+        assertEquals(100, protocol.getOutputTimeoutMillis());
+        assertEquals(200, protocol.getExitTimeoutMillis());
+
+        List<Protocol.Instruction> instructions = protocol.getInstructions();
+        assertEquals(4, instructions.size());
+        assertEquals(new Protocol.Input("input"), instructions.get(0));
+        assertEquals("[output]", ((Protocol.Output) instructions.get(1)).lines().toString());
+        assertInstanceOf(Protocol.AnyLines.class, instructions.get(2));
+        Protocol.Output unordered = (Protocol.Output) instructions.get(3);
+        assertTrue(unordered.unordered());
+        assertEquals("[first, !R!sec.nd]", unordered.lines().toString());
+    }
+
+    @Test
+    void testParseWindowsLineEndings() {
+        Protocol protocol = Protocol.parse("name: Test\r\nargs: a\r\n--\r\n>input\r\noutput\r\n");
+
+        assertEquals("Test", protocol.getName());
+        assertEquals(List.of("a"), protocol.getArgs());
+        assertEquals(new Protocol.Input("input"), protocol.getInstructions().get(0));
+        assertEquals("[output]", ((Protocol.Output) protocol.getInstructions().get(1)).lines().toString());
+    }
+
+    @Test
+    void testLegacyFlagIsIgnored() {
+        Protocol protocol = Protocol.parse("--\n!A!!R!^(E|e)rror.*\n!A!plain\n");
+
+        Protocol.LineMatcher regex = ((Protocol.Output) protocol.getInstructions().get(0)).lines().get(0);
+        assertTrue(regex.matches("Error, invalid input"));
+        assertTrue(regex.matches("error"));
+        assertFalse(regex.matches("Fehler"));
+
+        Protocol.LineMatcher plain = ((Protocol.Output) protocol.getInstructions().get(1)).lines().get(0);
+        assertTrue(plain.matches("plain"));
+        assertFalse(plain.matches("!A!plain"));
+    }
+
+    @Test
+    void testInvalidProtocols() {
+        assertThrows(IllegalArgumentException.class, () -> Protocol.parse("name: no end of header\n"));
+        assertThrows(IllegalArgumentException.class, () -> Protocol.parse("--\n!R!(unclosed\n"));
+        assertThrows(IllegalArgumentException.class, () -> Protocol.parse("output-timeout: soon\n--\n"));
+    }
+
+    @Test
+    void testCompiledFormRoundTrip() throws IOException {
+        String longLine = "x".repeat(100_000);
+        Protocol protocol = Protocol.parse("name: Test\nargs: a\noutput-timeout: 100\n--\n>" + longLine
+            + "\nä\n!*!\n!U!!R!a+\n!U!b\n");
+
+        ByteArrayOutputStream compiled = new ByteArrayOutputStream();
+        protocol.write(compiled);
+        Protocol read = Protocol.read(new ByteArrayInputStream(compiled.toByteArray()));
+
+        assertEquals("Test", read.getName());
+        assertEquals(null, read.getComment());
+        assertEquals(List.of("a"), read.getArgs());
+        assertEquals(100, read.getOutputTimeoutMillis());
+        assertEquals(protocol.getExitTimeoutMillis(), read.getExitTimeoutMillis());
+        assertEquals(protocol.getInstructions().toString(), read.getInstructions().toString());
+        assertEquals(new Protocol.Input(longLine), read.getInstructions().get(0));
+        assertTrue(((Protocol.Output) read.getInstructions().get(3)).lines().get(0).matches("aaa"));
+    }
+
+    @Test
+    void testTruncatedCompiledForm() throws IOException {
+        ByteArrayOutputStream compiled = new ByteArrayOutputStream();
+        Protocol.parse("name: Test\n--\n>input\n").write(compiled);
+        byte[] bytes = compiled.toByteArray();
+
+        assertThrows(IOException.class,
+            () -> Protocol.read(new ByteArrayInputStream(bytes, 0, bytes.length - 2)));
+    }
+
+    @Test
+    void testExactOutput() throws IOException, InterruptedException {
+        assertTrue(execute("--\n>a\na\n>quit\n"));
+        assertFalse(execute("--\n>a\nb\n>quit\n"));
+    }
+
+    @Test
+    void testUnorderedOutput() throws IOException, InterruptedException {
+        assertTrue(execute("--\n>multi\n!U!z\n!U!x\n!U!y\n>quit\n"));
+        assertFalse(execute("--\n>multi\n!U!x\n!U!q\ny\n>quit\n"));
+    }
+
+    @Test
+    void testAnyLines() throws IOException, InterruptedException {
+        assertTrue(execute("--\n>multi\n!*!\nz\n>quit\n"));
+        // the wildcard also skips the output that is printed after the next input
+        assertTrue(execute("--\n>multi\n!*!\n>b\nb\n>quit\n"));
+        assertFalse(execute("output-timeout: 200\n--\n>multi\n!*!\nq\n>quit\n"));
+    }
+
+    @Test
+    void testRegexOutput() throws IOException, InterruptedException {
+        assertTrue(execute("--\n>fail\n!A!!R!^(E|e)rror.*\n>quit\n"));
+        assertTrue(execute("--\n>a1\n!R!a\\d\n>quit\n"));
+        assertFalse(execute("--\n>ab\n!R!a\\d\n>quit\n"));
+    }
+
+    @Test
+    void testWindowsLineEndings() throws IOException, InterruptedException {
+        assertTrue(execute("name: Test\r\n--\r\n>a\r\na\r\n>multi\r\n!U!y\r\n!U!x\r\n!U!z\r\n>quit\r\n"));
+    }
+
+    @Test
+    void testOutputTimeout() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        assertFalse(execute("output-timeout: 100\n--\n>silent\nnever\n"));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+    }
+
+    private static boolean execute(String protocol) throws IOException, InterruptedException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        try (PrintStream logStream = new PrintStream(log, true, StandardCharsets.UTF_8)) {
+            return new ConsoleExecutor(logStream, logStream, (mainClass, args) -> new ScriptedProcess())
+                .execute("Main", protocol, true);
+        }
+    }
+
+    /**
+     * A program that answers every line of input. It prints three lines for {@code multi}, an error for {@code fail},
+     * nothing for {@code silent}, exits for {@code quit} and echoes everything else.
+     */
+    private static final class ScriptedProcess extends Process {
+        private final PipedOutputStream stdin = new PipedOutputStream();
+        private final PipedInputStream stdout = new PipedInputStream();
+        private final CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+
+        private ScriptedProcess() throws IOException {
+            PipedInputStream input = new PipedInputStream(this.stdin);
+            PipedOutputStream output = new PipedOutputStream(this.stdout);
+            Thread thread = new Thread(() -> {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+                     PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null && !line.equals("quit")) {
+                        switch (line) {
+                            case "multi" -> {
+                                out.println("x");
+                                out.println("y");
+                                out.println("z");
+                            }
+                            case "fail" -> out.println("Error, invalid input");
+                            case "silent" -> {
+                            }
+                            default -> out.println(line);
+                        }
+                    }
+                } catch (IOException e) {
+                    // the process was destroyed
+                } finally {
+                    this.exitCode.complete(0);
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return this.stdin;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return this.stdout;
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public int waitFor() throws InterruptedException {
+            try {
+                return this.exitCode.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+            try {
+                this.exitCode.get(timeout, unit);
+                return true;
+            } catch (TimeoutException e) {
+                return false;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int exitValue() {
+            if (!this.exitCode.isDone()) {
+                throw new IllegalThreadStateException("The process has not exited");
+            }
+            return this.exitCode.join();
+        }
+
+        @Override
+        public void destroy() {
+            try {
+                this.stdin.close();
+            } catch (IOException e) {
+                // already closed
+            }
+            this.exitCode.complete(143);
+        }
+    }
+}
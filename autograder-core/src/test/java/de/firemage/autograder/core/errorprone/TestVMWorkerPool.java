@@ -0,0 +1,95 @@
+package de.firemage.autograder.core.errorprone;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestVMWorkerPool {
+    @Test
+    void testReusesWorker() throws IOException, InterruptedException {
+        try (TempLocation tempLocation = TempLocation.random();
+             VMWorkerPool pool = new VMWorkerPool(VMLauncher.fromDefault(tempLocation), 1)) {
+            long firstPid = pool.run(() -> ProcessHandle.current().pid());
+
+            assertNotEquals(ProcessHandle.current().pid(), firstPid);
+            assertEquals(firstPid, pool.run(() -> ProcessHandle.current().pid()));
+        }
+    }
+
+    @Test
+    void testFailingLambdaKeepsWorker() throws IOException, InterruptedException {
+        try (TempLocation tempLocation = TempLocation.random();
+             VMWorkerPool pool = new VMWorkerPool(VMLauncher.fromDefault(tempLocation), 1)) {
+            long pid = pool.run(() -> ProcessHandle.current().pid());
+
+            assertThrows(IllegalStateException.class, () -> pool.run(() -> {
+                throw new IOException("failed");
+            }));
+            assertEquals(pid, pool.run(() -> ProcessHandle.current().pid()));
+        }
+    }
+
+    @Test
+    void testRestartsCrashedWorker() throws IOException, InterruptedException {
+        try (TempLocation tempLocation = TempLocation.random();
+             VMWorkerPool pool = new VMWorkerPool(VMLauncher.fromDefault(tempLocation), 1)) {
+            long pid = pool.run(() -> ProcessHandle.current().pid());
+
+            assertThrows(IOException.class, () -> pool.run(() -> {
+                Runtime.getRuntime().halt(1);
+                return 0;
+            }));
+            assertNotEquals(pid, pool.run(() -> ProcessHandle.current().pid()));
+        }
+    }
+
+    @Test
+    void testKillsWorkerAfterTimeout() throws IOException, InterruptedException {
+        try (TempLocation tempLocation = TempLocation.random();
+             VMWorkerPool pool = new VMWorkerPool(VMLauncher.fromDefault(tempLocation), 1, Duration.ofSeconds(2))) {
+            long pid = pool.run(() -> ProcessHandle.current().pid());
+
+            assertThrows(InterruptedIOException.class, () -> pool.<Long>run(() -> {
+                while (true) {
+                    LockSupport.park();
+                }
+            }));
+
+            ProcessHandle worker = ProcessHandle.of(pid).orElse(null);
+            if (worker != null) {
+                worker.onExit().join();
+            }
+            assertNotEquals(pid, pool.run(() -> ProcessHandle.current().pid()));
+        }
+    }
+
+    @Test
+    void testClosedPoolStopsWorkers() throws IOException, InterruptedException {
+        ProcessHandle worker;
+        try (TempLocation tempLocation = TempLocation.random();
+             VMWorkerPool pool = new VMWorkerPool(VMLauncher.fromDefault(tempLocation), 1)) {
+            worker = ProcessHandle.of(pool.run(() -> ProcessHandle.current().pid())).orElseThrow();
+        }
+
+        worker.onExit().join();
+        assertFalse(worker.isAlive());
+    }
+
+    @Test
+    void testWorkerHasCompilerExports() throws IOException, InterruptedException {
+        try (TempLocation tempLocation = TempLocation.random();
+             VMWorkerPool pool = new VMWorkerPool(VMLauncher.fromDefault(tempLocation), 1)) {
+            // the worker can always run error-prone itself
+            assertTrue(pool.run(ErrorPronePlugin::isAvailable));
+        }
+    }
+}
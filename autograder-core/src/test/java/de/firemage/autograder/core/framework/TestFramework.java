@@ -2,6 +2,7 @@ package de.firemage.autograder.core.framework;
 
 import de.firemage.autograder.core.Linter;
 import de.firemage.autograder.core.LinterException;
+import de.firemage.autograder.core.dynamic.ConsoleRunner;
 import de.firemage.autograder.core.errorprone.TempLocation;
 import de.firemage.autograder.core.file.SourcePath;
 import de.firemage.autograder.core.file.UploadedFile;
@@ -34,7 +35,7 @@ public class TestFramework {
      */
     private static final List<String> ONLY_TEST = List.of();
 
-    private static final boolean ENABLE_DYNAMIC = false;
+    private static final boolean ENABLE_DYNAMIC = true;
 
     @TestFactory
     // @Execution(ExecutionMode.CONCURRENT)
@@ -62,17 +63,19 @@ public class TestFramework {
     private static List<ReportedProblem> runAutograder(TestInput testInput, TempLocation tempLocation) throws LinterException, IOException, ClassNotFoundException, InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
         var check = testInput.config().check();
 
-        try (TempLocation tmpDirectory = tempLocation.createTempDirectory(testInput.config().checkPath())) {
+        try (TempLocation tmpDirectory = tempLocation.createTempDirectory(testInput.config().checkPath());
+             var linter = Linter.builder(Locale.US)
+                     .enableDynamicAnalysis(ENABLE_DYNAMIC && testInput.isDynamic())
+                     // the tests run without docker, so that they work on every CI runner
+                     .testRunner(ConsoleRunner::new)
+                     .threads(1) // Use a single thread for performance reasons
+                     .tempLocation(tmpDirectory)
+                     .build()) {
             var file = UploadedFile.build(
                     testInput.sourceInfo(),
                     tmpDirectory, status -> {
                     }, null
             );
-            var linter = Linter.builder(Locale.US)
-                    .enableDynamicAnalysis(ENABLE_DYNAMIC && testInput.isDynamic())
-                    .threads(1) // Use a single thread for performance reasons
-                    .tempLocation(tmpDirectory)
-                    .build();
 
             var problems = linter.checkFile(
                     file,
@@ -0,0 +1,185 @@
+package de.firemage.autograder.core.integrated;
+
+import org.junit.jupiter.api.Test;
+import spoon.Launcher;
+import spoon.processing.AbstractProcessor;
+import spoon.processing.TraversalStrategy;
+import spoon.reflect.CtModel;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.code.CtStatement;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtType;
+import spoon.support.compiler.VirtualFile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestElementIndex {
+    private static final String FIRST = """
+        public class First {
+            private int value = Integer.parseInt("1");
+
+            void foo(String string) {
+                int length = string.length();
+                System.out.println(length + value);
+                Runnable runnable = () -> System.out.println(string.trim());
+                runnable.run();
+            }
+
+            static class Inner {
+                void bar() {
+                    new First().foo("a".repeat(2));
+                }
+            }
+        }
+        """;
+
+    private static final String SECOND = """
+        public class Second {
+            void baz(First first) {
+                first.foo(String.valueOf(1));
+                int i = 0;
+                i++;
+            }
+        }
+        """;
+
+    private static CtModel buildModel() {
+        Launcher launcher = new Launcher();
+        launcher.addInputResource(new VirtualFile(FIRST, "First.java"));
+        launcher.addInputResource(new VirtualFile(SECOND, "Second.java"));
+        return launcher.buildModel();
+    }
+
+    private static final class RecordingProcessor extends AbstractProcessor<CtElement> {
+        private final TraversalStrategy traversalStrategy;
+        private final List<CtElement> processed = new ArrayList<>();
+        private int initialized;
+        private int done;
+
+        @SafeVarargs
+        private RecordingProcessor(TraversalStrategy traversalStrategy, Class<? extends CtElement>... processedTypes) {
+            this.traversalStrategy = traversalStrategy;
+            if (processedTypes.length > 0) {
+                this.clearProcessedElementType();
+                for (Class<? extends CtElement> processedType : processedTypes) {
+                    this.addProcessedElementType(processedType);
+                }
+            }
+        }
+
+        @Override
+        public TraversalStrategy getTraversalStrategy() {
+            return this.traversalStrategy;
+        }
+
+        @Override
+        public void init() {
+            this.initialized++;
+        }
+
+        @Override
+        public void process(CtElement element) {
+            this.processed.add(element);
+        }
+
+        @Override
+        public void processingDone() {
+            this.done++;
+        }
+    }
+
+    private static void assertSameElements(List<CtElement> expected, List<CtElement> actual) {
+        assertEquals(expected.size(), actual.size(), "the number of processed elements differs");
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i), "element %d differs".formatted(i));
+        }
+    }
+
+    @SafeVarargs
+    private static void assertProcessesLikeTheModel(TraversalStrategy traversalStrategy, Class<? extends CtElement>... processedTypes) {
+        CtModel model = buildModel();
+
+        RecordingProcessor expected = new RecordingProcessor(traversalStrategy, processedTypes);
+        model.processWith(expected);
+
+        RecordingProcessor actual = new RecordingProcessor(traversalStrategy, processedTypes);
+        ElementIndex.of(model).process(actual);
+
+        assertFalse(expected.processed.isEmpty());
+        assertSameElements(expected.processed, actual.processed);
+        assertEquals(1, actual.initialized);
+        assertEquals(1, actual.done);
+    }
+
+    @Test
+    void testAllElements() {
+        assertProcessesLikeTheModel(TraversalStrategy.PRE_ORDER);
+    }
+
+    @Test
+    void testSingleProcessedType() {
+        assertProcessesLikeTheModel(TraversalStrategy.PRE_ORDER, CtInvocation.class);
+    }
+
+    @Test
+    void testSeveralProcessedTypes() {
+        // spoon only processes elements that are an instance of all processed types
+        assertProcessesLikeTheModel(TraversalStrategy.PRE_ORDER, CtExpression.class, CtStatement.class);
+    }
+
+    @Test
+    void testPostOrderFallback() {
+        assertProcessesLikeTheModel(TraversalStrategy.POST_ORDER, CtInvocation.class);
+    }
+
+    @Test
+    void testGetElementsOfType() {
+        CtModel model = buildModel();
+
+        RecordingProcessor expected = new RecordingProcessor(TraversalStrategy.PRE_ORDER, CtInvocation.class);
+        model.processWith(expected);
+
+        assertSameElements(expected.processed, new ArrayList<>(ElementIndex.of(model).getElementsOfType(CtInvocation.class)));
+    }
+
+    private static void assertRestrictedProcessesOnlyIncludedTypes(TraversalStrategy traversalStrategy) {
+        CtModel model = buildModel();
+        CtType<?> first = model.getAllTypes().stream()
+            .filter(ctType -> ctType.getSimpleName().equals("First"))
+            .findFirst()
+            .orElseThrow();
+
+        RecordingProcessor all = new RecordingProcessor(traversalStrategy, CtInvocation.class);
+        model.processWith(all);
+        List<CtElement> expected = all.processed.stream()
+            .filter(element -> element.hasParent(first))
+            .toList();
+
+        RecordingProcessor actual = new RecordingProcessor(traversalStrategy, CtInvocation.class);
+        ElementIndex.of(model)
+            .restrictTo(ctType -> ctType == first)
+            .process(actual);
+
+        assertTrue(expected.size() < all.processed.size());
+        assertSameElements(expected, actual.processed);
+        assertEquals(1, actual.initialized);
+        assertEquals(1, actual.done);
+    }
+
+    @Test
+    void testRestrictTo() {
+        assertRestrictedProcessesOnlyIncludedTypes(TraversalStrategy.PRE_ORDER);
+    }
+
+    @Test
+    void testRestrictToPostOrder() {
+        assertRestrictedProcessesOnlyIncludedTypes(TraversalStrategy.POST_ORDER);
+    }
+}
@@ -0,0 +1,214 @@
+package de.firemage.autograder.core.integrated;
+
+import org.junit.jupiter.api.Test;
+import spoon.Launcher;
+import spoon.reflect.CtModel;
+import spoon.reflect.code.CtExecutableReferenceExpression;
+import spoon.reflect.code.CtLambda;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtNamedElement;
+import spoon.reflect.declaration.CtParameter;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.CtTypeMember;
+import spoon.reflect.declaration.CtVariable;
+import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.support.compiler.VirtualFile;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestUsesIndex {
+    private static final String HELPER = """
+        package util;
+
+        public class Helper {
+            public static final int CONSTANT = 2;
+
+            public static int helper() {
+                return 1;
+            }
+
+            public static int helper(int value) {
+                return value;
+            }
+        }
+        """;
+
+    private static final String MAIN = """
+        package app;
+
+        import static util.Helper.CONSTANT;
+        import static util.Helper.helper;
+
+        import java.util.function.IntSupplier;
+        import java.util.function.IntUnaryOperator;
+
+        public class Main {
+            interface Shape {
+                double area(double scale);
+            }
+
+            static class Square implements Shape {
+                @Override
+                public double area(double scale) {
+                    return scale * scale;
+                }
+            }
+
+            abstract static class Base {
+                abstract void run(int times);
+            }
+
+            static class Impl extends Base {
+                @Override
+                void run(int times) {
+                    System.out.println(times);
+                }
+            }
+
+            void foo(int value) {
+            }
+
+            void foo(String value) {
+            }
+
+            void test(Shape shape) {
+                foo(1);
+                foo("a");
+                this.foo(2);
+                int a = helper();
+                int b = util.Helper.helper(CONSTANT);
+                int c = util.Helper.CONSTANT;
+                IntSupplier supplier = () -> helper() + a;
+                IntUnaryOperator operator = util.Helper::helper;
+                Runnable runnable = () -> foo(b + c);
+                util.Helper[] helpers = new util.Helper[0];
+                shape.area(2.0);
+                new Impl().run(supplier.getAsInt() + operator.applyAsInt(helpers.length));
+                runnable.run();
+            }
+        }
+        """;
+
+    private static CtModel buildModel() {
+        Launcher launcher = new Launcher();
+        launcher.addInputResource(new VirtualFile(HELPER, "Helper.java"));
+        launcher.addInputResource(new VirtualFile(MAIN, "Main.java"));
+        return launcher.buildModel();
+    }
+
+    private static List<CtNamedElement> findDeclarations(CtModel model) {
+        // these are all the elements that are supported by SpoonUtil.UsesFilter
+        return model.getElements(new TypeFilter<>(CtNamedElement.class))
+            .stream()
+            .filter(element -> element instanceof CtVariable<?> || element instanceof CtExecutable<?> || element instanceof CtTypeMember)
+            .toList();
+    }
+
+    private static void assertSameElements(List<CtElement> expected, List<CtElement> actual, CtElement declaration) {
+        assertEquals(expected.size(), actual.size(), "the number of uses of %s differs".formatted(declaration));
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i), "use %d of %s differs".formatted(i, declaration));
+        }
+    }
+
+    private static CtMethod<?> findMethod(CtModel model, String typeName, String methodName, int parameterCount) {
+        return model.getElements(new TypeFilter<CtMethod<?>>(CtMethod.class))
+            .stream()
+            .filter(ctMethod -> ctMethod.getDeclaringType().getSimpleName().equals(typeName))
+            .filter(ctMethod -> ctMethod.getSimpleName().equals(methodName))
+            .filter(ctMethod -> ctMethod.getParameters().size() == parameterCount)
+            .findFirst()
+            .orElseThrow();
+    }
+
+    @Test
+    void testIndexedLookupsMatchTheFullScan() {
+        CtModel model = buildModel();
+        List<CtNamedElement> declarations = findDeclarations(model);
+        List<Predicate<CtElement>> predicates = List.of(
+            element -> true,
+            element -> element.getParent(CtLambda.class) != null,
+            element -> element instanceof CtExecutableReferenceExpression<?, ?>
+        );
+
+        // without an attached index, the whole model is scanned
+        assertTrue(UsesIndex.find(model.getRootPackage()).isEmpty());
+        Map<CtElement, List<CtElement>> scannedUses = new IdentityHashMap<>();
+        Map<CtElement, List<Boolean>> scannedHasAnyUses = new IdentityHashMap<>();
+        for (CtNamedElement declaration : declarations) {
+            scannedUses.put(declaration, SpoonUtil.findUses(declaration));
+            scannedHasAnyUses.put(declaration, predicates.stream().map(predicate -> SpoonUtil.hasAnyUses(declaration, predicate)).toList());
+        }
+
+        UsesIndex.of(ElementIndex.of(model)).attachTo(model);
+        assertTrue(UsesIndex.find(model.getRootPackage()).isPresent());
+
+        for (CtNamedElement declaration : declarations) {
+            assertSameElements(scannedUses.get(declaration), SpoonUtil.findUses(declaration), declaration);
+            assertEquals(
+                scannedHasAnyUses.get(declaration),
+                predicates.stream().map(predicate -> SpoonUtil.hasAnyUses(declaration, predicate)).toList(),
+                "hasAnyUses of %s differs".formatted(declaration)
+            );
+        }
+    }
+
+    @Test
+    void testOverloads() {
+        CtModel model = buildModel();
+        UsesIndex.of(ElementIndex.of(model)).attachTo(model);
+
+        List<CtMethod<?>> overloads = model.getElements(new TypeFilter<CtMethod<?>>(CtMethod.class))
+            .stream()
+            .filter(ctMethod -> ctMethod.getSimpleName().equals("foo"))
+            .toList();
+        CtMethod<?> fooInt = overloads.stream().filter(ctMethod -> ctMethod.getParameters().get(0).getType().isPrimitive()).findFirst().orElseThrow();
+        CtMethod<?> fooString = overloads.stream().filter(ctMethod -> ctMethod != fooInt).findFirst().orElseThrow();
+
+        // foo(1), this.foo(2) and foo(b + c) in the lambda
+        List<CtElement> intUses = SpoonUtil.findUses(fooInt);
+        assertEquals(3, intUses.size(), intUses.toString());
+        List<CtElement> stringUses = SpoonUtil.findUses(fooString);
+        assertEquals(1, stringUses.size(), stringUses.toString());
+    }
+
+    @Test
+    void testUsesThroughImportsLambdasAndMethodReferences() {
+        CtModel model = buildModel();
+        UsesIndex.of(ElementIndex.of(model)).attachTo(model);
+
+        // helper() through the static import, once directly and once in the lambda
+        List<CtElement> helperUses = SpoonUtil.findUses(findMethod(model, "Helper", "helper", 0));
+        assertEquals(2, helperUses.size(), helperUses.toString());
+        assertTrue(SpoonUtil.hasAnyUses(findMethod(model, "Helper", "helper", 0), element -> element.getParent(CtLambda.class) != null));
+
+        // util.Helper.helper(CONSTANT) and the method reference util.Helper::helper
+        CtMethod<?> helperWithValue = findMethod(model, "Helper", "helper", 1);
+        List<CtElement> helperWithValueUses = SpoonUtil.findUses(helperWithValue);
+        assertEquals(2, helperWithValueUses.size(), helperWithValueUses.toString());
+        assertTrue(SpoonUtil.hasAnyUses(helperWithValue, CtExecutableReferenceExpression.class::isInstance));
+
+        // CONSTANT through the static import and util.Helper.CONSTANT
+        CtType<?> helper = model.getAllTypes().stream().filter(ctType -> ctType.getSimpleName().equals("Helper")).findFirst().orElseThrow();
+        assertEquals(2, SpoonUtil.findUses(helper.getField("CONSTANT")).size());
+
+        // the parameter is only used in the overriding method
+        CtParameter<?> times = findMethod(model, "Base", "run", 1).getParameters().get(0);
+        assertEquals(1, SpoonUtil.findUses(times).size());
+
+        // implementing an abstract method counts as a use
+        CtMethod<?> area = findMethod(model, "Shape", "area", 1);
+        List<CtElement> areaUses = SpoonUtil.findUses(area);
+        assertTrue(areaUses.contains(findMethod(model, "Square", "area", 1)), areaUses.toString());
+        assertTrue(SpoonUtil.findUses(findMethod(model, "Main", "test", 1)).isEmpty());
+    }
+}
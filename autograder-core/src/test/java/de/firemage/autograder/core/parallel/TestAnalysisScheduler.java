@@ -0,0 +1,84 @@
+package de.firemage.autograder.core.parallel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestAnalysisScheduler {
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void testDependencies(int threads) {
+        AnalysisScheduler scheduler = new AnalysisScheduler(threads, null);
+        List<String> events = new CopyOnWriteArrayList<>();
+
+        ScheduledTask first = scheduler.submitTask((s, reporter) -> {
+            Thread.sleep(50);
+            events.add("first");
+        });
+        ScheduledTask second = scheduler.submitTask((s, reporter) -> events.add("second"), first);
+        scheduler.submitTask((s, reporter) -> {
+            events.add("third");
+            // tasks submitted from within a task are awaited as well
+            s.submitTask((s2, reporter2) -> events.add("nested"), second);
+        }, first, second);
+
+        AnalysisResult result = scheduler.collectProblems();
+
+        assertFalse(result.failed());
+        assertEquals(List.of("first", "second", "third", "nested"), events);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void testFailureCancelsOtherTasks(int threads) {
+        AnalysisScheduler scheduler = new AnalysisScheduler(threads, null);
+        List<String> events = new CopyOnWriteArrayList<>();
+
+        ScheduledTask failing = scheduler.submitTask((s, reporter) -> {
+            throw new IOException("failed");
+        });
+        ScheduledTask dependent = scheduler.submitTask((s, reporter) -> events.add("dependent"), failing);
+
+        AnalysisResult result = scheduler.collectProblems();
+
+        assertTrue(result.failed());
+        assertInstanceOf(IOException.class, result.thrownException());
+        assertTrue(dependent.isDone());
+        assertEquals(List.of(), events);
+    }
+
+    @Test
+    void testFailureInterruptsRunningTasks() {
+        AnalysisScheduler scheduler = new AnalysisScheduler(4, null);
+        CountDownLatch started = new CountDownLatch(1);
+        List<String> events = new CopyOnWriteArrayList<>();
+
+        scheduler.submitTask((s, reporter) -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                events.add("interrupted");
+            }
+        });
+        scheduler.submitTask((s, reporter) -> {
+            started.await();
+            throw new IllegalStateException("failed");
+        });
+
+        AnalysisResult result = scheduler.collectProblems();
+
+        assertTrue(result.failed());
+        assertEquals(List.of("interrupted"), events);
+    }
+}
@@ -10,4 +10,13 @@ public class Test {
             }
         };
     }
+
+    @SuppressWarnings("DoubleBraceInitialization")
+    private static Set<String> suppressed() {
+        return new HashSet<String>() {
+            {
+                add("France");
+            }
+        };
+    }
 }
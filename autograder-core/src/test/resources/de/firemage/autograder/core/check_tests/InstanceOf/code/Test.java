@@ -23,6 +23,13 @@ class B extends A {
         } catch (ClassCastException ignored) { /*# not ok #*/
             // not of type B
         }
+
+        try (java.io.StringReader reader = new java.io.StringReader("")) {
+            B b = (B) value;
+            // do something
+        } catch (ClassCastException ignored) { /*# ok; try-with-resources are not checked #*/
+            // not of type B
+        }
     }
 
     @Override
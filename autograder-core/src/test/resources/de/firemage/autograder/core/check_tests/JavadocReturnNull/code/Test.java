@@ -28,7 +28,7 @@ public class Test {
         }
     }
 
-    /**
+    /** //# not ok
      * ...
      * @return the value
      */
@@ -64,7 +64,7 @@ public class Test {
         }
     }
 
-    /**
+    /** //# not ok
      * ...
      * @return the value
      */
@@ -1,81 +1,130 @@
 package de.firemage.autograder.executor;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.util.Arrays;
-import java.util.Iterator;
+import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.Scanner;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 public class ConsoleExecutor {
-    public void execute(String mainClass, String test, boolean quitOnFailure) throws IOException, InterruptedException {
-        Iterator<String> lines = Arrays.stream(test.split("\n")).iterator();
-        List<String> args = parseHeader(lines);
-        if (executeTest(args, mainClass, lines, quitOnFailure)) {
-            System.err.println("EXEC:  Test success");
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Launcher launcher;
+
+    /**
+     * Starts the program of the student for a test.
+     */
+    @FunctionalInterface
+    public interface Launcher {
+        Process start(String mainClass, List<String> args) throws IOException;
+    }
+
+    public ConsoleExecutor() {
+        this(System.out, System.err, Util::startJVM);
+    }
+
+    /**
+     * Creates an executor that writes its log to the given streams.
+     *
+     * @param out receives the output of the program and the progress of the test
+     * @param err receives the reasons why a test failed
+     * @param launcher starts the program of the student
+     */
+    public ConsoleExecutor(PrintStream out, PrintStream err, Launcher launcher) {
+        this.out = out;
+        this.err = err;
+        this.launcher = launcher;
+    }
+
+    /**
+     * Executes a single test.
+     *
+     * @param mainClass the main class of the student code
+     * @param test the contents of the protocol file
+     * @param quitOnFailure whether the program is stopped at the first unexpected output
+     * @return true if the test succeeded
+     * @throws IOException if the program could not be started
+     * @throws InterruptedException if the thread was interrupted while waiting for the program
+     * @throws IllegalArgumentException if the protocol is invalid
+     * @see Protocol the format of the protocol file
+     */
+    public boolean execute(String mainClass, String test, boolean quitOnFailure) throws IOException, InterruptedException {
+        return this.execute(mainClass, Protocol.parse(test), quitOnFailure);
+    }
+
+    /**
+     * Executes a single test of a compiled protocol.
+     *
+     * @param mainClass the main class of the student code
+     * @param protocol the protocol of the test
+     * @param quitOnFailure whether the program is stopped at the first unexpected output
+     * @return true if the test succeeded
+     * @throws IOException if the program could not be started
+     * @throws InterruptedException if the thread was interrupted while waiting for the program
+     */
+    public boolean execute(String mainClass, Protocol protocol, boolean quitOnFailure) throws IOException, InterruptedException {
+        if (protocol.getName() != null) {
+            this.out.println("EXEC:  Running test " + protocol.getName());
+        }
+        if (protocol.getComment() != null) {
+            this.out.println("EXEC:  " + protocol.getComment());
+        }
+        if (executeTest(protocol, mainClass, quitOnFailure)) {
+            this.err.println("EXEC:  Test success");
+            return true;
         } else {
-            System.err.println("EXEC:  Test failure");
+            this.err.println("EXEC:  Test failure");
+            return false;
         }
     }
 
-    private List<String> parseHeader(Iterator<String> lines) {
-        List<String> args = null;
-        while (lines.hasNext()) {
-            String line = lines.next();
-            if (line.startsWith("--")) {
-                return args;
-            } else if (line.startsWith("name:")) {
-                System.out.println("EXEC:  Running test " + line.substring(6));
-            } else if (line.startsWith("comment:")) {
-                System.out.println("EXEC:  " + line.substring(9));
-            } else if (line.startsWith("args:")) {
-                if (line.length() <= 6) {
-                    args = List.of();
-                } else {
-                    args = List.of(line.substring(6).split(" "));
-                }
-            }
-        }
-        throw new IllegalStateException("Invalid test file: end of header missing");
+    private enum MatchResult {
+        MATCHED, MISMATCHED, NO_OUTPUT
     }
 
-    private boolean executeTest(List<String> args, String mainClass, Iterator<String> lines, boolean quitOnFailure)
+    private boolean executeTest(Protocol protocol, String mainClass, boolean quitOnFailure)
         throws IOException, InterruptedException {
 
-        Process process = Util.startJVM(mainClass, args);
+        Process process = this.launcher.start(mainClass, protocol.getArgs());
 
         OutputStream containerIn = process.getOutputStream();
 
-        Queue<String> containerOut = new ConcurrentLinkedQueue<>();
-        Thread outThread = new Thread(new ProcessReader(containerOut, process.getInputStream()));
+        ProcessReader containerOut = new ProcessReader(process.getInputStream());
+        Thread outThread = new Thread(containerOut);
         outThread.setDaemon(true);
         outThread.start();
 
         boolean failed = false;
-        while (lines.hasNext()) {
-            String line = lines.next();
-            if (line.startsWith("###")) {
-                // Comment - ignore
-            } else if (line.startsWith(">")) {
-                // Input
+        boolean skipLines = false;
+        for (Protocol.Instruction instruction : protocol.getInstructions()) {
+            if (instruction instanceof Protocol.Input input) {
+                // a wildcard before the input also skips the output that is printed after it
                 pollAllOutput(containerOut);
-                System.out.println("IN:    " + line.substring(1));
-                containerIn.write(line.substring(1).getBytes());
+                this.out.println("IN:    " + input.line());
+                containerIn.write(input.line().getBytes());
                 containerIn.write("\n".getBytes());
                 containerIn.flush();
-            } else {
-                // Expected output
-                String output = pollOutput(process, containerOut);
-                if (output == null) {
+            } else if (instruction instanceof Protocol.AnyLines) {
+                skipLines = true;
+            } else if (instruction instanceof Protocol.Output output) {
+                MatchResult result = matchOutput(containerOut, output, skipLines, protocol.getOutputTimeoutMillis());
+                skipLines = false;
+                if (result == MatchResult.NO_OUTPUT) {
                     pollAllOutput(containerOut);
-                    System.err.println("EXEC:  The child JVM exited unexpectedly");
-                    System.exit(1);
+                    if (process.isAlive()) {
+                        killVM(process);
+                    } else {
+                        this.err.println("EXEC:  The child JVM exited unexpectedly");
+                    }
+                    return false;
                 }
-                if (!matchOutput(output, line)) {
+                if (result == MatchResult.MISMATCHED) {
                     failed = true;
                     if (quitOnFailure) {
                         killVM(process);
@@ -87,55 +136,89 @@ public class ConsoleExecutor {
             }
         }
 
-        if (!process.waitFor(5, TimeUnit.SECONDS)) {
-            System.err.println("EXEC:  The child JVM did not exit after 5s");
+        if (!process.waitFor(protocol.getExitTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+            this.err.println("EXEC:  The child JVM did not exit after " + protocol.getExitTimeoutMillis() + "ms");
             killVM(process);
             pollAllOutput(containerOut);
             return false;
         }
 
+        // the output is complete once the reader has reached the end of the stream
+        outThread.join(protocol.getExitTimeoutMillis());
         pollAllOutput(containerOut);
 
-        System.out.println("EXEC:  Child JVM exited");
+        this.out.println("EXEC:  Child JVM exited");
 
         if (process.exitValue() != 0) {
-            System.err.println("EXEC:  The child JVM did not exit with exit code 0");
+            this.err.println("EXEC:  The child JVM did not exit with exit code 0");
             return false;
         }
 
         return !failed;
     }
 
-    private boolean matchOutput(String output, String line) {
-        if (line.equals(output) ||
-            (line.equals("!A!!R!^(E|e)rror.*") && (output.startsWith("Error") || output.startsWith("error")))) {
-            return true;
-        } else {
-            System.err.println("EXEC:  Invalid output, got '" + output + "', expected '" + line + "' ");
-            return false;
+    /**
+     * Reads a line of output for every expected line of the block.
+     *
+     * @param skipLines whether lines that do not match are skipped until the block starts
+     */
+    private MatchResult matchOutput(ProcessReader reader, Protocol.Output output, boolean skipLines, long timeoutMillis)
+        throws InterruptedException {
+        List<Protocol.LineMatcher> remaining = new ArrayList<>(output.lines());
+        MatchResult result = MatchResult.MATCHED;
+        while (!remaining.isEmpty()) {
+            String line = pollOutput(reader, timeoutMillis);
+            if (line == null) {
+                return MatchResult.NO_OUTPUT;
+            }
+
+            Protocol.LineMatcher matcher = output.unordered() ? findMatcher(remaining, line) : remaining.get(0);
+            if (matcher != null && matcher.matches(line)) {
+                remaining.remove(matcher);
+            } else if (!skipLines) {
+                String expected = output.unordered() ? "one of " + remaining : "'" + remaining.get(0) + "'";
+                this.err.println("EXEC:  Invalid output, got '" + line + "', expected " + expected + " ");
+                remaining.remove(0);
+                result = MatchResult.MISMATCHED;
+            } else {
+                // the line is skipped by a wildcard
+                continue;
+            }
+            skipLines = false;
         }
+        return result;
     }
 
-    private String pollOutput(Process process, Queue<String> queue) throws InterruptedException {
-        long beforeTime = System.currentTimeMillis();
+    private static Protocol.LineMatcher findMatcher(List<Protocol.LineMatcher> matchers, String line) {
+        // exact lines are preferred, so that a regular expression does not take the line of another one
+        return matchers.stream()
+            .filter(matcher -> matcher.isExact() && matcher.matches(line))
+            .findFirst()
+            .or(() -> matchers.stream().filter(matcher -> matcher.matches(line)).findFirst())
+            .orElse(null);
+    }
+
+    /**
+     * Waits for the next line of the program.
+     *
+     * @return the line or null if the program ended its output or did not answer before the timeout
+     */
+    private String pollOutput(ProcessReader reader, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
         while (true) {
-            if (!queue.isEmpty()) {
-                String result = queue.poll();
-                if (result.startsWith("AGENT")) {
-                    System.out.println(result);
-                    continue;
+            String result = reader.poll(deadline - System.nanoTime());
+            if (result == null) {
+                if (!reader.isFinished()) {
+                    this.err.println("EXEC:  Did not receive any output after " + timeoutMillis + "ms");
                 }
-                System.out.println("OUT:   " + result);
-                return result;
-            }
-            if (System.currentTimeMillis() - beforeTime > 5000) {
-                System.err.println("EXEC:  Did not receive any output after 5s");
-                System.exit(1);
-            }
-            if (!process.isAlive()) {
                 return null;
             }
-            Thread.sleep(10);
+            if (result.startsWith("AGENT")) {
+                this.out.println(result);
+                continue;
+            }
+            this.out.println("OUT:   " + result);
+            return result;
         }
     }
 
@@ -146,26 +229,64 @@ public class ConsoleExecutor {
         }
     }
 
-    private void pollAllOutput(Queue<String> containerOut) {
-        while (!containerOut.isEmpty()) {
-            System.out.println("OUT:   " + containerOut.poll());
+    private void pollAllOutput(ProcessReader containerOut) {
+        for (String line : containerOut.pollAll()) {
+            this.out.println("OUT:   " + line);
         }
     }
 
+    /**
+     * Reads the lines of the program into a queue. The end of the output is marked in the queue,
+     * so that a waiting executor wakes up as soon as the program exits.
+     */
     private static class ProcessReader implements Runnable {
-        private final Scanner scanner;
-        private final Queue<String> queue;
+        // compared by identity
+        private static final String END_OF_OUTPUT = new String();
+        private final BufferedReader reader;
+        private final BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+        private volatile boolean finished = false;
 
-        private ProcessReader(Queue<String> queue, InputStream inputStream) {
-            this.queue = queue;
-            this.scanner = new Scanner(inputStream);
+        private ProcessReader(InputStream inputStream) {
+            this.reader = new BufferedReader(new InputStreamReader(inputStream));
         }
 
         @Override
         public void run() {
-            while (this.scanner.hasNextLine()) {
-                this.queue.add(this.scanner.nextLine());
+            try (this.reader) {
+                String line;
+                while ((line = this.reader.readLine()) != null) {
+                    this.queue.add(line);
+                }
+            } catch (IOException e) {
+                // the stream was closed when the program was killed
+            } finally {
+                this.queue.add(END_OF_OUTPUT);
             }
         }
+
+        private String poll(long timeoutNanos) throws InterruptedException {
+            if (this.finished) {
+                return null;
+            }
+            String line = this.queue.poll(timeoutNanos, TimeUnit.NANOSECONDS);
+            if (line == END_OF_OUTPUT) {
+                this.finished = true;
+                return null;
+            }
+            return line;
+        }
+
+        private List<String> pollAll() {
+            List<String> lines = new ArrayList<>();
+            this.queue.drainTo(lines);
+            if (lines.removeIf(line -> line == END_OF_OUTPUT)) {
+                this.finished = true;
+            }
+            return lines;
+        }
+
+        private boolean isFinished() {
+            return this.finished;
+        }
     }
 }
@@ -0,0 +1,29 @@
+package de.firemage.autograder.executor;
+
+/**
+ * Replaces the calls of {@link System#exit(int)}, {@link Runtime#exit(int)} and {@link Runtime#halt(int)} in the code
+ * of the student, so that they only end the test instead of the whole executor.
+ * <p>
+ * The calls are rewritten by the {@link StudentClassLoader}. This class must be public, because the rewritten classes
+ * are defined by another class loader.
+ */
+public final class ExitInterceptor {
+    private ExitInterceptor() {
+    }
+
+    public static void exit(int status) {
+        IsolatedProcess.requestExit(status);
+        // the call does not come from a test
+        Runtime.getRuntime().exit(status);
+    }
+
+    public static void exit(Runtime runtime, int status) {
+        IsolatedProcess.requestExit(status);
+        runtime.exit(status);
+    }
+
+    public static void halt(Runtime runtime, int status) {
+        IsolatedProcess.requestExit(status);
+        runtime.halt(status);
+    }
+}
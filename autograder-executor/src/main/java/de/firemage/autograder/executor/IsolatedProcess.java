@@ -0,0 +1,323 @@
+package de.firemage.autograder.executor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the main method of the student code in this JVM as if it was a separate process.
+ * <p>
+ * The classes of the student are loaded by a new class loader for every test, so that the static state of earlier
+ * tests is not visible. The threads of the test belong to their own thread group, which decides where
+ * {@link System#in}, {@link System#out} and {@link System#err} read from and write to. Calls of
+ * {@link System#exit(int)} are redirected by the {@link StudentClassLoader} and only end the test.
+ */
+final class IsolatedProcess extends Process {
+    private static final int EXIT_CODE_UNCAUGHT_EXCEPTION = 1;
+    private static final int EXIT_CODE_DESTROYED = 143;
+
+    private static boolean installed;
+
+    private final TestThreadGroup threadGroup;
+    private final OutputStream stdin;
+    private final InputStream stdout;
+    private final InputStream studentIn;
+    private final OutputStream studentOut;
+    private final CompletableFuture<Integer> exitCode;
+    private volatile Integer requestedExit;
+
+    private IsolatedProcess() throws IOException {
+        Pipe input = Pipe.open();
+        Pipe output = Pipe.open();
+        this.stdin = Channels.newOutputStream(input.sink());
+        this.studentIn = Channels.newInputStream(input.source());
+        this.studentOut = Channels.newOutputStream(output.sink());
+        this.stdout = Channels.newInputStream(output.source());
+        this.exitCode = new CompletableFuture<>();
+        this.threadGroup = new TestThreadGroup(this);
+    }
+
+    /**
+     * Starts the main method of the given class in a new thread.
+     *
+     * @param studentCode the jar with the student code
+     * @param mainClass the main class, with slashes instead of dots
+     * @param args the arguments of the main method
+     * @return the process of the test
+     * @throws IOException if the pipes of the standard streams could not be created
+     */
+    static IsolatedProcess start(URL studentCode, String mainClass, List<String> args) throws IOException {
+        installStreams();
+
+        IsolatedProcess process = new IsolatedProcess();
+        Thread mainThread = new Thread(process.threadGroup, () -> process.runMain(studentCode, mainClass, args), "main");
+        // a test that does not stop must not keep the executor alive
+        mainThread.setDaemon(true);
+        mainThread.start();
+        return process;
+    }
+
+    private void runMain(URL studentCode, String mainClass, List<String> args) {
+        try {
+            StudentClassLoader classLoader = new StudentClassLoader(studentCode);
+            Class<?> clazz = Class.forName(mainClass.replace("/", "."), true, classLoader);
+            Method main = clazz.getMethod("main", String[].class);
+            main.invoke(null, (Object) args.toArray(String[]::new));
+            // the student code might have caught the exception of System.exit
+            Integer requestedExit = this.requestedExit;
+            this.exit(requestedExit == null ? 0 : requestedExit);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof ExitException exit) {
+                this.exit(exit.status);
+            } else {
+                this.threadGroup.uncaughtException(Thread.currentThread(), e.getCause());
+            }
+        } catch (ReflectiveOperationException | LinkageError e) {
+            this.threadGroup.uncaughtException(Thread.currentThread(), e);
+        }
+    }
+
+    private void exit(int status) {
+        if (this.exitCode.complete(status)) {
+            try {
+                // the reader of the output sees the end of the stream, like after the end of a process
+                this.studentOut.close();
+            } catch (IOException e) {
+                // the pipe is closed anyway
+            }
+        }
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return this.stdin;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return this.stdout;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        // like a process with redirectErrorStream(true)
+        return InputStream.nullInputStream();
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+        try {
+            return this.exitCode.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            this.exitCode.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int exitValue() {
+        Integer value = this.exitCode.getNow(null);
+        if (value == null) {
+            throw new IllegalThreadStateException("The test is still running");
+        }
+        return value;
+    }
+
+    @Override
+    public boolean isAlive() {
+        return !this.exitCode.isDone();
+    }
+
+    @Override
+    public void destroy() {
+        // threads cannot be killed, but the ones that wait or sleep stop here
+        this.threadGroup.interrupt();
+        this.exit(EXIT_CODE_DESTROYED);
+    }
+
+    /**
+     * Stops the threads of the test, which might still run after the test ended. These are the threads that the
+     * student started and threads that ignored {@link #destroy()}.
+     *
+     * @param timeoutMillis how long the threads get to stop after they have been interrupted
+     * @return true if all threads stopped, false if some still run and might interfere with later tests
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    boolean stopThreads(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            // the threads might start new threads while they are stopped
+            this.threadGroup.interrupt();
+            Thread[] threads = new Thread[this.threadGroup.activeCount() + 1];
+            int count = this.threadGroup.enumerate(threads);
+            if (count == 0) {
+                return true;
+            }
+
+            for (int i = 0; i < count; i++) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                threads[i].join(Math.max(TimeUnit.NANOSECONDS.toMillis(remaining), 1));
+            }
+        }
+    }
+
+    private static synchronized void installStreams() {
+        if (installed) {
+            return;
+        }
+
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        InputStream originalIn = System.in;
+
+        // the error stream of the student is merged into the output, like in Util.startJVM
+        System.setOut(new PrintStream(new DispatchingOutputStream(originalOut), true));
+        System.setErr(new PrintStream(new DispatchingOutputStream(originalErr), true));
+        System.setIn(new DispatchingInputStream(originalIn));
+
+        installed = true;
+    }
+
+    private static IsolatedProcess current() {
+        ThreadGroup group = Thread.currentThread().getThreadGroup();
+        while (group != null) {
+            if (group instanceof TestThreadGroup testGroup) {
+                return testGroup.process;
+            }
+            group = group.getParent();
+        }
+        return null;
+    }
+
+    private static final class TestThreadGroup extends ThreadGroup {
+        private final IsolatedProcess process;
+
+        private TestThreadGroup(IsolatedProcess process) {
+            super("test");
+            this.process = process;
+        }
+
+        @Override
+        public void uncaughtException(Thread thread, Throwable throwable) {
+            if (throwable instanceof ExitException exit) {
+                this.process.exit(exit.status);
+                return;
+            }
+
+            System.err.print("Exception in thread \"" + thread.getName() + "\" ");
+            throwable.printStackTrace(System.err);
+            if ("main".equals(thread.getName())) {
+                this.process.exit(EXIT_CODE_UNCAUGHT_EXCEPTION);
+            }
+        }
+    }
+
+    /**
+     * Ends the test if the current thread belongs to one. Called instead of {@link System#exit(int)}.
+     *
+     * @param status the exit code of the test
+     * @throws ExitException if the current thread belongs to a test
+     */
+    static void requestExit(int status) {
+        IsolatedProcess process = current();
+        if (process != null) {
+            // the test ends once the exception has left the thread, so that its events are recorded
+            process.requestedExit = status;
+            throw new ExitException(status);
+        }
+    }
+
+    /**
+     * Thrown by {@link System#exit(int)} in a test, so that it only stops the test. It is an error, so that it is not
+     * caught by the usual {@code catch (Exception e)} of the student.
+     */
+    private static final class ExitException extends Error {
+        private final int status;
+
+        private ExitException(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+        }
+    }
+
+    private static final class DispatchingOutputStream extends OutputStream {
+        private final OutputStream fallback;
+
+        private DispatchingOutputStream(OutputStream fallback) {
+            this.fallback = fallback;
+        }
+
+        private OutputStream target() {
+            IsolatedProcess process = current();
+            return process == null ? this.fallback : process.studentOut;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.target().write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            this.target().write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.target().flush();
+        }
+    }
+
+    private static final class DispatchingInputStream extends InputStream {
+        private final InputStream fallback;
+
+        private DispatchingInputStream(InputStream fallback) {
+            this.fallback = fallback;
+        }
+
+        private InputStream source() {
+            IsolatedProcess process = current();
+            return process == null ? this.fallback : process.studentIn;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return this.source().read();
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            return this.source().read(bytes, offset, length);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return this.source().available();
+        }
+    }
+}
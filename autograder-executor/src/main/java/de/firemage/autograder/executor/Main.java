@@ -1,6 +1,7 @@
 package de.firemage.autograder.executor;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Base64;
 
 public class Main {
@@ -10,7 +11,15 @@ public class Main {
         if (args.length == 3) {
             String test = new String(Base64.getDecoder().decode(args[1]));
             System.out.println("=============== Running a console test ==================");
-            new ConsoleExecutor().execute(main, test, Boolean.parseBoolean(args[2]));
+            if (!new ConsoleExecutor().execute(main, test, Boolean.parseBoolean(args[2]))) {
+                System.exit(1);
+            }
+        } else if (args.length == 5 && args[1].equals("--all")) {
+            // <main> --all <tests> <results> <quitOnFailure>
+            if (!new SuiteExecutor().execute(main, Path.of(Util.studentCode()), Path.of(args[2]), Path.of(args[3]), Boolean.parseBoolean(args[4]))) {
+                // the threads of a test still run, the remaining tests need a new JVM
+                System.exit(SuiteExecutor.EXIT_CODE_INCOMPLETE);
+            }
         }
     }
 }
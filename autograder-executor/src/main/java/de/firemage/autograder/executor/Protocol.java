@@ -0,0 +1,358 @@
+package de.firemage.autograder.executor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A protocol file that has been parsed into the instructions of the executor.
+ * <p>
+ * A protocol consists of a header, which ends with a line starting with {@code --}, and the interaction with the
+ * program. In the interaction, these lines are supported:
+ * <ul>
+ *     <li>{@code ###...}: a comment</li>
+ *     <li>{@code >...}: a line of input</li>
+ *     <li>{@value #ANY_LINES}: any number of lines of output, including none, up to the next expected line</li>
+ *     <li>any other line: a line of output that must match exactly</li>
+ * </ul>
+ * Lines of output can be prefixed with flags: {@value #REGEX} matches the line with a regular expression and
+ * consecutive lines flagged with {@value #UNORDERED} may be printed in any order. The flag {@value #LEGACY} of older
+ * protocols has no effect.
+ * <p>
+ * The compiled form can be written with {@link #write(OutputStream)}, so that the protocol does not have to be parsed
+ * again by every executor.
+ */
+public final class Protocol {
+    private static final String ANY_LINES = "!*!";
+    private static final String REGEX = "!R!";
+    private static final String UNORDERED = "!U!";
+    private static final String LEGACY = "!A!";
+    private static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+    // increased whenever the compiled form changes
+    private static final int FORMAT_VERSION = 1;
+
+    private final String name;
+    private final String comment;
+    private final List<String> args;
+    private final long outputTimeoutMillis;
+    private final long exitTimeoutMillis;
+    private final List<Instruction> instructions;
+
+    private Protocol(String name, String comment, List<String> args, long outputTimeoutMillis, long exitTimeoutMillis,
+                     List<Instruction> instructions) {
+        this.name = name;
+        this.comment = comment;
+        this.args = args;
+        this.outputTimeoutMillis = outputTimeoutMillis;
+        this.exitTimeoutMillis = exitTimeoutMillis;
+        this.instructions = instructions;
+    }
+
+    /**
+     * A step of the interaction with the program.
+     */
+    public sealed interface Instruction {
+    }
+
+    /**
+     * Writes a line to the input of the program.
+     */
+    public record Input(String line) implements Instruction {
+    }
+
+    /**
+     * Expects lines of output. If the block is unordered, the lines may be printed in any order.
+     */
+    public record Output(List<LineMatcher> lines, boolean unordered) implements Instruction {
+    }
+
+    /**
+     * Skips lines of output until the next expected line is printed.
+     */
+    public record AnyLines() implements Instruction {
+    }
+
+    /**
+     * Matches a single line of output.
+     */
+    public record LineMatcher(String expected, Pattern pattern) {
+        private static LineMatcher exact(String expected) {
+            return new LineMatcher(expected, null);
+        }
+
+        private static LineMatcher regex(String regex) {
+            return new LineMatcher(REGEX + regex, Pattern.compile(regex));
+        }
+
+        public boolean matches(String line) {
+            if (this.pattern == null) {
+                return this.expected.equals(line);
+            }
+            return this.pattern.matcher(line).matches();
+        }
+
+        public boolean isExact() {
+            return this.pattern == null;
+        }
+
+        @Override
+        public String toString() {
+            return this.expected;
+        }
+    }
+
+    /**
+     * Parses the text of a protocol file.
+     *
+     * @param text the contents of the protocol file
+     * @return the compiled protocol
+     * @throws IllegalArgumentException if the protocol is invalid
+     */
+    public static Protocol parse(String text) {
+        // the files might have been written with Windows line endings
+        String[] lines = text.lines().toArray(String[]::new);
+
+        String name = null;
+        String comment = null;
+        // the header might have no arguments
+        List<String> args = List.of();
+        long outputTimeout = DEFAULT_TIMEOUT_MILLIS;
+        long exitTimeout = DEFAULT_TIMEOUT_MILLIS;
+        int i = 0;
+        for (; i < lines.length && !lines[i].startsWith("--"); i++) {
+            String line = lines[i];
+            if (line.startsWith("name:")) {
+                name = value(line, "name:");
+            } else if (line.startsWith("comment:")) {
+                comment = value(line, "comment:");
+            } else if (line.startsWith("args:")) {
+                String value = value(line, "args:");
+                args = value.isEmpty() ? List.of() : List.of(value.split(" "));
+            } else if (line.startsWith("output-timeout:")) {
+                outputTimeout = parseTimeout(value(line, "output-timeout:"));
+            } else if (line.startsWith("exit-timeout:")) {
+                exitTimeout = parseTimeout(value(line, "exit-timeout:"));
+            }
+        }
+        if (i == lines.length) {
+            throw new IllegalArgumentException("Invalid test file: end of header missing");
+        }
+
+        List<Instruction> instructions = new ArrayList<>();
+        List<LineMatcher> unordered = new ArrayList<>();
+        for (i++; i < lines.length; i++) {
+            String line = lines[i];
+            if (line.startsWith("###")) {
+                // Comment - ignore
+                continue;
+            }
+
+            boolean isUnordered = false;
+            boolean isRegex = false;
+            if (!line.startsWith(">") && !line.equals(ANY_LINES)) {
+                while (true) {
+                    if (line.startsWith(UNORDERED)) {
+                        isUnordered = true;
+                    } else if (line.startsWith(REGEX)) {
+                        isRegex = true;
+                    } else if (!line.startsWith(LEGACY)) {
+                        break;
+                    }
+                    line = line.substring(3);
+                }
+            }
+
+            if (!isUnordered && !unordered.isEmpty()) {
+                instructions.add(new Output(List.copyOf(unordered), true));
+                unordered.clear();
+            }
+
+            if (line.startsWith(">")) {
+                instructions.add(new Input(line.substring(1)));
+            } else if (line.equals(ANY_LINES)) {
+                // consecutive wildcards are the same as one
+                if (instructions.isEmpty() || !(instructions.get(instructions.size() - 1) instanceof AnyLines)) {
+                    instructions.add(new AnyLines());
+                }
+            } else {
+                LineMatcher matcher;
+                try {
+                    matcher = isRegex ? LineMatcher.regex(line) : LineMatcher.exact(line);
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("Invalid test file: invalid regular expression in line " + (i + 1), e);
+                }
+
+                if (isUnordered) {
+                    unordered.add(matcher);
+                } else {
+                    instructions.add(new Output(List.of(matcher), false));
+                }
+            }
+        }
+        if (!unordered.isEmpty()) {
+            instructions.add(new Output(List.copyOf(unordered), true));
+        }
+
+        return new Protocol(name, comment, args, outputTimeout, exitTimeout, List.copyOf(instructions));
+    }
+
+    private static String value(String line, String key) {
+        // the key is followed by a space
+        return line.length() <= key.length() + 1 ? "" : line.substring(key.length() + 1);
+    }
+
+    private static long parseTimeout(String value) {
+        try {
+            long timeout = Long.parseLong(value.strip());
+            if (timeout > 0) {
+                return timeout;
+            }
+        } catch (NumberFormatException e) {
+            // handled below
+        }
+        throw new IllegalArgumentException("Invalid test file: the timeout '" + value.strip() + "' is not a positive number");
+    }
+
+    /**
+     * Writes the compiled form of this protocol, which can be read with {@link #read(InputStream)}.
+     *
+     * @param outputStream the stream, which is not closed
+     * @throws IOException if the stream could not be written
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(FORMAT_VERSION);
+        writeNullable(out, this.name);
+        writeNullable(out, this.comment);
+        out.writeInt(this.args.size());
+        for (String arg : this.args) {
+            writeString(out, arg);
+        }
+        out.writeLong(this.outputTimeoutMillis);
+        out.writeLong(this.exitTimeoutMillis);
+
+        out.writeInt(this.instructions.size());
+        for (Instruction instruction : this.instructions) {
+            if (instruction instanceof Input input) {
+                out.writeByte('I');
+                writeString(out, input.line());
+            } else if (instruction instanceof Output output) {
+                out.writeByte(output.unordered() ? 'U' : 'O');
+                out.writeInt(output.lines().size());
+                for (LineMatcher matcher : output.lines()) {
+                    out.writeBoolean(!matcher.isExact());
+                    writeString(out, matcher.isExact() ? matcher.expected() : matcher.pattern().pattern());
+                }
+            } else if (instruction instanceof AnyLines) {
+                out.writeByte('*');
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a protocol that has been written with {@link #write(OutputStream)}.
+     *
+     * @param inputStream the stream, which is not closed
+     * @return the protocol
+     * @throws IOException if the stream could not be read or does not contain a compiled protocol
+     */
+    public static Protocol read(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported version " + version + " of the compiled protocol");
+        }
+        String name = readNullable(in);
+        String comment = readNullable(in);
+        List<String> args = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            args.add(readString(in));
+        }
+        long outputTimeout = in.readLong();
+        long exitTimeout = in.readLong();
+
+        List<Instruction> instructions = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            byte type = in.readByte();
+            switch (type) {
+                case 'I' -> instructions.add(new Input(readString(in)));
+                case 'O', 'U' -> {
+                    List<LineMatcher> lines = new ArrayList<>();
+                    for (int j = in.readInt(); j > 0; j--) {
+                        boolean isRegex = in.readBoolean();
+                        String line = readString(in);
+                        lines.add(isRegex ? LineMatcher.regex(line) : LineMatcher.exact(line));
+                    }
+                    instructions.add(new Output(List.copyOf(lines), type == 'U'));
+                }
+                case '*' -> instructions.add(new AnyLines());
+                default -> throw new IOException("Unknown instruction " + type + " in the compiled protocol");
+            }
+        }
+
+        return new Protocol(name, comment, List.copyOf(args), outputTimeout, exitTimeout, List.copyOf(instructions));
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    // unlike writeUTF, the length of the lines is not limited to 64KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid length " + length + " of a string in the compiled protocol");
+        }
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("The compiled protocol ended within a string");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public String getComment() {
+        return this.comment;
+    }
+
+    public List<String> getArgs() {
+        return this.args;
+    }
+
+    public long getOutputTimeoutMillis() {
+        return this.outputTimeoutMillis;
+    }
+
+    public long getExitTimeoutMillis() {
+        return this.exitTimeoutMillis;
+    }
+
+    public List<Instruction> getInstructions() {
+        return this.instructions;
+    }
+}
@@ -0,0 +1,89 @@
+package de.firemage.autograder.executor;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+
+/**
+ * Loads the classes of the student for a single test.
+ * <p>
+ * Calls that would stop the JVM are redirected to the {@link ExitInterceptor}. This works on every JDK, unlike a
+ * security manager, and does not depend on the agent.
+ */
+final class StudentClassLoader extends URLClassLoader {
+    private static final String INTERCEPTOR = ExitInterceptor.class.getName().replace(".", "/");
+
+    private final CodeSource codeSource;
+
+    StudentClassLoader(URL studentCode) {
+        super(new URL[] { studentCode }, ClassLoader.getSystemClassLoader());
+        this.codeSource = new CodeSource(studentCode, (CodeSigner[]) null);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        URL resource = this.findResource(name.replace(".", "/") + ".class");
+        if (resource == null) {
+            throw new ClassNotFoundException(name);
+        }
+
+        byte[] bytes;
+        try (InputStream inputStream = resource.openStream()) {
+            bytes = redirectExits(inputStream.readAllBytes());
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+
+        int lastDot = name.lastIndexOf('.');
+        if (lastDot > 0) {
+            String packageName = name.substring(0, lastDot);
+            if (this.getDefinedPackage(packageName) == null) {
+                this.definePackage(packageName, null, null, null, null, null, null, null);
+            }
+        }
+
+        return this.defineClass(name, bytes, 0, bytes.length, this.codeSource);
+    }
+
+    static byte[] redirectExits(byte[] bytes) {
+        ClassReader reader = new ClassReader(bytes);
+        // the stack is the same before and after each rewritten call, so the frames stay valid
+        ClassWriter writer = new ClassWriter(0);
+        reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                             String[] exceptions) {
+                return new ExitRedirectingVisitor(super.visitMethod(access, name, descriptor, signature, exceptions));
+            }
+        }, 0);
+        return writer.toByteArray();
+    }
+
+    private static final class ExitRedirectingVisitor extends MethodVisitor {
+        private ExitRedirectingVisitor(MethodVisitor visitor) {
+            super(Opcodes.ASM9, visitor);
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            if (opcode == Opcodes.INVOKESTATIC && owner.equals("java/lang/System") && name.equals("exit")
+                && descriptor.equals("(I)V")) {
+                super.visitMethodInsn(Opcodes.INVOKESTATIC, INTERCEPTOR, "exit", "(I)V", false);
+            } else if (opcode == Opcodes.INVOKEVIRTUAL && owner.equals("java/lang/Runtime")
+                && (name.equals("exit") || name.equals("halt")) && descriptor.equals("(I)V")) {
+                super.visitMethodInsn(Opcodes.INVOKESTATIC, INTERCEPTOR, name, "(Ljava/lang/Runtime;I)V", false);
+            } else {
+                super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+            }
+        }
+    }
+}
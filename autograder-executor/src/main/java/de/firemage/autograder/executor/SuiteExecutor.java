@@ -0,0 +1,129 @@
+package de.firemage.autograder.executor;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Executes many tests one after another in this JVM, each of them in an {@link IsolatedProcess}.
+ * <p>
+ * For every protocol file {@code <name>.protocol} in the folder of the tests, these files are written into the folder
+ * of the results:
+ * <ul>
+ *     <li>{@code <name>.log}: the log of the executor</li>
+ *     <li>{@code <name>.events}: the events that the agent recorded during the test</li>
+ *     <li>{@code <name>.status}: {@code OK} or {@code FAILURE}</li>
+ * </ul>
+ * Protocols that have been compiled with {@link Protocol#write(java.io.OutputStream)} are read from files named
+ * {@code <name>}{@value #COMPILED_PROTOCOL} instead.
+ * <p>
+ * Threads cannot be killed, so a test whose threads do not stop, like a busy loop that ignores the interrupt, would
+ * slow down or break all later tests. The executor stops after such a test, and tests that already have a status are
+ * skipped, so that the remaining tests can be executed by a new executor in the same folders.
+ */
+public class SuiteExecutor {
+    public static final String COMPILED_PROTOCOL = ".compiled";
+    /**
+     * The exit code of the executor if it stopped before all tests were executed.
+     */
+    public static final int EXIT_CODE_INCOMPLETE = 3;
+    private static final String EVENT_RECORDER = "de.firemage.autograder.agent.EventRecorder";
+    private static final long STOP_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * Executes the tests that do not have a status yet.
+     *
+     * @param mainClass the main class of the student code
+     * @param studentCode the jar with the student code
+     * @param tests the folder of the protocols
+     * @param results the folder of the results
+     * @param quitOnFailure whether the program is stopped at the first unexpected output
+     * @return true if all tests have been executed, false if a test left threads running and the remaining tests
+     *     have to be executed in a new JVM
+     * @throws IOException if a protocol could not be read or a result could not be written
+     * @throws InterruptedException if the thread was interrupted while waiting for a test
+     */
+    public boolean execute(String mainClass, Path studentCode, Path tests, Path results, boolean quitOnFailure)
+        throws IOException, InterruptedException {
+        URL studentCodeUrl = studentCode.toUri().toURL();
+
+        List<Path> protocols;
+        try (Stream<Path> files = Files.list(tests)) {
+            protocols = files.filter(Files::isRegularFile).sorted().toList();
+        }
+
+        Files.createDirectories(results);
+        for (Path protocol : protocols) {
+            String fileName = protocol.getFileName().toString();
+            String name = fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+            if (Files.exists(results.resolve(name + ".status"))) {
+                // executed by an earlier executor
+                continue;
+            }
+
+            // events of the code that ran before the test, like the loading of the executor, are dropped
+            writeEvents(null);
+
+            boolean success;
+            boolean stopped = true;
+            try (PrintStream log = new PrintStream(Files.newOutputStream(results.resolve(name + ".log")), true, StandardCharsets.UTF_8)) {
+                List<IsolatedProcess> processes = new ArrayList<>();
+                ConsoleExecutor executor = new ConsoleExecutor(log, log, (main, args) -> {
+                    IsolatedProcess process = IsolatedProcess.start(studentCodeUrl, main, args);
+                    processes.add(process);
+                    return process;
+                });
+                success = executor.execute(mainClass, readProtocol(protocol), quitOnFailure);
+
+                for (IsolatedProcess process : processes) {
+                    stopped &= process.stopThreads(STOP_TIMEOUT_MILLIS);
+                }
+                if (!stopped) {
+                    log.println("EXEC:  The threads of the test did not stop, the remaining tests run in a new JVM");
+                }
+            }
+
+            writeEvents(results.resolve(name + ".events"));
+            Files.writeString(results.resolve(name + ".status"), success ? "OK" : "FAILURE");
+            if (!stopped) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Protocol readProtocol(Path file) throws IOException {
+        if (file.getFileName().toString().endsWith(COMPILED_PROTOCOL)) {
+            try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(file))) {
+                return Protocol.read(inputStream);
+            }
+        }
+        return Protocol.parse(Files.readString(file));
+    }
+
+    private static void writeEvents(Path path) throws IOException {
+        try {
+            // the agent is loaded by the system class loader, the executor does not depend on it
+            Class<?> recorder = ClassLoader.getSystemClassLoader().loadClass(EVENT_RECORDER);
+            recorder.getMethod("takeEvents", Path.class).invoke(null, path);
+        } catch (ClassNotFoundException e) {
+            // the executor runs without the agent
+            if (path != null) {
+                Files.writeString(path, "");
+            }
+        } catch (InvocationTargetException e) {
+            throw new IOException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -9,13 +9,29 @@ public final class Util {
         
     }
     
+    /**
+     * Returns the location of the jar with the student code.
+     *
+     * @return the path of the jar
+     */
+    public static String studentCode() {
+        return System.getProperty("autograder.studentCode", "/home/student/studentcode.jar");
+    }
+
     public static Process startJVM(String mainClass, List<String> args) throws IOException {
+        // the defaults are the locations in the container, the properties are set when the tests run without one
+        String studentCode = studentCode();
+        String agent = System.getProperty("autograder.agent", "/home/student/Agent.jar");
+        String events = System.getProperty("autograder.events");
+        // the runner passes the java of its sandbox, which might not be the one on the PATH
+        String java = System.getProperty("autograder.java", "java");
+
         List<String> command = new ArrayList<>(List.of(
-            "java",
+            java,
             "-Xmx512m",
             "-cp",
-            "/home/student/studentcode.jar",
-            "-javaagent:/home/student/Agent.jar",
+            studentCode,
+            events == null ? "-javaagent:" + agent : "-javaagent:" + agent + "=" + events,
             mainClass
         ));
         command.addAll(args);